@@ -29,10 +29,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.atomicleopard.expressive.Cast;
-import com.atomicleopard.expressive.Expressive;
 import com.threewks.thundr.configuration.ConfigurationModule;
-import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.HeadHttpServletResponse;
+import com.threewks.thundr.http.HttpSupport;
 import com.threewks.thundr.http.RequestThreadLocal;
+import com.threewks.thundr.http.ResponseCompression;
+import com.threewks.thundr.http.ResponseValidation;
 import com.threewks.thundr.injection.InjectionContextImpl;
 import com.threewks.thundr.injection.Module;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
@@ -40,6 +42,7 @@ import com.threewks.thundr.logger.Logger;
 import com.threewks.thundr.module.Modules;
 import com.threewks.thundr.module.ModulesModule;
 import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.route.MethodOverrideStrategy;
 import com.threewks.thundr.route.RouteResolverException;
 import com.threewks.thundr.route.Router;
 import com.threewks.thundr.route.RouterModule;
@@ -50,10 +53,10 @@ import com.threewks.thundr.view.ViewResolverRegistry;
 
 public class ThundrServlet extends HttpServlet {
 	private static final long serialVersionUID = -7179293239117252585L;
-	private static final String POST = "POST";
 	private static final String HEAD = "HEAD";
 	private UpdatableInjectionContext injectionContext;
 	private Modules modules;
+	private MethodOverrideStrategy defaultMethodOverrideStrategy = new MethodOverrideStrategy();
 
 	@Override
 	public void init(ServletConfig config) throws ServletException {
@@ -114,15 +117,17 @@ public class ThundrServlet extends HttpServlet {
 	}
 
 	protected void applyRoute(final HttpMethod method, final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
-		final ViewResolverRegistry viewResolverRegistry = injectionContext.get(ViewResolverRegistry.class);
 		String requestPath = req.getRequestURI();
 		try {
 			Logger.debug("Invoking path %s", requestPath);
 			RequestThreadLocal.set(req, resp);
+			if (modules != null) {
+				modules.activate(requestPath, injectionContext);
+			}
 			Router router = injectionContext.get(Router.class);
 			final Object viewResult = router.invoke(requestPath, method, req, resp);
 			if (viewResult != null) {
-				resolveView(viewResolverRegistry, viewResult, true);
+				resolveView(injectionContext.get(ViewResolverRegistry.class), viewResult, true);
 			}
 		} catch (Exception e) {
 			if (Cast.is(e, RouteResolverException.class)) {
@@ -134,7 +139,7 @@ public class ThundrServlet extends HttpServlet {
 				throw (ViewResolverNotFoundException) e;
 			}
 			if (!resp.isCommitted()) {
-				resolveView(viewResolverRegistry, e, false);
+				resolveView(injectionContext.get(ViewResolverRegistry.class), e, false);
 			}
 		} finally {
 			RequestThreadLocal.clear();
@@ -142,7 +147,9 @@ public class ThundrServlet extends HttpServlet {
 	}
 
 	protected void resolveView(final ViewResolverRegistry viewResolverRegistry, final Object viewResult, boolean failIfNoViewResolver) {
-		new ServletViewRenderer(viewResolverRegistry, failIfNoViewResolver).render(viewResult);
+		ResponseCompression responseCompression = injectionContext.get(ResponseCompression.class);
+		ResponseValidation responseValidation = injectionContext.get(ResponseValidation.class);
+		new ServletViewRenderer(viewResolverRegistry, responseCompression, responseValidation, failIfNoViewResolver).render(viewResult);
 	}
 
 	@Override
@@ -163,25 +170,37 @@ public class ThundrServlet extends HttpServlet {
 	}
 
 	/**
-	 * Given a request, determines the method (i.e. GET, PUT, POST etc)
+	 * Given a request, determines the method (i.e. GET, PUT, POST etc), taking into account any method override.
 	 * 
 	 * @param req
 	 * @return
+	 * @see MethodOverrideStrategy
 	 */
 	protected String determineMethod(HttpServletRequest req) {
-		String method = req.getMethod();
-		if (POST.equalsIgnoreCase(method)) {
-			String methodOverride = getHeaderCaseInsensitive(req, Header.XHttpMethodOverride);
-			String methodOverride2 = getParameterCaseInsensitive(req, "_method");
+		return getMethodOverrideStrategy().determineMethod(req);
+	}
 
-			if (methodOverride != null) {
-				method = methodOverride;
-			}
-			if (methodOverride2 != null) {
-				method = methodOverride2;
-			}
-		}
-		return method;
+	protected MethodOverrideStrategy getMethodOverrideStrategy() {
+		MethodOverrideStrategy methodOverrideStrategy = injectionContext == null ? null : injectionContext.get(MethodOverrideStrategy.class);
+		return methodOverrideStrategy == null ? defaultMethodOverrideStrategy : methodOverrideStrategy;
+	}
+
+	/**
+	 * @deprecated method overrides are determined by the {@link MethodOverrideStrategy}, which no longer uses this method. Use
+	 *             {@link MethodOverrideStrategy#getParameterCaseInsensitive(HttpServletRequest, String)}.
+	 */
+	@Deprecated
+	protected String getParameterCaseInsensitive(HttpServletRequest req, String parameterName) {
+		return MethodOverrideStrategy.getParameterCaseInsensitive(req, parameterName);
+	}
+
+	/**
+	 * @deprecated method overrides are determined by the {@link MethodOverrideStrategy}, which no longer uses this method. Use
+	 *             {@link MethodOverrideStrategy#getHeaderCaseInsensitive(HttpServletRequest, String)}.
+	 */
+	@Deprecated
+	protected String getHeaderCaseInsensitive(HttpServletRequest req, String headerName) {
+		return MethodOverrideStrategy.getHeaderCaseInsensitive(req, headerName);
 	}
 
 	/**
@@ -195,34 +214,22 @@ public class ThundrServlet extends HttpServlet {
 		return false;
 	}
 
-	/*
-	 * This method is here so that the basic servlet HEAD functionality continues to work;
-	 */
 	@Override
 	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 		applyRoute(HttpMethod.GET, req, resp);
 	}
 
-	@SuppressWarnings("unchecked")
-	protected String getParameterCaseInsensitive(HttpServletRequest req, String parameterName) {
-		Iterable<String> iterable = Expressive.<String> iterable(req.getParameterNames());
-		for (String parameter : iterable) {
-			if (parameterName.equalsIgnoreCase(parameter)) {
-				return req.getParameter(parameter);
-			}
-		}
-		return null;
-	}
-
-	@SuppressWarnings("unchecked")
-	protected String getHeaderCaseInsensitive(HttpServletRequest req, String headerName) {
-		Iterable<String> iterable = Expressive.<String> iterable(req.getHeaderNames());
-		for (String header : iterable) {
-			if (headerName.equalsIgnoreCase(header)) {
-				return req.getHeader(header);
-			}
-		}
-		return null;
+	/**
+	 * HEAD requests are resolved using the GET route. The body is discarded and only counted, so that
+	 * the headers, including Content-Length, match those of the equivalent GET request.
+	 * 
+	 * Views can avoid rendering the body entirely by checking {@link HttpSupport.Methods#isHead(String)}.
+	 */
+	@Override
+	protected void doHead(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		HeadHttpServletResponse headResponse = new HeadHttpServletResponse(resp);
+		applyRoute(HttpMethod.GET, req, headResponse);
+		headResponse.finish();
 	}
 
 	@Override
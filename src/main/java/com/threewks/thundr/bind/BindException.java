@@ -19,6 +19,9 @@ package com.threewks.thundr.bind;
 
 import com.threewks.thundr.exception.BaseException;
 
+/**
+ * Thrown when request data cannot be bound. When a cause is wrapped it retains its stack trace, so this exception does not capture one.
+ */
 public class BindException extends BaseException {
 	private static final long serialVersionUID = -4369379121038517032L;
 
@@ -27,7 +30,7 @@ public class BindException extends BaseException {
 	}
 
 	public BindException(Throwable cause, String format, Object... formatArgs) {
-		super(cause, format, formatArgs);
+		super(formatMessage(format, formatArgs), cause, true, cause == null);
 	}
 
 }
@@ -17,6 +17,7 @@
  */
 package com.threewks.thundr.bind;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -32,22 +33,32 @@ import com.threewks.thundr.bind.parameter.ParameterBinderRegistry;
 import com.threewks.thundr.bind.path.PathVariableBinder;
 import com.threewks.thundr.transformer.TransformerManager;
 
+/**
+ * Holds the {@link Binder}s used to bind controller method parameters, in the order they are applied.
+ * 
+ * Binders are held in an immutable snapshot published through a volatile reference, so reading them never locks
+ * and registering or deregistering a binder publishes a new snapshot.
+ */
 public class BinderRegistry {
-	private Map<Class<? extends Binder>, Binder> methodBinders = new LinkedHashMap<Class<? extends Binder>, Binder>();
+	private volatile Map<Class<? extends Binder>, Binder> methodBinders = Collections.emptyMap();
 
 	public BinderRegistry() {
 	}
 
-	public void registerBinder(Binder binder) {
+	public synchronized void registerBinder(Binder binder) {
+		Map<Class<? extends Binder>, Binder> methodBinders = new LinkedHashMap<Class<? extends Binder>, Binder>(this.methodBinders);
 		methodBinders.put(binder.getClass(), binder);
+		this.methodBinders = Collections.unmodifiableMap(methodBinders);
 	}
 
 	public boolean hasBinder(Class<? extends Binder> type) {
 		return methodBinders.containsKey(type);
 	}
 
-	public void deregisterBinder(Class<? extends Binder> type) {
+	public synchronized void deregisterBinder(Class<? extends Binder> type) {
+		Map<Class<? extends Binder>, Binder> methodBinders = new LinkedHashMap<Class<? extends Binder>, Binder>(this.methodBinders);
 		methodBinders.remove(type);
+		this.methodBinders = Collections.unmodifiableMap(methodBinders);
 	}
 
 	public Iterable<Binder> getRegisteredBinders() {
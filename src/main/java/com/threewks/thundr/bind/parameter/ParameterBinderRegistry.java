@@ -19,6 +19,7 @@ package com.threewks.thundr.bind.parameter;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -39,11 +40,17 @@ import com.threewks.thundr.http.MultipartFile;
 import com.threewks.thundr.introspection.ParameterDescription;
 import com.threewks.thundr.transformer.TransformerManager;
 
+/**
+ * Holds the {@link ParameterBinder}s and {@link BinaryParameterBinder}s used to bind request data to parameters.
+ * 
+ * Binders are held in immutable lists published through a volatile reference, so binding never locks and adding or
+ * removing a binder publishes a new list.
+ */
 public class ParameterBinderRegistry {
 	private static final String[] emptyStringArray = new String[0];
 
-	private List<ParameterBinder<?>> binders = new ArrayList<ParameterBinder<?>>();
-	private List<BinaryParameterBinder<?>> binaryBinders = new ArrayList<BinaryParameterBinder<?>>();
+	private volatile List<ParameterBinder<?>> binders = Collections.emptyList();
+	private volatile List<BinaryParameterBinder<?>> binaryBinders = Collections.emptyList();
 
 	private TransformerManager transformerManager;
 
@@ -56,8 +63,10 @@ public class ParameterBinderRegistry {
 	 * 
 	 * @param binder
 	 */
-	public <T> ParameterBinderRegistry addBinder(ParameterBinder<T> binder) {
+	public synchronized <T> ParameterBinderRegistry addBinder(ParameterBinder<T> binder) {
+		List<ParameterBinder<?>> binders = new ArrayList<ParameterBinder<?>>(this.binders);
 		binders.add(binder);
+		this.binders = Collections.unmodifiableList(binders);
 		return this;
 	}
 
@@ -66,8 +75,10 @@ public class ParameterBinderRegistry {
 	 * 
 	 * @param binder
 	 */
-	public <T> ParameterBinderRegistry addBinder(BinaryParameterBinder<T> binder) {
+	public synchronized <T> ParameterBinderRegistry addBinder(BinaryParameterBinder<T> binder) {
+		List<BinaryParameterBinder<?>> binaryBinders = new ArrayList<BinaryParameterBinder<?>>(this.binaryBinders);
 		binaryBinders.add(binder);
+		this.binaryBinders = Collections.unmodifiableList(binaryBinders);
 		return this;
 	}
 
@@ -78,8 +89,10 @@ public class ParameterBinderRegistry {
 	 * @param binder
 	 * @return
 	 */
-	public <T> ParameterBinderRegistry removeBinder(ParameterBinder<T> binder) {
-		this.binders.remove(binder);
+	public synchronized <T> ParameterBinderRegistry removeBinder(ParameterBinder<T> binder) {
+		List<ParameterBinder<?>> binders = new ArrayList<ParameterBinder<?>>(this.binders);
+		binders.remove(binder);
+		this.binders = Collections.unmodifiableList(binders);
 		return this;
 	}
 
@@ -90,8 +103,10 @@ public class ParameterBinderRegistry {
 	 * @param binder
 	 * @return
 	 */
-	public <T> ParameterBinderRegistry removeBinder(BinaryParameterBinder<T> binder) {
-		this.binaryBinders.remove(binder);
+	public synchronized <T> ParameterBinderRegistry removeBinder(BinaryParameterBinder<T> binder) {
+		List<BinaryParameterBinder<?>> binaryBinders = new ArrayList<BinaryParameterBinder<?>>(this.binaryBinders);
+		binaryBinders.remove(binder);
+		this.binaryBinders = Collections.unmodifiableList(binaryBinders);
 		return this;
 	}
 
@@ -0,0 +1,642 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.threewks.thundr.logger.Logger;
+
+/**
+ * A concurrent cache, optionally bounded by size or weight, whose entries can expire and refresh after they are written.
+ * 
+ * Bounded caches evict using W-TinyLFU. New entries enter a small LRU window, and when they leave it they are only admitted to
+ * the main space if a {@link FrequencySketch} estimates they are accessed more often than the entry which would be evicted
+ * in their place. The main space is a segmented LRU, where entries accessed again are promoted from probation to a protected
+ * segment.
+ * 
+ * Reads do not lock. They are recorded into a lossy {@link ReadBuffer} which is replayed against the eviction policy under
+ * the eviction lock when writing, when a stripe of the buffer fills, or during periodic maintenance through {@link #cleanUp()}.
+ * 
+ * Each key is loaded by at most one thread at a time, concurrent requests for a key being loaded wait for that load. Refreshes
+ * run on the {@link Executor} the cache was created with while the current value continues to be returned.
+ */
+public class Cache<K, V> {
+	private static final int Window = 0;
+	private static final int Probation = 1;
+	private static final int Protected = 2;
+
+	private final String name;
+	private final Executor executor;
+	private final long maximum;
+	private final long windowMaximum;
+	private final long protectedMaximum;
+	private final long expireAfterWrite;
+	private final long refreshAfterWrite;
+	private final Weigher<? super K, ? super V> weigher;
+	private final boolean weighed;
+
+	private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<K, Node<K, V>>();
+	private final ConcurrentMap<K, FutureTask<V>> loading = new ConcurrentHashMap<K, FutureTask<V>>();
+	private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<Node<K, V>>();
+	private final ConcurrentLinkedQueue<Node<K, V>> removals = new ConcurrentLinkedQueue<Node<K, V>>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loadSuccesses = new AtomicLong();
+	private final AtomicLong loadFailures = new AtomicLong();
+	private final AtomicLong loadTime = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong evictionWeight = new AtomicLong();
+
+	// guarded by the eviction lock
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final List<AccessQueue<K, V>> queues = new ArrayList<AccessQueue<K, V>>();
+	private final FrequencySketch sketch;
+	private final List<Node<K, V>> drained = new ArrayList<Node<K, V>>();
+	private Node<K, V> writeHead;
+	private Node<K, V> writeTail;
+	private long weight;
+
+	/**
+	 * @param name
+	 * @param settings
+	 * @param executor runs refreshes, which may be null if the settings do not refresh after write
+	 */
+	@SuppressWarnings("unchecked")
+	public Cache(String name, CacheSettings settings, Executor executor) {
+		this.name = name;
+		this.executor = executor;
+		this.maximum = settings.getMaximum();
+		this.windowMaximum = maximum / 100;
+		this.protectedMaximum = (maximum - windowMaximum) * 8 / 10;
+		this.expireAfterWrite = settings.getExpireAfterWrite();
+		this.refreshAfterWrite = settings.getRefreshAfterWrite();
+		this.weigher = (Weigher<? super K, ? super V>) settings.getWeigher();
+		this.weighed = settings.isWeighed();
+		this.sketch = isBounded() ? new FrequencySketch(weighed ? 0 : maximum) : null;
+		for (int i = Window; i <= Protected; i++) {
+			queues.add(new AccessQueue<K, V>());
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isBounded() {
+		return maximum >= 0;
+	}
+
+	/**
+	 * @param key
+	 * @return the cached value for the given key, or null if there is none or it has expired
+	 */
+	public V getIfPresent(K key) {
+		long now = now();
+		Node<K, V> node = lookup(key, now);
+		if (node == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		afterRead(node, now);
+		return node.value;
+	}
+
+	/**
+	 * Returns the cached value for the given key, loading it with the given loader if it is not present. If the cache refreshes after
+	 * write, the same loader reloads the value.
+	 * 
+	 * @param key
+	 * @param loader
+	 * @return the cached or loaded value, or null if the loader returned null
+	 * @throws CacheException if the loader throws an exception
+	 */
+	public V get(final K key, final CacheLoader<? super K, V> loader) {
+		long now = now();
+		Node<K, V> node = lookup(key, now);
+		if (node != null) {
+			hits.incrementAndGet();
+			afterRead(node, now);
+			return node.value;
+		}
+		misses.incrementAndGet();
+
+		FutureTask<V> load = new FutureTask<V>(new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				Node<K, V> node = lookup(key, now());
+				if (node != null) {
+					return node.value;
+				}
+				V value = load(key, loader);
+				if (value != null) {
+					put(key, value, loader);
+				}
+				return value;
+			}
+		});
+		FutureTask<V> existing = loading.putIfAbsent(key, load);
+		if (existing == null) {
+			try {
+				load.run();
+			} finally {
+				loading.remove(key, load);
+			}
+			existing = load;
+		}
+		try {
+			return existing.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CacheException(e, "Interrupted waiting for '%s' to load into the cache %s", key, name);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw new CacheException(cause, "Failed to load '%s' into the cache %s: %s", key, name, cause.getMessage());
+		}
+	}
+
+	public void put(K key, V value) {
+		put(key, value, null);
+	}
+
+	public void invalidate(K key) {
+		Node<K, V> node = data.remove(key);
+		if (node != null) {
+			node.removed = true;
+			evictionLock.lock();
+			try {
+				unlink(node);
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Invalidates the given key only if it is still cached with the given value, so that a value written concurrently is not lost.
+	 * 
+	 * @return true if the value was invalidated
+	 */
+	public boolean invalidate(K key, V value) {
+		Node<K, V> node = data.get(key);
+		if (node == null || !node.value.equals(value) || !data.remove(key, node)) {
+			return false;
+		}
+		node.removed = true;
+		evictionLock.lock();
+		try {
+			unlink(node);
+		} finally {
+			evictionLock.unlock();
+		}
+		return true;
+	}
+
+	public void invalidateAll() {
+		for (K key : data.keySet()) {
+			invalidate(key);
+		}
+	}
+
+	/**
+	 * @return an unmodifiable view of the keys in the cache, which may include expired entries which have not yet been removed
+	 */
+	public Set<K> keySet() {
+		return Collections.unmodifiableSet(data.keySet());
+	}
+
+	/**
+	 * @return the number of entries in the cache, which may include expired entries which have not yet been removed
+	 */
+	public int size() {
+		return data.size();
+	}
+
+	/**
+	 * @return the total weight of the entries in the cache, which is their number unless the cache is bounded by weight
+	 */
+	public long weight() {
+		evictionLock.lock();
+		try {
+			return weight;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	public CacheStats getStats() {
+		return new CacheStats(hits.get(), misses.get(), loadSuccesses.get(), loadFailures.get(), loadTime.get(), evictions.get(), evictionWeight.get());
+	}
+
+	/**
+	 * Applies pending reads to the eviction policy, and removes expired entries and entries over the bounds of the cache.
+	 */
+	public void cleanUp() {
+		evictionLock.lock();
+		try {
+			maintain();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the current time in nanoseconds, used for expiry and refresh
+	 */
+	protected long now() {
+		return System.nanoTime();
+	}
+
+	private Node<K, V> lookup(K key, long now) {
+		Node<K, V> node = data.get(key);
+		if (node == null) {
+			return null;
+		}
+		if (expireAfterWrite > 0 && now - node.writeTime >= expireAfterWrite) {
+			if (data.remove(key, node)) {
+				node.removed = true;
+				evictions.incrementAndGet();
+				evictionWeight.addAndGet(node.weight);
+				removals.add(node);
+				tryMaintain();
+			}
+			return null;
+		}
+		return node;
+	}
+
+	private void afterRead(Node<K, V> node, long now) {
+		if (isBounded() && readBuffer.record(node)) {
+			tryMaintain();
+		}
+		if (refreshAfterWrite > 0 && node.loader != null && now - node.writeTime >= refreshAfterWrite && node.refreshing.compareAndSet(false, true)) {
+			refresh(node);
+		}
+	}
+
+	private void refresh(final Node<K, V> node) {
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						V value = load(node.key, node.loader);
+						if (value != null) {
+							replace(node, new Node<K, V>(node.key, value, weigh(node.key, value), now(), node.loader));
+						}
+					} catch (Exception e) {
+						Logger.warn("Failed to refresh '%s' in the cache %s: %s", node.key, name, e.getMessage());
+					} finally {
+						node.refreshing.set(false);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			node.refreshing.set(false);
+		}
+	}
+
+	private V load(K key, CacheLoader<? super K, V> loader) throws Exception {
+		long start = System.nanoTime();
+		V value;
+		try {
+			value = loader.load(key);
+		} catch (Exception e) {
+			loadFailures.incrementAndGet();
+			throw e;
+		} finally {
+			loadTime.addAndGet(System.nanoTime() - start);
+		}
+		if (value == null) {
+			loadFailures.incrementAndGet();
+			return null;
+		}
+		loadSuccesses.incrementAndGet();
+		return value;
+	}
+
+	private void put(K key, V value, CacheLoader<? super K, V> loader) {
+		Node<K, V> node = new Node<K, V>(key, value, weigh(key, value), now(), loader);
+		while (true) {
+			Node<K, V> prior = data.get(key);
+			if (prior == null) {
+				if (data.putIfAbsent(key, node) == null) {
+					added(null, node);
+					return;
+				}
+			} else if (data.replace(key, prior, node)) {
+				prior.removed = true;
+				added(prior, node);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the given node if it is still current, so that a refresh does not overwrite a newer value.
+	 */
+	private void replace(Node<K, V> prior, Node<K, V> node) {
+		if (data.replace(prior.key, prior, node)) {
+			prior.removed = true;
+			added(prior, node);
+		}
+	}
+
+	private void added(Node<K, V> prior, Node<K, V> node) {
+		evictionLock.lock();
+		try {
+			int queue = Window;
+			if (prior != null && prior.linked) {
+				queue = prior.queue;
+				unlink(prior);
+			}
+			// the node may have been removed by another thread before we acquired the lock
+			if (!node.removed) {
+				link(node, queue);
+			}
+			maintain();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private int weigh(K key, V value) {
+		int weight = weigher.weigh(key, value);
+		if (weight < 0) {
+			throw new CacheException("The weight of '%s' in the cache %s is negative: %d", key, name, weight);
+		}
+		return weight;
+	}
+
+	private void tryMaintain() {
+		if (evictionLock.tryLock()) {
+			try {
+				maintain();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	private void maintain() {
+		drainReads();
+		Node<K, V> removed;
+		while ((removed = removals.poll()) != null) {
+			unlink(removed);
+		}
+		expire(now());
+		evict();
+	}
+
+	private void drainReads() {
+		if (!isBounded()) {
+			return;
+		}
+		readBuffer.drainTo(drained);
+		for (Node<K, V> node : drained) {
+			accessed(node);
+		}
+		drained.clear();
+	}
+
+	private void accessed(Node<K, V> node) {
+		if (!node.linked) {
+			return;
+		}
+		sketch.increment(node.key);
+		if (node.queue == Probation) {
+			queues.get(Probation).remove(node);
+			queues.get(Protected).add(node, Protected);
+		} else {
+			queues.get(node.queue).moveToTail(node);
+		}
+	}
+
+	private void expire(long now) {
+		while (writeHead != null && expireAfterWrite > 0 && now - writeHead.writeTime >= expireAfterWrite) {
+			Node<K, V> node = writeHead;
+			if (data.remove(node.key, node)) {
+				node.removed = true;
+				evictions.incrementAndGet();
+				evictionWeight.addAndGet(node.weight);
+			}
+			unlink(node);
+		}
+	}
+
+	private void evict() {
+		if (!isBounded()) {
+			return;
+		}
+		AccessQueue<K, V> window = queues.get(Window);
+		AccessQueue<K, V> probation = queues.get(Probation);
+		AccessQueue<K, V> protectedQueue = queues.get(Protected);
+		while (protectedQueue.weight > protectedMaximum) {
+			Node<K, V> node = protectedQueue.head;
+			protectedQueue.remove(node);
+			probation.add(node, Probation);
+		}
+		// entries leaving the window are candidates for admission at the tail of probation
+		int candidates = 0;
+		while (window.weight > windowMaximum) {
+			Node<K, V> node = window.head;
+			window.remove(node);
+			probation.add(node, Probation);
+			candidates++;
+		}
+		while (weight > maximum) {
+			Node<K, V> victim = probation.head;
+			if (victim == null) {
+				victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+				if (victim == null) {
+					break;
+				}
+				evict(victim);
+				continue;
+			}
+			Node<K, V> candidate = candidates > 0 ? probation.tail : null;
+			if (candidate == null) {
+				evict(victim);
+			} else if (candidate == victim) {
+				candidates--;
+				evict(victim);
+			} else if (admit(candidate, victim)) {
+				evict(victim);
+			} else {
+				candidates--;
+				evict(candidate);
+			}
+		}
+	}
+
+	private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+		if (candidate.weight > maximum) {
+			return false;
+		}
+		int candidateFrequency = sketch.frequency(candidate.key);
+		int victimFrequency = sketch.frequency(victim.key);
+		if (candidateFrequency > victimFrequency) {
+			return true;
+		}
+		// occasionally admit warm candidates, so an attacker cannot keep a hot victim resident by flooding colliding keys
+		return candidateFrequency > 5 && ThreadLocalRandom.current().nextInt(128) == 0;
+	}
+
+	private void evict(Node<K, V> node) {
+		if (data.remove(node.key, node)) {
+			node.removed = true;
+			evictions.incrementAndGet();
+			evictionWeight.addAndGet(node.weight);
+		}
+		unlink(node);
+	}
+
+	private void link(Node<K, V> node, int queue) {
+		if (weighed && sketch != null && data.size() > sketch.capacity()) {
+			sketch.ensureCapacity(data.size() * 2L);
+		}
+		if (sketch != null) {
+			sketch.increment(node.key);
+		}
+		queues.get(queue).add(node, queue);
+		weight += node.weight;
+		node.linked = true;
+		if (expireAfterWrite > 0) {
+			node.previousWrite = writeTail;
+			if (writeTail == null) {
+				writeHead = node;
+			} else {
+				writeTail.nextWrite = node;
+			}
+			writeTail = node;
+		}
+	}
+
+	private void unlink(Node<K, V> node) {
+		if (!node.linked) {
+			return;
+		}
+		queues.get(node.queue).remove(node);
+		weight -= node.weight;
+		node.linked = false;
+		if (expireAfterWrite > 0) {
+			if (node.previousWrite == null) {
+				writeHead = node.nextWrite;
+			} else {
+				node.previousWrite.nextWrite = node.nextWrite;
+			}
+			if (node.nextWrite == null) {
+				writeTail = node.previousWrite;
+			} else {
+				node.nextWrite.previousWrite = node.previousWrite;
+			}
+			node.previousWrite = null;
+			node.nextWrite = null;
+		}
+	}
+
+	/**
+	 * An entry in the cache. Values are never changed in place, a write replaces the node for its key.
+	 */
+	static class Node<K, V> {
+		final K key;
+		final V value;
+		final int weight;
+		final long writeTime;
+		final CacheLoader<? super K, V> loader;
+		final AtomicBoolean refreshing = new AtomicBoolean();
+		volatile boolean removed;
+
+		// guarded by the eviction lock
+		boolean linked;
+		int queue;
+		Node<K, V> previous;
+		Node<K, V> next;
+		Node<K, V> previousWrite;
+		Node<K, V> nextWrite;
+
+		Node(K key, V value, int weight, long writeTime, CacheLoader<? super K, V> loader) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.writeTime = writeTime;
+			this.loader = loader;
+		}
+	}
+
+	/**
+	 * A weighed doubly linked list of nodes in access order, least recently accessed first.
+	 */
+	static class AccessQueue<K, V> {
+		Node<K, V> head;
+		Node<K, V> tail;
+		long weight;
+
+		void add(Node<K, V> node, int queue) {
+			node.queue = queue;
+			node.previous = tail;
+			node.next = null;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			weight += node.weight;
+		}
+
+		void remove(Node<K, V> node) {
+			if (node.previous == null) {
+				head = node.next;
+			} else {
+				node.previous.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.previous;
+			} else {
+				node.next.previous = node.previous;
+			}
+			node.previous = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+
+		void moveToTail(Node<K, V> node) {
+			if (node != tail) {
+				remove(node);
+				add(node, node.queue);
+			}
+		}
+	}
+}
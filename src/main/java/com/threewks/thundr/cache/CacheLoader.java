@@ -0,0 +1,30 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+/**
+ * Loads values into a {@link Cache} on a miss, and reloads them when the cache refreshes after write.
+ */
+public interface CacheLoader<K, V> {
+	/**
+	 * @param key
+	 * @return the value for the given key, or null if there is none. Null values are not cached.
+	 * @throws Exception
+	 */
+	public V load(K key) throws Exception;
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.threewks.thundr.injection.BaseModule;
+import com.threewks.thundr.injection.InjectionContext;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.threewks.thundr.logger.Logger;
+
+/**
+ * Provides named {@link Cache} instances configured in application properties. The property {@value #CachesProperty} lists the
+ * names of the caches to create, and each is configured by properties prefixed with {@value #CachePropertyPrefix} and its name:
+ * 
+ * <pre>
+ * caches=users,templates
+ * cache.users.maximumSize=10000
+ * cache.users.expireAfterWrite=600
+ * cache.users.refreshAfterWrite=60
+ * </pre>
+ * 
+ * Durations are in seconds. Caches are injected by name as {@link Cache}, and the {@link Caches} registry is available for
+ * creating caches with a {@link Weigher} and for reading statistics.
+ */
+public class CacheModule extends BaseModule {
+	public static final String CachesProperty = "caches";
+	public static final String CachePropertyPrefix = "cache.";
+	public static final String MaximumSizeSuffix = ".maximumSize";
+	public static final String ExpireAfterWriteSuffix = ".expireAfterWrite";
+	public static final String RefreshAfterWriteSuffix = ".refreshAfterWrite";
+	public static final String CacheThreadsProperty = "cacheThreads";
+	public static final String CacheMaintenanceIntervalProperty = "cacheMaintenanceInterval";
+
+	@Override
+	public void initialise(UpdatableInjectionContext injectionContext) {
+		super.initialise(injectionContext);
+		int threads = NumberUtils.toInt(injectionContext.get(String.class, CacheThreadsProperty), Caches.DefaultThreads);
+		injectionContext.inject(new Caches(threads)).as(Caches.class);
+	}
+
+	@Override
+	public void configure(UpdatableInjectionContext injectionContext) {
+		super.configure(injectionContext);
+		Caches caches = injectionContext.get(Caches.class);
+		for (String name : StringUtils.split(StringUtils.defaultString(injectionContext.get(String.class, CachesProperty)), ", ")) {
+			Cache<Object, Object> cache = caches.create(name, createSettings(injectionContext, name));
+			injectionContext.inject(cache).named(name).as(Cache.class);
+			Logger.debug("Created cache %s", name);
+		}
+	}
+
+	@Override
+	public void start(UpdatableInjectionContext injectionContext) {
+		super.start(injectionContext);
+		long interval = NumberUtils.toLong(injectionContext.get(String.class, CacheMaintenanceIntervalProperty), Caches.DefaultMaintenanceInterval);
+		injectionContext.get(Caches.class).startMaintenance(interval);
+	}
+
+	@Override
+	public void stop(InjectionContext injectionContext) {
+		if (injectionContext.contains(Caches.class)) {
+			Caches caches = injectionContext.get(Caches.class);
+			Logger.info("Cache statistics: %s", caches.getStats());
+			caches.stop();
+		}
+		super.stop(injectionContext);
+	}
+
+	protected CacheSettings createSettings(InjectionContext injectionContext, String name) {
+		String prefix = CachePropertyPrefix + name;
+		CacheSettings settings = new CacheSettings();
+		String maximumSize = injectionContext.get(String.class, prefix + MaximumSizeSuffix);
+		if (StringUtils.isNotBlank(maximumSize)) {
+			settings.maximumSize(Long.parseLong(maximumSize.trim()));
+		}
+		String expireAfterWrite = injectionContext.get(String.class, prefix + ExpireAfterWriteSuffix);
+		if (StringUtils.isNotBlank(expireAfterWrite)) {
+			settings.expireAfterWrite(Long.parseLong(expireAfterWrite.trim()), TimeUnit.SECONDS);
+		}
+		String refreshAfterWrite = injectionContext.get(String.class, prefix + RefreshAfterWriteSuffix);
+		if (StringUtils.isNotBlank(refreshAfterWrite)) {
+			settings.refreshAfterWrite(Long.parseLong(refreshAfterWrite.trim()), TimeUnit.SECONDS);
+		}
+		return settings;
+	}
+}
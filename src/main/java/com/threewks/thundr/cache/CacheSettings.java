@@ -0,0 +1,113 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bounds and expiry of a {@link Cache}. A cache is unbounded unless a maximum size or weight is given, and entries
+ * never expire or refresh unless a duration is given.
+ */
+public class CacheSettings {
+	private static final Weigher<Object, Object> SingletonWeigher = new Weigher<Object, Object>() {
+		@Override
+		public int weigh(Object key, Object value) {
+			return 1;
+		}
+	};
+
+	private long maximum = -1;
+	private Weigher<?, ?> weigher = SingletonWeigher;
+	private boolean weighed;
+	private long expireAfterWrite;
+	private long refreshAfterWrite;
+
+	/**
+	 * Bounds the cache to the given number of entries.
+	 */
+	public CacheSettings maximumSize(long maximumSize) {
+		this.maximum = maximumSize;
+		this.weigher = SingletonWeigher;
+		this.weighed = false;
+		return this;
+	}
+
+	/**
+	 * Bounds the cache to the given total weight, where entries are weighed by the given {@link Weigher}.
+	 */
+	public CacheSettings maximumWeight(long maximumWeight, Weigher<?, ?> weigher) {
+		this.maximum = maximumWeight;
+		this.weigher = weigher;
+		this.weighed = true;
+		return this;
+	}
+
+	/**
+	 * Expires entries once the given duration has passed since they were written.
+	 */
+	public CacheSettings expireAfterWrite(long duration, TimeUnit unit) {
+		this.expireAfterWrite = unit.toNanos(duration);
+		return this;
+	}
+
+	/**
+	 * Reloads entries in the background when they are read once the given duration has passed since they were written.
+	 * The current value continues to be returned until the reload completes. Only entries loaded by a {@link CacheLoader}
+	 * are refreshed.
+	 */
+	public CacheSettings refreshAfterWrite(long duration, TimeUnit unit) {
+		this.refreshAfterWrite = unit.toNanos(duration);
+		return this;
+	}
+
+	public boolean isBounded() {
+		return maximum >= 0;
+	}
+
+	/**
+	 * @return the maximum size or weight of the cache, or -1 if it is unbounded
+	 */
+	public long getMaximum() {
+		return maximum;
+	}
+
+	/**
+	 * @return true if the cache is bounded by weight rather than by size
+	 */
+	public boolean isWeighed() {
+		return weighed;
+	}
+
+	public Weigher<?, ?> getWeigher() {
+		return weigher;
+	}
+
+	/**
+	 * @return the duration in nanoseconds after which entries expire, or 0 if they do not
+	 */
+	public long getExpireAfterWrite() {
+		return expireAfterWrite;
+	}
+
+	/**
+	 * @return the duration in nanoseconds after which entries are refreshed, or 0 if they are not
+	 */
+	public long getRefreshAfterWrite() {
+		return refreshAfterWrite;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The named {@link Cache} instances of an application, along with the threads which refresh their entries and perform
+ * their maintenance.
+ */
+public class Caches {
+	public static final int DefaultThreads = 2;
+	public static final long DefaultMaintenanceInterval = 1000;
+
+	private final ConcurrentMap<String, Cache<?, ?>> caches = new ConcurrentHashMap<String, Cache<?, ?>>();
+	private final ScheduledExecutorService executor;
+	private ScheduledFuture<?> maintenance;
+
+	public Caches() {
+		this(DefaultThreads);
+	}
+
+	public Caches(int threads) {
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "cache-maintenance-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Creates a new cache with the given name and settings.
+	 * 
+	 * @throws CacheException if a cache with the given name already exists
+	 */
+	public <K, V> Cache<K, V> create(String name, CacheSettings settings) {
+		Cache<K, V> cache = new Cache<K, V>(name, settings, executor);
+		if (caches.putIfAbsent(name, cache) != null) {
+			throw new CacheException("A cache named %s already exists", name);
+		}
+		return cache;
+	}
+
+	/**
+	 * @param name
+	 * @return the cache with the given name, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public <K, V> Cache<K, V> get(String name) {
+		return (Cache<K, V>) caches.get(name);
+	}
+
+	/**
+	 * @return the statistics of each cache by name
+	 */
+	public Map<String, CacheStats> getStats() {
+		Map<String, CacheStats> stats = new TreeMap<String, CacheStats>();
+		for (Cache<?, ?> cache : caches.values()) {
+			stats.put(cache.getName(), cache.getStats());
+		}
+		return stats;
+	}
+
+	public void cleanUp() {
+		for (Cache<?, ?> cache : caches.values()) {
+			cache.cleanUp();
+		}
+	}
+
+	/**
+	 * Starts cleaning up all caches at the given interval, so that expired entries are removed and reads are applied to the
+	 * eviction policy even when caches are idle.
+	 */
+	public synchronized void startMaintenance(long interval) {
+		if (maintenance == null && !executor.isShutdown()) {
+			maintenance = executor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					cleanUp();
+				}
+			}, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public synchronized boolean isMaintaining() {
+		return maintenance != null;
+	}
+
+	/**
+	 * Stops maintenance and refresh threads. Caches remain usable, but entries are no longer refreshed.
+	 */
+	public synchronized void stop() {
+		maintenance = null;
+		executor.shutdownNow();
+	}
+
+	public boolean isStopped() {
+		return executor.isShutdown();
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+/**
+ * A count-min sketch estimating how often keys have been accessed, used by {@link Cache} to decide whether a new entry
+ * should be admitted in place of an existing one. Each key is counted in four 4-bit counters, so estimates saturate at 15,
+ * and all counters are halved periodically so that the sketch follows changes in popularity.
+ * 
+ * This class is not thread safe, the cache only uses it while holding its eviction lock.
+ */
+class FrequencySketch {
+	static final int MaximumFrequency = 15;
+	private static final long[] Seeds = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+	private static final long ResetMask = 0x7777777777777777L;
+	private static final int MaximumCapacity = 1 << 30;
+
+	private long[] table = new long[0];
+	private int tableMask;
+	private int sampleSize;
+	private int size;
+
+	FrequencySketch(long capacity) {
+		ensureCapacity(capacity);
+	}
+
+	/**
+	 * Grows the sketch to accurately count the given number of keys. Growing discards existing counts.
+	 */
+	void ensureCapacity(long capacity) {
+		int length = ceilingPowerOfTwo((int) Math.min(Math.max(capacity, 16), MaximumCapacity));
+		if (length > table.length) {
+			table = new long[length];
+			tableMask = length - 1;
+			sampleSize = 10 * length;
+			size = 0;
+		}
+	}
+
+	int capacity() {
+		return table.length;
+	}
+
+	int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	void increment(Object key) {
+		int hash = spread(key.hashCode());
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++size == sampleSize) {
+			reset();
+		}
+	}
+
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Halves every counter, ageing the counts of keys which are no longer accessed.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & ResetMask;
+		}
+		size = size / 2;
+	}
+
+	private int indexOf(int hash, int i) {
+		long index = (hash + Seeds[i]) * Seeds[i];
+		index += index >>> 32;
+		return ((int) index) & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+
+	private static int ceilingPowerOfTwo(int x) {
+		return 1 << -Integer.numberOfLeadingZeros(x - 1);
+	}
+}
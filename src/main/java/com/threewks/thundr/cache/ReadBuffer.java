@@ -0,0 +1,99 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lossy buffer of reads which a {@link Cache} replays against its eviction policy while holding its eviction lock. Reads are
+ * recorded without locking into one of several stripes chosen by the reading thread, and are dropped when that stripe is full
+ * or contended. Losing some reads only makes the eviction policy slightly less accurate.
+ */
+class ReadBuffer<E> {
+	static final int StripeSize = 16;
+	private static final int StripeMask = StripeSize - 1;
+
+	private final Stripe<E>[] stripes;
+	private final int stripeMask;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	ReadBuffer() {
+		int count = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 4) * 2 - 1);
+		stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe<E>();
+		}
+		stripeMask = count - 1;
+	}
+
+	/**
+	 * @param element
+	 * @return true if the stripe the element was recorded to is full and the buffer should be drained
+	 */
+	boolean record(E element) {
+		long id = Thread.currentThread().getId();
+		int hash = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+		return stripes[(hash >>> 16) & stripeMask].record(element);
+	}
+
+	/**
+	 * Moves all recorded elements into the given list. Only one thread may drain at a time.
+	 */
+	void drainTo(List<E> sink) {
+		for (Stripe<E> stripe : stripes) {
+			stripe.drainTo(sink);
+		}
+	}
+
+	private static class Stripe<E> {
+		private final AtomicReferenceArray<E> elements = new AtomicReferenceArray<E>(StripeSize);
+		private final AtomicLong head = new AtomicLong();
+		private final AtomicLong tail = new AtomicLong();
+
+		boolean record(E element) {
+			long tail = this.tail.get();
+			long size = tail - head.get();
+			if (size >= StripeSize) {
+				return true;
+			}
+			if (this.tail.compareAndSet(tail, tail + 1)) {
+				elements.lazySet((int) (tail & StripeMask), element);
+				return size + 1 == StripeSize;
+			}
+			return false;
+		}
+
+		void drainTo(List<E> sink) {
+			long head = this.head.get();
+			long tail = this.tail.get();
+			for (; head < tail; head++) {
+				int index = (int) (head & StripeMask);
+				E element = elements.get(index);
+				if (element == null) {
+					// reserved but not yet published, pick it up on the next drain
+					break;
+				}
+				elements.lazySet(index, null);
+				sink.add(element);
+			}
+			this.head.lazySet(head);
+		}
+	}
+}
@@ -19,21 +19,62 @@ package com.threewks.thundr.exception;
 
 public class BaseException extends RuntimeException {
 	private static final long serialVersionUID = 2489531688803100876L;
+	private static final ClassValue<Boolean> stackless = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			Stackless annotation = type.getAnnotation(Stackless.class);
+			return annotation != null && annotation.value();
+		}
+	};
 
 	public BaseException() {
 		super();
 	}
 
 	public BaseException(Throwable cause, String format, Object... formatArgs) {
-		super(formatArgs.length == 0 ? format : String.format(format, formatArgs), cause);
+		super(formatMessage(format, formatArgs), cause);
 	}
 
 	public BaseException(String format, Object... formatArgs) {
-		super(formatArgs.length == 0 ? format : String.format(format, formatArgs));
+		super(formatMessage(format, formatArgs));
 	}
 
 	public BaseException(Throwable cause) {
 		super(cause);
 	}
 
+	/**
+	 * Allows subclasses to control suppression and stack trace capture directly, for example to create exceptions
+	 * which can be safely shared.
+	 * 
+	 * @param message the message, which is not formatted
+	 * @param cause
+	 * @param enableSuppression
+	 * @param writableStackTrace
+	 * @see RuntimeException#RuntimeException(String, Throwable, boolean, boolean)
+	 */
+	protected BaseException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+	/**
+	 * Skips capturing the stack trace for exception types annotated with {@link Stackless}
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return isStackless(getClass()) ? this : super.fillInStackTrace();
+	}
+
+	protected static String formatMessage(String format, Object... formatArgs) {
+		return formatArgs.length == 0 ? format : String.format(format, formatArgs);
+	}
+
+	/**
+	 * @param type
+	 * @return true if exceptions of the given type do not capture a stack trace
+	 * @see Stackless
+	 */
+	public static boolean isStackless(Class<? extends Throwable> type) {
+		return stackless.get(type);
+	}
 }
@@ -0,0 +1,149 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A satisfiable range of bytes requested using the Range header, with an inclusive start and end.
+ * 
+ * @see http://tools.ietf.org/html/rfc7233
+ */
+public class ByteRange {
+	public static final String Unit = "bytes";
+	/**
+	 * Requests for more ranges than this are treated as requests for the complete content.
+	 */
+	public static final int MaxRanges = 16;
+
+	private final long start;
+	private final long end;
+
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public long length() {
+		return end - start + 1;
+	}
+
+	/**
+	 * @param totalLength
+	 * @return the value of the Content-Range header for this range of content of the given total length
+	 */
+	public String contentRange(long totalLength) {
+		return String.format("%s %d-%d/%d", Unit, start, end, totalLength);
+	}
+
+	/**
+	 * Parses the given Range header against content of the given length.
+	 * 
+	 * @param range the Range header value
+	 * @param length the length of the content
+	 * @return the satisfiable ranges requested, an empty list if none of the requested ranges are satisfiable, or null if
+	 *         the header is absent, invalid, uses an unknown unit or requests too many ranges, in which case it should be ignored.
+	 */
+	public static List<ByteRange> parse(String range, long length) {
+		if (range == null || length < 0) {
+			return null;
+		}
+		int equals = range.indexOf('=');
+		if (equals < 0 || !Unit.equalsIgnoreCase(range.substring(0, equals).trim())) {
+			return null;
+		}
+		String[] specs = StringUtils.split(range.substring(equals + 1), ',');
+		if (specs.length == 0 || specs.length > MaxRanges) {
+			return null;
+		}
+		List<ByteRange> ranges = new ArrayList<ByteRange>(specs.length);
+		for (String spec : specs) {
+			spec = spec.trim();
+			int dash = spec.indexOf('-');
+			if (dash < 0) {
+				return null;
+			}
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			if (first.isEmpty() && last.isEmpty() || !isEmptyOrDigits(first) || !isEmptyOrDigits(last)) {
+				return null;
+			}
+			if (first.isEmpty()) {
+				// suffix range, i.e. the last n bytes
+				long suffix = toLong(last);
+				if (suffix > 0 && length > 0) {
+					ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+				}
+			} else {
+				long start = toLong(first);
+				long end = last.isEmpty() ? Long.MAX_VALUE : toLong(last);
+				if (end < start) {
+					return null;
+				}
+				if (start < length) {
+					ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+				}
+			}
+		}
+		return Collections.unmodifiableList(ranges);
+	}
+
+	private static boolean isEmptyOrDigits(String value) {
+		return value.isEmpty() || StringUtils.isNumeric(value);
+	}
+
+	private static long toLong(String digits) {
+		try {
+			return Long.parseLong(digits);
+		} catch (NumberFormatException e) {
+			// larger than any content
+			return Long.MAX_VALUE;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (start ^ (start >>> 32)) * 31 + (int) (end ^ (end >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ByteRange)) {
+			return false;
+		}
+		ByteRange other = (ByteRange) obj;
+		return start == other.start && end == other.end;
+	}
+
+	@Override
+	public String toString() {
+		return start + "-" + end;
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.threewks.thundr.route.staticResource.DeflaterPool;
+import com.threewks.thundr.route.staticResource.GzipResponseStream;
+import com.threewks.thundr.route.staticResource.GzipResponseWrapper;
+
+import jodd.util.Wildcard;
+
+/**
+ * Wraps a response to compress its content if its content type is eligible. The decision is made when the body is first accessed,
+ * by which time view resolvers have set the content type. Any Content-Length set before then is held back, and only applied
+ * if the content is not compressed. Partial content is never compressed, as its Content-Range describes the uncompressed content.
+ * 
+ * @see ResponseCompression
+ */
+public class CompressingHttpServletResponse extends GzipResponseWrapper {
+	private final List<String> contentTypes;
+	private final boolean acceptsGzip;
+	private Boolean compressing;
+	private boolean partial;
+	private long contentLength = -1;
+
+	public CompressingHttpServletResponse(HttpServletResponse response, List<String> contentTypes, boolean acceptsGzip, DeflaterPool deflaterPool, int threshold) {
+		super(response, deflaterPool);
+		this.contentTypes = contentTypes;
+		this.acceptsGzip = acceptsGzip;
+		setCompressionThreshold(threshold);
+	}
+
+	/**
+	 * @return true if the content of this response is being compressed. Calling this decides whether to compress, after which the content type
+	 *         has no further effect.
+	 */
+	public boolean isCompressing() {
+		if (compressing == null) {
+			boolean eligible = isEligible(origResponse.getContentType());
+			if (eligible) {
+				origResponse.addHeader(Header.Vary, Header.AcceptEncoding);
+			}
+			compressing = eligible && acceptsGzip && !isPartial() && !origResponse.containsHeader(Header.ContentEncoding);
+			if (!compressing && contentLength >= 0) {
+				origResponse.setHeader(Header.ContentLength, Long.toString(contentLength));
+			}
+		}
+		return compressing;
+	}
+
+	protected boolean isPartial() {
+		return partial || origResponse.containsHeader(Header.ContentRange);
+	}
+
+	protected boolean isEligible(String contentType) {
+		String mimeType = StringUtils.trimToNull(StringUtils.substringBefore(contentType, ";"));
+		if (mimeType != null) {
+			for (String pattern : contentTypes) {
+				if (Wildcard.match(mimeType, pattern)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		return isCompressing() ? super.getOutputStream() : origResponse.getOutputStream();
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		return isCompressing() ? super.getWriter() : origResponse.getWriter();
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (compressing == Boolean.TRUE) {
+			super.flushBuffer();
+		} else {
+			origResponse.flushBuffer();
+		}
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		partial = sc == HttpServletResponse.SC_PARTIAL_CONTENT;
+		super.setStatus(sc);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public void setStatus(int sc, String sm) {
+		partial = sc == HttpServletResponse.SC_PARTIAL_CONTENT;
+		super.setStatus(sc, sm);
+	}
+
+	@Override
+	public void setContentLength(int length) {
+		setContentLength((long) length);
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength(NumberUtils.toLong(value, -1));
+		} else {
+			super.setHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength(NumberUtils.toLong(value, -1));
+		} else {
+			super.addHeader(name, value);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength((long) value);
+		} else {
+			super.setIntHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength((long) value);
+		} else {
+			super.addIntHeader(name, value);
+		}
+	}
+
+	private void setContentLength(long length) {
+		if (compressing == null) {
+			contentLength = length;
+		} else if (!compressing) {
+			origResponse.setHeader(Header.ContentLength, Long.toString(length));
+		}
+	}
+
+	/**
+	 * Writes any remaining compressed content, or applies a Content-Length held back if the body was never accessed.
+	 */
+	public void finish() {
+		if (compressing == null) {
+			compressing = false;
+			if (contentLength >= 0) {
+				origResponse.setHeader(Header.ContentLength, Long.toString(contentLength));
+			}
+		} else if (compressing) {
+			finishResponse();
+		}
+	}
+
+	/**
+	 * Discards any compressed content not yet written, releasing the deflater in use.
+	 */
+	public void discard() {
+		if (stream instanceof GzipResponseStream) {
+			((GzipResponseStream) stream).discard();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Evaluates the <code>If-None-Match</code> and <code>If-Modified-Since</code> headers of conditional GET requests.
+ */
+public class ConditionalRequest {
+	/**
+	 * @param request
+	 * @param etag the current ETag of the requested content including quotes, or null if it has none
+	 * @param lastModified the time the requested content last changed, or a value less than 1 if unknown
+	 * @return true if the client's copy of the content is current, so that a 304 Not Modified response can be sent. If-Modified-Since is
+	 *         only considered when the request has no If-None-Match header.
+	 */
+	public static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeader(Header.IfNoneMatch);
+		if (ifNoneMatch != null) {
+			return etag != null && matchesETag(ifNoneMatch, etag);
+		}
+		if (lastModified > 0) {
+			try {
+				long ifModifiedSince = request.getDateHeader(Header.IfModifiedSince);
+				// http dates have a resolution of seconds
+				return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+			} catch (IllegalArgumentException e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares the given etag to the given If-None-Match header, using weak comparison.
+	 */
+	public static boolean matchesETag(String ifNoneMatch, String etag) {
+		etag = StringUtils.removeStart(etag, "W/");
+		for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+			candidate = StringUtils.removeStart(candidate.trim(), "W/");
+			if ("*".equals(candidate) || etag.equals(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
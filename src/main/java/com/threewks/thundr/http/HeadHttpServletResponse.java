@@ -0,0 +1,144 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Wraps the response to a HEAD request, which is resolved using the GET route. Headers are passed through to the underlying response
+ * unchanged, but any body written is discarded and only counted.
+ * 
+ * Once the request has been resolved, {@link #finish()} sets the Content-Length header to the number of bytes the body would have contained,
+ * unless a content length was set explicitly. Views which can determine their length without rendering the body can check
+ * {@link HttpSupport.Methods#isHead(String)} against the request method, set the Content-Length and skip rendering.
+ */
+public class HeadHttpServletResponse extends HttpServletResponseWrapper {
+	private long count = 0;
+	private boolean contentLengthSet = false;
+	private int status = SC_OK;
+	private PrintWriter writer;
+	private ServletOutputStream os = new ServletOutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b) throws IOException {
+			count += b.length;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			count += len;
+		}
+	};
+
+	public HeadHttpServletResponse(HttpServletResponse response) {
+		super(response);
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		return os;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(os, getCharacterEncoding()));
+		}
+		return writer;
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		status = sc;
+		super.setStatus(sc);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public void setStatus(int sc, String sm) {
+		status = sc;
+		super.setStatus(sc, sm);
+	}
+
+	@Override
+	public void setContentLength(int len) {
+		contentLengthSet = true;
+		super.setContentLength(len);
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		contentLengthSet |= Header.ContentLength.equalsIgnoreCase(name);
+		super.setHeader(name, value);
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		contentLengthSet |= Header.ContentLength.equalsIgnoreCase(name);
+		super.addHeader(name, value);
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		contentLengthSet |= Header.ContentLength.equalsIgnoreCase(name);
+		super.setIntHeader(name, value);
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		contentLengthSet |= Header.ContentLength.equalsIgnoreCase(name);
+		super.addIntHeader(name, value);
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		// the body is never sent, committing the response here would prevent the content length being set
+	}
+
+	/**
+	 * @return the number of body bytes written to this response so far
+	 */
+	public long getCount() {
+		if (writer != null) {
+			writer.flush();
+		}
+		return count;
+	}
+
+	/**
+	 * Sets the Content-Length of the underlying response from the bytes counted, including when nothing was written, unless it has already been
+	 * set, the response has been committed (for example by sending an error or redirect) or the status is one which has no body
+	 * (204 No Content and 304 Not Modified).
+	 */
+	public void finish() {
+		long count = getCount();
+		if (!contentLengthSet && !isCommitted() && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED) {
+			super.setHeader(Header.ContentLength, Long.toString(count));
+		}
+	}
+}
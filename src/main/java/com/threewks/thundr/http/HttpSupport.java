@@ -43,6 +43,14 @@ public class HttpSupport {
 			return Get.equalsIgnoreCase(method);
 		}
 
+		/**
+		 * @param method
+		 * @return true if the given method is HEAD, case-insensitive
+		 */
+		public static boolean isHead(String method) {
+			return Head.equalsIgnoreCase(method);
+		}
+
 		/**
 		 * 
 		 * @param method
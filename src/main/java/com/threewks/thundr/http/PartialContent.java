@@ -0,0 +1,251 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.threewks.thundr.util.Streams;
+
+/**
+ * Responds to Range requests with partial content, either a single range or multiple ranges as <code>multipart/byteranges</code>.
+ * 
+ * @see http://tools.ietf.org/html/rfc7233
+ */
+public class PartialContent {
+	private static final Charset Ascii = Charset.forName("US-ASCII");
+	private static final String CRLF = "\r\n";
+	private static final int BufferSize = 8192;
+
+	/**
+	 * The content to be served in ranges.
+	 */
+	public interface Source {
+		/**
+		 * @return true if ranges can be written in any order, false if they can only be written once in ascending order
+		 */
+		public boolean isSeekable();
+
+		/**
+		 * Writes the given number of bytes starting at the given offset to the given output stream.
+		 */
+		public void write(OutputStream os, long offset, long length) throws IOException;
+	}
+
+	/**
+	 * Responds with the requested ranges of the content provided by the given source, if the request is a GET with a valid Range header
+	 * which satisfies any If-Range condition. Otherwise nothing is written and the caller should respond with the complete content.
+	 * 
+	 * @param req
+	 * @param resp
+	 * @param length the length of the complete content
+	 * @param contentType the content type of the complete content
+	 * @param etag the ETag of the content, or null if there is none
+	 * @param lastModified the last modified time of the content, or -1 if it is not known
+	 * @param source
+	 * @return true if a partial content (or range not satisfiable) response was sent
+	 */
+	public static boolean serve(HttpServletRequest req, HttpServletResponse resp, long length, String contentType, String etag, long lastModified, Source source) throws IOException {
+		if (!HttpSupport.Methods.isGet(req.getMethod())) {
+			return false;
+		}
+		List<ByteRange> ranges = ByteRange.parse(req.getHeader(Header.Range), length);
+		if (ranges == null || !ifRangeMatches(req, etag, lastModified) || ranges.size() > 1 && !source.isSeekable()) {
+			return false;
+		}
+		if (ranges.isEmpty()) {
+			resp.setHeader(Header.ContentRange, String.format("%s */%d", ByteRange.Unit, length));
+			resp.setHeader(Header.ContentLength, "0");
+			resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return true;
+		}
+		if (ranges.size() == 1) {
+			ByteRange range = ranges.get(0);
+			resp.setHeader(Header.ContentRange, range.contentRange(length));
+			resp.setHeader(Header.ContentLength, Long.toString(range.length()));
+			resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			OutputStream os = resp.getOutputStream();
+			source.write(os, range.getStart(), range.length());
+			os.flush();
+		} else {
+			writeMultipart(resp, ranges, length, contentType, source);
+		}
+		return true;
+	}
+
+	/**
+	 * Evaluates the If-Range header, which must exactly match the strong ETag or last modified date of the content for ranges to be served.
+	 * 
+	 * @return true if there is no If-Range header, or it matches the given ETag or last modified time.
+	 */
+	public static boolean ifRangeMatches(HttpServletRequest req, String etag, long lastModified) {
+		String ifRange = StringUtils.trimToNull(req.getHeader(Header.IfRange));
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return etag != null && !etag.startsWith("W/") && etag.equals(ifRange);
+		}
+		try {
+			long date = req.getDateHeader(Header.IfRange);
+			return lastModified > 0 && date >= 0 && lastModified / 1000 == date / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static void writeMultipart(HttpServletResponse resp, List<ByteRange> ranges, long length, String contentType, Source source) throws IOException {
+		String boundary = UUID.randomUUID().toString().replace("-", "");
+		List<byte[]> partHeaders = new ArrayList<byte[]>(ranges.size());
+		long contentLength = 0;
+		for (ByteRange range : ranges) {
+			StringBuilder partHeader = new StringBuilder().append(CRLF).append("--").append(boundary).append(CRLF);
+			if (contentType != null) {
+				partHeader.append(Header.ContentType).append(": ").append(contentType).append(CRLF);
+			}
+			partHeader.append(Header.ContentRange).append(": ").append(range.contentRange(length)).append(CRLF).append(CRLF);
+			byte[] bytes = partHeader.toString().getBytes(Ascii);
+			partHeaders.add(bytes);
+			contentLength += bytes.length + range.length();
+		}
+		byte[] end = (CRLF + "--" + boundary + "--" + CRLF).getBytes(Ascii);
+		contentLength += end.length;
+
+		resp.setContentType("multipart/byteranges; boundary=" + boundary);
+		resp.setHeader(Header.ContentLength, Long.toString(contentLength));
+		resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		OutputStream os = resp.getOutputStream();
+		for (int i = 0; i < ranges.size(); i++) {
+			ByteRange range = ranges.get(i);
+			os.write(partHeaders.get(i));
+			source.write(os, range.getStart(), range.length());
+		}
+		os.write(end);
+		os.flush();
+	}
+
+	public static Source source(final byte[] data) {
+		return new Source() {
+			@Override
+			public boolean isSeekable() {
+				return true;
+			}
+
+			@Override
+			public void write(OutputStream os, long offset, long length) throws IOException {
+				os.write(data, (int) offset, (int) length);
+			}
+		};
+	}
+
+	/**
+	 * A source which writes each range directly from the given buffer, without copying it into an array
+	 */
+	public static Source source(final ByteBuffer buffer) {
+		return new Source() {
+			@Override
+			public boolean isSeekable() {
+				return true;
+			}
+
+			@Override
+			public void write(OutputStream os, long offset, long length) throws IOException {
+				ByteBuffer range = buffer.duplicate();
+				range.position(range.position() + (int) offset);
+				range.limit(range.position() + (int) length);
+				Streams.copy(range, os);
+			}
+		};
+	}
+
+	/**
+	 * A source which reads each range directly from its position in the given file
+	 */
+	public static Source source(final File file) {
+		return new Source() {
+			@Override
+			public boolean isSeekable() {
+				return true;
+			}
+
+			@Override
+			public void write(OutputStream os, long offset, long length) throws IOException {
+				Streams.copy(file, offset, length, os);
+			}
+		};
+	}
+
+	/**
+	 * A source which can only serve a single range from the given stream. Bytes before the range are skipped, which avoids reading them
+	 * for streams which support seeking.
+	 */
+	public static Source source(final InputStream is) {
+		return new Source() {
+			private long position = 0;
+
+			@Override
+			public boolean isSeekable() {
+				return false;
+			}
+
+			@Override
+			public void write(OutputStream os, long offset, long length) throws IOException {
+				if (offset < position) {
+					throw new IOException("Cannot seek backwards in a stream");
+				}
+				skip(offset - position);
+				byte[] buffer = new byte[(int) Math.min(BufferSize, length)];
+				long remaining = length;
+				while (remaining > 0) {
+					int read = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (read < 0) {
+						throw new IOException("Unexpected end of stream");
+					}
+					os.write(buffer, 0, read);
+					remaining -= read;
+				}
+				position = offset + length;
+			}
+
+			private void skip(long bytes) throws IOException {
+				while (bytes > 0) {
+					long skipped = is.skip(bytes);
+					if (skipped <= 0) {
+						if (is.read() < 0) {
+							throw new IOException("Unexpected end of stream");
+						}
+						skipped = 1;
+					}
+					bytes -= skipped;
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.threewks.thundr.route.staticResource.DeflaterPool;
+import com.threewks.thundr.route.staticResource.GzipResponseStream;
+
+import jodd.util.Wildcard;
+
+/**
+ * Compresses dynamic responses, such as those rendered by view resolvers, for requests whose path matches a configured route pattern
+ * and whose response content type matches one of the content types configured for that pattern.
+ * 
+ * Compression is disabled until at least one route pattern is added using {@link #compress(String, String...)}. Route patterns and
+ * content types are wildcard patterns, so <code>/api/*</code> matches every path below <code>/api/</code> and <code>text/*</code>
+ * matches all text content. Eligible responses are sent with <code>Vary: Accept-Encoding</code>, and are compressed only when the
+ * client accepts gzip and the response is at least as large as the {@link #setThreshold(int) threshold}.
+ */
+public class ResponseCompression {
+	public static final List<String> DefaultContentTypes = Collections.unmodifiableList(Arrays.asList("text/*", ContentType.ApplicationJson.value(), "application/javascript",
+			"application/xml", "image/svg+xml"));
+
+	private volatile List<Rule> rules = Collections.emptyList();
+	private DeflaterPool deflaterPool = new DeflaterPool();
+	private int threshold = GzipResponseStream.DefaultCompressionThreshold;
+
+	/**
+	 * Compresses responses of the {@link #DefaultContentTypes default content types} to requests matching the given route pattern.
+	 */
+	public ResponseCompression compress(String routePattern) {
+		return compress(routePattern, DefaultContentTypes.toArray(new String[0]));
+	}
+
+	/**
+	 * Compresses responses of the given content types to requests matching the given route pattern.
+	 */
+	public synchronized ResponseCompression compress(String routePattern, String... contentTypes) {
+		List<Rule> rules = new ArrayList<Rule>(this.rules);
+		rules.add(new Rule(routePattern, contentTypes));
+		this.rules = Collections.unmodifiableList(rules);
+		return this;
+	}
+
+	public synchronized void clear() {
+		this.rules = Collections.emptyList();
+	}
+
+	public boolean isEnabled() {
+		return !rules.isEmpty();
+	}
+
+	/**
+	 * @return a response which compresses eligible content written to it, or the given response if the request path does not match any
+	 *         route pattern. A wrapped response must be {@link #finish(HttpServletResponse, boolean) finished} once the view is resolved.
+	 */
+	public HttpServletResponse wrap(HttpServletRequest req, HttpServletResponse resp) {
+		List<String> contentTypes = contentTypes(req.getRequestURI());
+		if (contentTypes.isEmpty()) {
+			return resp;
+		}
+		return new CompressingHttpServletResponse(resp, contentTypes, acceptsGzip(req.getHeader(Header.AcceptEncoding)), deflaterPool, threshold);
+	}
+
+	/**
+	 * Completes a response returned by {@link #wrap(HttpServletRequest, HttpServletResponse)}, writing any remaining compressed content.
+	 * If the response did not complete, its content is discarded.
+	 */
+	public void finish(HttpServletResponse resp, boolean completed) {
+		if (resp instanceof CompressingHttpServletResponse) {
+			CompressingHttpServletResponse compressing = (CompressingHttpServletResponse) resp;
+			if (completed) {
+				compressing.finish();
+			} else {
+				compressing.discard();
+			}
+		}
+	}
+
+	List<String> contentTypes(String path) {
+		List<String> contentTypes = new ArrayList<String>();
+		if (path != null) {
+			for (Rule rule : rules) {
+				if (Wildcard.match(path, rule.routePattern)) {
+					contentTypes.addAll(rule.contentTypes);
+				}
+			}
+		}
+		return contentTypes;
+	}
+
+	/**
+	 * @return true if the given Accept-Encoding header allows gzip, either explicitly or using <code>*</code>, with a non-zero quality
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding != null) {
+			for (String coding : StringUtils.split(acceptEncoding, ',')) {
+				String[] parts = StringUtils.split(coding, ';');
+				String name = parts.length == 0 ? "" : parts[0].trim();
+				if (("gzip".equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name) || "*".equals(name)) && !isZeroQuality(parts)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isZeroQuality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = StringUtils.deleteWhitespace(parts[i]);
+			if (parameter.startsWith("q=")) {
+				return parameter.substring(2).matches("0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	public DeflaterPool getDeflaterPool() {
+		return deflaterPool;
+	}
+
+	/**
+	 * Sets the pool of deflaters used to compress responses, which determines the compression level.
+	 */
+	public void setDeflaterPool(DeflaterPool deflaterPool) {
+		this.deflaterPool = deflaterPool;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the size in bytes below which responses are sent uncompressed.
+	 */
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+
+	private static final class Rule {
+		private final String routePattern;
+		private final List<String> contentTypes;
+
+		Rule(String routePattern, String... contentTypes) {
+			this.routePattern = routePattern;
+			this.contentTypes = Collections.unmodifiableList(Arrays.asList(contentTypes));
+		}
+	}
+}
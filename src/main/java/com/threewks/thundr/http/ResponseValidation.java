@@ -0,0 +1,117 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.threewks.thundr.exception.BaseException;
+
+import jodd.util.Wildcard;
+
+/**
+ * Derives ETags for dynamic responses, such as those rendered by view resolvers, for GET and HEAD requests whose path matches a
+ * configured route pattern. The rendered body is buffered and hashed using a crc32 checksum, and a conditional request whose
+ * If-None-Match header matches receives a <code>304 Not Modified</code> without the body. The view is still rendered, so this only saves
+ * bandwidth; routes which can cheaply determine their version can avoid rendering using {@link com.threewks.thundr.route.conditional.Conditional}.
+ * 
+ * Validation is disabled until at least one route pattern is added using {@link #validate(String)}. Route patterns are wildcard
+ * patterns, so <code>/api/*</code> matches every path below <code>/api/</code>.
+ */
+public class ResponseValidation {
+	public static final int DefaultMaxBytes = 1024 * 1024;
+
+	private volatile List<String> routePatterns = Collections.emptyList();
+	private int maxBytes = DefaultMaxBytes;
+
+	/**
+	 * Derives ETags for responses to requests matching the given route pattern.
+	 */
+	public synchronized ResponseValidation validate(String routePattern) {
+		List<String> routePatterns = new ArrayList<String>(this.routePatterns);
+		routePatterns.add(routePattern);
+		this.routePatterns = Collections.unmodifiableList(routePatterns);
+		return this;
+	}
+
+	public synchronized void clear() {
+		this.routePatterns = Collections.emptyList();
+	}
+
+	public boolean isEnabled() {
+		return !routePatterns.isEmpty();
+	}
+
+	/**
+	 * @return a response which buffers content written to it so it can be validated, or the given response if the request is not eligible.
+	 *         A wrapped response must be {@link #finish(HttpServletResponse, boolean) finished} once the view is resolved.
+	 */
+	public HttpServletResponse wrap(HttpServletRequest req, HttpServletResponse resp) {
+		String method = req.getMethod();
+		if (!HttpSupport.Methods.isGet(method) && !HttpSupport.Methods.isHead(method) || !matches(req.getRequestURI())) {
+			return resp;
+		}
+		return new ValidatingHttpServletResponse(req, resp, maxBytes);
+	}
+
+	/**
+	 * Completes a response returned by {@link #wrap(HttpServletRequest, HttpServletResponse)}, sending the buffered content or a
+	 * 304 Not Modified. If the response did not complete, its content is discarded.
+	 */
+	public void finish(HttpServletResponse resp, boolean completed) {
+		if (resp instanceof ValidatingHttpServletResponse) {
+			ValidatingHttpServletResponse validating = (ValidatingHttpServletResponse) resp;
+			if (!completed) {
+				validating.discard();
+				return;
+			}
+			try {
+				validating.finish();
+			} catch (IOException e) {
+				throw new BaseException(e, "Failed to send validated response: %s", e.getMessage());
+			}
+		}
+	}
+
+	boolean matches(String path) {
+		if (path != null) {
+			for (String routePattern : routePatterns) {
+				if (Wildcard.match(path, routePattern)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public int getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Sets the size in bytes above which responses are sent unvalidated, rather than buffered.
+	 */
+	public void setMaxBytes(int maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+}
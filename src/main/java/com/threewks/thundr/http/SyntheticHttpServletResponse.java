@@ -40,6 +40,7 @@ import jodd.util.URLCoder;
 public class SyntheticHttpServletResponse implements HttpServletResponse {
 	private String contentType = ContentType.TextHtml.value();
 	private String characterEncoding = StringPool.UTF_8;
+	private int status = SC_OK;
 	private Map<String, String> headers = new LinkedHashMap<>();
 	private ByteArrayOutputStream baos = new ByteArrayOutputStream();
 	private ServletOutputStream os = new ServletOutputStream() {
@@ -242,12 +243,19 @@ public class SyntheticHttpServletResponse implements HttpServletResponse {
 
 	@Override
 	public void setStatus(int sc) {
-		// noop
+		this.status = sc;
 	}
 
 	@Override
 	public void setStatus(int sc, String sm) {
-		// noop
+		this.status = sc;
+	}
+
+	/**
+	 * @return the status set on this response, {@link #SC_OK} if none was set
+	 */
+	public int getStatus() {
+		return status;
 	}
 
 	private String getReasonForHttpStatus(int sc) {
@@ -276,4 +284,11 @@ public class SyntheticHttpServletResponse implements HttpServletResponse {
 		}
 		return null;
 	}
+
+	/**
+	 * @return the headers set on this response, in the order they were first set
+	 */
+	public Map<String, String> getHeaders() {
+		return new LinkedHashMap<>(headers);
+	}
 }
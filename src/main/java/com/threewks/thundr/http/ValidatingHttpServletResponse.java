@@ -0,0 +1,249 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.threewks.thundr.util.Encoder;
+
+/**
+ * Wraps a response to buffer its body so that a weak ETag can be derived from a crc32 checksum of the content once the response is
+ * {@link #finish() finished}. If the request's If-None-Match header matches the ETag, a 304 Not Modified is sent without the body.
+ * 
+ * Only successful responses are validated, and an ETag set explicitly is used instead of the checksum. An ETag already set on the
+ * wrapped response, such as by a {@link com.threewks.thundr.route.conditional.Conditional} route, is left in place and the content is not
+ * hashed, as that route has already evaluated the request's conditions. Content larger than the
+ * maximum buffered size is passed through unvalidated, as is content written after the buffer is flushed. Any Content-Length set
+ * is held back until the body is sent.
+ * 
+ * @see ResponseValidation
+ */
+public class ValidatingHttpServletResponse extends HttpServletResponseWrapper {
+	private final HttpServletRequest request;
+	private final int maxBytes;
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	private int status = SC_OK;
+	private String etag;
+	private long contentLength = -1;
+	private PrintWriter writer;
+	private ServletOutputStream os = new ServletOutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (buffer != null && buffer.size() + len > maxBytes) {
+				passThrough();
+			}
+			if (buffer != null) {
+				buffer.write(b, off, len);
+			} else {
+				getResponse().getOutputStream().write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (buffer == null) {
+				getResponse().getOutputStream().flush();
+			}
+		}
+	};
+
+	public ValidatingHttpServletResponse(HttpServletRequest request, HttpServletResponse response, int maxBytes) {
+		super(response);
+		this.request = request;
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		return os;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			writer = new PrintWriter(new OutputStreamWriter(os, getCharacterEncoding()));
+		}
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		if (buffer == null) {
+			super.flushBuffer();
+		}
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		status = sc;
+		super.setStatus(sc);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public void setStatus(int sc, String sm) {
+		status = sc;
+		super.setStatus(sc, sm);
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		status = sc;
+		buffer = null;
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		status = sc;
+		buffer = null;
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		status = SC_MOVED_TEMPORARILY;
+		buffer = null;
+		super.sendRedirect(location);
+	}
+
+	@Override
+	public void setContentLength(int len) {
+		setContentLength((long) len);
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength(NumberUtils.toLong(value, -1));
+		} else {
+			etag = Header.ETag.equalsIgnoreCase(name) ? value : etag;
+			super.setHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength(NumberUtils.toLong(value, -1));
+		} else {
+			etag = Header.ETag.equalsIgnoreCase(name) ? value : etag;
+			super.addHeader(name, value);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength((long) value);
+		} else {
+			super.setIntHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		if (Header.ContentLength.equalsIgnoreCase(name)) {
+			setContentLength((long) value);
+		} else {
+			super.addIntHeader(name, value);
+		}
+	}
+
+	private void setContentLength(long length) {
+		if (buffer != null) {
+			contentLength = length;
+		} else {
+			super.setHeader(Header.ContentLength, Long.toString(length));
+		}
+	}
+
+	/**
+	 * @return true if the body is still being buffered, so the response can still be validated
+	 */
+	public boolean isBuffering() {
+		return buffer != null;
+	}
+
+	/**
+	 * Sends the buffered body, or a 304 Not Modified if the client's copy is current.
+	 */
+	public void finish() throws IOException {
+		if (writer != null) {
+			writer.flush();
+		}
+		if (buffer == null) {
+			return;
+		}
+		byte[] content = buffer.toByteArray();
+		buffer = null;
+		if (status == SC_OK && content.length > 0) {
+			if (etag == null && !containsHeader(Header.ETag)) {
+				etag = "W/\"" + new Encoder(content).crc32().hex().string() + "\"";
+				super.setHeader(Header.ETag, etag);
+			}
+			if (etag != null && ConditionalRequest.isNotModified(request, etag, -1)) {
+				super.setStatus(SC_NOT_MODIFIED);
+				return;
+			}
+		}
+		send(content, true);
+	}
+
+	/**
+	 * Discards the buffered body.
+	 */
+	public void discard() {
+		buffer = null;
+	}
+
+	private void passThrough() throws IOException {
+		byte[] content = buffer.toByteArray();
+		buffer = null;
+		send(content, false);
+	}
+
+	private void send(byte[] content, boolean complete) throws IOException {
+		if (contentLength >= 0) {
+			super.setHeader(Header.ContentLength, Long.toString(contentLength));
+		} else if (complete && content.length > 0) {
+			super.setHeader(Header.ContentLength, Integer.toString(content.length));
+		}
+		if (content.length > 0) {
+			getResponse().getOutputStream().write(content);
+		}
+	}
+}
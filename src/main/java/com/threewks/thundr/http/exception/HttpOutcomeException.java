@@ -0,0 +1,92 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http.exception;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.threewks.thundr.exception.Stackless;
+import com.threewks.thundr.http.StatusCode;
+
+/**
+ * A lightweight {@link HttpStatusException} for returning an http status as the outcome of a request.
+ * 
+ * These do not capture a stack trace, so they are cheap enough to use for high volume responses such as 401, 403 and 404.
+ * As they are {@link HttpStatusException}s, they are handled by the same filters and view resolvers.
+ * 
+ * For the most common status codes a shared instance is available, either from the constants on this class
+ * or from {@link #of(int)}. Shared instances have no cause and do not record suppressed exceptions, so they are safe to throw from any thread.
+ */
+@Stackless
+public class HttpOutcomeException extends HttpStatusException {
+	private static final long serialVersionUID = -3320845218047731268L;
+
+	public static final HttpOutcomeException BadRequest = shared(StatusCode.BadRequest);
+	public static final HttpOutcomeException Unauthorized = shared(StatusCode.Unauthorized);
+	public static final HttpOutcomeException Forbidden = shared(StatusCode.Forbidden);
+	public static final HttpOutcomeException NotFound = shared(StatusCode.NotFound);
+	public static final HttpOutcomeException MethodNotAllowed = shared(StatusCode.MethodNotAllowed);
+	public static final HttpOutcomeException NotAcceptable = shared(StatusCode.NotAcceptable);
+	public static final HttpOutcomeException Conflict = shared(StatusCode.Conflict);
+	public static final HttpOutcomeException Gone = shared(StatusCode.Gone);
+	public static final HttpOutcomeException PreconditionFailed = shared(StatusCode.PreconditionFailed);
+	public static final HttpOutcomeException UnsupportedMediaType = shared(StatusCode.UnsupportedMediaType);
+	public static final HttpOutcomeException TooManyRequests = shared(StatusCode.TooManyRequests);
+	public static final HttpOutcomeException ServiceUnavailable = shared(StatusCode.ServiceUnavailable);
+
+	private static final Map<Integer, HttpOutcomeException> sharedInstances = createSharedInstanceLookup(BadRequest, Unauthorized, Forbidden, NotFound, MethodNotAllowed, NotAcceptable, Conflict, Gone,
+			PreconditionFailed, UnsupportedMediaType, TooManyRequests, ServiceUnavailable);
+
+	public HttpOutcomeException(int status, String format, Object... formatArgs) {
+		super(status, format, formatArgs);
+	}
+
+	public HttpOutcomeException(Throwable cause, int status, String format, Object... formatArgs) {
+		super(cause, status, format, formatArgs);
+	}
+
+	private HttpOutcomeException(StatusCode statusCode) {
+		super(statusCode.getCode(), statusCode.getReason(), null, false, false);
+	}
+
+	/**
+	 * @param status
+	 * @return the shared instance for the given status if there is one, otherwise a new {@link HttpOutcomeException} for the status
+	 */
+	public static HttpOutcomeException of(int status) {
+		HttpOutcomeException shared = sharedInstances.get(status);
+		if (shared != null) {
+			return shared;
+		}
+		StatusCode statusCode = StatusCode.fromCode(status);
+		return new HttpOutcomeException(status, statusCode == null ? Integer.toString(status) : statusCode.getReason());
+	}
+
+	private static HttpOutcomeException shared(StatusCode statusCode) {
+		return new HttpOutcomeException(statusCode);
+	}
+
+	private static Map<Integer, HttpOutcomeException> createSharedInstanceLookup(HttpOutcomeException... exceptions) {
+		Map<Integer, HttpOutcomeException> lookup = new LinkedHashMap<Integer, HttpOutcomeException>();
+		for (HttpOutcomeException exception : exceptions) {
+			lookup.put(exception.getStatus(), exception);
+		}
+		return Collections.unmodifiableMap(lookup);
+	}
+}
@@ -33,6 +33,14 @@ public class HttpStatusException extends BaseException {
 		this.status = status;
 	}
 
+	/**
+	 * @see BaseException#BaseException(String, Throwable, boolean, boolean)
+	 */
+	protected HttpStatusException(int status, String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+		this.status = status;
+	}
+
 	public int getStatus() {
 		return status;
 	}
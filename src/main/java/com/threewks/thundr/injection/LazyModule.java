@@ -0,0 +1,40 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.injection;
+
+import java.util.Collection;
+
+import com.threewks.thundr.module.Modules;
+
+/**
+ * A {@link Module} which is not started with the rest of the application.
+ * 
+ * {@link #requires(com.threewks.thundr.module.DependencyRegistry)} is invoked at startup as for any other module, but
+ * {@link #initialise(UpdatableInjectionContext)}, {@link #configure(UpdatableInjectionContext)} and {@link #start(UpdatableInjectionContext)}
+ * are deferred until the first request whose path starts with one of the {@link #getRoutePrefixes()}.
+ * 
+ * If a module which is not lazy depends on a {@link LazyModule}, the lazy module is started at startup as normal.
+ * 
+ * @see Modules#activate(String, UpdatableInjectionContext)
+ */
+public interface LazyModule extends Module {
+	/**
+	 * @return the route prefixes (i.e. /admin/) served by this module. A request whose path starts with any of these causes this module to be started.
+	 */
+	public Collection<String> getRoutePrefixes();
+}
@@ -21,10 +21,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -34,6 +39,7 @@ import com.atomicleopard.expressive.ETransformer;
 import com.atomicleopard.expressive.Expressive;
 import com.atomicleopard.expressive.transform.CollectionTransformer;
 import com.threewks.thundr.injection.InjectionContext;
+import com.threewks.thundr.injection.LazyModule;
 import com.threewks.thundr.injection.Module;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
 import com.threewks.thundr.logger.Logger;
@@ -43,11 +49,14 @@ public class Modules {
 	private Map<Class<? extends Module>, Module> instances = new LinkedHashMap<Class<? extends Module>, Module>();
 	private Map<Module, ModuleStatus> status = new HashMap<Module, ModuleStatus>();
 	private List<Module> orderedModules = null;
+	private Set<Module> activatedModules = new HashSet<Module>();
+	private volatile Map<String, Module> deferredRoutes = Collections.emptyMap();
+	private final ConcurrentMap<Module, CountDownLatch> activations = new ConcurrentHashMap<Module, CountDownLatch>();
 
 	public Modules() {
 	}
 
-	public void addModule(Class<? extends Module> module) {
+	public synchronized void addModule(Class<? extends Module> module) {
 		if (!hasModule(module)) {
 			Module instance = loadModule(module);
 			moduleDependencies.put(module, null);
@@ -80,13 +89,116 @@ public class Modules {
 		return new ArrayList<Module>(instances.values());
 	}
 
-	public void runStartupLifecycle(UpdatableInjectionContext injectionContext) {
+	public synchronized void runStartupLifecycle(UpdatableInjectionContext injectionContext) {
 		Logger.debug("Loading modules...");
+		List<Module> startupOrder = startModules(injectionContext);
+		Logger.info("Modules loaded");
+		if (Logger.willDebug()) {
+			StringBuilder sb = new StringBuilder();
+			for (Module injectionConfiguration : startupOrder) {
+				sb.append("\n\t");
+				sb.append(injectionConfiguration.getClass().getSimpleName());
+			}
+			Logger.debug("Modules started in this order:%s", sb.toString());
+
+		}
+	}
+
+	/**
+	 * Starts any {@link LazyModule} which serves the given request path and has not yet been started, along with any of its
+	 * dependencies which have also been deferred.
+	 * 
+	 * This is safe to invoke from concurrent requests, each module will only be started once. Only concurrent requests for the same
+	 * module wait until it has started, other requests are not held. A module's routes are only published once it has started, if starting
+	 * it fails it is deferred again and started by the next matching request. Once all lazy modules have been started this method does no work.
+	 * 
+	 * @param path the request path
+	 * @param injectionContext
+	 * @return true if this invocation started any modules
+	 */
+	public boolean activate(String path, UpdatableInjectionContext injectionContext) {
+		Map<String, Module> deferredRoutes = this.deferredRoutes;
+		if (deferredRoutes.isEmpty() || path == null) {
+			return false;
+		}
+		boolean any = false;
+		for (Map.Entry<String, Module> entry : deferredRoutes.entrySet()) {
+			if (path.startsWith(entry.getKey())) {
+				any = activate(entry.getValue(), path, injectionContext) || any;
+			}
+		}
+		return any;
+	}
+
+	private boolean activate(Module module, String path, UpdatableInjectionContext injectionContext) {
+		CountDownLatch activation = new CountDownLatch(1);
+		CountDownLatch existing = activations.putIfAbsent(module, activation);
+		if (existing != null) {
+			await(existing);
+			return false;
+		}
+		boolean started = false;
+		try {
+			started = start(module, path, injectionContext);
+			return started;
+		} finally {
+			if (!started) {
+				// allow a later request to retry, or to start the module if it was only started as a dependency
+				activations.remove(module, activation);
+			}
+			activation.countDown();
+		}
+	}
+
+	private synchronized boolean start(Module module, String path, UpdatableInjectionContext injectionContext) {
+		if (!ModuleStatus.Deferred.equals(status.get(module))) {
+			return false;
+		}
+		Logger.info("Activating module %s for request %s", Transformers.toModuleNameFromInstance.from(module), path);
+		activatedModules.add(module);
+		long start = System.currentTimeMillis();
+		try {
+			List<Module> startupOrder = startModules(injectionContext);
+			Logger.info("Started %s in %dms", StringUtils.join(Transformers.toModuleNamesFromInstance.from(startupOrder), ", "), System.currentTimeMillis() - start);
+			return true;
+		} catch (RuntimeException e) {
+			Logger.error("Failed to activate module %s for request %s: %s", Transformers.toModuleNameFromInstance.from(module), path, e.getMessage());
+			deferUnstartedModules(module);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the given module, and any lazy module which was being started along with it, to the deferred state after a failed activation
+	 */
+	private void deferUnstartedModules(Module module) {
+		activatedModules.remove(module);
+		for (Module instance : instances.values()) {
+			ModuleStatus moduleStatus = status.get(instance);
+			if (instance instanceof LazyModule && (ModuleStatus.DependenciesResolved.equals(moduleStatus) || ModuleStatus.Initialised.equals(moduleStatus) || ModuleStatus.Configured.equals(moduleStatus))) {
+				activatedModules.remove(instance);
+				status.put(instance, ModuleStatus.Deferred);
+			}
+		}
+		updateDeferredRoutes();
+	}
+
+	private static void await(CountDownLatch activation) {
+		try {
+			activation.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private List<Module> startModules(UpdatableInjectionContext injectionContext) {
 		List<Module> startupOrder = new ArrayList<Module>();
+		deferLazyModules();
 		while (!allModulesStarted()) {
 			if (status.values().contains(ModuleStatus.Added)) {
 				resolveDependencies();
 				orderedModules = determineDependencyOrder();
+				deferLazyModules();
 			} else {
 				boolean allInitialised = initialiseNext(injectionContext);
 				boolean allConfigured = false;
@@ -101,16 +213,57 @@ public class Modules {
 				}
 			}
 		}
-		Logger.info("Modules loaded");
-		if (Logger.willDebug()) {
-			StringBuilder sb = new StringBuilder();
-			for (Module injectionConfiguration : startupOrder) {
-				sb.append("\n\t");
-				sb.append(injectionConfiguration.getClass().getSimpleName());
+		updateDeferredRoutes();
+		return startupOrder;
+	}
+
+	/**
+	 * Defers the startup of any {@link LazyModule} which has not been activated and is not depended on by a module which has been.
+	 * Deferred modules which have become required are returned to the startup lifecycle.
+	 */
+	private void deferLazyModules() {
+		Set<Module> required = new HashSet<Module>();
+		LinkedList<Module> toVisit = new LinkedList<Module>();
+		for (Module module : instances.values()) {
+			if (!(module instanceof LazyModule) || activatedModules.contains(module)) {
+				toVisit.add(module);
 			}
-			Logger.debug("Modules started in this order:%s", sb.toString());
+		}
+		while (!toVisit.isEmpty()) {
+			Module module = toVisit.removeFirst();
+			if (required.add(module)) {
+				Collection<Class<? extends Module>> dependencies = moduleDependencies.get(module.getClass());
+				if (dependencies != null) {
+					toVisit.addAll(getModules(dependencies));
+				}
+			}
+		}
 
+		for (Module module : instances.values()) {
+			ModuleStatus moduleStatus = status.get(module);
+			boolean isRequired = required.contains(module);
+			if (ModuleStatus.DependenciesResolved.equals(moduleStatus) && !isRequired) {
+				status.put(module, ModuleStatus.Deferred);
+				Logger.debug("Deferred module %s until first request to %s", Transformers.toModuleNameFromInstance.from(module), ((LazyModule) module).getRoutePrefixes());
+			} else if (ModuleStatus.Deferred.equals(moduleStatus) && isRequired) {
+				status.put(module, ModuleStatus.DependenciesResolved);
+			}
+		}
+	}
+
+	private void updateDeferredRoutes() {
+		Map<String, Module> deferredRoutes = new LinkedHashMap<String, Module>();
+		for (Module module : instances.values()) {
+			if (ModuleStatus.Deferred.equals(status.get(module))) {
+				Collection<String> routePrefixes = ((LazyModule) module).getRoutePrefixes();
+				if (routePrefixes != null) {
+					for (String routePrefix : routePrefixes) {
+						deferredRoutes.put(routePrefix, module);
+					}
+				}
+			}
 		}
+		this.deferredRoutes = deferredRoutes.isEmpty() ? Collections.<String, Module> emptyMap() : Collections.unmodifiableMap(deferredRoutes);
 	}
 
 	/**
@@ -163,12 +316,15 @@ public class Modules {
 		return !values.contains(ModuleStatus.Added) && !values.contains(ModuleStatus.DependenciesResolved) && !values.contains(ModuleStatus.Initialised) && !values.contains(ModuleStatus.Configured);
 	}
 
-	public void runStopLifecycle(InjectionContext injectionContext) {
+	public synchronized void runStopLifecycle(InjectionContext injectionContext) {
+		deferredRoutes = Collections.emptyMap();
 		List<Module> reverseOrder = new LinkedList<Module>(orderedModules);
 		Collections.reverse(reverseOrder);
 		for (Module injectionConfiguration : reverseOrder) {
-			injectionConfiguration.stop(injectionContext);
-			status.put(injectionConfiguration, ModuleStatus.Stopped);
+			if (ModuleStatus.Started.equals(status.get(injectionConfiguration))) {
+				injectionConfiguration.stop(injectionContext);
+				status.put(injectionConfiguration, ModuleStatus.Stopped);
+			}
 		}
 	}
 
@@ -280,6 +436,7 @@ public class Modules {
 	private enum ModuleStatus {
 		Added,
 		DependenciesResolved,
+		Deferred,
 		Initialised,
 		Configured,
 		Started,
@@ -0,0 +1,223 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.atomicleopard.expressive.Expressive;
+import com.threewks.thundr.http.ContentType;
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.HttpSupport;
+import com.threewks.thundr.http.URLEncoder;
+
+/**
+ * Determines the effective http method of a request, allowing a POST to be treated as another method using either the
+ * {@link Header#XHttpMethodOverride} header or a {@value #Parameter} parameter.
+ * 
+ * The header is checked first. The parameter is only read from the query string, or from the body of an
+ * <code>application/x-www-form-urlencoded</code> request, so that other bodies (for example json or multipart) are never parsed
+ * by the container before they can be streamed to a binder.
+ * 
+ * The sources used can be restricted for requests beneath a given route prefix using {@link #sources(String, Source...)}, the longest
+ * matching prefix applies.
+ */
+public class MethodOverrideStrategy {
+	public static final String Parameter = "_method";
+
+	public enum Source {
+		Header,
+		QueryString,
+		Form;
+	}
+
+	private static final Comparator<PrefixSources> LongestPrefixFirst = new Comparator<PrefixSources>() {
+		@Override
+		public int compare(PrefixSources o1, PrefixSources o2) {
+			return o2.prefix.length() - o1.prefix.length();
+		}
+	};
+
+	private volatile List<PrefixSources> prefixes = Collections.emptyList();
+	private final Set<Source> defaultSources;
+
+	/**
+	 * Creates a strategy which allows all {@link Source}s for all requests
+	 */
+	public MethodOverrideStrategy() {
+		this(Source.values());
+	}
+
+	/**
+	 * Creates a strategy which allows the given {@link Source}s for requests which are not beneath a configured route prefix
+	 * 
+	 * @param defaultSources
+	 */
+	public MethodOverrideStrategy(Source... defaultSources) {
+		this.defaultSources = toSet(defaultSources);
+	}
+
+	/**
+	 * Restricts the sources of a method override for all requests whose path starts with the given prefix. Specifying no
+	 * sources disables method override for those requests.
+	 * 
+	 * @param routePrefix
+	 * @param sources
+	 * @return this strategy, for method chaining
+	 */
+	public synchronized MethodOverrideStrategy sources(String routePrefix, Source... sources) {
+		List<PrefixSources> prefixes = new ArrayList<PrefixSources>(this.prefixes.size() + 1);
+		for (PrefixSources existing : this.prefixes) {
+			if (!existing.prefix.equals(routePrefix)) {
+				prefixes.add(existing);
+			}
+		}
+		prefixes.add(new PrefixSources(routePrefix, toSet(sources)));
+		Collections.sort(prefixes, LongestPrefixFirst);
+		this.prefixes = Collections.unmodifiableList(prefixes);
+		return this;
+	}
+
+	/**
+	 * @param path
+	 * @return the sources a method override will be read from for a request to the given path
+	 */
+	public Set<Source> sourcesFor(String path) {
+		if (path != null) {
+			for (PrefixSources prefix : prefixes) {
+				if (path.startsWith(prefix.prefix)) {
+					return prefix.sources;
+				}
+			}
+		}
+		return defaultSources;
+	}
+
+	/**
+	 * Given a request, determines the method (i.e. GET, PUT, POST etc)
+	 * 
+	 * @param req
+	 * @return
+	 */
+	public String determineMethod(HttpServletRequest req) {
+		String method = req.getMethod();
+		if (HttpSupport.Methods.isPost(method)) {
+			String override = findOverride(req, sourcesFor(req.getRequestURI()));
+			if (override != null) {
+				method = override;
+			}
+		}
+		return method;
+	}
+
+	protected String findOverride(HttpServletRequest req, Set<Source> sources) {
+		if (sources.isEmpty()) {
+			return null;
+		}
+		String override = null;
+		if (sources.contains(Source.Header)) {
+			override = StringUtils.trimToNull(req.getHeader(Header.XHttpMethodOverride));
+		}
+		if (override == null && sources.contains(Source.QueryString)) {
+			override = StringUtils.trimToNull(fromQueryString(req.getQueryString()));
+		}
+		if (override == null && sources.contains(Source.Form) && ContentType.ApplicationFormUrlEncoded.matches(req.getContentType())) {
+			override = StringUtils.trimToNull(fromForm(req));
+		}
+		return override;
+	}
+
+	protected String fromQueryString(String queryString) {
+		if (StringUtils.containsIgnoreCase(queryString, Parameter)) {
+			for (Map.Entry<String, List<String>> entry : URLEncoder.decodeQueryString(queryString).entrySet()) {
+				if (Parameter.equalsIgnoreCase(entry.getKey())) {
+					return entry.getValue().get(0);
+				}
+			}
+		}
+		return null;
+	}
+
+	protected String fromForm(HttpServletRequest req) {
+		return getParameterCaseInsensitive(req, Parameter);
+	}
+
+	/**
+	 * @param req
+	 * @param parameterName
+	 * @return the value of the named request parameter, matching the name case insensitively, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public static String getParameterCaseInsensitive(HttpServletRequest req, String parameterName) {
+		String value = req.getParameter(parameterName);
+		if (value == null) {
+			// the body has already been parsed at this point, so a case insensitive scan is cheap
+			Iterable<String> names = Expressive.<String> iterable(req.getParameterNames());
+			for (String name : names) {
+				if (parameterName.equalsIgnoreCase(name)) {
+					return req.getParameter(name);
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @param req
+	 * @param headerName
+	 * @return the value of the named request header, matching the name case insensitively, or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public static String getHeaderCaseInsensitive(HttpServletRequest req, String headerName) {
+		String value = req.getHeader(headerName);
+		if (value == null) {
+			Iterable<String> names = Expressive.<String> iterable(req.getHeaderNames());
+			for (String name : names) {
+				if (headerName.equalsIgnoreCase(name)) {
+					return req.getHeader(name);
+				}
+			}
+		}
+		return value;
+	}
+
+	private static Set<Source> toSet(Source... sources) {
+		Set<Source> set = EnumSet.noneOf(Source.class);
+		Collections.addAll(set, sources);
+		return Collections.unmodifiableSet(set);
+	}
+
+	private static class PrefixSources {
+		private final String prefix;
+		private final Set<Source> sources;
+
+		public PrefixSources(String prefix, Set<Source> sources) {
+			this.prefix = prefix;
+			this.sources = sources;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache of request paths which recently failed to match any route.
+ * 
+ * This is a direct mapped cache - each path hashes to a single slot, and a new miss replaces whatever was in its slot.
+ * This keeps both lookups and updates lock free and bounds the memory used regardless of how many distinct paths are requested.
+ * Paths longer than the given maximum length are never cached.
+ * 
+ * A {@link RouteMissCache} is only valid for the routes it was populated against, so a new cache should be used whenever routes change.
+ */
+class RouteMissCache {
+	private final AtomicReferenceArray<Miss> misses;
+	private final int mask;
+	private final int maxPathLength;
+
+	/**
+	 * @param size the number of slots in the cache, rounded up to the next power of two
+	 * @param maxPathLength the longest path which will be cached
+	 */
+	RouteMissCache(int size, int maxPathLength) {
+		int slots = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		this.misses = new AtomicReferenceArray<Miss>(slots);
+		this.mask = slots - 1;
+		this.maxPathLength = maxPathLength;
+	}
+
+	boolean contains(HttpMethod method, String path) {
+		Miss miss = misses.get(index(method, path));
+		return miss != null && miss.method == method && miss.path.equals(path);
+	}
+
+	void add(HttpMethod method, String path) {
+		if (path.length() <= maxPathLength) {
+			misses.set(index(method, path), new Miss(method, path));
+		}
+	}
+
+	int size() {
+		return misses.length();
+	}
+
+	private int index(HttpMethod method, String path) {
+		int hash = path.hashCode() * 31 + method.ordinal();
+		hash ^= hash >>> 16;
+		return hash & mask;
+	}
+
+	private static final class Miss {
+		private final HttpMethod method;
+		private final String path;
+
+		Miss(HttpMethod method, String path) {
+			this.method = method;
+			this.path = path;
+		}
+	}
+}
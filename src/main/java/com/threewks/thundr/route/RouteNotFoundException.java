@@ -17,10 +17,17 @@
  */
 package com.threewks.thundr.route;
 
+import com.threewks.thundr.exception.Stackless;
 import com.threewks.thundr.http.exception.NotFoundException;
 
+/**
+ * Thrown when no route matches a request. As these are expected in normal operation and are frequently triggered by clients probing
+ * for paths which do not exist, no stack trace is captured.
+ */
+@Stackless
 public class RouteNotFoundException extends NotFoundException {
 	private static final long serialVersionUID = -5593794422027970405L;
+	private transient Object detail;
 
 	public RouteNotFoundException(String format, Object... formatArgs) {
 		super(format, formatArgs);
@@ -29,4 +36,20 @@ public class RouteNotFoundException extends NotFoundException {
 	public RouteNotFoundException(Throwable cause, String format, Object... formatArgs) {
 		super(cause, format, formatArgs);
 	}
+
+	/**
+	 * @param method
+	 * @param routePath
+	 * @param detail appended to the message only when the message is requested, can be null
+	 */
+	RouteNotFoundException(HttpMethod method, String routePath, Object detail) {
+		super("No route matching the request " + method + " " + routePath + "\n");
+		this.detail = detail;
+	}
+
+	@Override
+	public String getMessage() {
+		Object detail = this.detail;
+		return detail == null ? super.getMessage() : super.getMessage() + detail;
+	}
 }
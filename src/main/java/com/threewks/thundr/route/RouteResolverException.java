@@ -19,6 +19,10 @@ package com.threewks.thundr.route;
 
 import com.threewks.thundr.exception.BaseException;
 
+/**
+ * Wraps failures which occur while resolving a route. When a cause is wrapped it retains its stack trace, so this exception does not capture
+ * one.
+ */
 public class RouteResolverException extends BaseException {
 	private static final long serialVersionUID = -1L;
 
@@ -27,7 +31,7 @@ public class RouteResolverException extends BaseException {
 	}
 
 	public RouteResolverException(Throwable cause, String format, Object... formatArgs) {
-		super(cause, format, formatArgs);
+		super(formatMessage(format, formatArgs), cause, true, cause == null);
 	}
 
 }
@@ -20,6 +20,7 @@ package com.threewks.thundr.route;
 import static com.atomicleopard.expressive.Expressive.list;
 
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -35,13 +36,16 @@ import org.apache.commons.lang3.StringUtils;
 import com.threewks.thundr.logger.Logger;
 import com.threewks.thundr.route.controller.Controller;
 
+/**
+ * Maps requests to {@link RouteResult}s and resolves them using registered {@link RouteResolver}s.
+ * 
+ * Routes and resolvers are held in immutable snapshots published through a volatile reference, so invoking routes never
+ * locks. Adding or removing routes and resolvers builds and publishes a new snapshot, which makes it safe to change routes while
+ * the application is serving requests.
+ */
 public class Router {
-	private Map<Route, RouteResult> actionsForRoutes = new HashMap<Route, RouteResult>();
-
-	private Map<HttpMethod, Map<String, Route>> routes = createRoutesMap();
-	private Map<String, Route> namedRoutes = new HashMap<String, Route>();
-
-	private Map<Class<? extends RouteResult>, RouteResolver<?>> actionResolvers = new LinkedHashMap<Class<? extends RouteResult>, RouteResolver<?>>();
+	private volatile RouteTable routeTable = new RouteTable();
+	private volatile Map<Class<? extends RouteResult>, RouteResolver<?>> actionResolvers = Collections.emptyMap();
 
 	private boolean debug = true;
 
@@ -133,7 +137,7 @@ public class Router {
 	 * @return
 	 */
 	public Router remove(String name) {
-		remove(namedRoutes.get(name));
+		remove(getNamedRoute(name));
 		return this;
 	}
 
@@ -155,51 +159,47 @@ public class Router {
 
 	public <T extends RouteResult> Router add(HttpMethod httpMethod, String routePath, T action, String name) {
 		Route route = new Route(httpMethod, routePath, name);
+		addRoute(route, action);
+		return this;
+	}
+
+	private synchronized void addRoute(Route route, RouteResult action) {
+		RouteTable routeTable = this.routeTable;
 		String path = route.getRouteMatchRegex();
-		Map<String, Route> routesForMethod = this.routes.get(httpMethod);
+		String name = route.getName();
+		Map<String, Route> routesForMethod = routeTable.routes.get(route.getMethod());
 		if (routesForMethod.containsKey(path)) {
 			Route existingRoute = routesForMethod.get(path);
 			throw new RouteException("Unable to add the route '%s %s' - the route '%s %s' already exists which matches the same pattern. To override, you can remove the existing route first.",
 					route.getMethod(), route.getRoute(), existingRoute.getMethod(), existingRoute.getRoute());
 		}
-		if (StringUtils.isNotBlank(name)) {
-			if (namedRoutes.containsKey(name)) {
-				Route existingRoute = namedRoutes.get(name);
-				throw new RouteException(
-						"Unable to add the route '%s %s' with the name '%s' - the route '%s %s' has already been registered with this name. To override, you can remove the named route first.",
-						route.getMethod(), route.getRoute(), name, existingRoute.getMethod(), existingRoute.getRoute());
-			}
-			this.namedRoutes.put(name, route);
+		if (StringUtils.isNotBlank(name) && routeTable.namedRoutes.containsKey(name)) {
+			Route existingRoute = routeTable.namedRoutes.get(name);
+			throw new RouteException(
+					"Unable to add the route '%s %s' with the name '%s' - the route '%s %s' has already been registered with this name. To override, you can remove the named route first.",
+					route.getMethod(), route.getRoute(), name, existingRoute.getMethod(), existingRoute.getRoute());
 		}
-		routesForMethod.put(path, route);
-		this.actionsForRoutes.put(route, action);
-		return this;
+		this.routeTable = routeTable.with(route, action);
 	}
 
 	public Route getNamedRoute(String name) {
-		return namedRoutes.get(name);
+		return routeTable.namedRoutes.get(name);
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T extends RouteResult> Object invoke(String routePath, HttpMethod httpMethod, HttpServletRequest req, HttpServletResponse resp) {
 		Logger.debug("Requesting '%s'", routePath);
-		Route route = findMatchingRoute(routePath, httpMethod);
+		RouteTable routeTable = this.routeTable;
+		Route route = routeTable.findMatchingRoute(routePath, httpMethod);
 		if (route != null) {
-			T action = (T) actionsForRoutes.get(route);
+			T action = (T) routeTable.actionsForRoutes.get(route);
 			return resolveAction(routePath, httpMethod, req, resp, route, action);
 		}
-		String debugString = debug ? listRoutes() : "";
-		throw new RouteNotFoundException("No route matching the request %s %s\n%s", httpMethod, routePath, debugString);
+		throw new RouteNotFoundException(httpMethod, routePath, debug ? routeTable : null);
 	}
 
 	public Route findMatchingRoute(String routePath, HttpMethod method) {
-		Map<String, Route> routesForMethod = routes.get(method);
-		for (Route route : routesForMethod.values()) {
-			if (route.matches(routePath)) {
-				return route;
-			}
-		}
-		return null;
+		return routeTable.findMatchingRoute(routePath, method);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -212,35 +212,24 @@ public class Router {
 	}
 
 	public boolean isEmpty() {
-		return actionsForRoutes.isEmpty();
+		return routeTable.actionsForRoutes.isEmpty();
 	}
 
 	private static final String routeDisplayFormat = "%s: %s\n";
+	private static final int missCacheSize = 1024;
+	private static final int missCacheMaxPathLength = 512;
 
+	/**
+	 * @return a listing of all routes, suitable for debugging. The listing is built on first use and cached until routes change.
+	 */
 	public String listRoutes() {
-		Set<String> allRoutes = new HashSet<String>();
-		for (Map<String, Route> routeEntries : routes.values()) {
-			allRoutes.addAll(routeEntries.keySet());
-		}
-		List<String> allRouteNames = list(allRoutes);
-		Collections.sort(allRouteNames);
-
-		StringBuilder sb = new StringBuilder();
-		for (String route : allRouteNames) {
-			for (HttpMethod method : HttpMethod.all()) {
-				Map<String, Route> routesForType = routes.get(method);
-				if (routesForType.containsKey(route)) {
-					Route actualRoute = routesForType.get(route);
-					RouteResult action = this.actionsForRoutes.get(actualRoute);
-					sb.append(String.format(routeDisplayFormat, actualRoute, action));
-				}
-			}
-		}
-		return sb.toString();
+		return routeTable.listRoutes();
 	}
 
-	public <A extends RouteResult> void addResolver(Class<A> actionType, RouteResolver<A> actionResolver) {
+	public synchronized <A extends RouteResult> void addResolver(Class<A> actionType, RouteResolver<A> actionResolver) {
+		Map<Class<? extends RouteResult>, RouteResolver<?>> actionResolvers = new LinkedHashMap<Class<? extends RouteResult>, RouteResolver<?>>(this.actionResolvers);
 		actionResolvers.put(actionType, actionResolver);
+		this.actionResolvers = Collections.unmodifiableMap(actionResolvers);
 		Logger.debug("Added action resolver %s for actions of type %s", actionResolver.getClass().getSimpleName(), actionType);
 	}
 
@@ -249,27 +238,14 @@ public class Router {
 		return (RouteResolver<A>) actionResolvers.get(actionType);
 	}
 
-	private Map<HttpMethod, Map<String, Route>> createRoutesMap() {
-		Map<HttpMethod, Map<String, Route>> routesMap = new HashMap<HttpMethod, Map<String, Route>>();
-		for (HttpMethod type : HttpMethod.all()) {
-			routesMap.put(type, new LinkedHashMap<String, Route>());
-		}
-		return routesMap;
-	}
-
-	private void remove(Route route) {
+	private synchronized void remove(Route route) {
 		if (route != null) {
-			Map<String, Route> routesForMethod = this.routes.get(route.getMethod());
-			routesForMethod.remove(route.getRouteMatchRegex());
-			actionsForRoutes.remove(route);
-			if (route.getName() != null) {
-				namedRoutes.remove(route.getName());
-			}
+			this.routeTable = routeTable.without(route);
 		}
 	}
 
 	private Route getRoute(HttpMethod method, String route) {
-		Map<String, Route> routesForMethod = this.routes.get(method);
+		Map<String, Route> routesForMethod = this.routeTable.routes.get(method);
 		if (routesForMethod != null) {
 			for (Route potentialRoute : routesForMethod.values()) {
 				if (potentialRoute.getRoute().equals(route)) {
@@ -280,4 +256,127 @@ public class Router {
 		return null;
 	}
 
+	/**
+	 * An immutable snapshot of all registered routes. Changes produce a new {@link RouteTable}, discarding
+	 * the cached route listing and any cached misses.
+	 */
+	private static class RouteTable {
+		private final Map<HttpMethod, Map<String, Route>> routes;
+		private final Map<HttpMethod, Route[]> orderedRoutes;
+		private final Map<Route, RouteResult> actionsForRoutes;
+		private final Map<String, Route> namedRoutes;
+		private final RouteMissCache misses = new RouteMissCache(missCacheSize, missCacheMaxPathLength);
+		private volatile String routeListing;
+
+		RouteTable() {
+			this(createRoutesMap(), new HashMap<Route, RouteResult>(), new HashMap<String, Route>());
+		}
+
+		private RouteTable(Map<HttpMethod, Map<String, Route>> routes, Map<Route, RouteResult> actionsForRoutes, Map<String, Route> namedRoutes) {
+			Map<HttpMethod, Map<String, Route>> immutableRoutes = new EnumMap<HttpMethod, Map<String, Route>>(HttpMethod.class);
+			Map<HttpMethod, Route[]> orderedRoutes = new EnumMap<HttpMethod, Route[]>(HttpMethod.class);
+			for (Map.Entry<HttpMethod, Map<String, Route>> entry : routes.entrySet()) {
+				Map<String, Route> routesForMethod = entry.getValue();
+				immutableRoutes.put(entry.getKey(), Collections.unmodifiableMap(routesForMethod));
+				orderedRoutes.put(entry.getKey(), routesForMethod.values().toArray(new Route[routesForMethod.size()]));
+			}
+			this.routes = Collections.unmodifiableMap(immutableRoutes);
+			this.orderedRoutes = orderedRoutes;
+			this.actionsForRoutes = Collections.unmodifiableMap(actionsForRoutes);
+			this.namedRoutes = Collections.unmodifiableMap(namedRoutes);
+		}
+
+		Route findMatchingRoute(String routePath, HttpMethod method) {
+			Route[] routesForMethod = orderedRoutes.get(method);
+			if (routesForMethod == null || routePath == null || misses.contains(method, routePath)) {
+				return null;
+			}
+			for (Route route : routesForMethod) {
+				if (route.matches(routePath)) {
+					return route;
+				}
+			}
+			misses.add(method, routePath);
+			return null;
+		}
+
+		String listRoutes() {
+			String routeListing = this.routeListing;
+			if (routeListing == null) {
+				routeListing = buildRouteListing();
+				this.routeListing = routeListing;
+			}
+			return routeListing;
+		}
+
+		private String buildRouteListing() {
+			Set<String> allRoutes = new HashSet<String>();
+			for (Map<String, Route> routeEntries : routes.values()) {
+				allRoutes.addAll(routeEntries.keySet());
+			}
+			List<String> allRouteNames = list(allRoutes);
+			Collections.sort(allRouteNames);
+
+			StringBuilder sb = new StringBuilder();
+			for (String route : allRouteNames) {
+				for (HttpMethod method : HttpMethod.all()) {
+					Map<String, Route> routesForType = routes.get(method);
+					if (routesForType.containsKey(route)) {
+						Route actualRoute = routesForType.get(route);
+						RouteResult action = actionsForRoutes.get(actualRoute);
+						sb.append(String.format(routeDisplayFormat, actualRoute, action));
+					}
+				}
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Renders the route listing, allowing it to be rendered lazily into a {@link RouteNotFoundException} message
+		 */
+		@Override
+		public String toString() {
+			return listRoutes();
+		}
+
+		RouteTable with(Route route, RouteResult action) {
+			Map<HttpMethod, Map<String, Route>> routes = copyRoutes();
+			Map<Route, RouteResult> actionsForRoutes = new HashMap<Route, RouteResult>(this.actionsForRoutes);
+			Map<String, Route> namedRoutes = new HashMap<String, Route>(this.namedRoutes);
+			routes.get(route.getMethod()).put(route.getRouteMatchRegex(), route);
+			actionsForRoutes.put(route, action);
+			if (StringUtils.isNotBlank(route.getName())) {
+				namedRoutes.put(route.getName(), route);
+			}
+			return new RouteTable(routes, actionsForRoutes, namedRoutes);
+		}
+
+		RouteTable without(Route route) {
+			Map<HttpMethod, Map<String, Route>> routes = copyRoutes();
+			Map<Route, RouteResult> actionsForRoutes = new HashMap<Route, RouteResult>(this.actionsForRoutes);
+			Map<String, Route> namedRoutes = new HashMap<String, Route>(this.namedRoutes);
+			routes.get(route.getMethod()).remove(route.getRouteMatchRegex());
+			actionsForRoutes.remove(route);
+			if (route.getName() != null) {
+				namedRoutes.remove(route.getName());
+			}
+			return new RouteTable(routes, actionsForRoutes, namedRoutes);
+		}
+
+		private Map<HttpMethod, Map<String, Route>> copyRoutes() {
+			Map<HttpMethod, Map<String, Route>> copy = new HashMap<HttpMethod, Map<String, Route>>();
+			for (Map.Entry<HttpMethod, Map<String, Route>> entry : routes.entrySet()) {
+				copy.put(entry.getKey(), new LinkedHashMap<String, Route>(entry.getValue()));
+			}
+			return copy;
+		}
+
+		private static Map<HttpMethod, Map<String, Route>> createRoutesMap() {
+			Map<HttpMethod, Map<String, Route>> routesMap = new HashMap<HttpMethod, Map<String, Route>>();
+			for (HttpMethod type : HttpMethod.all()) {
+				routesMap.put(type, new LinkedHashMap<String, Route>());
+			}
+			return routesMap;
+		}
+	}
 }
@@ -17,13 +17,35 @@
  */
 package com.threewks.thundr.route;
 
+import java.io.File;
+
 import javax.servlet.ServletContext;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
 import com.threewks.thundr.bind.BinderModule;
 import com.threewks.thundr.bind.BinderRegistry;
+import com.threewks.thundr.configuration.Environment;
 import com.threewks.thundr.injection.BaseModule;
+import com.threewks.thundr.injection.InjectionContext;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
 import com.threewks.thundr.module.DependencyRegistry;
+import com.threewks.thundr.route.cache.Cached;
+import com.threewks.thundr.route.cache.CachedResponse;
+import com.threewks.thundr.route.cache.CachedResponseViewResolver;
+import com.threewks.thundr.route.cache.ResponseCache;
+import com.threewks.thundr.route.cache.ResponseCacheBackend;
+import com.threewks.thundr.route.cache.ResponseCacheInterceptor;
+import com.threewks.thundr.route.cache.SingleFlight;
+import com.threewks.thundr.route.cache.SingleFlightInterceptor;
+import com.threewks.thundr.route.cache.TieredResponseCache;
+import com.threewks.thundr.route.cache.disk.DiskResponseCache;
+import com.threewks.thundr.route.cache.disk.SegmentStore;
+import com.threewks.thundr.route.cache.memcached.MemcachedClient;
+import com.threewks.thundr.route.cache.memcached.MemcachedResponseCache;
+import com.threewks.thundr.route.conditional.Conditional;
+import com.threewks.thundr.route.conditional.ConditionalInterceptor;
 import com.threewks.thundr.route.controller.Controller;
 import com.threewks.thundr.route.controller.ControllerRouteResolver;
 import com.threewks.thundr.route.controller.FilterRegistry;
@@ -32,11 +54,34 @@ import com.threewks.thundr.route.redirect.Redirect;
 import com.threewks.thundr.route.redirect.RedirectRouteResolver;
 import com.threewks.thundr.route.rewrite.Rewrite;
 import com.threewks.thundr.route.rewrite.RewriteRouteResolver;
+import com.threewks.thundr.route.staticResource.DeflaterPool;
+import com.threewks.thundr.route.staticResource.GzipResponseStream;
+import com.threewks.thundr.route.staticResource.PrecompressedResourceGenerator;
+import com.threewks.thundr.route.staticResource.ResourceFingerprints;
 import com.threewks.thundr.route.staticResource.StaticResource;
+import com.threewks.thundr.route.staticResource.StaticResourceCache;
 import com.threewks.thundr.route.staticResource.StaticResourceRouteResolver;
+import com.threewks.thundr.view.GlobalModel;
 import com.threewks.thundr.view.ViewModule;
+import com.threewks.thundr.view.ViewResolverRegistry;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
 
 public class RouterModule extends BaseModule {
+	public static final String StaticResourceCacheBytesProperty = "staticResourceCacheBytes";
+	public static final String StaticResourceCacheMaxEntryBytesProperty = "staticResourceCacheMaxEntryBytes";
+	public static final String StaticResourceCacheWatchProperty = "staticResourceCacheWatch";
+	public static final String StaticResourceCacheDirectoryProperty = "staticResourceCacheDirectory";
+	public static final String StaticResourceCacheDiskBytesProperty = "staticResourceCacheDiskBytes";
+	public static final String StaticResourcePrecompressedDirectoryProperty = "staticResourcePrecompressedDirectory";
+	public static final String StaticResourceCompressionLevelProperty = "staticResourceCompressionLevel";
+	public static final String StaticResourceCompressionThresholdProperty = "staticResourceCompressionThreshold";
+	public static final String StaticResourceFingerprintsProperty = "staticResourceFingerprints";
+	public static final String ResponseCacheBytesProperty = "responseCacheBytes";
+	public static final String ResponseCacheMaxEntryBytesProperty = "responseCacheMaxEntryBytes";
+	public static final String ResponseCacheMemcachedServersProperty = "responseCacheMemcachedServers";
+	public static final String ResponseCacheDirectoryProperty = "responseCacheDirectory";
+	public static final String ResponseCacheDiskBytesProperty = "responseCacheDiskBytes";
+
 	@Override
 	public void requires(DependencyRegistry dependencyRegistry) {
 		dependencyRegistry.addDependency(ViewModule.class);
@@ -48,6 +93,7 @@ public class RouterModule extends BaseModule {
 		super.initialise(injectionContext);
 		injectionContext.inject(new Router()).as(Router.class);
 		injectionContext.inject(new FilterRegistry()).as(FilterRegistry.class);
+		injectionContext.inject(new MethodOverrideStrategy()).as(MethodOverrideStrategy.class);
 	}
 
 	@Override
@@ -62,10 +108,139 @@ public class RouterModule extends BaseModule {
 		// The MethodActionResolver is special because we use it to perform controller interception
 		injectionContext.inject(methodActionResolver).as(InterceptorRegistry.class);
 		injectionContext.inject(methodActionResolver.getMethodBinderRegistry()).as(BinderRegistry.class);
+		methodActionResolver.registerInterceptor(Conditional.class, new ConditionalInterceptor(injectionContext));
+		methodActionResolver.registerInterceptor(Cached.class, createResponseCacheInterceptor(injectionContext));
+		methodActionResolver.registerInterceptor(SingleFlight.class, new SingleFlightInterceptor(injectionContext.get(ViewResolverRegistry.class), injectionContext.get(ViewNegotiatorRegistry.class)));
+
+		StaticResourceRouteResolver staticResourceRouteResolver = new StaticResourceRouteResolver(servletContext, createStaticResourceCache(injectionContext));
+		String precompressedDirectory = injectionContext.get(String.class, StaticResourcePrecompressedDirectoryProperty);
+		if (StringUtils.isNotBlank(precompressedDirectory)) {
+			staticResourceRouteResolver.setPrecompressedDirectory(new File(precompressedDirectory));
+		}
+		String compressionLevel = injectionContext.get(String.class, StaticResourceCompressionLevelProperty);
+		if (StringUtils.isNotBlank(compressionLevel)) {
+			staticResourceRouteResolver.setDeflaterPool(new DeflaterPool(Integer.parseInt(compressionLevel.trim()), DeflaterPool.DefaultMaxIdle));
+		}
+		int compressionThreshold = NumberUtils.toInt(injectionContext.get(String.class, StaticResourceCompressionThresholdProperty), GzipResponseStream.DefaultCompressionThreshold);
+		staticResourceRouteResolver.setCompressionThreshold(compressionThreshold);
+		staticResourceRouteResolver.setFingerprints(createResourceFingerprints(injectionContext, servletContext));
+		injectionContext.inject(staticResourceRouteResolver).as(StaticResourceRouteResolver.class);
 
 		router.addResolver(Redirect.class, new RedirectRouteResolver());
 		router.addResolver(Rewrite.class, new RewriteRouteResolver(router));
-		router.addResolver(StaticResource.class, new StaticResourceRouteResolver(servletContext));
+		router.addResolver(StaticResource.class, staticResourceRouteResolver);
 		router.addResolver(Controller.class, methodActionResolver);
 	}
+
+	/**
+	 * When a precompressed directory is configured, generates compressed copies of static resources which do not have one.
+	 */
+	@Override
+	public void start(UpdatableInjectionContext injectionContext) {
+		StaticResourceRouteResolver staticResourceRouteResolver = injectionContext.get(StaticResourceRouteResolver.class);
+		File precompressedDirectory = staticResourceRouteResolver == null ? null : staticResourceRouteResolver.getPrecompressedDirectory();
+		if (precompressedDirectory != null) {
+			ServletContext servletContext = injectionContext.get(ServletContext.class);
+			new PrecompressedResourceGenerator(servletContext, staticResourceRouteResolver, precompressedDirectory).generate();
+		}
+	}
+
+	@Override
+	public void stop(InjectionContext injectionContext) {
+		StaticResourceCache cache = injectionContext.get(StaticResourceCache.class);
+		if (cache != null) {
+			cache.stop();
+		}
+		StaticResourceRouteResolver staticResourceRouteResolver = injectionContext.get(StaticResourceRouteResolver.class);
+		if (staticResourceRouteResolver != null) {
+			staticResourceRouteResolver.getDeflaterPool().clear();
+		}
+		if (injectionContext.contains(MemcachedClient.class)) {
+			injectionContext.get(MemcachedClient.class).stop();
+		}
+		if (injectionContext.contains(DiskResponseCache.class)) {
+			injectionContext.get(DiskResponseCache.class).getStore().stop();
+		}
+	}
+
+	/**
+	 * Creates the fingerprints used for fingerprinted static resource urls, and makes them available to views through the {@link GlobalModel}
+	 * when there is one. Fingerprinting is enabled unless disabled by configuration, and fingerprints are recomputed when resources change in the
+	 * {@link Environment#DEV} environment only.
+	 */
+	protected ResourceFingerprints createResourceFingerprints(UpdatableInjectionContext injectionContext, ServletContext servletContext) {
+		String enabled = injectionContext.get(String.class, StaticResourceFingerprintsProperty);
+		if (enabled != null && !Boolean.parseBoolean(enabled)) {
+			return null;
+		}
+		ResourceFingerprints fingerprints = new ResourceFingerprints(servletContext);
+		fingerprints.setVerifyModified(Environment.is(Environment.DEV));
+		injectionContext.inject(fingerprints).as(ResourceFingerprints.class);
+		if (injectionContext.contains(GlobalModel.class)) {
+			injectionContext.get(GlobalModel.class).put(ResourceFingerprints.ModelAttribute, fingerprints);
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * Creates the interceptor for {@link Cached} controller methods, along with the cache holding their rendered responses. Responses are held
+	 * in local memory, then on disk when a directory is configured, then in memcached when servers are configured.
+	 */
+	protected ResponseCacheInterceptor createResponseCacheInterceptor(UpdatableInjectionContext injectionContext) {
+		long maxBytes = NumberUtils.toLong(injectionContext.get(String.class, ResponseCacheBytesProperty), ResponseCache.DefaultMaxBytes);
+		long maxEntryBytes = NumberUtils.toLong(injectionContext.get(String.class, ResponseCacheMaxEntryBytesProperty), ResponseCache.DefaultMaxEntryBytes);
+		String memcachedServers = injectionContext.get(String.class, ResponseCacheMemcachedServersProperty);
+		String directory = injectionContext.get(String.class, ResponseCacheDirectoryProperty);
+		ResponseCache cache = new ResponseCache(maxBytes, maxEntryBytes);
+		injectionContext.inject(cache).as(ResponseCache.class);
+		ResponseCacheBackend slower = null;
+		if (StringUtils.isNotBlank(memcachedServers)) {
+			MemcachedClient client = new MemcachedClient(MemcachedClient.parseServers(memcachedServers));
+			injectionContext.inject(client).as(MemcachedClient.class);
+			slower = new MemcachedResponseCache(client);
+		}
+		if (StringUtils.isNotBlank(directory)) {
+			DiskResponseCache disk = new DiskResponseCache(createSegmentStore(directory, injectionContext.get(String.class, ResponseCacheDiskBytesProperty)));
+			injectionContext.inject(disk).as(DiskResponseCache.class);
+			slower = slower == null ? disk : new TieredResponseCache(disk, slower);
+		}
+		ResponseCacheBackend backend = slower == null ? cache : new TieredResponseCache(cache, slower);
+		injectionContext.inject(backend).as(ResponseCacheBackend.class);
+		ViewResolverRegistry viewResolverRegistry = injectionContext.get(ViewResolverRegistry.class);
+		viewResolverRegistry.addResolver(CachedResponse.class, new CachedResponseViewResolver());
+		return new ResponseCacheInterceptor(backend, viewResolverRegistry, injectionContext.get(ViewNegotiatorRegistry.class));
+	}
+
+	/**
+	 * Creates the cache for static resources. A cache size of 0 disables caching. By default, resources loaded from an exploded war are
+	 * watched for changes in the {@link Environment#DEV} environment only. When a directory is configured, cached resources are also
+	 * written to disk so they can be restored after a restart.
+	 */
+	protected StaticResourceCache createStaticResourceCache(UpdatableInjectionContext injectionContext) {
+		long maxBytes = NumberUtils.toLong(injectionContext.get(String.class, StaticResourceCacheBytesProperty), StaticResourceCache.DefaultMaxBytes);
+		long maxEntryBytes = NumberUtils.toLong(injectionContext.get(String.class, StaticResourceCacheMaxEntryBytesProperty), StaticResourceCache.DefaultMaxEntryBytes);
+		String watch = injectionContext.get(String.class, StaticResourceCacheWatchProperty);
+		if (maxBytes <= 0) {
+			return null;
+		}
+		StaticResourceCache cache = new StaticResourceCache(maxBytes, maxEntryBytes);
+		if (watch == null ? Environment.is(Environment.DEV) : Boolean.parseBoolean(watch)) {
+			cache.startWatching();
+		}
+		String directory = injectionContext.get(String.class, StaticResourceCacheDirectoryProperty);
+		if (StringUtils.isNotBlank(directory)) {
+			cache.setDiskStore(createSegmentStore(directory, injectionContext.get(String.class, StaticResourceCacheDiskBytesProperty)));
+		}
+		injectionContext.inject(cache).as(StaticResourceCache.class);
+		return cache;
+	}
+
+	/**
+	 * Creates a store in the given directory, compacted in the background.
+	 */
+	protected SegmentStore createSegmentStore(String directory, String maxBytes) {
+		SegmentStore store = new SegmentStore(new File(directory.trim()), NumberUtils.toLong(maxBytes, SegmentStore.DefaultMaxBytes), SegmentStore.DefaultSegmentBytes);
+		store.startCompacting(SegmentStore.DefaultCompactionInterval);
+		return store;
+	}
 }
@@ -0,0 +1,119 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A fully rendered response held by a {@link ResponseCache}. A cached response is also a view, resolved by the
+ * {@link CachedResponseViewResolver}.
+ */
+public class CachedResponse {
+	private final int status;
+	private final String contentType;
+	private final String characterEncoding;
+	private final Map<String, String> headers;
+	private final ByteBuffer body;
+	private final long expires;
+
+	public CachedResponse(int status, String contentType, String characterEncoding, Map<String, String> headers, byte[] body, long expires) {
+		this(status, contentType, characterEncoding, headers, ByteBuffer.wrap(body), expires);
+	}
+
+	/**
+	 * @param body the remaining content of the buffer is the body, which is held rather than copied
+	 */
+	public CachedResponse(int status, String contentType, String characterEncoding, Map<String, String> headers, ByteBuffer body, long expires) {
+		this.status = status;
+		this.contentType = contentType;
+		this.characterEncoding = characterEncoding;
+		this.headers = Collections.unmodifiableMap(new LinkedHashMap<String, String>(headers));
+		this.body = body.slice();
+		this.expires = expires;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getCharacterEncoding() {
+		return characterEncoding;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Responses read from a {@link com.threewks.thundr.route.cache.disk.DiskResponseCache} hold their body in a memory mapped file,
+	 * which this copies into an array. Use {@link #getBodyBuffer()} to write the body without copying it.
+	 */
+	public byte[] getBody() {
+		if (body.hasArray() && body.arrayOffset() == 0 && body.remaining() == body.array().length) {
+			return body.array();
+		}
+		byte[] bytes = new byte[body.remaining()];
+		body.duplicate().get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @return a buffer holding the body, which can be read without affecting this response
+	 */
+	public ByteBuffer getBodyBuffer() {
+		return body.duplicate();
+	}
+
+	public int getBodyLength() {
+		return body.remaining();
+	}
+
+	/**
+	 * @return the time in milliseconds after which this response is no longer served
+	 */
+	public long getExpires() {
+		return expires;
+	}
+
+	public boolean isExpired(long now) {
+		return now >= expires;
+	}
+
+	/**
+	 * @return the approximate number of bytes held by this response
+	 */
+	public long getWeight() {
+		long weight = body.remaining();
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			weight += header.getKey().length() + (header.getValue() == null ? 0 : header.getValue().length());
+		}
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %d (%s, %d bytes)", this.getClass().getSimpleName(), status, contentType, body.remaining());
+	}
+}
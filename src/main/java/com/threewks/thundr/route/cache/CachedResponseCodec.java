@@ -0,0 +1,109 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.util.Streams;
+
+/**
+ * Converts {@link CachedResponse}s to and from bytes, so they can be held outside of the heap.
+ */
+public class CachedResponseCodec {
+	private static final int Version = 1;
+
+	public static byte[] encode(CachedResponse response) {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(response.getBodyLength() + 256);
+			DataOutputStream out = new DataOutputStream(baos);
+			out.writeByte(Version);
+			out.writeInt(response.getStatus());
+			writeNullable(out, response.getContentType());
+			writeNullable(out, response.getCharacterEncoding());
+			out.writeLong(response.getExpires());
+			out.writeInt(response.getHeaders().size());
+			for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+				out.writeUTF(header.getKey());
+				writeNullable(out, header.getValue());
+			}
+			out.writeInt(response.getBodyLength());
+			out.flush();
+			Streams.copy(response.getBodyBuffer(), baos);
+			return baos.toByteArray();
+		} catch (IOException e) {
+			throw new BaseException(e, "Failed to encode %s: %s", response, e.getMessage());
+		}
+	}
+
+	public static CachedResponse decode(byte[] data) {
+		return decode(ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * The body of the decoded response is a slice of the given buffer rather than a copy, so a response can be served directly
+	 * from a memory mapped file.
+	 * 
+	 * @throws BaseException if the content is not an encoded response
+	 */
+	public static CachedResponse decode(ByteBuffer data) {
+		try {
+			ByteBuffer buffer = data.duplicate();
+			DataInputStream in = new DataInputStream(Streams.asInputStream(buffer));
+			int version = in.readByte();
+			if (version != Version) {
+				throw new BaseException("Failed to decode a cached response: unsupported version %d", version);
+			}
+			int status = in.readInt();
+			String contentType = readNullable(in);
+			String characterEncoding = readNullable(in);
+			long expires = in.readLong();
+			int headerCount = in.readInt();
+			Map<String, String> headers = new LinkedHashMap<String, String>();
+			for (int i = 0; i < headerCount; i++) {
+				headers.put(in.readUTF(), readNullable(in));
+			}
+			int length = in.readInt();
+			if (length < 0 || length > buffer.remaining()) {
+				throw new BaseException("Failed to decode a cached response: expected %d bytes of body but %d remain", length, buffer.remaining());
+			}
+			ByteBuffer body = buffer.slice();
+			body.limit(length);
+			return new CachedResponse(status, contentType, characterEncoding, headers, body, expires);
+		} catch (IOException e) {
+			throw new BaseException(e, "Failed to decode a cached response: %s", e.getMessage());
+		}
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.threewks.thundr.logger.Logger;
+
+/**
+ * Tracks the requests in flight for each key, so that concurrent requests with the same key can wait for the first to finish
+ * instead of repeating its work. The leading request is remembered on a request attribute until it lands, and must be
+ * {@link #abandon(HttpServletRequest) abandoned} when it finishes so that a flight is never left in the air.
+ */
+class Flights {
+	private final String attribute;
+	private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+	Flights(String attribute) {
+		this.attribute = attribute;
+	}
+
+	/**
+	 * @return the flight already in progress for the given key, or null if the given request now leads a new flight which it
+	 *         must {@link #land(Flight, CachedResponse)}
+	 */
+	Flight join(HttpServletRequest req, String key) {
+		Flight flight = new Flight(key);
+		Flight inProgress = flights.putIfAbsent(key, flight);
+		if (inProgress == null) {
+			req.setAttribute(attribute, flight);
+		}
+		return inProgress;
+	}
+
+	/**
+	 * Waits for the given flight to land. If it does not land within the timeout it is abandoned, so that later requests for the
+	 * same key start a new flight rather than waiting on a stuck one.
+	 * 
+	 * @return true if the flight landed
+	 */
+	boolean await(Flight flight, long timeout) {
+		try {
+			if (flight.latch.await(timeout, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+			flights.remove(flight.key, flight);
+			Logger.warn("Timed out after %dms waiting for %s, continuing independently", timeout, flight.key);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	/**
+	 * @return the flight led by the given request, or null if it does not lead one
+	 */
+	Flight release(HttpServletRequest req) {
+		Flight flight = (Flight) req.getAttribute(attribute);
+		if (flight != null) {
+			req.removeAttribute(attribute);
+		}
+		return flight;
+	}
+
+	/**
+	 * Completes the given flight, releasing waiting requests with the given response, which is null if the leader failed.
+	 */
+	void land(Flight flight, CachedResponse response) {
+		flight.response = response;
+		flights.remove(flight.key, flight);
+		flight.latch.countDown();
+	}
+
+	/**
+	 * Lands the flight led by the given request, if it still leads one, releasing waiting requests to do the work themselves.
+	 * This is safe to call whether or not the flight has already landed.
+	 */
+	void abandon(HttpServletRequest req) {
+		Flight flight = release(req);
+		if (flight != null) {
+			land(flight, null);
+		}
+	}
+
+	int size() {
+		return flights.size();
+	}
+
+	static class Flight {
+		final String key;
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile CachedResponse response;
+
+		private Flight(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * @return the response the leader produced, or null if it failed or has not landed
+		 */
+		CachedResponse getResponse() {
+			return response;
+		}
+	}
+}
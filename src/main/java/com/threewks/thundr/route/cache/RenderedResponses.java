@@ -0,0 +1,111 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.view.BaseView;
+import com.threewks.thundr.view.BasicViewRenderer;
+import com.threewks.thundr.view.ViewResolverRegistry;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
+import com.threewks.thundr.view.negotiating.strategy.AcceptsHeaderNegotiationStrategy;
+
+/**
+ * Keys requests by the inputs which select their response, and renders views into memory so that one rendered response can be
+ * served to many requests.
+ */
+class RenderedResponses {
+	/**
+	 * Keys the given request on its method, path, the given query parameters and the content type negotiated from its Accept header.
+	 * Every part is prefixed with its length, so that no value can be mistaken for another part of the key.
+	 */
+	static String key(HttpServletRequest req, String[] parameters, String contentType) {
+		StringBuilder key = new StringBuilder();
+		append(key, req.getMethod().toUpperCase());
+		append(key, req.getRequestURI());
+		String[] names = parameters.clone();
+		Arrays.sort(names);
+		for (String name : names) {
+			String[] values = req.getParameterValues(name);
+			if (values != null) {
+				for (String value : values) {
+					append(key, name);
+					append(key, value);
+				}
+			}
+		}
+		append(key, StringUtils.defaultString(contentType));
+		return key.toString();
+	}
+
+	private static void append(StringBuilder key, String part) {
+		key.append(part.length()).append(':').append(part);
+	}
+
+	/**
+	 * Renders the given view into memory, returning null if it cannot be shared because it sets cookies or cannot be rendered
+	 * outside of a real response.
+	 */
+	static CachedResponse render(ViewResolverRegistry viewResolverRegistry, Object view, long expires) {
+		if (view == null) {
+			return null;
+		}
+		if (view instanceof BaseView && !((BaseView<?>) view).getCookies().isEmpty()) {
+			return null;
+		}
+		BasicViewRenderer renderer = new BasicViewRenderer(viewResolverRegistry);
+		try {
+			renderer.render(view);
+		} catch (RuntimeException e) {
+			Logger.debug("Not sharing %s, it could not be rendered in memory: %s", view, e.getMessage());
+			return null;
+		}
+		return new CachedResponse(renderer.getStatus(), renderer.getContentType(), renderer.getCharacterEncoding(), renderer.getHeaders(), renderer.getOutputAsBytes(), expires);
+	}
+
+	/**
+	 * Keys requests using the content type the {@link AcceptsHeaderNegotiationStrategy} negotiates from their Accept header, so that
+	 * Accept headers which negotiate the same content type share a response. Without a {@link ViewNegotiatorRegistry} the Accept
+	 * header itself is used.
+	 */
+	static class Keys {
+		private final ViewNegotiatorRegistry viewNegotiatorRegistry;
+		private final AcceptsHeaderNegotiationStrategy acceptsHeaderNegotiation = new AcceptsHeaderNegotiationStrategy();
+
+		Keys(ViewNegotiatorRegistry viewNegotiatorRegistry) {
+			this.viewNegotiatorRegistry = viewNegotiatorRegistry;
+		}
+
+		String key(HttpServletRequest req, String[] parameters) {
+			return RenderedResponses.key(req, parameters, contentType(req));
+		}
+
+		private String contentType(HttpServletRequest req) {
+			if (viewNegotiatorRegistry == null) {
+				return StringUtils.deleteWhitespace(StringUtils.lowerCase(req.getHeader(Header.Accept)));
+			}
+			return acceptsHeaderNegotiation.findContentType(req, viewNegotiatorRegistry);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of rendered responses, weighted by the number of bytes held. Expired responses
+ * are removed when they are next looked up.
+ */
+public class ResponseCache implements ResponseCacheBackend {
+	public static final long DefaultMaxBytes = 8 * 1024 * 1024;
+	public static final long DefaultMaxEntryBytes = 512 * 1024;
+
+	private final long maxBytes;
+	private final long maxEntryBytes;
+	private final LinkedHashMap<String, CachedResponse> responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true);
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public ResponseCache() {
+		this(DefaultMaxBytes, DefaultMaxEntryBytes);
+	}
+
+	public ResponseCache(long maxBytes, long maxEntryBytes) {
+		this.maxBytes = maxBytes;
+		this.maxEntryBytes = Math.min(maxBytes, maxEntryBytes);
+	}
+
+	@Override
+	public synchronized CachedResponse get(String key) {
+		CachedResponse cached = responses.get(key);
+		if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+			remove(key);
+			cached = null;
+		}
+		if (cached == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return cached;
+	}
+
+	/**
+	 * Stores the given response, unless it is larger than the maximum entry size. Least recently used responses are evicted
+	 * to keep the cache within its maximum size.
+	 * 
+	 * @return true if the response was stored
+	 */
+	@Override
+	public synchronized boolean put(String key, CachedResponse response) {
+		remove(key);
+		if (response.getWeight() > maxEntryBytes) {
+			return false;
+		}
+		responses.put(key, response);
+		weight += response.getWeight();
+		evict();
+		return true;
+	}
+
+	@Override
+	public synchronized void invalidate(String key) {
+		remove(key);
+	}
+
+	public synchronized void clear() {
+		responses.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return responses.size();
+	}
+
+	/**
+	 * @return the number of bytes currently held by this cache
+	 */
+	public synchronized long weight() {
+		return weight;
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of responses removed to keep this cache within its maximum size
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getMaxEntryBytes() {
+		return maxEntryBytes;
+	}
+
+	private void remove(String key) {
+		CachedResponse removed = responses.remove(key);
+		if (removed != null) {
+			weight -= removed.getWeight();
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, CachedResponse>> iterator = responses.entrySet().iterator();
+		while (weight > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, CachedResponse> eldest = iterator.next();
+			iterator.remove();
+			weight -= eldest.getValue().getWeight();
+			evictions++;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%d responses, %d bytes)", this.getClass().getSimpleName(), size(), weight());
+	}
+}
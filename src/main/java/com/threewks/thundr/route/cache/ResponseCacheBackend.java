@@ -0,0 +1,39 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+/**
+ * Storage for the rendered responses of {@link Cached} controller methods. The in-memory {@link ResponseCache} is used by default,
+ * other implementations allow responses to be shared between instances.
+ * 
+ * Implementations must be thread safe, and should treat a failure to reach their underlying storage as a cache miss rather than
+ * failing the request.
+ */
+public interface ResponseCacheBackend {
+	/**
+	 * @return the unexpired response stored for the given key, or null if there is none
+	 */
+	public CachedResponse get(String key);
+
+	/**
+	 * @return true if the response was stored
+	 */
+	public boolean put(String key, CachedResponse response);
+
+	public void invalidate(String key);
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.threewks.thundr.http.HttpSupport;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.cache.Flights.Flight;
+import com.threewks.thundr.route.controller.CompletingInterceptor;
+import com.threewks.thundr.view.ViewResolverRegistry;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
+
+/**
+ * Serves the rendered responses of {@link Cached} controller methods from a {@link ResponseCacheBackend}. Responses are keyed by
+ * request method, path, the query parameters named by {@link Cached#varyBy()} and the content type negotiated from the Accept
+ * header.
+ * 
+ * When several requests miss the cache for the same key at once, only the first invokes the controller. The others wait for its
+ * response to be cached, or invoke the controller themselves if it could not be cached or the wait times out.
+ */
+public class ResponseCacheInterceptor implements CompletingInterceptor<Cached> {
+	public static final long DefaultWaitTimeout = 30000;
+	private static final String RenderAttribute = ResponseCacheInterceptor.class.getName() + ".render";
+
+	private final ResponseCacheBackend cache;
+	private final ViewResolverRegistry viewResolverRegistry;
+	private final RenderedResponses.Keys keys;
+	private final Flights rendering = new Flights(RenderAttribute);
+	private long waitTimeout = DefaultWaitTimeout;
+
+	public ResponseCacheInterceptor(ResponseCacheBackend cache, ViewResolverRegistry viewResolverRegistry) {
+		this(cache, viewResolverRegistry, null);
+	}
+
+	public ResponseCacheInterceptor(ResponseCacheBackend cache, ViewResolverRegistry viewResolverRegistry, ViewNegotiatorRegistry viewNegotiatorRegistry) {
+		this.cache = cache;
+		this.viewResolverRegistry = viewResolverRegistry;
+		this.keys = new RenderedResponses.Keys(viewNegotiatorRegistry);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T before(Cached annotation, HttpServletRequest req, HttpServletResponse resp) {
+		String method = req.getMethod();
+		if (!HttpSupport.Methods.isGet(method) && !HttpSupport.Methods.isHead(method)) {
+			return null;
+		}
+		String key = key(annotation, req);
+		CachedResponse cached = cache.get(key);
+		if (cached != null) {
+			return (T) cached;
+		}
+		Flight inProgress = rendering.join(req, key);
+		if (inProgress != null && rendering.await(inProgress, waitTimeout)) {
+			return (T) cache.get(key);
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T after(Cached annotation, Object view, HttpServletRequest req, HttpServletResponse resp) {
+		Flight render = rendering.release(req);
+		if (render == null) {
+			return null;
+		}
+		CachedResponse response = null;
+		try {
+			response = render(annotation, view);
+			if (response != null && response.getStatus() == HttpServletResponse.SC_OK && cache.put(render.key, response)) {
+				Logger.debug("Cached %s for %ds", render.key, annotation.ttl());
+			}
+			return (T) response;
+		} finally {
+			rendering.land(render, response);
+		}
+	}
+
+	@Override
+	public <T> T exception(Cached annotation, Exception e, HttpServletRequest req, HttpServletResponse resp) {
+		rendering.abandon(req);
+		return null;
+	}
+
+	/**
+	 * Another interceptor can end the request before {@link #after(Cached, Object, HttpServletRequest, HttpServletResponse)} is
+	 * reached, in which case the waiting requests are released to invoke the controller themselves.
+	 */
+	@Override
+	public void complete(Cached annotation, HttpServletRequest req, HttpServletResponse resp) {
+		rendering.abandon(req);
+	}
+
+	public ResponseCacheBackend getCache() {
+		return cache;
+	}
+
+	public long getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	/**
+	 * @param waitTimeout the number of milliseconds a request waits for a concurrent request to render the same response
+	 */
+	public void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	protected String key(Cached annotation, HttpServletRequest req) {
+		return keys.key(req, annotation.varyBy());
+	}
+
+	/**
+	 * Renders the given view into memory, returning null if it cannot be cached.
+	 */
+	protected CachedResponse render(Cached annotation, Object view) {
+		long expires = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(annotation.ttl());
+		return RenderedResponses.render(viewResolverRegistry, view, expires);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.threewks.thundr.http.HttpSupport;
+import com.threewks.thundr.route.cache.Flights.Flight;
+import com.threewks.thundr.route.controller.CompletingInterceptor;
+import com.threewks.thundr.view.ViewResolverRegistry;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
+
+/**
+ * Coalesces concurrent identical requests to {@link SingleFlight} controller methods. Requests are keyed by request method, path, the
+ * query parameters named by {@link SingleFlight#varyBy()} and the content type negotiated from the Accept header.
+ * 
+ * The first request for a key invokes the controller and renders its view in memory. Requests for the same key arriving before it
+ * finishes wait for it, and are served the same rendered bytes. If the leading request fails, renders a server error or a response
+ * setting cookies, or does not finish within {@link SingleFlight#timeout()}, waiting requests invoke the controller themselves.
+ * Nothing is retained once the leading request finishes.
+ */
+public class SingleFlightInterceptor implements CompletingInterceptor<SingleFlight> {
+	public static final long DefaultTimeout = 10000;
+	private static final String FlightAttribute = SingleFlightInterceptor.class.getName() + ".flight";
+
+	private final ViewResolverRegistry viewResolverRegistry;
+	private final RenderedResponses.Keys keys;
+	private final Flights flights = new Flights(FlightAttribute);
+
+	public SingleFlightInterceptor(ViewResolverRegistry viewResolverRegistry) {
+		this(viewResolverRegistry, null);
+	}
+
+	public SingleFlightInterceptor(ViewResolverRegistry viewResolverRegistry, ViewNegotiatorRegistry viewNegotiatorRegistry) {
+		this.viewResolverRegistry = viewResolverRegistry;
+		this.keys = new RenderedResponses.Keys(viewNegotiatorRegistry);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T before(SingleFlight annotation, HttpServletRequest req, HttpServletResponse resp) {
+		String method = req.getMethod();
+		if (!HttpSupport.Methods.isGet(method) && !HttpSupport.Methods.isHead(method)) {
+			return null;
+		}
+		Flight inProgress = flights.join(req, key(annotation, req));
+		if (inProgress != null && flights.await(inProgress, annotation.timeout())) {
+			return (T) inProgress.getResponse();
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T after(SingleFlight annotation, Object view, HttpServletRequest req, HttpServletResponse resp) {
+		Flight flight = flights.release(req);
+		if (flight == null) {
+			return null;
+		}
+		CachedResponse response = null;
+		try {
+			response = RenderedResponses.render(viewResolverRegistry, view, 0);
+			return (T) response;
+		} finally {
+			boolean shared = response != null && response.getStatus() < HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+			flights.land(flight, shared ? response : null);
+		}
+	}
+
+	@Override
+	public <T> T exception(SingleFlight annotation, Exception e, HttpServletRequest req, HttpServletResponse resp) {
+		flights.abandon(req);
+		return null;
+	}
+
+	/**
+	 * Another interceptor, such as the {@link ResponseCacheInterceptor}, can end the request before
+	 * {@link #after(SingleFlight, Object, HttpServletRequest, HttpServletResponse)} is reached, in which case the waiting requests
+	 * are released to invoke the controller themselves.
+	 */
+	@Override
+	public void complete(SingleFlight annotation, HttpServletRequest req, HttpServletResponse resp) {
+		flights.abandon(req);
+	}
+
+	/**
+	 * @return the number of keys with a request in flight
+	 */
+	public int inFlight() {
+		return flights.size();
+	}
+
+	protected String key(SingleFlight annotation, HttpServletRequest req) {
+		return keys.key(req, annotation.varyBy());
+	}
+}
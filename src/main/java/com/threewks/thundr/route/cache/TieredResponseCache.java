@@ -0,0 +1,92 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A two tier response cache, checking a fast local backend, usually a {@link ResponseCache}, before a slower shared or persistent one.
+ * Responses found in the slower backend are copied into the local one, so they are served from memory until they expire.
+ * Tiered caches can be nested to add further tiers.
+ */
+public class TieredResponseCache implements ResponseCacheBackend {
+	private final ResponseCacheBackend local;
+	private final ResponseCacheBackend shared;
+	private final AtomicLong sharedHits = new AtomicLong();
+	private final AtomicLong sharedMisses = new AtomicLong();
+
+	public TieredResponseCache(ResponseCacheBackend local, ResponseCacheBackend shared) {
+		this.local = local;
+		this.shared = shared;
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		CachedResponse response = local.get(key);
+		if (response != null) {
+			return response;
+		}
+		response = shared.get(key);
+		if (response == null || response.isExpired(System.currentTimeMillis())) {
+			sharedMisses.incrementAndGet();
+			return null;
+		}
+		sharedHits.incrementAndGet();
+		local.put(key, response);
+		return response;
+	}
+
+	@Override
+	public boolean put(String key, CachedResponse response) {
+		boolean stored = local.put(key, response);
+		return shared.put(key, response) || stored;
+	}
+
+	@Override
+	public void invalidate(String key) {
+		local.invalidate(key);
+		shared.invalidate(key);
+	}
+
+	public ResponseCacheBackend getLocal() {
+		return local;
+	}
+
+	public ResponseCacheBackend getShared() {
+		return shared;
+	}
+
+	/**
+	 * @return the number of local misses which were found in the shared backend
+	 */
+	public long sharedHits() {
+		return sharedHits.get();
+	}
+
+	/**
+	 * @return the number of local misses which were not found in the shared backend
+	 */
+	public long sharedMisses() {
+		return sharedMisses.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s, %s)", this.getClass().getSimpleName(), local, shared);
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.disk;
+
+import java.nio.ByteBuffer;
+
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.cache.CachedResponse;
+import com.threewks.thundr.route.cache.CachedResponseCodec;
+import com.threewks.thundr.route.cache.ResponseCacheBackend;
+
+/**
+ * Stores rendered responses in a {@link SegmentStore}, so they survive a restart of the application.
+ * The body of a response read from the store is served directly from the memory mapped segment, without being copied.
+ */
+public class DiskResponseCache implements ResponseCacheBackend {
+	private final SegmentStore store;
+
+	public DiskResponseCache(SegmentStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		ByteBuffer value = store.get(key);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return CachedResponseCodec.decode(value);
+		} catch (RuntimeException e) {
+			// any record which cannot be decoded is dropped, rather than failing every request for it
+			Logger.warn("Failed to read %s from %s: %s", key, store, e.getMessage());
+			store.remove(key);
+			return null;
+		}
+	}
+
+	@Override
+	public boolean put(String key, CachedResponse response) {
+		if (response.isExpired(System.currentTimeMillis())) {
+			return false;
+		}
+		return store.put(key, CachedResponseCodec.encode(response), response.getExpires());
+	}
+
+	@Override
+	public void invalidate(String key) {
+		store.remove(key);
+	}
+
+	public SegmentStore getStore() {
+		return store;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s)", this.getClass().getSimpleName(), store);
+	}
+}
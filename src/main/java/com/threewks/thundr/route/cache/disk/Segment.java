@@ -0,0 +1,165 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.threewks.thundr.logger.Logger;
+
+/**
+ * A single append-only file of a {@link SegmentStore}. Content is read through a read only memory mapping of the file,
+ * which is created once, on first read, at the full capacity of the segment. Appended records are visible through the
+ * existing mapping, so the segment is never remapped as it grows.
+ */
+class Segment implements Comparable<Segment> {
+	private final long id;
+	private final File file;
+	private final FileChannel channel;
+	private final long capacity;
+	private final AtomicLong live = new AtomicLong();
+	private volatile long size;
+	private volatile MappedByteBuffer mapped;
+
+	/**
+	 * @param capacity the size the segment is mapped at, so it is only mapped once as records are appended
+	 */
+	Segment(long id, File file, long capacity) throws IOException {
+		this.id = id;
+		this.file = file;
+		this.capacity = capacity;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.size = channel.size();
+	}
+
+	long getId() {
+		return id;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	long size() {
+		return size;
+	}
+
+	FileChannel channel() {
+		return channel;
+	}
+
+	/**
+	 * @return the number of bytes of records in this segment which are still referenced by the index
+	 */
+	long live() {
+		return live.get();
+	}
+
+	void addLive(long bytes) {
+		live.addAndGet(bytes);
+	}
+
+	/**
+	 * @return the offset the record was written at
+	 */
+	long append(ByteBuffer record) throws IOException {
+		long offset = size;
+		while (record.hasRemaining()) {
+			channel.write(record, offset + record.position());
+		}
+		size = offset + record.limit();
+		return offset;
+	}
+
+	/**
+	 * Discards everything after the given offset, used to recover from a partially written record.
+	 * This is only used before the segment is mapped.
+	 */
+	void truncate(long length) throws IOException {
+		channel.truncate(length);
+		size = length;
+		mapped = null;
+	}
+
+	/**
+	 * @return a read only view of the given region of this segment, backed directly by the memory mapped file
+	 */
+	ByteBuffer slice(long offset, int length) throws IOException {
+		if (offset + length > size) {
+			throw new IOException(String.format("Cannot read %d bytes at %d beyond the end of %s", length, offset, file));
+		}
+		MappedByteBuffer mapped = this.mapped;
+		if (mapped == null) {
+			mapped = map();
+		}
+		ByteBuffer slice = mapped.duplicate();
+		slice.position((int) offset);
+		slice.limit((int) offset + length);
+		return slice.slice();
+	}
+
+	void force() {
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			Logger.warn("Failed to flush %s to disk: %s", file, e.getMessage());
+		}
+	}
+
+	void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			Logger.warn("Failed to close %s: %s", file, e.getMessage());
+		}
+		mapped = null;
+	}
+
+	void delete() {
+		close();
+		if (!file.delete() && file.exists()) {
+			Logger.warn("Failed to delete cache segment %s", file);
+		}
+	}
+
+	@Override
+	public int compareTo(Segment o) {
+		return Long.compare(id, o.id);
+	}
+
+	@Override
+	public String toString() {
+		return file.getName();
+	}
+
+	/**
+	 * Maps the whole segment, extending the file to its capacity. The unused space at the end of the file is zeros,
+	 * which are discarded when the segment is next loaded.
+	 */
+	private synchronized MappedByteBuffer map() throws IOException {
+		if (mapped == null) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.max(size, capacity));
+		}
+		return mapped;
+	}
+}
@@ -0,0 +1,522 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.logger.Logger;
+
+/**
+ * A persistent key value store held in append-only segment files in a directory. Values are read through memory mapped files,
+ * so nothing is read from disk until a value is requested, and values are returned without being copied.
+ * 
+ * When opened, the store indexes the records of its existing segments, so values written by a previous process remain available.
+ * If the process stopped part way through writing a record, the incomplete record is discarded.
+ * 
+ * Replaced and removed values remain on disk until their segment is compacted, which copies the values still in use to the newest segment.
+ * When the store reaches its maximum size, the oldest segment is discarded.
+ */
+public class SegmentStore {
+	public static final long DefaultMaxBytes = 256L * 1024 * 1024;
+	public static final long DefaultSegmentBytes = 16L * 1024 * 1024;
+	public static final long DefaultCompactionInterval = 60000;
+	/**
+	 * Segments are compacted when less than this proportion of their content is still in use
+	 */
+	public static final double CompactionThreshold = 0.5;
+
+	static final int Magic = 0x74686472;
+	static final int HeaderLength = 24;
+	static final int MaxKeyLength = 64 * 1024;
+	private static final Pattern SegmentName = Pattern.compile("segment-(\\d+)\\.dat");
+
+	private final File directory;
+	private final long maxBytes;
+	private final long segmentBytes;
+	private final ConcurrentMap<String, Entry> index = new ConcurrentHashMap<String, Entry>();
+	private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+	private Segment active;
+	private Thread compactionThread;
+	private boolean stopped = false;
+
+	public SegmentStore(File directory) {
+		this(directory, DefaultMaxBytes, DefaultSegmentBytes);
+	}
+
+	/**
+	 * @param directory the directory holding the segment files
+	 * @param maxBytes the maximum number of bytes of segment files
+	 * @param segmentBytes the size at which a new segment is started, limited to half of the maximum size
+	 */
+	public SegmentStore(File directory, long maxBytes, long segmentBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.segmentBytes = Math.min(Math.min(segmentBytes, maxBytes / 2), Integer.MAX_VALUE);
+		open();
+	}
+
+	/**
+	 * @return a read only buffer holding the value stored for the given key, or null if there is no unexpired value
+	 */
+	public ByteBuffer get(String key) {
+		Entry entry = index.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.isExpired(System.currentTimeMillis())) {
+			synchronized (this) {
+				if (index.remove(key, entry)) {
+					entry.segment.addLive(-entry.recordLength);
+				}
+			}
+			return null;
+		}
+		try {
+			return entry.segment.slice(entry.offset, entry.length);
+		} catch (IOException e) {
+			// the segment was compacted or discarded since the entry was read
+			Logger.debug("Failed to read %s from %s: %s", key, entry.segment, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @param expires the time in milliseconds after which the value is not returned, or 0 if it does not expire
+	 * @return true if the value was stored
+	 */
+	public synchronized boolean put(String key, byte[] value, long expires) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int recordLength = HeaderLength + keyBytes.length + value.length;
+		if (stopped || keyBytes.length > MaxKeyLength || recordLength > segmentBytes) {
+			return false;
+		}
+		try {
+			ensureCapacity(recordLength, true);
+			long offset = active.append(record(keyBytes, value, expires));
+			active.addLive(recordLength);
+			replaced(index.put(key, new Entry(active, offset + HeaderLength + keyBytes.length, value.length, expires, recordLength)));
+			return true;
+		} catch (IOException e) {
+			Logger.warn("Failed to write %s to %s: %s", key, directory, e.getMessage());
+			return false;
+		}
+	}
+
+	public synchronized void remove(String key) {
+		Entry removed = index.remove(key);
+		if (removed != null && !stopped) {
+			replaced(removed);
+			try {
+				byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+				ensureCapacity(HeaderLength + keyBytes.length, true);
+				active.append(record(keyBytes, null, 0));
+			} catch (IOException e) {
+				Logger.warn("Failed to remove %s from %s: %s", key, directory, e.getMessage());
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		index.clear();
+		for (Segment segment : segments.values()) {
+			segment.delete();
+		}
+		segments.clear();
+		active = null;
+		if (!stopped) {
+			try {
+				roll();
+			} catch (IOException e) {
+				throw new BaseException(e, "Failed to create a cache segment in %s: %s", directory, e.getMessage());
+			}
+		}
+	}
+
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the number of bytes held in segment files
+	 */
+	public synchronized long diskBytes() {
+		long bytes = 0;
+		for (Segment segment : segments.values()) {
+			bytes += segment.size();
+		}
+		return bytes;
+	}
+
+	public synchronized int segments() {
+		return segments.size();
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getSegmentBytes() {
+		return segmentBytes;
+	}
+
+	/**
+	 * Compacts each segment, other than the one currently being written to, with less than {@link #CompactionThreshold} of its content still in use.
+	 */
+	public synchronized void compact() {
+		for (Segment segment : new ArrayList<Segment>(segments.values())) {
+			if (stopped) {
+				return;
+			}
+			if (segment != active && segment.live() < segment.size() * CompactionThreshold) {
+				try {
+					compact(segment);
+				} catch (IOException e) {
+					Logger.warn("Failed to compact %s in %s: %s", segment, directory, e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts compacting segments in the background at the given interval.
+	 */
+	public synchronized void startCompacting(final long interval) {
+		if (compactionThread == null && !stopped) {
+			compactionThread = new Thread("segment-store-compaction") {
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							Thread.sleep(interval);
+							compact();
+						}
+					} catch (InterruptedException e) {
+						// stopped
+					}
+				}
+			};
+			compactionThread.setDaemon(true);
+			compactionThread.start();
+		}
+	}
+
+	public synchronized boolean isCompacting() {
+		return compactionThread != null;
+	}
+
+	/**
+	 * Stops background compaction and closes all segment files. Values are not stored once stopped.
+	 */
+	public void stop() {
+		Thread compactionThread;
+		synchronized (this) {
+			stopped = true;
+			compactionThread = this.compactionThread;
+			this.compactionThread = null;
+		}
+		if (compactionThread != null) {
+			compactionThread.interrupt();
+		}
+		synchronized (this) {
+			for (Segment segment : segments.values()) {
+				segment.force();
+				segment.close();
+			}
+		}
+	}
+
+	private void open() {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new BaseException("Failed to create the cache directory %s", directory);
+		}
+		try {
+			File[] files = directory.listFiles();
+			for (File file : files == null ? new File[0] : files) {
+				Matcher matcher = SegmentName.matcher(file.getName());
+				if (matcher.matches()) {
+					long id = Long.parseLong(matcher.group(1));
+					segments.put(id, new Segment(id, file, segmentBytes));
+				}
+			}
+			for (Segment segment : segments.values()) {
+				load(segment, segment == segments.lastEntry().getValue());
+			}
+			if (segments.isEmpty() || segments.lastEntry().getValue().size() >= segmentBytes) {
+				roll();
+			} else {
+				active = segments.lastEntry().getValue();
+			}
+			ensureCapacity(0, true);
+			Logger.info("Opened cache segments in %s: %d values, %d bytes", directory, index.size(), diskBytes());
+		} catch (IOException e) {
+			throw new BaseException(e, "Failed to open cache segments in %s: %s", directory, e.getMessage());
+		}
+	}
+
+	/**
+	 * Indexes the records of the given segment. The content of the latest segment is verified, as it may have been partially written.
+	 */
+	private void load(final Segment segment, boolean verify) throws IOException {
+		final long now = System.currentTimeMillis();
+		long end = read(segment, verify, new RecordVisitor() {
+			@Override
+			public void visit(String key, long offset, int keyLength, int valueLength, long expires) {
+				int recordLength = HeaderLength + keyLength + Math.max(0, valueLength);
+				if (valueLength < 0 || (expires > 0 && now >= expires)) {
+					replaced(index.remove(key));
+				} else {
+					segment.addLive(recordLength);
+					replaced(index.put(key, new Entry(segment, offset + HeaderLength + keyLength, valueLength, expires, recordLength)));
+				}
+			}
+		});
+		if (end < segment.size()) {
+			if (isPadding(segment, end)) {
+				Logger.debug("Discarding %d bytes of unused space at the end of %s", segment.size() - end, segment.getFile());
+			} else {
+				Logger.warn("Discarding %d bytes of incomplete or corrupt records at the end of %s", segment.size() - end, segment.getFile());
+			}
+			segment.truncate(end);
+		}
+	}
+
+	/**
+	 * Copies the values and removals still in use from the given segment to the active segment, then deletes it.
+	 */
+	private void compact(final Segment segment) throws IOException {
+		final boolean oldest = segment == segments.firstEntry().getValue();
+		final long now = System.currentTimeMillis();
+		final List<IOException> failures = new ArrayList<IOException>();
+		read(segment, false, new RecordVisitor() {
+			@Override
+			public void visit(String key, long offset, int keyLength, int valueLength, long expires) {
+				int recordLength = HeaderLength + keyLength + Math.max(0, valueLength);
+				Entry entry = index.get(key);
+				try {
+					if (valueLength < 0) {
+						// older segments may still hold a value this removal hides
+						if (!oldest && entry == null) {
+							ensureCapacity(recordLength, false);
+							active.append(segment.slice(offset, recordLength));
+						}
+					} else if (entry != null && entry.segment == segment && entry.offset == offset + HeaderLength + keyLength) {
+						if (entry.isExpired(now)) {
+							index.remove(key, entry);
+						} else {
+							ensureCapacity(recordLength, false);
+							long copied = active.append(segment.slice(offset, recordLength));
+							active.addLive(recordLength);
+							index.replace(key, entry, new Entry(active, copied + HeaderLength + keyLength, valueLength, expires, recordLength));
+						}
+					}
+				} catch (IOException e) {
+					failures.add(e);
+				}
+			}
+		});
+		if (!failures.isEmpty()) {
+			throw failures.get(0);
+		}
+		segments.remove(segment.getId());
+		segment.delete();
+		Logger.debug("Compacted %s in %s", segment, directory);
+	}
+
+	/**
+	 * Visits each valid record in the given segment, returning the offset of the end of the last valid record.
+	 */
+	private long read(Segment segment, boolean verify, RecordVisitor visitor) throws IOException {
+		long size = segment.size();
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(HeaderLength);
+		while (position + HeaderLength <= size) {
+			header.clear();
+			readFully(segment, header, position);
+			header.flip();
+			int magic = header.getInt();
+			int keyLength = header.getInt();
+			int valueLength = header.getInt();
+			long expires = header.getLong();
+			int crc = header.getInt();
+			long end = position + HeaderLength + keyLength + Math.max(0, valueLength);
+			if (magic != Magic || keyLength <= 0 || keyLength > MaxKeyLength || valueLength < -1 || end > size) {
+				break;
+			}
+			ByteBuffer key = ByteBuffer.allocate(keyLength);
+			readFully(segment, key, position + HeaderLength);
+			if (verify && crc != crc(segment, position + HeaderLength, (int) (end - position - HeaderLength))) {
+				break;
+			}
+			visitor.visit(new String(key.array(), StandardCharsets.UTF_8), position, keyLength, valueLength, expires);
+			position = end;
+		}
+		return position;
+	}
+
+	/**
+	 * Starts a new segment if the record does not fit in the active one, and discards the oldest segments until the record fits in the maximum size.
+	 */
+	private void ensureCapacity(int recordLength, boolean discard) throws IOException {
+		if (active != null && active.size() + recordLength > segmentBytes) {
+			roll();
+		}
+		while (discard && segments.size() > 1 && diskBytes() + recordLength > maxBytes) {
+			discard(segments.firstEntry().getValue());
+		}
+	}
+
+	private void roll() throws IOException {
+		if (active != null) {
+			active.force();
+		}
+		long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+		active = new Segment(id, new File(directory, String.format("segment-%012d.dat", id)), segmentBytes);
+		segments.put(id, active);
+	}
+
+	private void discard(Segment segment) {
+		for (Map.Entry<String, Entry> entry : index.entrySet()) {
+			if (entry.getValue().segment == segment) {
+				index.remove(entry.getKey(), entry.getValue());
+			}
+		}
+		segments.remove(segment.getId());
+		segment.delete();
+		Logger.debug("Discarded %s in %s to stay within %d bytes", segment, directory, maxBytes);
+	}
+
+	private void replaced(Entry entry) {
+		if (entry != null) {
+			entry.segment.addLive(-entry.recordLength);
+		}
+	}
+
+	private static ByteBuffer record(byte[] key, byte[] value, long expires) {
+		int valueLength = value == null ? 0 : value.length;
+		ByteBuffer record = ByteBuffer.allocate(HeaderLength + key.length + valueLength);
+		record.putInt(Magic);
+		record.putInt(key.length);
+		record.putInt(value == null ? -1 : value.length);
+		record.putLong(expires);
+		record.putInt(0);
+		record.put(key);
+		if (value != null) {
+			record.put(value);
+		}
+		record.flip();
+		record.putInt(HeaderLength - 4, crc(ByteBuffer.wrap(record.array(), HeaderLength, key.length + valueLength)));
+		return record;
+	}
+
+	private static int crc(ByteBuffer content) {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[Math.min(8192, Math.max(1, content.remaining()))];
+		while (content.hasRemaining()) {
+			int length = Math.min(buffer.length, content.remaining());
+			content.get(buffer, 0, length);
+			crc.update(buffer, 0, length);
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Reads the content to be verified through the file channel rather than the mapping, as the segment may be truncated afterwards.
+	 */
+	private static int crc(Segment segment, long position, int length) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, Math.max(1, length)));
+		long remaining = length;
+		while (remaining > 0) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), remaining));
+			readFully(segment, buffer, position + length - remaining);
+			crc.update(buffer.array(), 0, buffer.position());
+			remaining -= buffer.position();
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Mapped segments are extended to their full size with zeros, every record starts with {@link #Magic}.
+	 */
+	private static boolean isPadding(Segment segment, long position) throws IOException {
+		ByteBuffer start = ByteBuffer.allocate((int) Math.min(4, segment.size() - position));
+		readFully(segment, start, position);
+		start.flip();
+		while (start.hasRemaining()) {
+			if (start.get() != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void readFully(Segment segment, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (segment.channel().read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of " + segment.getFile());
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s (%d values)", this.getClass().getSimpleName(), directory, size());
+	}
+
+	private interface RecordVisitor {
+		public void visit(String key, long offset, int keyLength, int valueLength, long expires);
+	}
+
+	private static final class Entry {
+		private final Segment segment;
+		private final long offset;
+		private final int length;
+		private final long expires;
+		private final int recordLength;
+
+		private Entry(Segment segment, long offset, int length, long expires, int recordLength) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.expires = expires;
+			this.recordLength = recordLength;
+		}
+
+		private boolean isExpired(long now) {
+			return expires > 0 && now >= expires;
+		}
+	}
+}
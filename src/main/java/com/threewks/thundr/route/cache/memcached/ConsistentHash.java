@@ -0,0 +1,63 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.threewks.thundr.util.Encoder;
+
+/**
+ * Maps keys onto a set of nodes, so that adding or removing a node only moves the keys held by that node. Each node is
+ * placed at several points on a hash ring, and a key belongs to the first node at or after its own hash.
+ */
+public class ConsistentHash<T> {
+	public static final int DefaultReplicas = 160;
+
+	private final TreeMap<Long, T> ring = new TreeMap<Long, T>();
+
+	public ConsistentHash(Collection<T> nodes) {
+		this(nodes, DefaultReplicas);
+	}
+
+	public ConsistentHash(Collection<T> nodes, int replicas) {
+		if (nodes.isEmpty()) {
+			throw new IllegalArgumentException("At least one node is required");
+		}
+		for (T node : nodes) {
+			for (int i = 0; i < replicas; i++) {
+				ring.put(hash(node + "-" + i), node);
+			}
+		}
+	}
+
+	public T get(String key) {
+		Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+		return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+	}
+
+	static long hash(String value) {
+		byte[] digest = new Encoder(value).md5().data();
+		long hash = 0;
+		for (int i = 0; i < 8; i++) {
+			hash = (hash << 8) | (digest[i] & 0xff);
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A minimal client for the memcached text protocol. Keys are distributed across servers using a {@link ConsistentHash}, and
+ * idle connections to each server are pooled for reuse.
+ * 
+ * Multiple keys are read with a single get command per server, and multiple values are written by sending all set commands
+ * to a server before reading any of its replies.
+ * 
+ * A server which cannot be communicated with is marked down for a retry interval. Operations on keys belonging to a server which
+ * is down are treated as misses without contacting it, so an unavailable server does not cost every request a timeout.
+ */
+public class MemcachedClient {
+	public static final int DefaultPort = 11211;
+	public static final int DefaultTimeout = 1000;
+	public static final int DefaultMaxIdle = 8;
+	public static final int DefaultRetryInterval = 30 * 1000;
+	public static final int MaxKeyLength = 250;
+
+	private final ConsistentHash<InetSocketAddress> servers;
+	private final Map<InetSocketAddress, BlockingQueue<MemcachedConnection>> pools = new HashMap<InetSocketAddress, BlockingQueue<MemcachedConnection>>();
+	private final Map<InetSocketAddress, Long> downUntil = new ConcurrentHashMap<InetSocketAddress, Long>();
+	private final int timeout;
+	private final int retryInterval;
+	private volatile boolean stopped = false;
+
+	public MemcachedClient(List<InetSocketAddress> servers) {
+		this(servers, DefaultTimeout, DefaultMaxIdle);
+	}
+
+	/**
+	 * @param servers the memcached servers to distribute keys across
+	 * @param timeout the number of milliseconds to wait when connecting to, writing to or reading from a server
+	 * @param maxIdle the maximum number of idle connections kept for each server
+	 */
+	public MemcachedClient(List<InetSocketAddress> servers, int timeout, int maxIdle) {
+		this(servers, timeout, maxIdle, DefaultRetryInterval);
+	}
+
+	/**
+	 * @param servers the memcached servers to distribute keys across
+	 * @param timeout the number of milliseconds to wait when connecting to, writing to or reading from a server
+	 * @param maxIdle the maximum number of idle connections kept for each server
+	 * @param retryInterval the number of milliseconds a server is treated as down after failing to communicate with it
+	 */
+	public MemcachedClient(List<InetSocketAddress> servers, int timeout, int maxIdle, int retryInterval) {
+		this.servers = new ConsistentHash<InetSocketAddress>(servers);
+		this.timeout = timeout;
+		this.retryInterval = retryInterval;
+		for (InetSocketAddress server : servers) {
+			pools.put(server, new LinkedBlockingQueue<MemcachedConnection>(maxIdle));
+		}
+	}
+
+	/**
+	 * @return the value stored for the given key, or null if there is none
+	 */
+	public byte[] get(String key) {
+		return get(Collections.singleton(key)).get(key);
+	}
+
+	/**
+	 * @return the values stored for the given keys, keys which have no value are not included
+	 */
+	public Map<String, byte[]> get(Collection<String> keys) {
+		Map<String, byte[]> values = new HashMap<String, byte[]>();
+		for (Map.Entry<InetSocketAddress, List<String>> entry : partition(keys).entrySet()) {
+			final List<String> serverKeys = entry.getValue();
+			values.putAll(execute(entry.getKey(), Collections.<String, byte[]> emptyMap(), new Operation<Map<String, byte[]>>() {
+				@Override
+				public Map<String, byte[]> execute(MemcachedConnection connection) throws IOException {
+					connection.write(ascii("get " + StringUtils.join(serverKeys, ' ') + "\r\n"));
+					Map<String, byte[]> values = new HashMap<String, byte[]>();
+					String line;
+					while (!"END".equals(line = connection.readLine())) {
+						String[] parts = line.split(" ");
+						if (parts.length < 4 || !"VALUE".equals(parts[0])) {
+							throw new MemcachedException("Unexpected response from %s to get: %s", connection, line);
+						}
+						values.put(parts[1], connection.readData(Integer.parseInt(parts[3])));
+					}
+					return values;
+				}
+			}));
+		}
+		return values;
+	}
+
+	/**
+	 * @param expiry the number of seconds the value should be stored for, 0 for no expiry
+	 * @return true if the value was stored
+	 */
+	public boolean set(String key, byte[] value, int expiry) {
+		return set(Collections.singletonMap(key, value), expiry) == 1;
+	}
+
+	/**
+	 * @param expiry the number of seconds the values should be stored for, 0 for no expiry
+	 * @return the number of values stored
+	 */
+	public int set(Map<String, byte[]> values, final int expiry) {
+		int stored = 0;
+		for (Map.Entry<InetSocketAddress, List<String>> entry : partition(values.keySet()).entrySet()) {
+			final Map<String, byte[]> serverValues = new LinkedHashMap<String, byte[]>();
+			for (String key : entry.getValue()) {
+				serverValues.put(key, values.get(key));
+			}
+			stored += execute(entry.getKey(), 0, new Operation<Integer>() {
+				@Override
+				public Integer execute(MemcachedConnection connection) throws IOException {
+					ByteArrayOutputStream commands = new ByteArrayOutputStream();
+					for (Map.Entry<String, byte[]> value : serverValues.entrySet()) {
+						byte[] data = value.getValue();
+						commands.write(("set " + value.getKey() + " 0 " + expiry + " " + data.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+						commands.write(data);
+						commands.write('\r');
+						commands.write('\n');
+					}
+					connection.write(ByteBuffer.wrap(commands.toByteArray()));
+					int stored = 0;
+					for (int i = 0; i < serverValues.size(); i++) {
+						if ("STORED".equals(connection.readLine())) {
+							stored++;
+						}
+					}
+					return stored;
+				}
+			});
+		}
+		return stored;
+	}
+
+	/**
+	 * @return true if a value was deleted
+	 */
+	public boolean delete(final String key) {
+		validate(key);
+		return execute(servers.get(key), false, new Operation<Boolean>() {
+			@Override
+			public Boolean execute(MemcachedConnection connection) throws IOException {
+				connection.write(ascii("delete " + key + "\r\n"));
+				String line = connection.readLine();
+				if (!"DELETED".equals(line) && !"NOT_FOUND".equals(line)) {
+					throw new MemcachedException("Unexpected response from %s to delete: %s", connection, line);
+				}
+				return "DELETED".equals(line);
+			}
+		});
+	}
+
+	/**
+	 * Closes all pooled connections. The client cannot be used once stopped.
+	 */
+	public void stop() {
+		stopped = true;
+		for (BlockingQueue<MemcachedConnection> pool : pools.values()) {
+			MemcachedConnection connection;
+			while ((connection = pool.poll()) != null) {
+				connection.close();
+			}
+		}
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * @return the number of idle connections pooled for the given server
+	 */
+	public int idle(InetSocketAddress server) {
+		BlockingQueue<MemcachedConnection> pool = pools.get(server);
+		return pool == null ? 0 : pool.size();
+	}
+
+	/**
+	 * @return true if the given server failed and its retry interval has not yet passed
+	 */
+	public boolean isDown(InetSocketAddress server) {
+		Long until = downUntil.get(server);
+		if (until == null) {
+			return false;
+		}
+		if (System.currentTimeMillis() < until) {
+			return true;
+		}
+		downUntil.remove(server);
+		return false;
+	}
+
+	/**
+	 * Parses a comma or space separated list of servers in the form host:port. The port defaults to {@value #DefaultPort}.
+	 */
+	public static List<InetSocketAddress> parseServers(String servers) {
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for (String server : StringUtils.split(StringUtils.trimToEmpty(servers), ", ")) {
+			String host = StringUtils.substringBeforeLast(server, ":");
+			String port = StringUtils.substringAfterLast(server, ":");
+			addresses.add(new InetSocketAddress(host, port.isEmpty() ? DefaultPort : Integer.parseInt(port)));
+		}
+		return addresses;
+	}
+
+	private Map<InetSocketAddress, List<String>> partition(Collection<String> keys) {
+		Map<InetSocketAddress, List<String>> partitions = new LinkedHashMap<InetSocketAddress, List<String>>();
+		for (String key : keys) {
+			validate(key);
+			InetSocketAddress server = servers.get(key);
+			List<String> serverKeys = partitions.get(server);
+			if (serverKeys == null) {
+				serverKeys = new ArrayList<String>();
+				partitions.put(server, serverKeys);
+			}
+			serverKeys.add(key);
+		}
+		return partitions;
+	}
+
+	/**
+	 * @param miss the result of the operation when the server is down
+	 */
+	private <T> T execute(InetSocketAddress server, T miss, Operation<T> operation) {
+		if (stopped) {
+			throw new MemcachedException("This %s has been stopped", this.getClass().getSimpleName());
+		}
+		if (isDown(server)) {
+			return miss;
+		}
+		BlockingQueue<MemcachedConnection> pool = pools.get(server);
+		MemcachedConnection connection = pool.poll();
+		boolean reusable = false;
+		try {
+			if (connection == null) {
+				connection = new MemcachedConnection(server, timeout);
+			}
+			T result = operation.execute(connection);
+			reusable = true;
+			return result;
+		} catch (IOException e) {
+			downUntil.put(server, System.currentTimeMillis() + retryInterval);
+			throw new MemcachedException(e, "Failed to communicate with memcached at %s, retrying after %dms: %s", server, retryInterval, e.getMessage());
+		} finally {
+			if (connection != null && !(reusable && !stopped && pool.offer(connection))) {
+				connection.close();
+			}
+		}
+	}
+
+	private static void validate(String key) {
+		if (key.isEmpty() || key.length() > MaxKeyLength) {
+			throw new IllegalArgumentException(String.format("Memcached keys must be between 1 and %d characters: '%s'", MaxKeyLength, key));
+		}
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c <= ' ' || c >= 127) {
+				throw new IllegalArgumentException(String.format("Memcached keys cannot contain whitespace, control or non-ascii characters: '%s'", key));
+			}
+		}
+	}
+
+	private static ByteBuffer ascii(String command) {
+		return ByteBuffer.wrap(command.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private interface Operation<T> {
+		public T execute(MemcachedConnection connection) throws IOException;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s", this.getClass().getSimpleName(), pools.keySet());
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single non-blocking connection to a memcached server. Reads and writes block the calling thread until they complete or
+ * the timeout expires. Connections are not thread safe, they are used by one thread at a time through the {@link MemcachedClient}'s pool.
+ */
+class MemcachedConnection {
+	private final InetSocketAddress address;
+	private final int timeout;
+	private final SocketChannel channel;
+	private final Selector selector;
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+	MemcachedConnection(InetSocketAddress address, int timeout) throws IOException {
+		this.address = address;
+		this.timeout = timeout;
+		this.channel = SocketChannel.open();
+		try {
+			channel.socket().setTcpNoDelay(true);
+			channel.socket().connect(address, timeout);
+			channel.configureBlocking(false);
+			this.selector = Selector.open();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		readBuffer.flip();
+	}
+
+	void write(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.write(buffer) == 0) {
+				await(SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	/**
+	 * @return the next line sent by the server, without its line terminator
+	 */
+	String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+		while (true) {
+			if (!readBuffer.hasRemaining()) {
+				fill();
+			}
+			byte b = readBuffer.get();
+			if (b == '\n') {
+				byte[] bytes = line.toByteArray();
+				int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+				return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+			}
+			line.write(b);
+		}
+	}
+
+	/**
+	 * Reads a data block of the given length, and the line terminator which follows it.
+	 */
+	byte[] readData(int length) throws IOException {
+		byte[] data = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			if (!readBuffer.hasRemaining()) {
+				fill();
+			}
+			int count = Math.min(readBuffer.remaining(), length - offset);
+			readBuffer.get(data, offset, count);
+			offset += count;
+		}
+		if (!readLine().isEmpty()) {
+			throw new MemcachedException("Malformed data block received from %s", address);
+		}
+		return data;
+	}
+
+	void close() {
+		try {
+			selector.close();
+		} catch (IOException e) {
+			// ignored
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignored
+		}
+	}
+
+	private void fill() throws IOException {
+		readBuffer.clear();
+		int read;
+		while ((read = channel.read(readBuffer)) == 0) {
+			await(SelectionKey.OP_READ);
+		}
+		readBuffer.flip();
+		if (read < 0) {
+			throw new EOFException("Connection closed by " + address);
+		}
+	}
+
+	private void await(int operation) throws IOException {
+		SelectionKey key = channel.register(selector, operation);
+		try {
+			if (selector.select(timeout) == 0) {
+				throw new SocketTimeoutException(String.format("Timed out after %dms waiting for %s", timeout, address));
+			}
+		} finally {
+			selector.selectedKeys().clear();
+			key.interestOps(0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return address.toString();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import java.util.concurrent.TimeUnit;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.cache.CachedResponse;
+import com.threewks.thundr.route.cache.CachedResponseCodec;
+import com.threewks.thundr.route.cache.ResponseCacheBackend;
+import com.threewks.thundr.util.Encoder;
+
+/**
+ * Stores rendered responses in memcached, so they can be shared between instances. Failures to reach memcached are logged
+ * and treated as cache misses.
+ */
+public class MemcachedResponseCache implements ResponseCacheBackend {
+	public static final String DefaultPrefix = "thundr:response:";
+	/**
+	 * Memcached treats expiry times of more than 30 days as absolute timestamps
+	 */
+	public static final int MaxExpiry = (int) TimeUnit.DAYS.toSeconds(30);
+
+	private final MemcachedClient client;
+	private final String prefix;
+
+	public MemcachedResponseCache(MemcachedClient client) {
+		this(client, DefaultPrefix);
+	}
+
+	public MemcachedResponseCache(MemcachedClient client, String prefix) {
+		this.client = client;
+		this.prefix = prefix;
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		try {
+			byte[] data = client.get(key(key));
+			if (data == null) {
+				return null;
+			}
+			CachedResponse response = CachedResponseCodec.decode(data);
+			return response.isExpired(System.currentTimeMillis()) ? null : response;
+		} catch (BaseException e) {
+			Logger.warn("Failed to read %s from memcached: %s", key, e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public boolean put(String key, CachedResponse response) {
+		long remaining = response.getExpires() - System.currentTimeMillis();
+		if (remaining <= 0) {
+			return false;
+		}
+		int expiry = (int) Math.min(MaxExpiry, (remaining + 999) / 1000);
+		try {
+			return client.set(key(key), CachedResponseCodec.encode(response), expiry);
+		} catch (BaseException e) {
+			Logger.warn("Failed to write %s to memcached: %s", key, e.getMessage());
+			return false;
+		}
+	}
+
+	@Override
+	public void invalidate(String key) {
+		try {
+			client.delete(key(key));
+		} catch (BaseException e) {
+			Logger.warn("Failed to remove %s from memcached: %s", key, e.getMessage());
+		}
+	}
+
+	public MemcachedClient getClient() {
+		return client;
+	}
+
+	/**
+	 * Response cache keys contain characters memcached does not allow, so they are hashed.
+	 */
+	protected String key(String key) {
+		return prefix + new Encoder(key).sha1().hex().string();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s)", this.getClass().getSimpleName(), client);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.conditional;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.threewks.thundr.http.ConditionalRequest;
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.HttpSupport;
+import com.threewks.thundr.injection.InjectionContextImpl;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.controller.Interceptor;
+import com.threewks.thundr.view.conditional.NotModifiedView;
+
+/**
+ * Answers conditional GET and HEAD requests for {@link Conditional} controller methods. The ETag and Last-Modified headers given by
+ * the {@link ResponseValidator} are set on the response, and if the request's If-None-Match or If-Modified-Since header shows the client's
+ * copy is current a {@link NotModifiedView} is returned, so the controller method is never invoked.
+ * 
+ * Versions are sent as weak ETags, so they continue to match when the response is compressed.
+ */
+public class ConditionalInterceptor implements Interceptor<Conditional> {
+	private final UpdatableInjectionContext injectionContext;
+	private final ConcurrentMap<Class<?>, ResponseValidator> validators = new ConcurrentHashMap<Class<?>, ResponseValidator>();
+
+	public ConditionalInterceptor(UpdatableInjectionContext injectionContext) {
+		this.injectionContext = injectionContext;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T before(Conditional annotation, HttpServletRequest req, HttpServletResponse resp) {
+		String method = req.getMethod();
+		if (!HttpSupport.Methods.isGet(method) && !HttpSupport.Methods.isHead(method)) {
+			return null;
+		}
+		ResponseValidator validator = validator(annotation.value());
+		String version = validator.version(req);
+		long lastModified = validator.lastModified(req);
+		String etag = version == null ? null : "W/\"" + version + "\"";
+		if (ConditionalRequest.isNotModified(req, etag, lastModified)) {
+			Logger.debug("%s not modified", req.getRequestURI());
+			return (T) new NotModifiedView(etag, lastModified);
+		}
+		if (etag != null) {
+			resp.setHeader(Header.ETag, etag);
+		}
+		if (lastModified > 0) {
+			resp.setDateHeader(Header.LastModified, lastModified);
+		}
+		return null;
+	}
+
+	@Override
+	public <T> T after(Conditional annotation, Object view, HttpServletRequest req, HttpServletResponse resp) {
+		return null;
+	}
+
+	@Override
+	public <T> T exception(Conditional annotation, Exception e, HttpServletRequest req, HttpServletResponse resp) {
+		return null;
+	}
+
+	/**
+	 * Validators are held by this interceptor rather than registered into the injection context, which must not be modified while
+	 * requests are being served. A validator registered with the injection context is used as is, otherwise one is created using the
+	 * injection context to satisfy its dependencies.
+	 */
+	protected <V extends ResponseValidator> ResponseValidator validator(Class<V> type) {
+		ResponseValidator validator = validators.get(type);
+		if (validator == null) {
+			validator = injectionContext.contains(type) ? injectionContext.get(type) : create(type);
+			ResponseValidator existing = validators.putIfAbsent(type, validator);
+			validator = existing == null ? validator : existing;
+		}
+		return validator;
+	}
+
+	private <V extends ResponseValidator> V create(Class<V> validatorType) {
+		UpdatableInjectionContext validatorContext = new InjectionContextImpl() {
+			@Override
+			public <T> T get(Class<T> type) {
+				return super.contains(type, null) ? super.get(type) : injectionContext.get(type);
+			}
+
+			@Override
+			public <T> T get(Class<T> type, String name) {
+				return super.contains(type, name) ? super.get(type, name) : injectionContext.get(type, name);
+			}
+
+			@Override
+			public <T> boolean contains(Class<T> type, String name) {
+				return super.contains(type, name) || injectionContext.contains(type, name);
+			}
+		};
+		validatorContext.inject(validatorType).as(validatorType);
+		return validatorContext.get(validatorType);
+	}
+}
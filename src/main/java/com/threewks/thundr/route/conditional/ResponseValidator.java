@@ -0,0 +1,37 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.conditional;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Cheaply determines the current version of a response for {@link Conditional} controller methods, without rendering it.
+ */
+public interface ResponseValidator {
+	/**
+	 * @param req
+	 * @return a value which changes whenever the response does, such as a version number or hash, or null if there is none
+	 */
+	public String version(HttpServletRequest req);
+
+	/**
+	 * @param req
+	 * @return the time in milliseconds the response last changed, or a value less than 1 if unknown
+	 */
+	public long lastModified(HttpServletRequest req);
+}
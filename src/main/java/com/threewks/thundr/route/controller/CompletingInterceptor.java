@@ -0,0 +1,44 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.controller;
+
+import java.lang.annotation.Annotation;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An {@link Interceptor} which holds resources between {@link #before(Annotation, HttpServletRequest, HttpServletResponse)} and
+ * the end of the request. Interceptors after this one can end the request before its
+ * {@link #after(Annotation, Object, HttpServletRequest, HttpServletResponse)} or
+ * {@link #exception(Annotation, Exception, HttpServletRequest, HttpServletResponse)} method is reached, so
+ * {@link #complete(Annotation, HttpServletRequest, HttpServletResponse)} is always invoked once the controller method and all
+ * interceptors have finished.
+ * 
+ * @param <A>
+ */
+public interface CompletingInterceptor<A extends Annotation> extends Interceptor<A> {
+	/**
+	 * Invoked once all interceptors have finished, whether the request succeeded or failed.
+	 * 
+	 * @param annotation the annotation marking the controller method
+	 * @param req
+	 * @param resp
+	 */
+	public void complete(A annotation, HttpServletRequest req, HttpServletResponse resp);
+}
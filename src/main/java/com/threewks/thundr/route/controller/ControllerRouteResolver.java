@@ -72,6 +72,8 @@ public class ControllerRouteResolver implements RouteResolver<Controller>, Inter
 			if (result == null) {
 				throw new RouteResolverException(e, "Failed in %s: %s", action, e.getMessage());
 			}
+		} finally {
+			completeInterceptors(interceptors, req, resp);
 		}
 		Logger.debug("%s -> %s resolved", req.getRequestURI(), action);
 		return result;
@@ -159,6 +161,20 @@ public class ControllerRouteResolver implements RouteResolver<Controller>, Inter
 		return null;
 	}
 
+	@SuppressWarnings("unchecked")
+	private void completeInterceptors(Map<Annotation, Interceptor<Annotation>> interceptors, HttpServletRequest req, HttpServletResponse resp) {
+		for (Map.Entry<Annotation, Interceptor<Annotation>> interceptorEntry : interceptors.entrySet()) {
+			CompletingInterceptor<Annotation> interceptor = Cast.as(interceptorEntry.getValue(), CompletingInterceptor.class);
+			if (interceptor != null) {
+				try {
+					interceptor.complete(interceptorEntry.getKey(), req, resp);
+				} catch (RuntimeException e) {
+					Logger.error("Failed to complete %s: %s", interceptor, e.getMessage());
+				}
+			}
+		}
+	}
+
 	private Object beforeInterceptors(Map<Annotation, Interceptor<Annotation>> interceptors, HttpServletRequest req, HttpServletResponse resp, Object existingResult) {
 		if (existingResult != null) {
 			return existingResult;
@@ -18,10 +18,12 @@
 package com.threewks.thundr.route.controller;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -37,9 +39,12 @@ import com.threewks.thundr.route.Route;
  * controller method.
  * 
  * Filters are registered with this class at startup.
+ * 
+ * Registered filters are held in an immutable snapshot published through a volatile reference, so looking up filters
+ * for a request never locks. Adding or removing filters publishes a new snapshot, so filters can safely be changed at runtime.
  */
 public class FilterRegistry {
-	private Map<String, List<Filter>> filters = new HashMap<String, List<Filter>>();
+	private volatile FilterMappings filters = new FilterMappings(new LinkedHashMap<String, List<Filter>>());
 
 	/**
 	 * Add the given filter for all controller methods on the given path.
@@ -49,14 +54,16 @@ public class FilterRegistry {
 	 * @param path
 	 * @param filter
 	 */
-	public void add(String path, Filter filter) {
+	public synchronized void add(String path, Filter filter) {
 		String regex = convertPathStringToRegex(path);
+		Map<String, List<Filter>> filters = this.filters.copy();
 		List<Filter> existing = filters.get(regex);
 		if (existing == null) {
 			existing = new ArrayList<Filter>();
 			filters.put(regex, existing);
 		}
 		existing.add(filter);
+		this.filters = new FilterMappings(filters);
 	}
 
 	/**
@@ -65,11 +72,13 @@ public class FilterRegistry {
 	 * @param path
 	 * @param filter
 	 */
-	public void remove(String path, Filter filter) {
+	public synchronized void remove(String path, Filter filter) {
 		String regex = convertPathStringToRegex(path);
+		Map<String, List<Filter>> filters = this.filters.copy();
 		List<Filter> existing = filters.get(regex);
 		if (existing != null) {
 			existing.remove(filter);
+			this.filters = new FilterMappings(filters);
 		}
 	}
 
@@ -78,10 +87,12 @@ public class FilterRegistry {
 	 * 
 	 * @param filter
 	 */
-	public void remove(Filter filter) {
+	public synchronized void remove(Filter filter) {
+		Map<String, List<Filter>> filters = this.filters.copy();
 		for (List<Filter> fs : filters.values()) {
 			fs.remove(filter);
 		}
+		this.filters = new FilterMappings(filters);
 	}
 
 	/**
@@ -90,7 +101,7 @@ public class FilterRegistry {
 	 * @return true if the given filter has already been added on the given path
 	 */
 	public boolean has(String path, Filter filter) {
-		List<Filter> filtersForPath = filters.get(convertPathStringToRegex(path));
+		List<Filter> filtersForPath = filters.filters.get(convertPathStringToRegex(path));
 		return filtersForPath == null ? false : filtersForPath.contains(filter);
 	}
 
@@ -156,16 +167,7 @@ public class FilterRegistry {
 	}
 
 	private List<Filter> findMatchingFilters(String path) {
-		List<Filter> filters = new ArrayList<Filter>();
-		if (path != null) {
-			for (Map.Entry<String, List<Filter>> entry : this.filters.entrySet()) {
-				String key = entry.getKey();
-				if (path.matches(key)) {
-					filters.addAll(entry.getValue());
-				}
-			}
-		}
-		return filters;
+		return path == null ? Collections.<Filter> emptyList() : filters.findMatchingFilters(path);
 	}
 
 	static String convertPathStringToRegex(String path) {
@@ -176,4 +178,51 @@ public class FilterRegistry {
 		path = path.replaceAll(wildCardPlaceholder, Matcher.quoteReplacement("[" + Route.AcceptableMultiPathCharacters + "]*?"));
 		return path + Route.SemiColonDelimitedRequestParameters;
 	}
+
+	/**
+	 * An immutable snapshot of registered filters, with each path regex precompiled.
+	 */
+	private static class FilterMappings {
+		private final Map<String, List<Filter>> filters;
+		private final Pattern[] patterns;
+		private final List<List<Filter>> filtersForPattern;
+
+		FilterMappings(Map<String, List<Filter>> filters) {
+			Map<String, List<Filter>> immutable = new LinkedHashMap<String, List<Filter>>();
+			List<Pattern> patterns = new ArrayList<Pattern>();
+			List<List<Filter>> filtersForPattern = new ArrayList<List<Filter>>();
+			for (Map.Entry<String, List<Filter>> entry : filters.entrySet()) {
+				if (!entry.getValue().isEmpty()) {
+					List<Filter> filtersForPath = Collections.unmodifiableList(new ArrayList<Filter>(entry.getValue()));
+					immutable.put(entry.getKey(), filtersForPath);
+					patterns.add(Pattern.compile(entry.getKey()));
+					filtersForPattern.add(filtersForPath);
+				}
+			}
+			this.filters = Collections.unmodifiableMap(immutable);
+			this.patterns = patterns.toArray(new Pattern[patterns.size()]);
+			this.filtersForPattern = filtersForPattern;
+		}
+
+		List<Filter> findMatchingFilters(String path) {
+			List<Filter> matching = null;
+			for (int i = 0; i < patterns.length; i++) {
+				if (patterns[i].matcher(path).matches()) {
+					if (matching == null) {
+						matching = new ArrayList<Filter>();
+					}
+					matching.addAll(filtersForPattern.get(i));
+				}
+			}
+			return matching == null ? Collections.<Filter> emptyList() : matching;
+		}
+
+		Map<String, List<Filter>> copy() {
+			Map<String, List<Filter>> copy = new LinkedHashMap<String, List<Filter>>();
+			for (Map.Entry<String, List<Filter>> entry : filters.entrySet()) {
+				copy.put(entry.getKey(), new ArrayList<Filter>(entry.getValue()));
+			}
+			return copy;
+		}
+	}
 }
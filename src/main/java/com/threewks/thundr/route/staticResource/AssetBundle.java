@@ -0,0 +1,64 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.util.List;
+
+/**
+ * The concatenated, minified content of an ordered list of static resources, built by {@link AssetBundles}.
+ */
+public class AssetBundle {
+	private final String name;
+	private final List<String> paths;
+	private final String url;
+	private final CachedResource content;
+
+	public AssetBundle(String name, List<String> paths, String url, CachedResource content) {
+		this.name = name;
+		this.paths = paths;
+		this.url = url;
+		this.content = content;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the paths of the static resources in this bundle, in the order they are concatenated
+	 */
+	public List<String> getPaths() {
+		return paths;
+	}
+
+	/**
+	 * @return the fingerprinted url of this bundle, i.e. <code>/bundles/app.3f9a2c81d0.js</code>
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	public CachedResource getContent() {
+		return content;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s", name, paths);
+	}
+}
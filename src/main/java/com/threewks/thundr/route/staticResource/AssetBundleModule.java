@@ -0,0 +1,71 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import javax.servlet.ServletContext;
+
+import com.threewks.thundr.configuration.Environment;
+import com.threewks.thundr.injection.BaseModule;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.threewks.thundr.module.DependencyRegistry;
+import com.threewks.thundr.route.Router;
+import com.threewks.thundr.route.RouterModule;
+import com.threewks.thundr.view.GlobalModel;
+
+/**
+ * Serves {@link AssetBundles}. Applications declare their bundles in the configure step of a module which depends on this module,
+ * using the {@link AssetBundles} available from the injection context. Bundles are built on start, and views load them using the
+ * <code>t:bundle</code> EL function.
+ * 
+ * Individual resources are loaded in place of bundles in the {@link Environment#DEV} environment, unless configured otherwise.
+ */
+public class AssetBundleModule extends BaseModule {
+	public static final String AssetBundlePathProperty = "assetBundlePath";
+	public static final String AssetBundleDevelopmentProperty = "assetBundleDevelopment";
+
+	@Override
+	public void requires(DependencyRegistry dependencyRegistry) {
+		dependencyRegistry.addDependency(RouterModule.class);
+	}
+
+	@Override
+	public void configure(UpdatableInjectionContext injectionContext) {
+		ServletContext servletContext = injectionContext.get(ServletContext.class);
+		Router router = injectionContext.get(Router.class);
+		StaticResourceRouteResolver staticResourceRouteResolver = injectionContext.get(StaticResourceRouteResolver.class);
+
+		AssetBundles bundles = new AssetBundles(servletContext, staticResourceRouteResolver);
+		String path = injectionContext.get(String.class, AssetBundlePathProperty);
+		if (path != null) {
+			bundles.setPath(path);
+		}
+		String development = injectionContext.get(String.class, AssetBundleDevelopmentProperty);
+		bundles.setDevelopment(development == null ? Environment.is(Environment.DEV) : Boolean.parseBoolean(development));
+		bundles.setFingerprints(staticResourceRouteResolver.getFingerprints());
+		injectionContext.inject(bundles).as(AssetBundles.class);
+		injectionContext.get(GlobalModel.class).put(AssetBundles.ModelAttribute, bundles);
+
+		router.addResolver(AssetBundleResource.class, new AssetBundleRouteResolver(bundles, staticResourceRouteResolver));
+		router.get(bundles.getPath() + "/{" + AssetBundleRouteResolver.PathVariable + "}", new AssetBundleResource());
+	}
+
+	@Override
+	public void start(UpdatableInjectionContext injectionContext) {
+		injectionContext.get(AssetBundles.class).build();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.route.RouteResolver;
+import com.threewks.thundr.route.RouteResolverException;
+
+/**
+ * Serves {@link AssetBundle}s from memory, using the caching, compression and range support of {@link StaticResourceRouteResolver}.
+ * Bundles requested by their current fingerprinted url are cached indefinitely.
+ */
+public class AssetBundleRouteResolver implements RouteResolver<AssetBundleResource> {
+	public static final String PathVariable = "bundle";
+
+	private final AssetBundles bundles;
+	private final StaticResourceRouteResolver staticResourceRouteResolver;
+
+	public AssetBundleRouteResolver(AssetBundles bundles, StaticResourceRouteResolver staticResourceRouteResolver) {
+		this.bundles = bundles;
+		this.staticResourceRouteResolver = staticResourceRouteResolver;
+	}
+
+	@Override
+	public Object resolve(AssetBundleResource action, HttpMethod method, HttpServletRequest req, HttpServletResponse resp, Map<String, String> pathVars) throws RouteResolverException {
+		String requested = pathVars.get(PathVariable);
+		try {
+			AssetBundle bundle = bundles.find(requested);
+			if (bundle == null) {
+				resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+				Logger.info("%s -> %s not resolved: Not found", req.getRequestURI(), action);
+				return null;
+			}
+			boolean immutable = bundle.getUrl().endsWith("/" + requested);
+			staticResourceRouteResolver.serveCached(action, bundle.getName(), bundle.getContent(), immutable, req, resp);
+			return null;
+		} catch (Exception e) {
+			Throwable original = e.getCause() == null ? e : e.getCause();
+			throw new BaseException(original, "Failed to load asset bundle %s: %s", requested, original.getMessage());
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletContext;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.util.Streams;
+
+/**
+ * Declares bundles of static resources which are concatenated, minified and compressed once and then served from memory, so that pages
+ * can load a single css or javascript file instead of many.
+ * 
+ * Bundles are declared in code as an ordered list of resource paths, i.e. <code>bundles.add("app.js", "/js/jquery.js", "/js/app.js")</code>,
+ * and are built when the {@link AssetBundleModule} starts. The type of a bundle is taken from the extension of its name; css and
+ * javascript bundles are minified by {@link AssetMinifier}.
+ * 
+ * In development, {@link #urls(String)} returns the urls of the individual resources instead of the bundle, which keeps them
+ * debuggable.
+ */
+public class AssetBundles {
+	public static final String ModelAttribute = "assetBundles";
+	public static final String DefaultPath = "/bundles";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Pattern Fingerprinted = Pattern.compile("(.*)\\.[0-9a-f]{" + ResourceFingerprints.Length + "}(\\.[^.]+)");
+
+	private final ServletContext servletContext;
+	private final StaticResourceRouteResolver staticResourceRouteResolver;
+	private final Map<String, List<String>> declared = new LinkedHashMap<String, List<String>>();
+	private final ConcurrentMap<String, AssetBundle> built = new ConcurrentHashMap<String, AssetBundle>();
+	private String path = DefaultPath;
+	private boolean development = false;
+	private boolean minify = true;
+	private int compressionLevel = Deflater.BEST_COMPRESSION;
+	private ResourceFingerprints fingerprints;
+
+	/**
+	 * @param servletContext the servlet context resources are loaded from
+	 * @param staticResourceRouteResolver the resolver used to determine the mime types of bundles
+	 */
+	public AssetBundles(ServletContext servletContext, StaticResourceRouteResolver staticResourceRouteResolver) {
+		this.servletContext = servletContext;
+		this.staticResourceRouteResolver = staticResourceRouteResolver;
+	}
+
+	/**
+	 * Declares a bundle.
+	 * 
+	 * @param name the name of the bundle, including the extension of its type, i.e. <code>app.css</code>
+	 * @param paths the paths of the static resources in the bundle, in the order they should be concatenated
+	 * @return this instance, for method chaining
+	 */
+	public AssetBundles add(String name, String... paths) {
+		return add(name, Arrays.asList(paths));
+	}
+
+	public synchronized AssetBundles add(String name, List<String> paths) {
+		if (name == null || name.indexOf('/') >= 0 || name.lastIndexOf('.') <= 0) {
+			throw new BaseException("Cannot add the asset bundle '%s' - bundle names must include an extension, i.e. 'app.js'", name);
+		}
+		if (declared.containsKey(name)) {
+			throw new BaseException("Cannot add the asset bundle '%s' - a bundle with this name has already been added", name);
+		}
+		declared.put(name, Collections.unmodifiableList(new ArrayList<String>(paths)));
+		return this;
+	}
+
+	public synchronized boolean has(String name) {
+		return declared.containsKey(name);
+	}
+
+	/**
+	 * Builds all declared bundles which have not been built yet.
+	 */
+	public void build() {
+		for (String name : names()) {
+			get(name);
+		}
+	}
+
+	/**
+	 * @return the built bundle with the given name, building it if necessary, or null if no bundle has been declared with the name
+	 */
+	public AssetBundle get(String name) {
+		AssetBundle bundle = built.get(name);
+		if (bundle == null) {
+			List<String> paths;
+			synchronized (this) {
+				paths = declared.get(name);
+			}
+			if (paths == null) {
+				return null;
+			}
+			bundle = build(name, paths);
+			AssetBundle existing = built.putIfAbsent(name, bundle);
+			bundle = existing == null ? bundle : existing;
+		}
+		return bundle;
+	}
+
+	/**
+	 * @param requested the requested file name of a bundle, either fingerprinted (<code>app.3f9a2c81d0.js</code>) or not (<code>app.js</code>)
+	 * @return the bundle requested, or null if there is no such bundle
+	 */
+	public AssetBundle find(String requested) {
+		if (requested == null) {
+			return null;
+		}
+		AssetBundle bundle = get(requested);
+		if (bundle == null) {
+			Matcher matcher = Fingerprinted.matcher(requested);
+			bundle = matcher.matches() ? get(matcher.group(1) + matcher.group(2)) : null;
+		}
+		return bundle;
+	}
+
+	/**
+	 * @return the urls to load the given bundle from - the fingerprinted url of the bundle, or in development the urls of the individual
+	 *         resources in the bundle
+	 */
+	public List<String> urls(String name) {
+		List<String> paths;
+		synchronized (this) {
+			paths = declared.get(name);
+		}
+		if (paths == null) {
+			throw new BaseException("No asset bundle named '%s' has been added", name);
+		}
+		if (!development) {
+			return Collections.singletonList(get(name).getUrl());
+		}
+		List<String> urls = new ArrayList<String>(paths.size());
+		for (String path : paths) {
+			urls.add(fingerprints == null ? path : fingerprints.url(path));
+		}
+		return urls;
+	}
+
+	public synchronized List<String> names() {
+		return new ArrayList<String>(declared.keySet());
+	}
+
+	/**
+	 * Discards built bundles, so that they are rebuilt from their resources when next used.
+	 */
+	public void clear() {
+		built.clear();
+	}
+
+	protected AssetBundle build(String name, List<String> paths) {
+		long start = System.currentTimeMillis();
+		String type = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		long lastModified = 0;
+		try {
+			for (String path : paths) {
+				URL url = servletContext.getResource(path);
+				if (url == null) {
+					throw new BaseException("Failed to build the asset bundle '%s' - the resource %s does not exist", name, path);
+				}
+				URLConnection urlConnection = url.openConnection();
+				lastModified = Math.max(lastModified, urlConnection.getLastModified());
+				InputStream is = urlConnection.getInputStream();
+				byte[] data;
+				try {
+					data = Streams.readBytes(is);
+				} finally {
+					is.close();
+				}
+				content.write(process(type, data));
+			}
+			byte[] data = content.toByteArray();
+			byte[] gzipData = StaticResourceRouteResolver.gzip(data, compressionLevel);
+			String mimeType = staticResourceRouteResolver.deriveMimeType(name);
+			CachedResource resource = new CachedResource(data, gzipData.length < data.length ? gzipData : null, mimeType, lastModified, null);
+			String url = path + "/" + ResourceFingerprints.urlFor(name, ResourceFingerprints.hash(data));
+			Logger.info("Built asset bundle %s from %d resources in %dms (%d bytes, %d gzipped)", url, paths.size(), System.currentTimeMillis() - start, data.length, gzipData.length);
+			return new AssetBundle(name, paths, url, resource);
+		} catch (IOException e) {
+			throw new BaseException(e, "Failed to build the asset bundle '%s': %s", name, e.getMessage());
+		}
+	}
+
+	private byte[] process(String type, byte[] data) {
+		if (!minify || !("css".equals(type) || "js".equals(type))) {
+			return (new String(data, UTF8) + "\n").getBytes(UTF8);
+		}
+		String source = new String(data, UTF8);
+		// javascript resources are terminated so that a missing trailing semicolon cannot join them to the next resource
+		String minified = "css".equals(type) ? AssetMinifier.css(source) : AssetMinifier.js(source);
+		if ("js".equals(type) && !minified.endsWith(";")) {
+			minified += ";";
+		}
+		return (minified + "\n").getBytes(UTF8);
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @param path the path bundles are served beneath, {@link #DefaultPath} by default
+	 */
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public boolean isDevelopment() {
+		return development;
+	}
+
+	/**
+	 * @param development true if {@link #urls(String)} should return the individual resources of a bundle rather than the bundle
+	 */
+	public void setDevelopment(boolean development) {
+		this.development = development;
+	}
+
+	public boolean isMinify() {
+		return minify;
+	}
+
+	public void setMinify(boolean minify) {
+		this.minify = minify;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * @param compressionLevel the compression level bundles are gzipped with. As bundles are compressed once, this defaults to {@link Deflater#BEST_COMPRESSION}.
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	public ResourceFingerprints getFingerprints() {
+		return fingerprints;
+	}
+
+	/**
+	 * @param fingerprints used for the urls of individual resources in development, or null to use their paths
+	 */
+	public void setFingerprints(ResourceFingerprints fingerprints) {
+		this.fingerprints = fingerprints;
+	}
+}
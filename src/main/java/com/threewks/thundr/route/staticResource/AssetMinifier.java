@@ -0,0 +1,211 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+/**
+ * Applies basic, conservative minification to css and javascript for {@link AssetBundles}. Comments are removed (except those starting
+ * with <code>/*!</code>, which conventionally hold licenses) and whitespace is collapsed, while string and regular expression literals
+ * are left untouched.
+ * 
+ * Line breaks are retained in javascript, so code relying on automatic semicolon insertion continues to work.
+ */
+public class AssetMinifier {
+	private static final String CssSeparators = "{};:,>~(";
+	private static final String CssTerminators = "{};,>~)";
+	private static final String RegexPrecedingCharacters = "(,=:[!&|?{};+-*%<>~^";
+	private static final String[] RegexPrecedingKeywords = { "return", "typeof", "case", "do", "else", "in", "void", "delete", "instanceof", "new", "throw" };
+
+	public static String css(String source) {
+		StringBuilder out = new StringBuilder(source.length());
+		int length = source.length();
+		int i = 0;
+		while (i < length) {
+			char c = source.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = copyLiteral(source, i, c, out);
+			} else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+				i = comment(source, i, out);
+			} else if (Character.isWhitespace(c)) {
+				i = skipWhitespace(source, i);
+				char next = i < length ? source.charAt(i) : '}';
+				char previous = lastChar(out);
+				if (previous != 0 && CssSeparators.indexOf(previous) < 0 && CssTerminators.indexOf(next) < 0 && !isWhitespace(previous)) {
+					out.append(' ');
+				}
+			} else if (c == '}' && lastChar(out) == ';') {
+				out.setCharAt(out.length() - 1, '}');
+				i++;
+			} else {
+				out.append(c);
+				i++;
+			}
+		}
+		return out.toString().trim();
+	}
+
+	public static String js(String source) {
+		StringBuilder out = new StringBuilder(source.length());
+		int length = source.length();
+		int i = 0;
+		while (i < length) {
+			char c = source.charAt(i);
+			char next = i + 1 < length ? source.charAt(i + 1) : 0;
+			if (c == '"' || c == '\'' || c == '`') {
+				i = copyLiteral(source, i, c, out);
+			} else if (c == '/' && next == '/') {
+				while (i < length && source.charAt(i) != '\n' && source.charAt(i) != '\r') {
+					i++;
+				}
+			} else if (c == '/' && next == '*') {
+				i = comment(source, i, out);
+			} else if (c == '/' && regexAllowed(out)) {
+				i = copyRegex(source, i, out);
+			} else if (Character.isWhitespace(c)) {
+				int start = i;
+				i = skipWhitespace(source, i);
+				String whitespace = source.substring(start, i);
+				appendJsWhitespace(out, whitespace.indexOf('\n') >= 0 || whitespace.indexOf('\r') >= 0, i < length ? source.charAt(i) : 0);
+			} else {
+				out.append(c);
+				i++;
+			}
+		}
+		return out.toString().trim();
+	}
+
+	private static void appendJsWhitespace(StringBuilder out, boolean newline, char next) {
+		char previous = lastChar(out);
+		if (previous == 0 || previous == '\n') {
+			return;
+		}
+		if (previous == ' ') {
+			if (!newline) {
+				return;
+			}
+			out.setLength(out.length() - 1);
+		}
+		if (newline) {
+			out.append('\n');
+		} else if (isWordChar(previous) && isWordChar(next) || (previous == '+' || previous == '-') && previous == next) {
+			// a space is only significant between identifiers, or between operators such as a - -b
+			out.append(' ');
+		}
+	}
+
+	/**
+	 * Removes the comment starting at the given index, unless it is a preserved comment, returning the index after it. Removed comments
+	 * are replaced with whitespace so they continue to separate tokens.
+	 */
+	private static int comment(String source, int start, StringBuilder out) {
+		int end = source.indexOf("*/", start + 2);
+		end = end < 0 ? source.length() : end + 2;
+		if (start + 2 < source.length() && source.charAt(start + 2) == '!') {
+			out.append(source, start, end);
+		} else if (end < source.length() && isWordChar(lastChar(out)) && isWordChar(source.charAt(end))) {
+			out.append(' ');
+		}
+		return end;
+	}
+
+	private static int copyLiteral(String source, int start, char quote, StringBuilder out) {
+		int i = start + 1;
+		int length = source.length();
+		while (i < length) {
+			char c = source.charAt(i);
+			if (c == '\\') {
+				i += 2;
+			} else if (c == quote) {
+				i++;
+				break;
+			} else {
+				i++;
+			}
+		}
+		i = Math.min(i, length);
+		out.append(source, start, i);
+		return i;
+	}
+
+	private static int copyRegex(String source, int start, StringBuilder out) {
+		int i = start + 1;
+		int length = source.length();
+		boolean inClass = false;
+		while (i < length) {
+			char c = source.charAt(i);
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+			i++;
+			if (c == '[') {
+				inClass = true;
+			} else if (c == ']') {
+				inClass = false;
+			} else if (c == '/' && !inClass || c == '\n') {
+				break;
+			}
+		}
+		i = Math.min(i, length);
+		out.append(source, start, i);
+		return i;
+	}
+
+	private static boolean regexAllowed(StringBuilder out) {
+		int end = out.length();
+		while (end > 0 && isWhitespace(out.charAt(end - 1))) {
+			end--;
+		}
+		if (end == 0) {
+			return true;
+		}
+		char previous = out.charAt(end - 1);
+		if (RegexPrecedingCharacters.indexOf(previous) >= 0) {
+			return true;
+		}
+		int start = end;
+		while (start > 0 && isWordChar(out.charAt(start - 1))) {
+			start--;
+		}
+		String word = out.substring(start, end);
+		for (String keyword : RegexPrecedingKeywords) {
+			if (keyword.equals(word)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int skipWhitespace(String source, int i) {
+		while (i < source.length() && Character.isWhitespace(source.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static char lastChar(StringBuilder out) {
+		return out.length() == 0 ? 0 : out.charAt(out.length() - 1);
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\n';
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c > 127;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import com.threewks.thundr.util.Encoder;
+
+/**
+ * The content of a static resource held by a {@link StaticResourceCache}, in its raw and (optionally) gzip compressed forms.
+ */
+public class CachedResource {
+	private final ByteBuffer data;
+	private final ByteBuffer gzipData;
+	private final String mimeType;
+	private final long lastModified;
+	private final String hash;
+	private final String etag;
+	private final String gzipEtag;
+	private final File file;
+
+	/**
+	 * @param data the raw content of the resource
+	 * @param gzipData the gzip compressed content of the resource, or null if it should not be served compressed
+	 * @param mimeType
+	 * @param lastModified
+	 * @param file the file the resource was loaded from, or null if it was not loaded from the file system
+	 */
+	public CachedResource(byte[] data, byte[] gzipData, String mimeType, long lastModified, File file) {
+		this(ByteBuffer.wrap(data), gzipData == null ? null : ByteBuffer.wrap(gzipData), mimeType, lastModified, file, new Encoder(data).sha1().hex().string());
+	}
+
+	/**
+	 * Holds the remaining content of the given buffers rather than copying them, used to serve resources restored from disk.
+	 * 
+	 * @param hash the hex encoded sha1 hash of the raw content, which the ETags are derived from
+	 */
+	CachedResource(ByteBuffer data, ByteBuffer gzipData, String mimeType, long lastModified, File file, String hash) {
+		this.data = data.slice();
+		this.gzipData = gzipData == null ? null : gzipData.slice();
+		this.mimeType = mimeType;
+		this.lastModified = lastModified;
+		this.file = file;
+		this.hash = hash;
+		this.etag = "\"" + hash + "\"";
+		this.gzipEtag = "\"" + hash + "-gzip\"";
+	}
+
+	/**
+	 * Resources restored from disk hold their content in a memory mapped file, which this copies into an array.
+	 * Use {@link #getDataBuffer()} to write the content without copying it.
+	 */
+	public byte[] getData() {
+		return bytes(data);
+	}
+
+	/**
+	 * @see #getData()
+	 */
+	public byte[] getGzipData() {
+		return gzipData == null ? null : bytes(gzipData);
+	}
+
+	/**
+	 * @return a buffer holding the raw content, which can be read without affecting this resource
+	 */
+	public ByteBuffer getDataBuffer() {
+		return data.duplicate();
+	}
+
+	/**
+	 * @return a buffer holding the compressed content, or null if there is none
+	 */
+	public ByteBuffer getGzipDataBuffer() {
+		return gzipData == null ? null : gzipData.duplicate();
+	}
+
+	public boolean hasGzipData() {
+		return gzipData != null;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @param gzip
+	 * @return the strong ETag of the raw or compressed representation of this resource, including quotes
+	 */
+	public String getETag(boolean gzip) {
+		return gzip ? gzipEtag : etag;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	String getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return the number of bytes of content held by this resource
+	 */
+	public long getWeight() {
+		return data.remaining() + (gzipData == null ? 0 : gzipData.remaining());
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.remaining() == buffer.array().length) {
+			return buffer.array();
+		}
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of {@link Deflater}s producing raw deflate data at a fixed compression level, for use in gzip responses.
+ * Each deflater holds native memory until it is ended, so released deflaters are reset and reused, and those beyond the
+ * maximum number of idle deflaters are ended immediately.
+ */
+public class DeflaterPool {
+	public static final int DefaultMaxIdle = Runtime.getRuntime().availableProcessors() * 2;
+	static final DeflaterPool Default = new DeflaterPool();
+
+	private final int level;
+	private final int maxIdle;
+	private final Queue<Deflater> idle = new ConcurrentLinkedQueue<Deflater>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicLong created = new AtomicLong();
+
+	public DeflaterPool() {
+		this(Deflater.DEFAULT_COMPRESSION, DefaultMaxIdle);
+	}
+
+	/**
+	 * @param level the compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION}, or
+	 *            {@link Deflater#DEFAULT_COMPRESSION}
+	 * @param maxIdle the maximum number of deflaters to keep for reuse
+	 */
+	public DeflaterPool(int level, int maxIdle) {
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException(String.format("Invalid compression level %d", level));
+		}
+		this.level = level;
+		this.maxIdle = maxIdle;
+	}
+
+	/**
+	 * @return an idle deflater, or a new deflater if none are idle. The deflater must be {@link #release(Deflater) released} when it is no
+	 *         longer in use.
+	 */
+	public Deflater borrow() {
+		Deflater deflater = idle.poll();
+		if (deflater != null) {
+			idleCount.decrementAndGet();
+			return deflater;
+		}
+		created.incrementAndGet();
+		return new Deflater(level, true);
+	}
+
+	public void release(Deflater deflater) {
+		deflater.reset();
+		if (idleCount.incrementAndGet() <= maxIdle) {
+			idle.offer(deflater);
+		} else {
+			idleCount.decrementAndGet();
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Ends all idle deflaters, releasing their native memory.
+	 */
+	public void clear() {
+		Deflater deflater;
+		while ((deflater = idle.poll()) != null) {
+			idleCount.decrementAndGet();
+			deflater.end();
+		}
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * @return the number of deflaters available for reuse
+	 */
+	public int idle() {
+		return idleCount.get();
+	}
+
+	/**
+	 * @return the number of deflaters created by this pool, and so the number which have required native memory
+	 */
+	public long created() {
+		return created.get();
+	}
+}
@@ -18,17 +18,34 @@
 package com.threewks.thundr.route.staticResource;
 
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import com.threewks.thundr.http.Header;
+
+/**
+ * Compresses the content written to it as gzip using a deflater from a {@link DeflaterPool}. Content is buffered until it reaches the
+ * compression threshold, so that responses smaller than the threshold can be sent uncompressed with their Content-Length.
+ */
 public class GzipResponseStream extends ServletOutputStream {
+	public static final int DefaultCompressionThreshold = 1024;
+	private static final int MinimumBufferSize = 8192;
+	private static final byte[] GzipHeader = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
 	public GzipResponseStream(HttpServletResponse response) throws IOException {
+		this(response, DeflaterPool.Default);
+	}
+
+	public GzipResponseStream(HttpServletResponse response, DeflaterPool deflaterPool) throws IOException {
 		super();
 		closed = false;
 		this.response = response;
 		this.output = response.getOutputStream();
+		this.deflaterPool = deflaterPool;
+		setBuffer(DefaultCompressionThreshold);
 	}
 
 	/**
@@ -37,23 +54,21 @@ public class GzipResponseStream extends ServletOutputStream {
 	protected int compressionThreshold;
 	protected byte[] buffer;
 	protected int bufferCount;
-	protected GZIPOutputStream gzipstream;
+	protected DeflaterPool deflaterPool;
+	protected Deflater deflater;
+	protected CRC32 crc;
+	protected byte[] deflated;
 	protected boolean closed;
 
-	/**
-	 * The content length past which we will not write, or -1 if there is no
-	 * defined content length.
-	 */
-	protected int length = -1;
 	protected HttpServletResponse response;
 	protected ServletOutputStream output;
 
 	/**
-	 * Sets the compressionThreshold number and create buffer for this size.
+	 * Sets the compressionThreshold number and creates a buffer of at least this size.
 	 */
 	protected void setBuffer(int threshold) {
 		compressionThreshold = threshold;
-		buffer = new byte[compressionThreshold];
+		buffer = new byte[Math.max(threshold, MinimumBufferSize)];
 	}
 
 	@Override
@@ -61,28 +76,52 @@ public class GzipResponseStream extends ServletOutputStream {
 		if (closed == true) {
 			return;
 		}
-		if (gzipstream != null) {
-			flushToGZip();
-			gzipstream.close();
-			gzipstream = null;
-		} else {
-			if (bufferCount > 0) {
+		try {
+			if (deflater == null && (bufferCount < compressionThreshold || bufferCount == 0)) {
+				response.setContentLength(bufferCount);
 				output.write(buffer, 0, bufferCount);
 				bufferCount = 0;
+			} else {
+				flushToGZip();
+				finishGZip();
+			}
+			output.close();
+		} finally {
+			if (deflater != null) {
+				deflaterPool.release(deflater);
+				deflater = null;
 			}
+			closed = true;
+		}
+	}
+
+	/**
+	 * Closes this stream without writing anything further, returning its deflater to the pool. Used when the response
+	 * failed part way through and its content will not be sent.
+	 */
+	public void discard() {
+		if (deflater != null) {
+			deflaterPool.release(deflater);
+			deflater = null;
 		}
-		output.close();
+		bufferCount = 0;
 		closed = true;
 	}
 
 	@Override
 	public void flush() throws IOException {
-
 		if (closed) {
 			return;
 		}
-		if (gzipstream != null) {
-			gzipstream.flush();
+		// content smaller than the threshold remains buffered, as it may yet be sent uncompressed
+		if (deflater != null || bufferCount > 0 && bufferCount >= compressionThreshold) {
+			flushToGZip();
+			int count;
+			do {
+				count = deflater.deflate(deflated, 0, deflated.length, Deflater.SYNC_FLUSH);
+				output.write(deflated, 0, count);
+			} while (count == deflated.length);
+			output.flush();
 		}
 	}
 
@@ -95,7 +134,6 @@ public class GzipResponseStream extends ServletOutputStream {
 
 	@Override
 	public void write(int b) throws IOException {
-
 		if (closed) {
 			throw new IOException("Cannot write to a closed output stream");
 		}
@@ -130,10 +168,10 @@ public class GzipResponseStream extends ServletOutputStream {
 		// There is not enough space in buffer. Flush it ...
 		flushToGZip();
 
-		// ... and try again. Note, that bufferCount = 0 here !
-		if (len <= (buffer.length - bufferCount)) {
-			System.arraycopy(b, off, buffer, bufferCount, len);
-			bufferCount += len;
+		// ... and try again, buffering writes smaller than the buffer so that small writes are deflated together
+		if (len < buffer.length) {
+			System.arraycopy(b, off, buffer, 0, len);
+			bufferCount = len;
 			return;
 		}
 
@@ -142,13 +180,36 @@ public class GzipResponseStream extends ServletOutputStream {
 	}
 
 	public void writeToGZip(byte b[], int off, int len) throws IOException {
+		if (deflater == null) {
+			deflater = deflaterPool.borrow();
+			crc = new CRC32();
+			deflated = new byte[MinimumBufferSize];
+			response.addHeader(Header.ContentEncoding, "gzip");
+			output.write(GzipHeader);
+		}
+		crc.update(b, off, len);
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			int count = deflater.deflate(deflated, 0, deflated.length, Deflater.NO_FLUSH);
+			output.write(deflated, 0, count);
+		}
+	}
 
-		if (gzipstream == null) {
-			gzipstream = new GZIPOutputStream(output);
-			response.addHeader("Content-Encoding", "gzip");
+	protected void finishGZip() throws IOException {
+		deflater.finish();
+		while (!deflater.finished()) {
+			int count = deflater.deflate(deflated, 0, deflated.length);
+			output.write(deflated, 0, count);
 		}
-		gzipstream.write(b, off, len);
+		writeInt((int) crc.getValue());
+		writeInt((int) deflater.getBytesRead());
+	}
 
+	private void writeInt(int value) throws IOException {
+		output.write(value & 0xff);
+		output.write((value >> 8) & 0xff);
+		output.write((value >> 16) & 0xff);
+		output.write((value >> 24) & 0xff);
 	}
 
 	public boolean closed() {
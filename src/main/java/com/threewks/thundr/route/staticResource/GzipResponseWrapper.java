@@ -29,12 +29,18 @@ public class GzipResponseWrapper extends HttpServletResponseWrapper {
 	protected HttpServletResponse origResponse;
 	protected ServletOutputStream stream;
 	protected PrintWriter writer;
-	protected int threshold;
+	protected int threshold = GzipResponseStream.DefaultCompressionThreshold;
 	protected String contentType;
+	protected DeflaterPool deflaterPool;
 
 	public GzipResponseWrapper(HttpServletResponse response) {
+		this(response, DeflaterPool.Default);
+	}
+
+	public GzipResponseWrapper(HttpServletResponse response, DeflaterPool deflaterPool) {
 		super(response);
 		origResponse = response;
+		this.deflaterPool = deflaterPool;
 	}
 
 	@Override
@@ -48,7 +54,7 @@ public class GzipResponseWrapper extends HttpServletResponseWrapper {
 	}
 
 	public ServletOutputStream createOutputStream() throws IOException {
-		GzipResponseStream gzstream = new GzipResponseStream(origResponse);
+		GzipResponseStream gzstream = new GzipResponseStream(origResponse, deflaterPool);
 		gzstream.setBuffer(threshold);
 		return gzstream;
 	}
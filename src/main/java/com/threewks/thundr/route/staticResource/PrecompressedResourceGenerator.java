@@ -0,0 +1,149 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletContext;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.util.Streams;
+
+/**
+ * Generates gzip compressed copies of compressible static resources at the maximum compression level, so that they can be
+ * served by {@link StaticResourceRouteResolver} without compressing them on each request.
+ * 
+ * Resources which already have an up to date compressed copy, either alongside the resource or in the target directory, are skipped.
+ */
+public class PrecompressedResourceGenerator {
+	public static final String Extension = ".gz";
+
+	private ServletContext servletContext;
+	private StaticResourceRouteResolver resolver;
+	private File directory;
+
+	public PrecompressedResourceGenerator(ServletContext servletContext, StaticResourceRouteResolver resolver, File directory) {
+		this.servletContext = servletContext;
+		this.resolver = resolver;
+		this.directory = directory;
+	}
+
+	/**
+	 * Generates compressed copies of all compressible resources in the servlet context which do not already have one.
+	 * 
+	 * @return the number of compressed copies generated
+	 */
+	public int generate() {
+		long start = System.currentTimeMillis();
+		int generated = generate("/");
+		Logger.info("Generated %d precompressed static resources in %s in %dms", generated, directory, System.currentTimeMillis() - start);
+		return generated;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected int generate(String path) {
+		int generated = 0;
+		Set<String> paths = servletContext.getResourcePaths(path);
+		if (paths != null) {
+			for (String resource : paths) {
+				if (!resolver.isAllowed(resource)) {
+					continue;
+				}
+				if (resource.endsWith("/")) {
+					generated += generate(resource);
+				} else if (shouldCompress(resource)) {
+					try {
+						generated += compress(resource) ? 1 : 0;
+					} catch (BaseException e) {
+						Logger.warn(e.getMessage());
+					}
+				}
+			}
+		}
+		return generated;
+	}
+
+	protected boolean shouldCompress(String resource) {
+		String name = resource.substring(resource.lastIndexOf('/') + 1);
+		if (resource.endsWith(Extension) || name.indexOf('.') < 0) {
+			return false;
+		}
+		return resolver.matchesCompressedMimeTypes(resolver.deriveMimeType(resource));
+	}
+
+	/**
+	 * Compresses the given resource into the target directory, unless it already has an up to date compressed copy.
+	 * 
+	 * @param resource
+	 * @return true if a compressed copy was generated
+	 */
+	protected boolean compress(String resource) {
+		try {
+			URL url = servletContext.getResource(resource);
+			if (url == null) {
+				return false;
+			}
+			URLConnection urlConnection = url.openConnection();
+			long lastModified = urlConnection.getLastModified();
+			InputStream is = urlConnection.getInputStream();
+			try {
+				URLConnection existing = resolver.findPrecompressed(resource, lastModified);
+				if (existing != null) {
+					existing.getInputStream().close();
+					return false;
+				}
+				File target = new File(directory, resource + Extension);
+				File parent = target.getParentFile();
+				if (!parent.isDirectory() && !parent.mkdirs()) {
+					throw new IOException("Failed to create directory " + parent);
+				}
+				// write to a temporary file first so that a partially written copy is never served
+				File temp = new File(parent, target.getName() + ".tmp");
+				OutputStream os = new GZIPOutputStream(new FileOutputStream(temp)) {
+					{
+						def.setLevel(Deflater.BEST_COMPRESSION);
+					}
+				};
+				try {
+					Streams.copy(is, os);
+				} finally {
+					os.close();
+				}
+				if (target.exists() && !target.delete() || !temp.renameTo(target)) {
+					temp.delete();
+					throw new IOException("Failed to create " + target);
+				}
+				return true;
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			throw new BaseException(e, "Failed to precompress static resource %s: %s", resource, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletContext;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.util.Encoder;
+import com.threewks.thundr.util.Streams;
+
+/**
+ * Computes content based fingerprinted urls for static resources, i.e. <code>/js/app.js</code> becomes <code>/js/app.3f9a2c81d0.js</code>.
+ * Because the url changes whenever the content does, {@link StaticResourceRouteResolver} serves fingerprinted urls with headers allowing
+ * them to be cached indefinitely.
+ * 
+ * Fingerprints are computed lazily from the content of each resource when its url is first requested. By default fingerprints are
+ * never recomputed, {@link #setVerifyModified(boolean)} recomputes them when a resource is modified, which is useful during development.
+ */
+public class ResourceFingerprints {
+	public static final String ModelAttribute = "resourceFingerprints";
+	public static final int Length = 10;
+	private static final Pattern Fingerprinted = Pattern.compile("(.*/[^/]*)\\.([0-9a-f]{" + Length + "})(\\.[^./]+)");
+
+	private final ServletContext servletContext;
+	private final ConcurrentMap<String, Fingerprint> fingerprints = new ConcurrentHashMap<String, Fingerprint>();
+	private boolean verifyModified = false;
+
+	public ResourceFingerprints(ServletContext servletContext) {
+		this.servletContext = servletContext;
+	}
+
+	/**
+	 * @param path the path of a static resource, i.e. <code>/js/app.js</code>
+	 * @return the fingerprinted url of the given resource, or the given path if the resource does not exist or has no extension
+	 */
+	public String url(String path) {
+		Fingerprint fingerprint = fingerprint(path);
+		return fingerprint == null ? path : fingerprint.url;
+	}
+
+	/**
+	 * @param path a requested path
+	 * @return the path of the resource the given fingerprinted url refers to, or null if it is not a fingerprinted url of an existing resource.
+	 *         The fingerprint may not be current, which can be checked with {@link #isCurrent(String)}.
+	 */
+	public String original(String path) {
+		Matcher matcher = path == null ? null : Fingerprinted.matcher(path);
+		if (matcher == null || !matcher.matches()) {
+			return null;
+		}
+		String original = matcher.group(1) + matcher.group(3);
+		return fingerprint(original) == null ? null : original;
+	}
+
+	/**
+	 * @return true if the given path is the current fingerprinted url of a resource
+	 */
+	public boolean isCurrent(String path) {
+		String original = original(path);
+		return original != null && url(original).equals(path);
+	}
+
+	public void invalidate(String path) {
+		fingerprints.remove(path);
+	}
+
+	public void clear() {
+		fingerprints.clear();
+	}
+
+	public boolean isVerifyModified() {
+		return verifyModified;
+	}
+
+	public void setVerifyModified(boolean verifyModified) {
+		this.verifyModified = verifyModified;
+	}
+
+	/**
+	 * @return the fingerprint of the given resource, or null if it cannot be fingerprinted. Resources which are not found are not
+	 *         remembered, so requests for arbitrary urls do not grow the set of fingerprints.
+	 */
+	protected Fingerprint fingerprint(String path) {
+		if (path == null || path.lastIndexOf('.') <= path.lastIndexOf('/') + 1 || path.toUpperCase().contains("/WEB-INF/")) {
+			return null;
+		}
+		Fingerprint fingerprint = fingerprints.get(path);
+		try {
+			if (fingerprint == null || verifyModified) {
+				URL url = servletContext.getResource(path);
+				if (url == null) {
+					fingerprints.remove(path);
+					return null;
+				}
+				URLConnection urlConnection = url.openConnection();
+				long lastModified = urlConnection.getLastModified();
+				InputStream is = urlConnection.getInputStream();
+				try {
+					if (fingerprint == null || fingerprint.lastModified != lastModified) {
+						fingerprint = new Fingerprint(urlFor(path, hash(Streams.readBytes(is))), lastModified);
+						fingerprints.put(path, fingerprint);
+					}
+				} finally {
+					is.close();
+				}
+			}
+			return fingerprint;
+		} catch (IOException e) {
+			throw new BaseException(e, "Failed to fingerprint %s: %s", path, e.getMessage());
+		}
+	}
+
+	static String hash(byte[] data) {
+		return new Encoder(data).sha1().hex().string().substring(0, Length);
+	}
+
+	static String urlFor(String path, String hash) {
+		int extension = path.lastIndexOf('.');
+		return path.substring(0, extension) + "." + hash + path.substring(extension);
+	}
+
+	private static final class Fingerprint {
+		private final String url;
+		private final long lastModified;
+
+		Fingerprint(String url, long lastModified) {
+			this.url = url;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,394 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.cache.disk.SegmentStore;
+import com.threewks.thundr.util.Streams;
+
+/**
+ * A bounded, least recently used cache of static resource content, weighted by the number of bytes held.
+ * 
+ * When watching is enabled, resources loaded from the file system (i.e. from an exploded war) are invalidated
+ * as soon as their file changes.
+ * 
+ * When a {@link SegmentStore} is set, cached resources are also written to disk. After a restart, resources are
+ * {@link #restore(String, long) restored} from disk rather than being read and compressed again.
+ */
+public class StaticResourceCache {
+	public static final long DefaultMaxBytes = 16 * 1024 * 1024;
+	public static final long DefaultMaxEntryBytes = 1024 * 1024;
+	private static final int DiskVersion = 1;
+
+	private final long maxBytes;
+	private final long maxEntryBytes;
+	private final LinkedHashMap<String, CachedResource> resources = new LinkedHashMap<String, CachedResource>(16, 0.75f, true);
+	private final Map<Path, Set<String>> resourcesByFile = new HashMap<Path, Set<String>>();
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	private WatchService watchService;
+	private Set<Path> watchedDirectories = new HashSet<Path>();
+	private Thread watchThread;
+	private SegmentStore diskStore;
+
+	public StaticResourceCache() {
+		this(DefaultMaxBytes, DefaultMaxEntryBytes);
+	}
+
+	public StaticResourceCache(long maxBytes, long maxEntryBytes) {
+		this.maxBytes = maxBytes;
+		this.maxEntryBytes = Math.min(maxBytes, maxEntryBytes);
+	}
+
+	/**
+	 * @param contentLength the length of a resource, or -1 if it is unknown
+	 * @return true if a resource of the given length can be held by this cache
+	 */
+	public boolean accepts(long contentLength) {
+		return contentLength >= 0 && contentLength <= maxEntryBytes;
+	}
+
+	public synchronized CachedResource get(String resource) {
+		CachedResource cached = resources.get(resource);
+		if (cached == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return cached;
+	}
+
+	public void put(String resource, CachedResource cached) {
+		hold(resource, cached);
+		SegmentStore diskStore = this.diskStore;
+		if (diskStore != null) {
+			try {
+				diskStore.put(resource, encode(cached), 0);
+			} catch (IOException e) {
+				Logger.warn("Failed to write static resource %s to disk: %s", resource, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Restores a resource written to disk, if it has not been modified since. Restored resources are held by this cache,
+	 * with their content served directly from the memory mapped segment.
+	 * 
+	 * @param resource
+	 * @param lastModified the time the resource was last modified, resources with an unknown modification time are not restored
+	 * @return the restored resource, or null if it was not on disk or has been modified
+	 */
+	public CachedResource restore(String resource, long lastModified) {
+		SegmentStore diskStore = this.diskStore;
+		ByteBuffer value = diskStore == null || lastModified <= 0 ? null : diskStore.get(resource);
+		if (value == null) {
+			return null;
+		}
+		CachedResource cached;
+		try {
+			cached = decode(value);
+		} catch (IOException | RuntimeException e) {
+			// any record which cannot be decoded is dropped, rather than being read again for every request
+			Logger.warn("Failed to read static resource %s from disk: %s", resource, e.getMessage());
+			diskStore.remove(resource);
+			return null;
+		}
+		if (cached.getLastModified() != lastModified) {
+			return null;
+		}
+		hold(resource, cached);
+		Logger.debug("Static resource %s restored from disk", resource);
+		return cached;
+	}
+
+	public synchronized void invalidate(String resource) {
+		remove(resource);
+		removeFromDisk(resource);
+	}
+
+	public synchronized void clear() {
+		resources.clear();
+		resourcesByFile.clear();
+		weight = 0;
+		if (diskStore != null) {
+			diskStore.clear();
+		}
+	}
+
+	private synchronized void hold(String resource, CachedResource cached) {
+		remove(resource);
+		if (cached.getWeight() > maxBytes) {
+			return;
+		}
+		resources.put(resource, cached);
+		weight += cached.getWeight();
+		File file = cached.getFile();
+		if (file != null) {
+			Path path = file.toPath().toAbsolutePath();
+			Set<String> keys = resourcesByFile.get(path);
+			if (keys == null) {
+				keys = new HashSet<String>();
+				resourcesByFile.put(path, keys);
+			}
+			keys.add(resource);
+			watch(path.getParent());
+		}
+		evict();
+	}
+
+	public synchronized int size() {
+		return resources.size();
+	}
+
+	/**
+	 * @return the number of bytes currently held by this cache
+	 */
+	public synchronized long weight() {
+		return weight;
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getMaxEntryBytes() {
+		return maxEntryBytes;
+	}
+
+	public SegmentStore getDiskStore() {
+		return diskStore;
+	}
+
+	/**
+	 * Sets the store resources are written to, so they can be restored after a restart, or null to hold resources in memory only.
+	 * 
+	 * @param diskStore
+	 */
+	public void setDiskStore(SegmentStore diskStore) {
+		this.diskStore = diskStore;
+	}
+
+	/**
+	 * Starts watching the directories of file system resources, invalidating cached resources when their files change.
+	 * Resources already in the cache are not watched, so this should be called before the cache is used.
+	 */
+	public synchronized void startWatching() {
+		if (watchService == null) {
+			try {
+				watchService = FileSystems.getDefault().newWatchService();
+			} catch (IOException e) {
+				throw new BaseException(e, "Failed to watch static resources for changes: %s", e.getMessage());
+			}
+			final WatchService watchService = this.watchService;
+			watchThread = new Thread("static-resource-watch") {
+				@Override
+				public void run() {
+					pollForChanges(watchService);
+				}
+			};
+			watchThread.setDaemon(true);
+			watchThread.start();
+		}
+	}
+
+	public synchronized boolean isWatching() {
+		return watchService != null;
+	}
+
+	/**
+	 * Stops watching for file changes, if watching was started, and closes the disk store
+	 */
+	public void stop() {
+		Thread watchThread;
+		synchronized (this) {
+			watchThread = this.watchThread;
+			if (watchService != null) {
+				try {
+					watchService.close();
+				} catch (IOException e) {
+					Logger.warn("Failed to stop watching static resources: %s", e.getMessage());
+				}
+			}
+			this.watchService = null;
+			this.watchThread = null;
+			this.watchedDirectories.clear();
+		}
+		if (watchThread != null) {
+			watchThread.interrupt();
+		}
+		if (diskStore != null) {
+			diskStore.stop();
+		}
+	}
+
+	protected void pollForChanges(WatchService watchService) {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						clear();
+					} else {
+						invalidate(directory.resolve((Path) event.context()).toAbsolutePath());
+					}
+				}
+				key.reset();
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		} catch (ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	synchronized void invalidate(Path file) {
+		Set<String> keys = resourcesByFile.get(file);
+		if (keys != null) {
+			for (String key : new ArrayList<String>(keys)) {
+				Logger.debug("Static resource %s changed, removed from cache", key);
+				remove(key);
+				removeFromDisk(key);
+			}
+		}
+	}
+
+	private void watch(Path directory) {
+		if (watchService != null && directory != null && watchedDirectories.add(directory)) {
+			try {
+				directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+			} catch (IOException e) {
+				Logger.warn("Failed to watch %s for changes to static resources: %s", directory, e.getMessage());
+			}
+		}
+	}
+
+	private void removeFromDisk(String resource) {
+		if (diskStore != null) {
+			diskStore.remove(resource);
+		}
+	}
+
+	private void remove(String resource) {
+		removed(resource, resources.remove(resource));
+	}
+
+	private void removed(String resource, CachedResource removed) {
+		if (removed != null) {
+			weight -= removed.getWeight();
+			File file = removed.getFile();
+			if (file != null) {
+				Path path = file.toPath().toAbsolutePath();
+				Set<String> keys = resourcesByFile.get(path);
+				if (keys != null && keys.remove(resource) && keys.isEmpty()) {
+					resourcesByFile.remove(path);
+				}
+			}
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, CachedResource>> iterator = resources.entrySet().iterator();
+		while (weight > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, CachedResource> eldest = iterator.next();
+			iterator.remove();
+			removed(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	static byte[] encode(CachedResource cached) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream((int) cached.getWeight() + 256);
+		DataOutputStream out = new DataOutputStream(baos);
+		out.writeByte(DiskVersion);
+		out.writeUTF(cached.getMimeType() == null ? "" : cached.getMimeType());
+		out.writeLong(cached.getLastModified());
+		out.writeUTF(cached.getFile() == null ? "" : cached.getFile().getPath());
+		out.writeUTF(cached.getHash());
+		out.writeInt(cached.getDataBuffer().remaining());
+		out.writeInt(cached.hasGzipData() ? cached.getGzipDataBuffer().remaining() : -1);
+		out.flush();
+		Streams.copy(cached.getDataBuffer(), baos);
+		if (cached.hasGzipData()) {
+			Streams.copy(cached.getGzipDataBuffer(), baos);
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * The content of the decoded resource is sliced from the given buffer rather than copied, so it is served directly from the memory mapped segment.
+	 */
+	static CachedResource decode(ByteBuffer value) throws IOException {
+		ByteBuffer buffer = value.duplicate();
+		DataInputStream in = new DataInputStream(Streams.asInputStream(buffer));
+		int version = in.readByte();
+		if (version != DiskVersion) {
+			throw new IOException("Unsupported version " + version);
+		}
+		String mimeType = in.readUTF();
+		long lastModified = in.readLong();
+		String file = in.readUTF();
+		String hash = in.readUTF();
+		int length = in.readInt();
+		int gzipLength = in.readInt();
+		if (length < 0 || gzipLength < -1 || (long) length + Math.max(0, gzipLength) > buffer.remaining()) {
+			throw new IOException(String.format("Expected %d bytes of content but %d remain", length + Math.max(0, gzipLength), buffer.remaining()));
+		}
+		ByteBuffer data = buffer.slice();
+		data.limit(length);
+		ByteBuffer gzipData = null;
+		if (gzipLength >= 0) {
+			buffer.position(buffer.position() + length);
+			gzipData = buffer.slice();
+			gzipData.limit(gzipLength);
+		}
+		return new CachedResource(data, gzipData, mimeType.isEmpty() ? null : mimeType, lastModified, file.isEmpty() ? null : new File(file), hash);
+	}
+}
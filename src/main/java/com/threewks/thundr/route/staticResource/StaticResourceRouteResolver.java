@@ -17,15 +17,21 @@
  */
 package com.threewks.thundr.route.staticResource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -35,18 +41,23 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
 
 import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.http.ByteRange;
+import com.threewks.thundr.http.ConditionalRequest;
 import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.HttpSupport;
+import com.threewks.thundr.http.PartialContent;
+import com.threewks.thundr.http.ResponseCompression;
 import com.threewks.thundr.logger.Logger;
 import com.threewks.thundr.route.HttpMethod;
 import com.threewks.thundr.route.RouteResolver;
 import com.threewks.thundr.route.RouteResolverException;
+import com.threewks.thundr.util.Streams;
 
 import jodd.io.StreamUtil;
 import jodd.util.Wildcard;
 
-// TODO - Better caching control:
-// TODO - Vary: Accept-Encoding
 public class StaticResourceRouteResolver implements RouteResolver<StaticResource> {
+	public static final int ImmutableCacheDuration = 365 * 24 * 60 * 60;
 	private final String protectedPath = "/?WEB-INF/.*";
 
 	private boolean gzipEnabled = true;
@@ -65,16 +76,23 @@ public class StaticResourceRouteResolver implements RouteResolver<StaticResource
 		defaultMimeTypes.put(".htc", "text/x-component");
 	}
 
-	private Set<String> compressedMimeTypes = new HashSet<String>();
-	{
-		compressedMimeTypes.add("text/*");
-	}
+	private Set<String> compressedMimeTypes = new HashSet<String>(ResponseCompression.DefaultContentTypes);
 
 	private int cacheDuration = 24 * 60 * 60;
 	private ServletContext servletContext;
+	private StaticResourceCache cache;
+	private File precompressedDirectory;
+	private DeflaterPool deflaterPool = new DeflaterPool();
+	private int compressionThreshold = GzipResponseStream.DefaultCompressionThreshold;
+	private ResourceFingerprints fingerprints;
 
 	public StaticResourceRouteResolver(ServletContext servletContext) {
+		this(servletContext, null);
+	}
+
+	public StaticResourceRouteResolver(ServletContext servletContext, StaticResourceCache cache) {
 		this.servletContext = servletContext;
+		this.cache = cache;
 	}
 
 	@Override
@@ -90,43 +108,328 @@ public class StaticResourceRouteResolver implements RouteResolver<StaticResource
 
 	protected void serve(StaticResource action, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		String resource = request.getRequestURI();
-		URL resourceUrl = servletContext.getResource(resource);
+		boolean immutable = false;
+		String original = fingerprints == null ? null : fingerprints.original(resource);
+		if (original != null) {
+			// outdated fingerprints are still served, but not cached indefinitely as they do not reflect the content
+			immutable = fingerprints.url(original).equals(resource);
+			resource = original;
+		}
 		boolean allowed = isAllowed(resource);
-		if (resourceUrl == null || !allowed) {
+		CachedResource cached = allowed && cache != null ? cache.get(resource) : null;
+		if (cached != null) {
+			serveCached(action, resource, cached, immutable, request, response);
+			return;
+		}
+
+		URL resourceUrl = allowed ? servletContext.getResource(resource) : null;
+		if (resourceUrl == null) {
 			response.sendError(HttpServletResponse.SC_NOT_FOUND);
 			Logger.info("%s -> %s not resolved: %s", resource, action, allowed ? "Not found" : "Not Permitted");
 			return;
 		}
 
 		URLConnection urlConnection = resourceUrl.openConnection();
+		cached = cache == null ? null : cache.restore(resource, urlConnection.getLastModified());
+		if (cached != null) {
+			close(urlConnection);
+			serveCached(action, resource, cached, immutable, request, response);
+			return;
+		}
 		String mimeType = deriveMimeType(resource);
-		long contentLength = urlConnection.getContentLength();
+		long contentLength = urlConnection.getContentLengthLong();
+		if (cache != null && cache.accepts(contentLength)) {
+			cached = load(resource, resourceUrl, urlConnection, mimeType);
+			cache.put(resource, cached);
+			serveCached(action, resource, cached, immutable, request, response);
+		} else {
+			serveStream(action, resource, urlConnection, mimeType, contentLength, immutable, request, response);
+		}
+	}
+
+	/**
+	 * Serves a resource which is too large to cache (or when caching is disabled) by streaming it from its source.
+	 */
+	protected void serveStream(StaticResource action, String resource, URLConnection urlConnection, String mimeType, long contentLength, boolean immutable, HttpServletRequest request,
+			HttpServletResponse response)
+			throws IOException {
 		long lastModified = urlConnection.getLastModified();
 		String acceptEncoding = request.getHeader(Header.AcceptEncoding);
-		long cacheTimeSeconds = deriveCacheDuration(resource, mimeType);
+		URLConnection precompressed = acceptsGzip(acceptEncoding) ? findPrecompressed(resource, lastModified) : null;
+		try {
+			setCacheHeaders(response, resource, mimeType, lastModified, null, precompressed != null, immutable);
+			if (isNotModified(request, null, lastModified)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				Logger.debug("%s -> %s not modified", resource, action);
+				return;
+			}
+
+			response.setContentType(mimeType);
+			if (precompressed != null) {
+				contentLength = precompressed.getContentLengthLong();
+				response.setHeader(Header.ContentEncoding, "gzip");
+				serveContent(precompressed, contentLength, mimeType, lastModified, request, response);
+			} else if (shouldZip(acceptEncoding, mimeType) && (contentLength < 0 || contentLength >= compressionThreshold)) {
+				response.setStatus(HttpServletResponse.SC_OK);
+				GzipResponseWrapper wrapper = new GzipResponseWrapper(response, deflaterPool);
+				wrapper.setCompressionThreshold(compressionThreshold);
+				OutputStream os = wrapper.getOutputStream();
+				StreamUtil.copy(urlConnection.getInputStream(), os);
+				wrapper.finishResponse();
+			} else {
+				serveContent(urlConnection, contentLength, mimeType, lastModified, request, response);
+			}
+		} finally {
+			// connections to files hold the file open once connected
+			close(urlConnection);
+			close(precompressed);
+		}
+		Logger.debug("%s -> %s resolved as %s(%d bytes%s)", resource, action, mimeType, contentLength, precompressed == null ? "" : " precompressed");
+	}
 
+	/**
+	 * Serves the content of the given connection, or the ranges of it requested. File resources are transferred directly from
+	 * the file, other resources are streamed.
+	 */
+	private void serveContent(URLConnection urlConnection, long contentLength, String mimeType, long lastModified, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setHeader(Header.AcceptRanges, ByteRange.Unit);
+		File file = toFile(urlConnection.getURL());
+		PartialContent.Source source = file == null ? PartialContent.source(urlConnection.getInputStream()) : PartialContent.source(file);
+		if (PartialContent.serve(request, response, contentLength, mimeType, null, lastModified, source)) {
+			return;
+		}
+		response.setHeader(Header.ContentLength, Long.toString(contentLength));
+		response.setStatus(HttpServletResponse.SC_OK);
+		// the body of a HEAD request is discarded and the length is already known, so there is no need to read the resource
+		if (!HttpSupport.Methods.isHead(request.getMethod())) {
+			OutputStream os = response.getOutputStream();
+			if (file == null) {
+				StreamUtil.copy(urlConnection.getInputStream(), os);
+			} else {
+				Streams.copy(file, 0, contentLength, os);
+			}
+			os.close();
+		}
+	}
+
+	private static void close(URLConnection urlConnection) {
+		if (urlConnection != null) {
+			try {
+				urlConnection.getInputStream().close();
+			} catch (IOException e) {
+				// nothing to close
+			}
+		}
+	}
+
+	protected void serveCached(StaticResource action, String resource, CachedResource cached, boolean immutable, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String mimeType = cached.getMimeType();
+		boolean gzip = cached.hasGzipData() && acceptsGzip(request.getHeader(Header.AcceptEncoding));
+		String etag = cached.getETag(gzip);
+		setCacheHeaders(response, resource, mimeType, cached.getLastModified(), etag, cached.hasGzipData(), immutable);
+		if (isNotModified(request, etag, cached.getLastModified())) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			Logger.debug("%s -> %s not modified", resource, action);
+			return;
+		}
+
+		ByteBuffer data = gzip ? cached.getGzipDataBuffer() : cached.getDataBuffer();
+		int length = data.remaining();
 		response.setContentType(mimeType);
-		response.setDateHeader(Header.Expires, System.currentTimeMillis() + cacheTimeSeconds * 1000L); // HTTP 1.0
-		response.setHeader(Header.CacheControl, String.format("max-age=%d, public", cacheTimeSeconds)); // HTTP 1.1
-		response.setDateHeader(Header.LastModified, lastModified);
+		response.setHeader(Header.AcceptRanges, ByteRange.Unit);
+		if (gzip) {
+			response.setHeader(Header.ContentEncoding, "gzip");
+		}
+		if (PartialContent.serve(request, response, length, mimeType, etag, cached.getLastModified(), PartialContent.source(data))) {
+			Logger.debug("%s -> %s resolved from cache as partial %s", resource, action, mimeType);
+			return;
+		}
+		response.setHeader(Header.ContentLength, Integer.toString(length));
+		response.setStatus(HttpServletResponse.SC_OK);
+		if (!HttpSupport.Methods.isHead(request.getMethod())) {
+			OutputStream os = response.getOutputStream();
+			Streams.copy(data, os);
+			os.close();
+		}
+		Logger.debug("%s -> %s resolved from cache as %s(%d bytes%s)", resource, action, mimeType, length, gzip ? " gzipped" : "");
+	}
 
-		OutputStream os = null;
+	protected CachedResource load(String resource, URL resourceUrl, URLConnection urlConnection, String mimeType) throws IOException {
+		long lastModified = urlConnection.getLastModified();
+		byte[] data = read(urlConnection);
+		byte[] gzipData = null;
+		URLConnection precompressed = gzipEnabled ? findPrecompressed(resource, lastModified) : null;
+		if (precompressed != null) {
+			gzipData = read(precompressed);
+		} else if (gzipEnabled && matchesCompressedMimeTypes(mimeType) && data.length >= compressionThreshold) {
+			gzipData = gzip(data, deflaterPool.getLevel());
+			if (gzipData.length >= data.length) {
+				// tiny resources get larger when compressed
+				gzipData = null;
+			}
+		}
+		return new CachedResource(data, gzipData, mimeType, lastModified, toFile(resourceUrl));
+	}
+
+	private byte[] read(URLConnection urlConnection) throws IOException {
 		InputStream is = urlConnection.getInputStream();
+		try {
+			return Streams.readBytes(is);
+		} finally {
+			is.close();
+		}
+	}
 
-		if (shouldZip(acceptEncoding, mimeType)) {
-			GzipResponseWrapper wrapper = new GzipResponseWrapper(response);
-			os = wrapper.getOutputStream();
-			StreamUtil.copy(is, os);
-			wrapper.finishResponse();
-		} else {
-			response.setHeader(Header.ContentLength, Long.toString(contentLength));
-			os = response.getOutputStream();
-			StreamUtil.copy(is, os);
-			os.close();
+	/**
+	 * Finds a gzip compressed copy of the given resource, either alongside the resource (i.e. <code>app.js.gz</code> for <code>app.js</code>)
+	 * or in the {@link #setPrecompressedDirectory(File) precompressed directory}. Copies older than the resource are ignored.
+	 * 
+	 * @param resource
+	 * @param lastModified the last modified time of the resource
+	 * @return an open connection to the compressed resource, or null if there is none
+	 */
+	protected URLConnection findPrecompressed(String resource, long lastModified) throws IOException {
+		String precompressedResource = resource + PrecompressedResourceGenerator.Extension;
+		URL url = servletContext.getResource(precompressedResource);
+		if (url == null && precompressedDirectory != null) {
+			File file = new File(precompressedDirectory, precompressedResource);
+			url = file.isFile() ? file.toURI().toURL() : null;
 		}
+		if (url == null) {
+			return null;
+		}
+		URLConnection urlConnection = url.openConnection();
+		long precompressedLastModified = urlConnection.getLastModified();
+		if (lastModified > 0 && precompressedLastModified > 0 && precompressedLastModified < lastModified) {
+			Logger.debug("Ignoring %s, it is older than %s", url, resource);
+			close(urlConnection);
+			return null;
+		}
+		return urlConnection;
+	}
 
-		response.setStatus(HttpServletResponse.SC_OK);
-		Logger.debug("%s -> %s resolved as %s(%d bytes)", resource, action, mimeType, contentLength);
+	/**
+	 * Sets caching headers. Resources requested using their current {@link ResourceFingerprints fingerprinted url} are immutable,
+	 * so they can be cached for a year without revalidation.
+	 */
+	protected void setCacheHeaders(HttpServletResponse response, String resource, String mimeType, long lastModified, String etag, boolean compressed, boolean immutable) {
+		long cacheTimeSeconds = immutable ? ImmutableCacheDuration : deriveCacheDuration(resource, mimeType);
+		response.setDateHeader(Header.Expires, System.currentTimeMillis() + cacheTimeSeconds * 1000L); // HTTP 1.0
+		response.setHeader(Header.CacheControl, immutable ? String.format("public, max-age=%d, immutable", cacheTimeSeconds) : String.format("max-age=%d, public", cacheTimeSeconds)); // HTTP 1.1
+		if (lastModified > 0) {
+			response.setDateHeader(Header.LastModified, lastModified);
+		}
+		if (etag != null) {
+			response.setHeader(Header.ETag, etag);
+		}
+		if (compressed || gzipEnabled && matchesCompressedMimeTypes(mimeType)) {
+			response.setHeader(Header.Vary, Header.AcceptEncoding);
+		}
+	}
+
+	/**
+	 * Evaluates If-None-Match (when an etag is available) and If-Modified-Since conditions. If-Modified-Since is ignored
+	 * when If-None-Match is present.
+	 */
+	protected boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+		return ConditionalRequest.isNotModified(request, etag, lastModified);
+	}
+
+	static boolean matchesETag(String ifNoneMatch, String etag) {
+		return ConditionalRequest.matchesETag(ifNoneMatch, etag);
+	}
+
+	public File getPrecompressedDirectory() {
+		return precompressedDirectory;
+	}
+
+	/**
+	 * Sets a directory in which to look for gzip compressed copies of resources, in addition to alongside the resources themselves.
+	 * 
+	 * @param precompressedDirectory
+	 * @see PrecompressedResourceGenerator
+	 */
+	public void setPrecompressedDirectory(File precompressedDirectory) {
+		this.precompressedDirectory = precompressedDirectory;
+	}
+
+	public DeflaterPool getDeflaterPool() {
+		return deflaterPool;
+	}
+
+	/**
+	 * Sets the pool of deflaters used to compress resources as they are served, which determines the compression level.
+	 * 
+	 * @param deflaterPool
+	 */
+	public void setDeflaterPool(DeflaterPool deflaterPool) {
+		this.deflaterPool = deflaterPool;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Sets the size in bytes below which resources are served uncompressed, as compression does not pay for itself on small responses.
+	 * 
+	 * @param compressionThreshold
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	static byte[] gzip(byte[] data) throws IOException {
+		return gzip(data, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	static byte[] gzip(byte[] data, final int level) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 2 + 32);
+		GZIPOutputStream gzip = new GZIPOutputStream(baos) {
+			{
+				def.setLevel(level);
+			}
+		};
+		gzip.write(data);
+		gzip.close();
+		return baos.toByteArray();
+	}
+
+	private static File toFile(URL url) {
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return new File(url.toURI());
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	public ResourceFingerprints getFingerprints() {
+		return fingerprints;
+	}
+
+	/**
+	 * Sets the fingerprints used to recognise fingerprinted urls, or null to serve resources only at their actual path.
+	 * 
+	 * @param fingerprints
+	 */
+	public void setFingerprints(ResourceFingerprints fingerprints) {
+		this.fingerprints = fingerprints;
+	}
+
+	public StaticResourceCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Sets the cache used to hold static resource content, or null to always read resources from the servlet context.
+	 * 
+	 * @param cache
+	 */
+	public void setCache(StaticResourceCache cache) {
+		this.cache = cache;
 	}
 
 	private long deriveCacheDuration(String resource, String mimeType) {
@@ -143,7 +446,11 @@ public class StaticResourceRouteResolver implements RouteResolver<StaticResource
 	}
 
 	boolean shouldZip(String acceptEncoding, String mimeType) {
-		return gzipEnabled && StringUtils.indexOf(acceptEncoding, "gzip") > -1 && matchesCompressedMimeTypes(mimeType);
+		return acceptsGzip(acceptEncoding) && matchesCompressedMimeTypes(mimeType);
+	}
+
+	boolean acceptsGzip(String acceptEncoding) {
+		return gzipEnabled && StringUtils.indexOf(acceptEncoding, "gzip") > -1;
 	}
 
 	boolean matchesCompressedMimeTypes(String mimeType) {
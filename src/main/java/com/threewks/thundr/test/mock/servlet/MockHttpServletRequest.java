@@ -27,12 +27,16 @@ import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletInputStream;
@@ -47,7 +51,7 @@ import com.threewks.thundr.http.ContentType;
 public class MockHttpServletRequest implements HttpServletRequest {
 	private Map<String, Object> attributes = new HashMap<String, Object>();
 	private Map<String, String[]> parameters = new HashMap<String, String[]>();
-	private Map<String, String[]> headers = new HashMap<String, String[]>();
+	private Map<String, String[]> headers = new TreeMap<String, String[]>(String.CASE_INSENSITIVE_ORDER);
 	private String characterEncoding = "utf-8";
 	private String contentType = null;
 	private String protocol = "http";
@@ -367,7 +371,17 @@ public class MockHttpServletRequest implements HttpServletRequest {
 
 	@Override
 	public long getDateHeader(String name) {
-		return 0;
+		String value = getHeader(name);
+		if (value == null) {
+			return -1;
+		}
+		try {
+			SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			return format.parse(value).getTime();
+		} catch (ParseException e) {
+			throw new IllegalArgumentException(value + " is not a valid date");
+		}
 	}
 
 	@Override
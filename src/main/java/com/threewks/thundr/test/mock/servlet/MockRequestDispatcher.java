@@ -28,6 +28,7 @@ public class MockRequestDispatcher implements RequestDispatcher {
 	private String path;
 	private boolean forwarded = false;
 	private boolean included = false;
+	private ServletRequest request;
 
 	public void lastPath(String path) {
 		this.path = path;
@@ -49,12 +50,20 @@ public class MockRequestDispatcher implements RequestDispatcher {
 		return path;
 	}
 
+	/**
+	 * @return the request last forwarded or included
+	 */
+	public ServletRequest request() {
+		return request;
+	}
+
 	@Override
 	public void forward(ServletRequest request, ServletResponse response) throws ServletException, IOException {
 		if (response.isCommitted()) {
 			throw new IllegalStateException("Reponse already commited");
 		}
 		forwarded = true;
+		this.request = request;
 	}
 
 	@Override
@@ -63,5 +72,6 @@ public class MockRequestDispatcher implements RequestDispatcher {
 			throw new IllegalStateException("Reponse already commited");
 		}
 		included = true;
+		this.request = request;
 	}
 }
@@ -109,7 +109,8 @@ public class Encoder {
 		Checksum checksum = new CRC32();
 		checksum.update(data, 0, data.length);
 		long checksumValue = checksum.getValue();
-		data = Long.toHexString(checksumValue).getBytes();
+		// padded, as checksums with leading zeros would otherwise have an odd number of hex digits
+		data = String.format("%08x", checksumValue).getBytes();
 		return unhex();
 	}
 
@@ -18,10 +18,15 @@
 package com.threewks.thundr.util;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import com.threewks.thundr.exception.BaseException;
 
@@ -30,6 +35,13 @@ import jodd.io.FastByteArrayOutputStream;
 public class Streams {
 	private static final String DefaultEncoding = "UTF-8";
 	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
+	private static final int TRANSFER_BUFFER_SIZE = 1024 * 64;
+	private static final ThreadLocal<ByteBuffer> TransferBuffer = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+		}
+	};
 
 	public static String readString(InputStream inputStream) {
 		return readString(inputStream, DefaultEncoding);
@@ -120,4 +132,127 @@ public class Streams {
 			throw new BaseException(e, "Could not copy input stream to output stream: %s", e.getMessage());
 		}
 	}
+
+	/**
+	 * Copy the given region of a file to the given output stream. If the output stream is also a {@link WritableByteChannel}
+	 * the file is transferred directly to it, allowing the operating system to send the file without copying it through the heap.
+	 * Otherwise the file is read through a large per-thread buffer, so that no memory is allocated for each copy.
+	 * 
+	 * @param file
+	 * @param offset the position in the file to start copying from
+	 * @param length the number of bytes to copy
+	 * @param output
+	 * @return the number of bytes copied
+	 */
+	public static long copy(File file, long offset, long length, OutputStream output) {
+		FileInputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			FileChannel channel = input.getChannel();
+			return output instanceof WritableByteChannel ? transfer(channel, offset, length, (WritableByteChannel) output) : copy(channel, offset, length, output);
+		} catch (IOException e) {
+			throw new BaseException(e, "Could not copy %s to output stream: %s", file, e.getMessage());
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// already read
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the remaining content of the given buffer to the given output stream, leaving the position of the buffer unchanged.
+	 * If the output stream is also a {@link WritableByteChannel} the buffer is written directly to it. Otherwise buffers which are
+	 * not backed by an array, such as memory mapped files, are copied through the per-thread buffer rather than into a new array.
+	 * 
+	 * @param buffer
+	 * @param output
+	 * @return the number of bytes copied
+	 */
+	public static long copy(ByteBuffer buffer, OutputStream output) {
+		ByteBuffer source = buffer.duplicate();
+		int length = source.remaining();
+		try {
+			if (source.hasArray()) {
+				output.write(source.array(), source.arrayOffset() + source.position(), length);
+			} else if (output instanceof WritableByteChannel) {
+				while (source.hasRemaining()) {
+					((WritableByteChannel) output).write(source);
+				}
+			} else {
+				byte[] bytes = TransferBuffer.get().array();
+				while (source.hasRemaining()) {
+					int count = Math.min(bytes.length, source.remaining());
+					source.get(bytes, 0, count);
+					output.write(bytes, 0, count);
+				}
+			}
+			return length;
+		} catch (IOException e) {
+			throw new BaseException(e, "Could not copy buffer to output stream: %s", e.getMessage());
+		}
+	}
+
+	/**
+	 * @param buffer
+	 * @return an input stream reading the remaining content of the given buffer, advancing its position as it is read
+	 */
+	public static InputStream asInputStream(final ByteBuffer buffer) {
+		return new InputStream() {
+			@Override
+			public int read() {
+				return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0) {
+					return 0;
+				}
+				if (!buffer.hasRemaining()) {
+					return -1;
+				}
+				int count = Math.min(len, buffer.remaining());
+				buffer.get(b, off, count);
+				return count;
+			}
+
+			@Override
+			public int available() {
+				return buffer.remaining();
+			}
+		};
+	}
+
+	private static long transfer(FileChannel channel, long offset, long length, WritableByteChannel output) throws IOException {
+		long count = 0;
+		while (count < length) {
+			long transferred = channel.transferTo(offset + count, length - count, output);
+			if (transferred <= 0 && offset + count >= channel.size()) {
+				throw new IOException("Unexpected end of file");
+			}
+			count += transferred;
+		}
+		return count;
+	}
+
+	private static long copy(FileChannel channel, long offset, long length, OutputStream output) throws IOException {
+		ByteBuffer buffer = TransferBuffer.get();
+		byte[] bytes = buffer.array();
+		long count = 0;
+		while (count < length) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), length - count));
+			int read = channel.read(buffer, offset + count);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+			output.write(bytes, 0, read);
+			count += read;
+		}
+		return count;
+	}
 }
@@ -78,6 +78,14 @@ public class BasicViewRenderer implements ViewRenderer {
 		return resp.getHeader(header);
 	}
 
+	public Map<String, String> getHeaders() {
+		return resp.getHeaders();
+	}
+
+	public int getStatus() {
+		return resp.getStatus();
+	}
+
 	public String getOutputAsString() {
 		return resp.getOutput();
 	}
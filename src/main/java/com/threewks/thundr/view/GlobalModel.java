@@ -17,68 +17,227 @@
  */
 package com.threewks.thundr.view;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Values available to every view. The model is held as an immutable snapshot which is replaced atomically on each change, so that
+ * views can read it concurrently without copying or locking. Changes are expected to be rare, typically only at startup.
+ * 
+ * The collection views returned by this map are live and can be modified, writing through to the model. Iterating a view iterates
+ * the snapshot current when iteration began.
+ */
 public class GlobalModel implements Map<String, Object> {
-	private Map<String, Object> delegate = new HashMap<String, Object>();
+	private final AtomicReference<Map<String, Object>> snapshot = new AtomicReference<Map<String, Object>>(Collections.<String, Object> emptyMap());
+
+	/**
+	 * @return the current contents of this model, which will not change
+	 */
+	public Map<String, Object> snapshot() {
+		return snapshot.get();
+	}
 
 	public void clear() {
-		delegate.clear();
+		snapshot.set(Collections.<String, Object> emptyMap());
 	}
 
 	public boolean containsKey(Object arg0) {
-		return delegate.containsKey(arg0);
+		return snapshot().containsKey(arg0);
 	}
 
 	public boolean containsValue(Object arg0) {
-		return delegate.containsValue(arg0);
+		return snapshot().containsValue(arg0);
 	}
 
 	public Set<java.util.Map.Entry<String, Object>> entrySet() {
-		return delegate.entrySet();
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new ModelIterator<Map.Entry<String, Object>>() {
+					@Override
+					protected Map.Entry<String, Object> element(Map.Entry<String, Object> entry) {
+						return new ModelEntry(entry);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return GlobalModel.this.size();
+			}
+
+			@Override
+			public void clear() {
+				GlobalModel.this.clear();
+			}
+		};
 	}
 
 	public boolean equals(Object arg0) {
-		return delegate.equals(arg0);
+		return snapshot().equals(arg0 instanceof GlobalModel ? ((GlobalModel) arg0).snapshot() : arg0);
 	}
 
 	public Object get(Object arg0) {
-		return delegate.get(arg0);
+		return snapshot().get(arg0);
 	}
 
 	public int hashCode() {
-		return delegate.hashCode();
+		return snapshot().hashCode();
 	}
 
 	public boolean isEmpty() {
-		return delegate.isEmpty();
+		return snapshot().isEmpty();
 	}
 
 	public Set<String> keySet() {
-		return delegate.keySet();
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new ModelIterator<String>() {
+					@Override
+					protected String element(Map.Entry<String, Object> entry) {
+						return entry.getKey();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return GlobalModel.this.size();
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				boolean contained = containsKey(o);
+				GlobalModel.this.remove(o);
+				return contained;
+			}
+
+			@Override
+			public void clear() {
+				GlobalModel.this.clear();
+			}
+		};
 	}
 
 	public Object put(String arg0, Object arg1) {
-		return delegate.put(arg0, arg1);
+		while (true) {
+			Map<String, Object> current = snapshot();
+			Map<String, Object> updated = new HashMap<String, Object>(current);
+			Object previous = updated.put(arg0, arg1);
+			if (snapshot.compareAndSet(current, Collections.unmodifiableMap(updated))) {
+				return previous;
+			}
+		}
 	}
 
 	public void putAll(Map<? extends String, ? extends Object> arg0) {
-		delegate.putAll(arg0);
+		while (true) {
+			Map<String, Object> current = snapshot();
+			Map<String, Object> updated = new HashMap<String, Object>(current);
+			updated.putAll(arg0);
+			if (snapshot.compareAndSet(current, Collections.unmodifiableMap(updated))) {
+				return;
+			}
+		}
 	}
 
 	public Object remove(Object arg0) {
-		return delegate.remove(arg0);
+		while (true) {
+			Map<String, Object> current = snapshot();
+			if (!current.containsKey(arg0)) {
+				return null;
+			}
+			Map<String, Object> updated = new HashMap<String, Object>(current);
+			Object previous = updated.remove(arg0);
+			if (snapshot.compareAndSet(current, Collections.unmodifiableMap(updated))) {
+				return previous;
+			}
+		}
 	}
 
 	public int size() {
-		return delegate.size();
+		return snapshot().size();
 	}
 
 	public Collection<Object> values() {
-		return delegate.values();
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				return new ModelIterator<Object>() {
+					@Override
+					protected Object element(Map.Entry<String, Object> entry) {
+						return entry.getValue();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return GlobalModel.this.size();
+			}
+
+			@Override
+			public void clear() {
+				GlobalModel.this.clear();
+			}
+		};
 	}
 
+	/**
+	 * Iterates the snapshot current when iteration began, removing from the model itself.
+	 */
+	private abstract class ModelIterator<T> implements Iterator<T> {
+		private final Iterator<Map.Entry<String, Object>> delegate = snapshot().entrySet().iterator();
+		private Map.Entry<String, Object> current;
+
+		@Override
+		public boolean hasNext() {
+			return delegate.hasNext();
+		}
+
+		@Override
+		public T next() {
+			current = delegate.next();
+			return element(current);
+		}
+
+		@Override
+		public void remove() {
+			if (current == null) {
+				throw new IllegalStateException();
+			}
+			GlobalModel.this.remove(current.getKey());
+			current = null;
+		}
+
+		protected abstract T element(Map.Entry<String, Object> entry);
+	}
+
+	private class ModelEntry extends AbstractMap.SimpleEntry<String, Object> {
+		private static final long serialVersionUID = 1L;
+
+		private ModelEntry(Map.Entry<String, Object> entry) {
+			super(entry);
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			super.setValue(value);
+			return put(getKey(), value);
+		}
+	}
 }
@@ -0,0 +1,105 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Overlays models on the attributes of a request, so that views can read model values as request attributes without them being copied
+ * into the request. Attributes are looked up in the attributes set on this request, then in each model in the order given, and finally
+ * in the wrapped request.
+ * 
+ * Attributes set or removed through this request are held by it and never change the wrapped request, so anything a view does to the
+ * request attributes is discarded once it has rendered.
+ */
+public class ModelHttpServletRequest extends HttpServletRequestWrapper {
+	private static final Object Removed = new Object();
+
+	private final List<Map<String, ?>> models;
+	private Map<String, Object> attributes;
+
+	/**
+	 * @param req
+	 * @param models the models to overlay, the first taking priority over the others
+	 */
+	public ModelHttpServletRequest(HttpServletRequest req, List<Map<String, ?>> models) {
+		super(req);
+		this.models = models;
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		if (attributes != null) {
+			Object value = attributes.get(name);
+			if (value != null) {
+				return value == Removed ? null : value;
+			}
+		}
+		for (Map<String, ?> model : models) {
+			Object value = model.get(name);
+			if (value != null || model.containsKey(name)) {
+				return value;
+			}
+		}
+		return super.getAttribute(name);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Enumeration<String> getAttributeNames() {
+		Set<String> names = new LinkedHashSet<String>();
+		for (Enumeration<String> requestNames = super.getAttributeNames(); requestNames.hasMoreElements();) {
+			names.add(requestNames.nextElement());
+		}
+		for (Map<String, ?> model : models) {
+			names.addAll(model.keySet());
+		}
+		if (attributes != null) {
+			names.addAll(attributes.keySet());
+		}
+		for (Iterator<String> iterator = names.iterator(); iterator.hasNext();) {
+			if (getAttribute(iterator.next()) == null) {
+				iterator.remove();
+			}
+		}
+		return Collections.enumeration(names);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (attributes == null) {
+			attributes = new HashMap<String, Object>();
+		}
+		attributes.put(name, value == null ? Removed : value);
+	}
+
+	@Override
+	public void removeAttribute(String name) {
+		setAttribute(name, null);
+	}
+}
@@ -21,6 +21,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.threewks.thundr.http.RequestThreadLocal;
+import com.threewks.thundr.http.ResponseCompression;
+import com.threewks.thundr.http.ResponseValidation;
 
 /**
  * Renders the output to the current {@link HttpServletResponse} as stored in the {@link RequestThreadLocal}
@@ -29,10 +31,28 @@ public class ServletViewRenderer implements ViewRenderer {
 	private ViewResolverRegistry viewResolverRegistry;
 	private boolean resolved = false;
 	private boolean failIfNoViewResolver;
+	private ResponseCompression responseCompression;
+	private ResponseValidation responseValidation;
 
 	public ServletViewRenderer(ViewResolverRegistry viewResolverRegistry, boolean failIfNoViewResolver) {
+		this(viewResolverRegistry, null, failIfNoViewResolver);
+	}
+
+	public ServletViewRenderer(ViewResolverRegistry viewResolverRegistry, ResponseCompression responseCompression, boolean failIfNoViewResolver) {
+		this(viewResolverRegistry, responseCompression, null, failIfNoViewResolver);
+	}
+
+	/**
+	 * @param viewResolverRegistry
+	 * @param responseCompression compresses the response written by view resolvers when enabled, may be null
+	 * @param responseValidation derives ETags for the response written by view resolvers when enabled, may be null
+	 * @param failIfNoViewResolver
+	 */
+	public ServletViewRenderer(ViewResolverRegistry viewResolverRegistry, ResponseCompression responseCompression, ResponseValidation responseValidation, boolean failIfNoViewResolver) {
 		super();
 		this.viewResolverRegistry = viewResolverRegistry;
+		this.responseCompression = responseCompression;
+		this.responseValidation = responseValidation;
 		this.failIfNoViewResolver = failIfNoViewResolver;
 	}
 
@@ -46,11 +66,41 @@ public class ServletViewRenderer implements ViewRenderer {
 		HttpServletResponse resp = RequestThreadLocal.getResponse();
 		ViewResolver<Object> viewResolver = viewResolverRegistry.findViewResolver(view);
 		if (viewResolver != null) {
-			viewResolver.resolve(req, resp, view);
+			resolve(viewResolver, req, resp, view);
 		} else {
 			if (failIfNoViewResolver) {
 				throw new ViewResolverNotFoundException("No %s is registered for the view result %s - %s", ViewResolver.class.getSimpleName(), view.getClass().getSimpleName(), view);
 			}
 		}
 	}
+
+	/**
+	 * Resolves the view, wrapping the response when compression or validation is enabled. Validation wraps compression, so ETags
+	 * are derived from the uncompressed content.
+	 */
+	private void resolve(ViewResolver<Object> viewResolver, HttpServletRequest req, HttpServletResponse resp, Object view) {
+		HttpServletResponse compressed = responseCompression == null || !responseCompression.isEnabled() ? resp : responseCompression.wrap(req, resp);
+		HttpServletResponse validated = responseValidation == null || !responseValidation.isEnabled() ? compressed : responseValidation.wrap(req, compressed);
+		if (validated == resp) {
+			viewResolver.resolve(req, resp, view);
+			return;
+		}
+		boolean completed = false;
+		RequestThreadLocal.set(req, validated);
+		try {
+			viewResolver.resolve(req, validated, view);
+			completed = true;
+		} finally {
+			RequestThreadLocal.set(req, resp);
+			try {
+				if (validated != compressed) {
+					responseValidation.finish(validated, completed);
+				}
+			} finally {
+				if (compressed != resp) {
+					responseCompression.finish(compressed, completed);
+				}
+			}
+		}
+	}
 }
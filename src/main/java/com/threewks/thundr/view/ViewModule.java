@@ -17,11 +17,21 @@
  */
 package com.threewks.thundr.view;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.threewks.thundr.configuration.Environment;
+import com.threewks.thundr.http.ResponseCompression;
+import com.threewks.thundr.http.ResponseValidation;
 import com.threewks.thundr.http.exception.HttpStatusException;
 import com.threewks.thundr.injection.BaseModule;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
 import com.threewks.thundr.route.RouteNotFoundException;
 import com.threewks.thundr.route.Router;
+import com.threewks.thundr.view.conditional.NotModifiedView;
+import com.threewks.thundr.view.conditional.NotModifiedViewResolver;
+import com.threewks.thundr.view.exception.ErrorFingerprints;
 import com.threewks.thundr.view.exception.ExceptionViewResolver;
 import com.threewks.thundr.view.exception.HttpStatusExceptionViewResolver;
 import com.threewks.thundr.view.exception.RouteNotFoundViewResolver;
@@ -33,6 +43,7 @@ import com.threewks.thundr.view.json.JsonViewResolver;
 import com.threewks.thundr.view.jsonp.JsonpNegotiator;
 import com.threewks.thundr.view.jsonp.JsonpView;
 import com.threewks.thundr.view.jsonp.JsonpViewResolver;
+import com.threewks.thundr.view.jsp.FragmentCache;
 import com.threewks.thundr.view.jsp.JspView;
 import com.threewks.thundr.view.jsp.JspViewResolver;
 import com.threewks.thundr.view.negotiating.NegotiatingView;
@@ -49,12 +60,19 @@ import com.threewks.thundr.view.string.StringViewResolver;
 import jodd.util.MimeTypes;
 
 public class ViewModule extends BaseModule {
+	public static final String FragmentCacheBytesProperty = "fragmentCacheBytes";
+	public static final String ErrorStackTracesProperty = "errorStackTraces";
+	public static final String ErrorLogIntervalProperty = "errorLogInterval";
+	public static final String JspModelOverlayProperty = "jspModelOverlay";
+
 	@Override
 	public void initialise(UpdatableInjectionContext injectionContext) {
 		injectionContext.inject(ViewResolverRegistry.class).as(ViewResolverRegistry.class);
 		injectionContext.inject(ServletViewRenderer.class).as(ViewRenderer.class);
 		injectionContext.inject(ViewNegotiatorRegistryImpl.class).as(ViewNegotiatorRegistry.class);
 		injectionContext.inject(GlobalModel.class).as(GlobalModel.class);
+		injectionContext.inject(new ResponseCompression()).as(ResponseCompression.class);
+		injectionContext.inject(new ResponseValidation()).as(ResponseValidation.class);
 	}
 
 	@Override
@@ -62,6 +80,11 @@ public class ViewModule extends BaseModule {
 		GlobalModel globalModel = injectionContext.get(GlobalModel.class);
 		globalModel.put("router", injectionContext.get(Router.class));
 
+		long fragmentCacheBytes = NumberUtils.toLong(injectionContext.get(String.class, FragmentCacheBytesProperty), FragmentCache.DefaultMaxBytes);
+		FragmentCache fragmentCache = new FragmentCache(fragmentCacheBytes);
+		injectionContext.inject(fragmentCache).as(FragmentCache.class);
+		globalModel.put(FragmentCache.ModelAttribute, fragmentCache);
+
 		ViewResolverRegistry viewResolverRegistry = injectionContext.get(ViewResolverRegistry.class);
 
 		addViewResolvers(viewResolverRegistry, injectionContext, globalModel);
@@ -71,11 +94,12 @@ public class ViewModule extends BaseModule {
 		Router router = injectionContext.get(Router.class);
 		ViewNegotiatorRegistry viewNegotiatorRegistry = injectionContext.get(ViewNegotiatorRegistry.class);
 
-		ExceptionViewResolver exceptionViewResolver = new ExceptionViewResolver();
+		ExceptionViewResolver exceptionViewResolver = createExceptionViewResolver(injectionContext);
 		HttpStatusExceptionViewResolver statusViewResolver = new HttpStatusExceptionViewResolver();
 		NegotiatingViewResolver negotiatingViewResolver = new NegotiatingViewResolver(viewResolverRegistry, viewNegotiatorRegistry);
 
 		injectionContext.inject(exceptionViewResolver).as(ExceptionViewResolver.class);
+		injectionContext.inject(exceptionViewResolver.getErrorFingerprints()).as(ErrorFingerprints.class);
 		injectionContext.inject(statusViewResolver).as(HttpStatusExceptionViewResolver.class);
 		injectionContext.inject(negotiatingViewResolver).as(NegotiatingViewResolver.class);
 
@@ -93,8 +117,29 @@ public class ViewModule extends BaseModule {
 		viewResolverRegistry.addResolver(JsonView.class, new JsonViewResolver());
 		viewResolverRegistry.addResolver(JsonpView.class, new JsonpViewResolver());
 		viewResolverRegistry.addResolver(FileView.class, new FileViewResolver());
-		viewResolverRegistry.addResolver(JspView.class, new JspViewResolver(globalModel));
+		viewResolverRegistry.addResolver(JspView.class, createJspViewResolver(injectionContext, globalModel));
 		viewResolverRegistry.addResolver(StringView.class, new StringViewResolver());
 		viewResolverRegistry.addResolver(NegotiatingView.class, negotiatingViewResolver);
+		viewResolverRegistry.addResolver(NotModifiedView.class, new NotModifiedViewResolver());
+	}
+
+	/**
+	 * Models are copied into the request attributes for jsps unless overlaying them is configured, see {@link JspViewResolver#setOverlayModel(boolean)}.
+	 */
+	protected JspViewResolver createJspViewResolver(UpdatableInjectionContext injectionContext, GlobalModel globalModel) {
+		JspViewResolver jspViewResolver = new JspViewResolver(globalModel);
+		jspViewResolver.setOverlayModel(Boolean.parseBoolean(injectionContext.get(String.class, JspModelOverlayProperty)));
+		return jspViewResolver;
+	}
+
+	/**
+	 * Stack traces are rendered into error responses in the {@link Environment#DEV} environment only, unless configured otherwise.
+	 * The full stack trace of repeated errors is logged once per interval, configured in seconds.
+	 */
+	protected ExceptionViewResolver createExceptionViewResolver(UpdatableInjectionContext injectionContext) {
+		String stackTraces = injectionContext.get(String.class, ErrorStackTracesProperty);
+		long interval = NumberUtils.toLong(injectionContext.get(String.class, ErrorLogIntervalProperty), ErrorFingerprints.DefaultIntervalSeconds);
+		ErrorFingerprints errorFingerprints = new ErrorFingerprints(interval, TimeUnit.SECONDS, ErrorFingerprints.DefaultMaxFingerprints);
+		return new ExceptionViewResolver(errorFingerprints, stackTraces == null ? Environment.is(Environment.DEV) : Boolean.parseBoolean(stackTraces));
 	}
 }
@@ -17,39 +17,37 @@
  */
 package com.threewks.thundr.view;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.threewks.thundr.introspection.ClassIntrospector;
 import com.threewks.thundr.logger.Logger;
 
+/**
+ * Maps view results to the {@link ViewResolver} registered for their type, or the closest supertype or interface.
+ * 
+ * Registered resolvers are held in an immutable snapshot published through a volatile reference, along with a concurrent cache of
+ * resolved types which is seeded with the registered types. Finding a resolver never locks, and a resolver found for a new type is
+ * added to the cache of the snapshot it was found in without copying it. Adding or removing a resolver publishes a new snapshot.
+ */
 public class ViewResolverRegistry {
-	private Map<Class<?>, ViewResolver<?>> resolvers = new HashMap<Class<?>, ViewResolver<?>>();
-	private List<Class<?>> resolversOrder = new ArrayList<Class<?>>();
-	private Map<Class<?>, ViewResolver<?>> resolversCache = new WeakHashMap<Class<?>, ViewResolver<?>>();
+	private volatile Resolvers resolvers = new Resolvers(new HashMap<Class<?>, ViewResolver<?>>());
 	private ClassIntrospector classIntrospector = new ClassIntrospector();
 
-	public <T> void addResolver(Class<T> viewResult, ViewResolver<T> resolver) {
-		resolvers.put(viewResult, (ViewResolver<T>) resolver);
-		resolversOrder.add(viewResult);
-		clearResolversCache();
+	public synchronized <T> void addResolver(Class<T> viewResult, ViewResolver<T> resolver) {
+		Map<Class<?>, ViewResolver<?>> resolvers = new HashMap<Class<?>, ViewResolver<?>>(this.resolvers.resolvers);
+		resolvers.put(viewResult, resolver);
+		this.resolvers = new Resolvers(resolvers);
 		Logger.info("Added ViewResolver %s for views of %s", resolver, viewResult);
 	}
 
-	public void removeResolver(Class<?> viewResult) {
+	public synchronized void removeResolver(Class<?> viewResult) {
+		Map<Class<?>, ViewResolver<?>> resolvers = new HashMap<Class<?>, ViewResolver<?>>(this.resolvers.resolvers);
 		resolvers.remove(viewResult);
-		resolversOrder.removeAll(Collections.singletonList(viewResult));
-		clearResolversCache();
-	}
-
-	private void clearResolversCache() {
-		synchronized (resolversCache) {
-			resolversCache.clear();
-		}
+		this.resolvers = new Resolvers(resolvers);
 	}
 
 	public <T> ViewResolver<T> findViewResolver(T viewResult) {
@@ -62,34 +60,45 @@ public class ViewResolverRegistry {
 
 	@SuppressWarnings("unchecked")
 	protected <T> ViewResolver<T> createAndCacheResolver(T viewResult) {
+		Resolvers resolvers = this.resolvers;
 		Class<?> resultType = getViewResultType(viewResult);
-		List<Class<?>> orderedTypes = classIntrospector.listImplementedTypes(resultType);
-		synchronized (resolversCache) {
-			for (Class<?> type : orderedTypes) {
-				for (int i = resolversOrder.size() - 1; i >= 0; i--) {
-					Class<?> resolverClass = resolversOrder.get(i);
-					Class<?> viewResultClass = type;
-					if (resolverClass == viewResultClass) {
-						ViewResolver<T> viewResolver = (ViewResolver<T>) resolvers.get(resolverClass);
-						resolversCache.put(resultType, viewResolver);
-						return viewResolver;
-					}
-				}
-			}
+		if (resultType == null) {
 			return null;
 		}
+		for (Class<?> type : classIntrospector.listImplementedTypes(resultType)) {
+			ViewResolver<?> viewResolver = resolvers.resolvers.get(type);
+			if (viewResolver != null) {
+				resolvers.resolversCache.putIfAbsent(resultType, viewResolver);
+				return (ViewResolver<T>) viewResolver;
+			}
+		}
+		return null;
 	}
 
 	@SuppressWarnings("unchecked")
 	protected <T> ViewResolver<T> findViewResolverInCache(T viewResult) {
 		Class<?> type = getViewResultType(viewResult);
-		synchronized (resolversCache) {
-			return (ViewResolver<T>) resolversCache.get(type);
-		}
+		return type == null ? null : (ViewResolver<T>) resolvers.resolversCache.get(type);
 	}
 
 	private <T> Class<?> getViewResultType(T viewResult) {
 		Class<?> type = viewResult == null ? null : viewResult.getClass();
 		return type;
 	}
+
+	private static class Resolvers {
+		private final Map<Class<?>, ViewResolver<?>> resolvers;
+		private final ConcurrentMap<Class<?>, ViewResolver<?>> resolversCache;
+
+		Resolvers(Map<Class<?>, ViewResolver<?>> resolvers) {
+			this.resolvers = Collections.unmodifiableMap(resolvers);
+			// a registered type always resolves to its own resolver, so those entries are known before any view is rendered
+			this.resolversCache = new ConcurrentHashMap<Class<?>, ViewResolver<?>>();
+			for (Map.Entry<Class<?>, ViewResolver<?>> entry : resolvers.entrySet()) {
+				if (entry.getValue() != null) {
+					this.resolversCache.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
 }
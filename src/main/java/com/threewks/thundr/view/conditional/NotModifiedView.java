@@ -0,0 +1,50 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view.conditional;
+
+import com.threewks.thundr.view.View;
+
+/**
+ * Responds to a conditional request with <code>304 Not Modified</code> and no body, because the client's copy of the content is current.
+ */
+public class NotModifiedView implements View {
+	private String etag;
+	private long lastModified;
+
+	/**
+	 * @param etag the current ETag of the content including quotes, or null
+	 * @param lastModified the time the content last changed, or a value less than 1 if unknown
+	 */
+	public NotModifiedView(String etag, long lastModified) {
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	public String getETag() {
+		return etag;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Override
+	public String toString() {
+		return "Not modified";
+	}
+}
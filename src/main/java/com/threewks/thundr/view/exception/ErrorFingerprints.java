@@ -0,0 +1,224 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view.exception;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.threewks.thundr.util.Encoder;
+
+/**
+ * Groups exceptions by fingerprint, the type of the exception and its causes along with the top frames of its stack trace, so
+ * that repeated failures can be counted rather than reported individually.
+ * 
+ * {@link #record(Throwable)} decides whether an occurrence should be reported, allowing one report per fingerprint each interval and
+ * counting the occurrences suppressed in between. Once the maximum number of fingerprints is being tracked, exceptions with new
+ * fingerprints are counted together under {@link #Overflow}.
+ */
+public class ErrorFingerprints {
+	public static final int DefaultFrames = 5;
+	public static final int DefaultMaxFingerprints = 1000;
+	public static final long DefaultIntervalSeconds = 60;
+	public static final String Overflow = "overflow";
+
+	private final ConcurrentMap<String, ErrorFingerprint> fingerprints = new ConcurrentHashMap<String, ErrorFingerprint>();
+	private final ErrorFingerprint overflow = new ErrorFingerprint(Overflow, null);
+	private final long interval;
+	private final int maxFingerprints;
+
+	public ErrorFingerprints() {
+		this(DefaultIntervalSeconds, TimeUnit.SECONDS, DefaultMaxFingerprints);
+	}
+
+	/**
+	 * @param interval how often each fingerprint is reported, where 0 reports every occurrence
+	 * @param unit
+	 * @param maxFingerprints
+	 */
+	public ErrorFingerprints(long interval, TimeUnit unit, int maxFingerprints) {
+		this.interval = unit.toMillis(interval);
+		this.maxFingerprints = maxFingerprints;
+	}
+
+	/**
+	 * Counts an occurrence of the given exception.
+	 * 
+	 * @param throwable
+	 * @return the occurrence, which should be reported if {@link Occurrence#isReported()}
+	 */
+	public Occurrence record(Throwable throwable) {
+		String key = key(throwable);
+		ErrorFingerprint fingerprint = fingerprints.get(key);
+		if (fingerprint == null) {
+			if (fingerprints.size() >= maxFingerprints) {
+				fingerprint = overflow;
+			} else {
+				fingerprint = new ErrorFingerprint(id(key), throwable.getClass().getName());
+				ErrorFingerprint existing = fingerprints.putIfAbsent(key, fingerprint);
+				fingerprint = existing == null ? fingerprint : existing;
+			}
+		}
+		return fingerprint.record(now(), interval);
+	}
+
+	/**
+	 * @return the number of occurrences of each fingerprint by id
+	 */
+	public Map<String, Long> getCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (ErrorFingerprint fingerprint : list()) {
+			counts.put(fingerprint.getId(), fingerprint.getCount());
+		}
+		return counts;
+	}
+
+	public List<ErrorFingerprint> list() {
+		List<ErrorFingerprint> list = new ArrayList<ErrorFingerprint>(fingerprints.values());
+		if (overflow.getCount() > 0) {
+			list.add(overflow);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	public int size() {
+		return fingerprints.size();
+	}
+
+	public void clear() {
+		fingerprints.clear();
+	}
+
+	protected long now() {
+		return System.currentTimeMillis();
+	}
+
+	static String key(Throwable throwable) {
+		StringBuilder key = new StringBuilder();
+		for (Throwable cause = throwable; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			key.append(cause.getClass().getName()).append('\n');
+		}
+		StackTraceElement[] stackTrace = throwable.getStackTrace();
+		for (int i = 0; stackTrace != null && i < stackTrace.length && i < DefaultFrames; i++) {
+			key.append(stackTrace[i]).append('\n');
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Ids are the first 64 bits of the SHA-1 of the fingerprint, so they stay distinct across far more fingerprints than are ever tracked.
+	 */
+	static String id(String key) {
+		return new Encoder(key).sha1().hex().string().substring(0, 16);
+	}
+
+	public static class ErrorFingerprint {
+		private final String id;
+		private final String type;
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong suppressed = new AtomicLong();
+		private final AtomicLong lastReported = new AtomicLong(Long.MIN_VALUE);
+
+		ErrorFingerprint(String id, String type) {
+			this.id = id;
+			this.type = type;
+		}
+
+		Occurrence record(long now, long interval) {
+			count.incrementAndGet();
+			if (interval <= 0) {
+				return new Occurrence(this, true, 0, lastReported.getAndSet(now));
+			}
+			long last = lastReported.get();
+			if ((last == Long.MIN_VALUE || now - last >= interval) && lastReported.compareAndSet(last, now)) {
+				return new Occurrence(this, true, suppressed.getAndSet(0), last);
+			}
+			suppressed.incrementAndGet();
+			return new Occurrence(this, false, 0, last);
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the name of the exception type, or null for the {@link ErrorFingerprints#Overflow} fingerprint
+		 */
+		public String getType() {
+			return type;
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return the number of occurrences suppressed since this fingerprint was last reported
+		 */
+		public long getSuppressed() {
+			return suppressed.get();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s (%d)", id, type, count.get());
+		}
+	}
+
+	public static class Occurrence {
+		private final ErrorFingerprint fingerprint;
+		private final boolean reported;
+		private final long suppressed;
+		private final long lastReported;
+
+		Occurrence(ErrorFingerprint fingerprint, boolean reported, long suppressed, long lastReported) {
+			this.fingerprint = fingerprint;
+			this.reported = reported;
+			this.suppressed = suppressed;
+			this.lastReported = lastReported == Long.MIN_VALUE ? 0 : lastReported;
+		}
+
+		public ErrorFingerprint getFingerprint() {
+			return fingerprint;
+		}
+
+		public boolean isReported() {
+			return reported;
+		}
+
+		/**
+		 * @return the number of occurrences suppressed since the fingerprint was previously reported, if this occurrence is reported
+		 */
+		public long getSuppressed() {
+			return suppressed;
+		}
+
+		/**
+		 * @return the time in milliseconds the fingerprint was previously reported, or 0 if it had not been
+		 */
+		public long getLastReported() {
+			return lastReported;
+		}
+	}
+}
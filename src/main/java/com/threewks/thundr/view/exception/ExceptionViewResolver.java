@@ -20,8 +20,8 @@ package com.threewks.thundr.view.exception;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.ArrayList;
-import java.util.List;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -29,31 +29,75 @@ import javax.servlet.http.HttpServletResponse;
 import com.threewks.thundr.logger.Logger;
 import com.threewks.thundr.view.ViewResolutionException;
 import com.threewks.thundr.view.ViewResolver;
+import com.threewks.thundr.view.exception.ErrorFingerprints.Occurrence;
 
+/**
+ * Responds to exceptions with a 500 (Internal Server Error).
+ * 
+ * Exceptions are grouped by fingerprint using {@link ErrorFingerprints}, and the full stack trace of each fingerprint is logged at
+ * most once per interval along with the number of occurrences suppressed since it was last logged. Stack traces are only rendered
+ * into the response if enabled, otherwise the response carries just the fingerprint id so that it can be found in the logs.
+ */
 public class ExceptionViewResolver implements ViewResolver<Throwable> {
+	private ErrorFingerprints errorFingerprints;
+	private boolean includeStackTrace;
+
+	public ExceptionViewResolver() {
+		this(new ErrorFingerprints(), true);
+	}
+
+	public ExceptionViewResolver(ErrorFingerprints errorFingerprints, boolean includeStackTrace) {
+		this.errorFingerprints = errorFingerprints;
+		this.includeStackTrace = includeStackTrace;
+	}
+
 	@Override
 	public void resolve(HttpServletRequest req, HttpServletResponse resp, Throwable viewResult) {
-		List<String> messages = new ArrayList<String>();
-		for (Throwable cause = viewResult; cause != null; cause = cause.getCause()) {
-			messages.add(cause.getMessage());
+		Throwable exceptionOfInterest = viewResult;
+		if (viewResult instanceof ViewResolutionException && viewResult.getCause() != null) {
+			exceptionOfInterest = viewResult.getCause();
 		}
-		try {
-			Throwable exceptionOfInterest = viewResult;
-			if (viewResult instanceof ViewResolutionException && viewResult.getCause() != null) {
-				exceptionOfInterest = viewResult.getCause();
-			}
-			StringWriter stringWriter = new StringWriter();
-			PrintWriter writer = new PrintWriter(stringWriter);
-			for (String message : messages) {
-				writer.println(message);
+		Occurrence occurrence = errorFingerprints.record(exceptionOfInterest);
+		String id = occurrence.getFingerprint().getId();
+		String stackTrace = includeStackTrace || occurrence.isReported() ? printStackTrace(viewResult, exceptionOfInterest) : null;
+		if (occurrence.isReported()) {
+			if (occurrence.getSuppressed() > 0) {
+				Logger.error("Error %s, %d similar errors suppressed since %s: %s", id, occurrence.getSuppressed(), format(occurrence.getLastReported()), stackTrace);
+			} else {
+				Logger.error("Error %s: %s", id, stackTrace);
 			}
-			exceptionOfInterest.printStackTrace(writer);
-			writer.flush();
-			resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, stringWriter.toString());
-			Logger.error(stringWriter.toString());
+		}
+		try {
+			resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, includeStackTrace ? stackTrace : "Internal server error " + id);
 		} catch (IOException e) {
 			Logger.error("Failed to render an exception view because '%s' - original exception: %s", e.getMessage(), viewResult.getMessage());
-			viewResult.printStackTrace();
 		}
 	}
+
+	public ErrorFingerprints getErrorFingerprints() {
+		return errorFingerprints;
+	}
+
+	public boolean isIncludeStackTrace() {
+		return includeStackTrace;
+	}
+
+	public void setIncludeStackTrace(boolean includeStackTrace) {
+		this.includeStackTrace = includeStackTrace;
+	}
+
+	private String printStackTrace(Throwable viewResult, Throwable exceptionOfInterest) {
+		StringWriter stringWriter = new StringWriter();
+		PrintWriter writer = new PrintWriter(stringWriter);
+		for (Throwable cause = viewResult; cause != null; cause = cause.getCause()) {
+			writer.println(cause.getMessage());
+		}
+		exceptionOfInterest.printStackTrace(writer);
+		writer.flush();
+		return stringWriter.toString();
+	}
+
+	private String format(long time) {
+		return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(time));
+	}
 }
@@ -22,7 +22,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.file.Path;
 
+import com.threewks.thundr.exception.BaseException;
 import com.threewks.thundr.view.BaseView;
 import com.threewks.thundr.view.View;
 
@@ -34,8 +36,11 @@ import com.threewks.thundr.view.View;
  */
 public class FileView extends BaseView<FileView> implements View {
 	private InputStream is;
+	private byte[] bytes;
+	private File file;
 	private String fileName;
 	private Disposition disposition = Disposition.Attachment;
+	private long contentLength = -1;
 
 	public FileView(String filename, InputStream stream, String contentType) {
 		this.fileName = filename;
@@ -45,10 +50,25 @@ public class FileView extends BaseView<FileView> implements View {
 
 	public FileView(String filename, byte[] data, String contentType) {
 		this(filename, new ByteArrayInputStream(data), contentType);
+		this.bytes = data;
+		this.contentLength = data.length;
 	}
 
+	/**
+	 * The file is not opened until its data is read, and is then transferred directly to the response rather than streamed.
+	 * When only part of the file is requested only that part is read.
+	 */
 	public FileView(String filename, File file, String contentType) throws FileNotFoundException {
-		this(filename, new FileInputStream(file), contentType);
+		this(filename, (InputStream) null, contentType);
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+		this.file = file;
+		this.contentLength = file.length();
+	}
+
+	public FileView(String filename, Path path, String contentType) throws FileNotFoundException {
+		this(filename, path.toFile(), contentType);
 	}
 
 	public String getFileName() {
@@ -56,9 +76,30 @@ public class FileView extends BaseView<FileView> implements View {
 	}
 
 	public InputStream getData() {
+		if (is == null && file != null) {
+			try {
+				is = new FileInputStream(file);
+			} catch (FileNotFoundException e) {
+				throw new BaseException(e, "Failed to read %s: %s", file, e.getMessage());
+			}
+		}
 		return is;
 	}
 
+	/**
+	 * @return the data of this view if it was created from a byte[], otherwise null
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the file this view was created from, otherwise null
+	 */
+	public File getFile() {
+		return file;
+	}
+
 	public Disposition getDisposition() {
 		return disposition;
 	}
@@ -68,6 +109,25 @@ public class FileView extends BaseView<FileView> implements View {
 		return this;
 	}
 
+	/**
+	 * @return the length of the data in bytes, or -1 if it is not known
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * Specifies the length of the data, allowing the Content-Length to be sent and HEAD requests to be answered without reading the data.
+	 * This is known automatically when the view is created from a byte[] or File.
+	 * 
+	 * @param contentLength the length in bytes, or -1 if it is not known
+	 * @return
+	 */
+	public FileView withContentLength(long contentLength) {
+		this.contentLength = contentLength;
+		return this;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("%s (%s)", fileName, getContentType());
@@ -23,7 +23,10 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.threewks.thundr.http.ByteRange;
 import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.HttpSupport;
+import com.threewks.thundr.http.PartialContent;
 import com.threewks.thundr.logger.Logger;
 import com.threewks.thundr.util.Streams;
 import com.threewks.thundr.view.BaseView;
@@ -33,18 +36,54 @@ import com.threewks.thundr.view.ViewResolver;
 public class FileViewResolver implements ViewResolver<FileView> {
 	@Override
 	public void resolve(HttpServletRequest req, HttpServletResponse resp, FileView viewResult) {
-		InputStream inputStream = viewResult.getData();
+		// file views only open the file when it is read
+		InputStream inputStream = viewResult.getFile() == null ? viewResult.getData() : null;
 		try {
-			ServletOutputStream outputStream = resp.getOutputStream();
 			resp.addHeader(Header.ContentDisposition, String.format("%s; filename=%s", viewResult.getDisposition().value(), viewResult.getFileName()));
 			BaseView.applyToResponse(viewResult, resp);
-			Streams.copy(inputStream, outputStream);
+			long contentLength = viewResult.getContentLength();
+			PartialContent.Source source = source(viewResult, inputStream);
+			if (source != null) {
+				resp.setHeader(Header.AcceptRanges, ByteRange.Unit);
+				long lastModified = viewResult.getFile() == null ? -1 : viewResult.getFile().lastModified();
+				if (PartialContent.serve(req, resp, contentLength, viewResult.getContentType(), viewResult.getHeader(Header.ETag), lastModified, source)) {
+					return;
+				}
+			}
+			ServletOutputStream outputStream = resp.getOutputStream();
+			if (contentLength >= 0) {
+				resp.setHeader(Header.ContentLength, Long.toString(contentLength));
+			}
+			// the body of a HEAD request is discarded, so there is no need to read the data if we already know its length
+			if (contentLength < 0 || !HttpSupport.Methods.isHead(req.getMethod())) {
+				if (viewResult.getFile() != null) {
+					Streams.copy(viewResult.getFile(), 0, contentLength, outputStream);
+				} else {
+					Streams.copy(inputStream, outputStream);
+				}
+			}
 			outputStream.flush();
 		} catch (Exception e) {
 			throw new ViewResolutionException(e, "Failed to write FileView result: %s", e.getMessage());
 		} finally {
-			closeInputStream(inputStream);
+			if (inputStream != null) {
+				closeInputStream(inputStream);
+			}
+		}
+	}
+
+	/**
+	 * Ranges can be served from any view of known length. Only views created from a File or byte[] can serve multiple ranges,
+	 * other views skip to a single requested range.
+	 */
+	protected PartialContent.Source source(FileView viewResult, InputStream inputStream) {
+		if (viewResult.getFile() != null) {
+			return PartialContent.source(viewResult.getFile());
+		}
+		if (viewResult.getBytes() != null) {
+			return PartialContent.source(viewResult.getBytes());
 		}
+		return viewResult.getContentLength() >= 0 ? PartialContent.source(inputStream) : null;
 	}
 
 	@Override
@@ -0,0 +1,157 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view.jsp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.threewks.thundr.cache.Cache;
+import com.threewks.thundr.cache.CacheLoader;
+import com.threewks.thundr.cache.CacheSettings;
+import com.threewks.thundr.cache.Weigher;
+
+/**
+ * Holds rendered fragments of JSP pages, used by the <code>t:cache</code> tag to replay the output of its body rather than render it
+ * on every request. Fragments are keyed explicitly, so keys must include anything the fragment varies by, and fragments containing
+ * content for a particular user should not be cached unless the key identifies that user.
+ * 
+ * The cache is bounded by the approximate number of bytes held, and concurrent requests for a fragment which is not cached wait for a
+ * single render.
+ */
+public class FragmentCache {
+	public static final String ModelAttribute = "fragmentCache";
+	public static final long DefaultMaxBytes = 4 * 1024 * 1024;
+
+	private final Cache<String, Fragment> cache;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong renders = new AtomicLong();
+
+	public FragmentCache() {
+		this(DefaultMaxBytes);
+	}
+
+	public FragmentCache(long maxBytes) {
+		CacheSettings settings = new CacheSettings().maximumWeight(maxBytes, new Weigher<String, Fragment>() {
+			@Override
+			public int weigh(String key, Fragment fragment) {
+				return 2 * (key.length() + fragment.content.length());
+			}
+		});
+		this.cache = new Cache<String, Fragment>("fragments", settings, null);
+	}
+
+	/**
+	 * Returns the cached fragment for the given key, rendering it with the given renderer if it is not cached or has expired.
+	 * 
+	 * @param key
+	 * @param ttl the number of seconds a rendered fragment is reused for
+	 * @param renderer
+	 * @return the rendered fragment
+	 */
+	public String get(String key, final int ttl, final Renderer renderer) {
+		requests.incrementAndGet();
+		CacheLoader<String, Fragment> loader = new CacheLoader<String, Fragment>() {
+			@Override
+			public Fragment load(String key) throws Exception {
+				renders.incrementAndGet();
+				String content = renderer.render();
+				return new Fragment(content, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl));
+			}
+		};
+		Fragment fragment = cache.getIfPresent(key);
+		if (fragment != null) {
+			if (!fragment.isExpired(System.currentTimeMillis())) {
+				return fragment.content;
+			}
+			cache.invalidate(key, fragment);
+		}
+		return cache.get(key, loader).content;
+	}
+
+	public void invalidate(String key) {
+		cache.invalidate(key);
+	}
+
+	/**
+	 * Invalidates all fragments whose keys start with the given prefix.
+	 * 
+	 * @return the number of fragments invalidated
+	 */
+	public int invalidatePrefix(String prefix) {
+		int invalidated = 0;
+		for (String key : cache.keySet()) {
+			if (key.startsWith(prefix)) {
+				cache.invalidate(key);
+				invalidated++;
+			}
+		}
+		return invalidated;
+	}
+
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * @return the approximate number of bytes held
+	 */
+	public long weight() {
+		return cache.weight();
+	}
+
+	public long hits() {
+		return requests.get() - renders.get();
+	}
+
+	/**
+	 * @return the number of times a fragment was rendered, because it was not cached or had expired
+	 */
+	public long misses() {
+		return renders.get();
+	}
+
+	/**
+	 * @return the ratio of requests served without rendering, or 1 if there have been no requests
+	 */
+	public double hitRate() {
+		long requests = this.requests.get();
+		return requests == 0 ? 1.0 : (double) hits() / requests;
+	}
+
+	public static interface Renderer {
+		public String render() throws Exception;
+	}
+
+	private static class Fragment {
+		private final String content;
+		private final long expires;
+
+		private Fragment(String content, long expires) {
+			this.content = content;
+			this.expires = expires;
+		}
+
+		private boolean isExpired(long now) {
+			return now >= expires;
+		}
+	}
+}
@@ -17,13 +17,20 @@
  */
 package com.threewks.thundr.view.jsp;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
 import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.http.RequestThreadLocal;
 import com.threewks.thundr.view.BaseView;
 import com.threewks.thundr.view.GlobalModel;
+import com.threewks.thundr.view.ModelHttpServletRequest;
 import com.threewks.thundr.view.ViewResolutionException;
 import com.threewks.thundr.view.ViewResolver;
 
@@ -36,11 +43,27 @@ public class JspViewResolver implements ViewResolver<JspView> {
 	 * application environment, domain or version number.
 	 */
 	private GlobalModel globalModel;
+	private boolean overlayModel = false;
 
 	public JspViewResolver(GlobalModel globalModel) {
 		this.globalModel = globalModel;
 	}
 
+	/**
+	 * When enabled, the models are overlaid on the request attributes by passing a {@link ModelHttpServletRequest} to the include,
+	 * rather than being copied into the request attributes. Model values are then not left in the request attributes after rendering.
+	 * 
+	 * Passing a wrapped request to an include is sensitive to the container implementation, so this is disabled by default and
+	 * should only be enabled on containers known to honour request wrappers.
+	 */
+	public void setOverlayModel(boolean overlayModel) {
+		this.overlayModel = overlayModel;
+	}
+
+	public boolean isOverlayModel() {
+		return overlayModel;
+	}
+
 	@Override
 	public void resolve(HttpServletRequest req, HttpServletResponse resp, JspView viewResult) {
 		try {
@@ -50,16 +73,31 @@ public class JspViewResolver implements ViewResolver<JspView> {
 				throw new BaseException("resource %s does not exist", viewResult.getView());
 			}
 			String url = resp.encodeRedirectURL(viewResult.getView());
-			BaseView.includeModelInRequest(req, globalModel);
-			BaseView.includeModelInRequest(req, viewResult.getModel());
 			BaseView.applyToResponse(viewResult, resp);
 			RequestDispatcher requestDispatcher = req.getRequestDispatcher(url);
-			requestDispatcher.include(req, resp);
+			if (overlayModel) {
+				include(requestDispatcher, new ModelHttpServletRequest(req, Arrays.<Map<String, ?>> asList(viewResult.getModel(), globalModel.snapshot())), resp);
+			} else {
+				BaseView.includeModelInRequest(req, globalModel);
+				BaseView.includeModelInRequest(req, viewResult.getModel());
+				requestDispatcher.include(req, resp);
+			}
 		} catch (Exception e) {
 			throw new ViewResolutionException(e, "Failed to resolve JSP view %s - %s", viewResult, e.getMessage());
 		}
 	}
 
+	private void include(RequestDispatcher requestDispatcher, HttpServletRequest modelReq, HttpServletResponse resp) throws ServletException, IOException {
+		HttpServletRequest previousReq = RequestThreadLocal.getRequest();
+		HttpServletResponse previousResp = RequestThreadLocal.getResponse();
+		RequestThreadLocal.set(modelReq, previousResp);
+		try {
+			requestDispatcher.include(modelReq, resp);
+		} finally {
+			RequestThreadLocal.set(previousReq, previousResp);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return this.getClass().getSimpleName();
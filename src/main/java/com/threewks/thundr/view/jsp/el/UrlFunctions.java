@@ -17,7 +17,16 @@
  */
 package com.threewks.thundr.view.jsp.el;
 
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.atomicleopard.expressive.Cast;
+import com.threewks.thundr.http.RequestThreadLocal;
 import com.threewks.thundr.http.URLEncoder;
+import com.threewks.thundr.route.staticResource.AssetBundles;
+import com.threewks.thundr.route.staticResource.ResourceFingerprints;
 
 public class UrlFunctions {
 	/**
@@ -60,4 +69,36 @@ public class UrlFunctions {
 	public static String param(String param) {
 		return URLEncoder.encodeQueryComponent(param);
 	}
+
+	/**
+	 * Converts the path of a static resource to its fingerprinted url, i.e. <code>/js/app.js</code> to <code>/js/app.3f9a2c81d0.js</code>.
+	 * Fingerprinted urls change whenever the content of the resource does, so they are served with headers allowing them to be cached indefinitely.
+	 * 
+	 * If fingerprinting is disabled or the resource does not exist, the path is returned unchanged.
+	 * 
+	 * @param path
+	 * @return
+	 * @see ResourceFingerprints
+	 */
+	public static String asset(String path) {
+		HttpServletRequest req = RequestThreadLocal.getRequest();
+		ResourceFingerprints fingerprints = req == null ? null : Cast.as(req.getAttribute(ResourceFingerprints.ModelAttribute), ResourceFingerprints.class);
+		return fingerprints == null ? path : fingerprints.url(path);
+	}
+
+	/**
+	 * Returns the urls to load the named asset bundle from, for example:
+	 * <code>&lt;c:forEach items="${t:bundle('app.js')}" var="src"&gt;&lt;script src="${src}"&gt;&lt;/script&gt;&lt;/c:forEach&gt;</code>
+	 * 
+	 * This is the fingerprinted url of the bundle, or the urls of each resource in the bundle in development.
+	 * 
+	 * @param name
+	 * @return
+	 * @see AssetBundles
+	 */
+	public static List<String> bundle(String name) {
+		HttpServletRequest req = RequestThreadLocal.getRequest();
+		AssetBundles bundles = req == null ? null : Cast.as(req.getAttribute(AssetBundles.ModelAttribute), AssetBundles.class);
+		return bundles == null ? Collections.<String> emptyList() : bundles.urls(name);
+	}
 }
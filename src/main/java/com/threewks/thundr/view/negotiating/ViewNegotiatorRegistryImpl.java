@@ -17,6 +17,7 @@
  */
 package com.threewks.thundr.view.negotiating;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,13 +26,21 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.atomicleopard.expressive.Expressive;
 
+/**
+ * Negotiators are held in an immutable map published through a volatile reference, so lookups never lock and
+ * adding or removing a negotiator publishes a new map and a new {@link #getVersion() version}.
+ */
 public class ViewNegotiatorRegistryImpl implements ViewNegotiatorRegistry {
-	private Map<String, Negotiator<?>> negotiatorsByContentType = new LinkedHashMap<String, Negotiator<?>>();
-	private Negotiator<?> defaultNegotiator = null;
+	private volatile Map<String, Negotiator<?>> negotiatorsByContentType = Collections.emptyMap();
+	private volatile Negotiator<?> defaultNegotiator = null;
+	private volatile int version = 0;
 
 	@Override
-	public void addNegotiator(String contentType, Negotiator<?> negotiator) {
-		this.negotiatorsByContentType.put(normaliseContentType(contentType), negotiator);
+	public synchronized void addNegotiator(String contentType, Negotiator<?> negotiator) {
+		Map<String, Negotiator<?>> negotiatorsByContentType = new LinkedHashMap<String, Negotiator<?>>(this.negotiatorsByContentType);
+		negotiatorsByContentType.put(normaliseContentType(contentType), negotiator);
+		this.negotiatorsByContentType = Collections.unmodifiableMap(negotiatorsByContentType);
+		this.version++;
 	}
 
 	@Override
@@ -41,8 +50,11 @@ public class ViewNegotiatorRegistryImpl implements ViewNegotiatorRegistry {
 	}
 
 	@Override
-	public void removeNegotiator(String contentType) {
-		this.negotiatorsByContentType.remove(normaliseContentType(contentType));
+	public synchronized void removeNegotiator(String contentType) {
+		Map<String, Negotiator<?>> negotiatorsByContentType = new LinkedHashMap<String, Negotiator<?>>(this.negotiatorsByContentType);
+		negotiatorsByContentType.remove(normaliseContentType(contentType));
+		this.negotiatorsByContentType = Collections.unmodifiableMap(negotiatorsByContentType);
+		this.version++;
 	}
 
 	@Override
@@ -50,6 +62,14 @@ public class ViewNegotiatorRegistryImpl implements ViewNegotiatorRegistry {
 		return Expressive.list(this.negotiatorsByContentType.keySet()).sort(Expressive.Comparators.caseInsensitive());
 	}
 
+	/**
+	 * @return a number which changes whenever a negotiator is added or removed, so callers can hold results derived from the
+	 *         registered negotiators until it changes
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	@Override
 	public Negotiator<?> getDefaultNegotiator() {
 		return defaultNegotiator;
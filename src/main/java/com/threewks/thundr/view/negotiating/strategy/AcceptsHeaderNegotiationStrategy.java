@@ -28,7 +28,8 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.atomicleopard.expressive.Expressive;
+import com.threewks.thundr.cache.Cache;
+import com.threewks.thundr.cache.CacheSettings;
 import com.threewks.thundr.http.Header;
 import com.threewks.thundr.view.negotiating.NegotiatingView;
 import com.threewks.thundr.view.negotiating.Negotiator;
@@ -39,23 +40,94 @@ import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistryImpl;
  * Finds a {@link Negotiator} by looking at the Accept header provided on the request.
  * 
  * RFC: <a href="http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html">http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html</a>
+ * 
+ * Clients send few distinct Accept headers, so the negotiator chosen for each header is held in a bounded cache. The cache is
+ * discarded whenever the negotiators registered in the {@link ViewNegotiatorRegistryImpl} change. Other {@link ViewNegotiatorRegistry}
+ * implementations give no way to tell when their negotiators change, so negotiation is not cached for them.
  */
 public class AcceptsHeaderNegotiationStrategy implements NegotiationStrategy {
+	public static final int DefaultMaxAcceptHeaders = 256;
+
+	private final int maxAcceptHeaders;
+	private volatile Decisions decisions;
+
+	public AcceptsHeaderNegotiationStrategy() {
+		this(DefaultMaxAcceptHeaders);
+	}
+
+	public AcceptsHeaderNegotiationStrategy(int maxAcceptHeaders) {
+		this.maxAcceptHeaders = maxAcceptHeaders;
+	}
 
 	@Override
 	public Negotiator<?> findNegotiator(HttpServletRequest req, NegotiatingView view, ViewNegotiatorRegistry viewNegotiatorRegistry) {
+		Decision decision = decide(req, viewNegotiatorRegistry);
+		return decision == null ? null : decision.negotiator;
+	}
+
+	/**
+	 * @return the content type from the request's Accept header which this strategy negotiates a {@link Negotiator} for, or null if
+	 *         there is none
+	 */
+	public String findContentType(HttpServletRequest req, ViewNegotiatorRegistry viewNegotiatorRegistry) {
+		Decision decision = decide(req, viewNegotiatorRegistry);
+		return decision == null ? null : decision.contentType;
+	}
+
+	private Decision decide(HttpServletRequest req, ViewNegotiatorRegistry viewNegotiatorRegistry) {
 		String acceptsHeader = Header.getHeader(Header.Accept, req);
-		if (StringUtils.isNotBlank(acceptsHeader)) {
-			List<AcceptsComponent> orderedAcceptsHeader = cleanAndOrderAcceptHeader(acceptsHeader);
-			for (AcceptsComponent acceptsComponent : orderedAcceptsHeader) {
-				String accept = acceptsComponent.getAccept();
-				Negotiator<?> negotiator = viewNegotiatorRegistry.getNegotiator(accept);
-				if (negotiator != null) {
-					return negotiator;
-				}
+		if (StringUtils.isBlank(acceptsHeader)) {
+			return null;
+		}
+		Cache<String, Decision> cache = decisionsFor(viewNegotiatorRegistry);
+		if (cache == null) {
+			return negotiate(acceptsHeader, viewNegotiatorRegistry);
+		}
+		Decision decision = cache.getIfPresent(acceptsHeader);
+		if (decision == null) {
+			decision = negotiate(acceptsHeader, viewNegotiatorRegistry);
+			cache.put(acceptsHeader, decision);
+		}
+		return decision;
+	}
+
+	/**
+	 * @return the number of Accept headers for which a negotiator is currently cached
+	 */
+	public int cachedAcceptHeaders() {
+		Decisions decisions = this.decisions;
+		return decisions == null ? 0 : decisions.cache.size();
+	}
+
+	/**
+	 * Decisions can only be held for a {@link ViewNegotiatorRegistryImpl}, whose version shows when its negotiators change. The
+	 * version is read before negotiating, so a decision made while negotiators change is discarded with the old version.
+	 * 
+	 * @return the cache of decisions for the given registry, or null if decisions cannot be cached for it
+	 */
+	private Cache<String, Decision> decisionsFor(ViewNegotiatorRegistry viewNegotiatorRegistry) {
+		if (!(viewNegotiatorRegistry instanceof ViewNegotiatorRegistryImpl)) {
+			return null;
+		}
+		int version = ((ViewNegotiatorRegistryImpl) viewNegotiatorRegistry).getVersion();
+		Decisions decisions = this.decisions;
+		if (decisions == null || decisions.registry != viewNegotiatorRegistry || decisions.version != version) {
+			decisions = new Decisions(viewNegotiatorRegistry, version, new Cache<String, Decision>("acceptHeaders", new CacheSettings().maximumSize(maxAcceptHeaders), null));
+			this.decisions = decisions;
+		}
+		return decisions.cache;
+	}
+
+	private Decision negotiate(String acceptsHeader, ViewNegotiatorRegistry viewNegotiatorRegistry) {
+		List<AcceptsComponent> orderedAcceptsHeader = cleanAndOrderAcceptHeader(acceptsHeader);
+		for (AcceptsComponent acceptsComponent : orderedAcceptsHeader) {
+			String accept = acceptsComponent.getAccept();
+			Negotiator<?> negotiator = viewNegotiatorRegistry.getNegotiator(accept);
+			if (negotiator != null) {
+				return new Decision(accept, negotiator);
 			}
 		}
-		return null;
+		return new Decision(null, null);
 	}
 
 	private List<AcceptsComponent> cleanAndOrderAcceptHeader(String acceptsHeader) {
@@ -105,7 +177,37 @@ public class AcceptsHeaderNegotiationStrategy implements NegotiationStrategy {
 			return accept;
 		}
 
-		public static final Comparator<AcceptsComponent> Comparator = Expressive.Comparators.compare(AcceptsComponent.class).on("quality").using(Collections.reverseOrder()).on("components")
-				.using(Collections.reverseOrder());
+		public static final Comparator<AcceptsComponent> Comparator = new Comparator<AcceptsComponent>() {
+			@Override
+			public int compare(AcceptsComponent o1, AcceptsComponent o2) {
+				int compare = Float.compare(o2.quality, o1.quality);
+				return compare == 0 ? o2.components - o1.components : compare;
+			}
+		};
+	}
+
+	/**
+	 * The content type and negotiator chosen for an Accept header, which are null if none of the accepted types could be negotiated.
+	 */
+	private static class Decision {
+		private final String contentType;
+		private final Negotiator<?> negotiator;
+
+		Decision(String contentType, Negotiator<?> negotiator) {
+			this.contentType = contentType;
+			this.negotiator = negotiator;
+		}
+	}
+
+	private static class Decisions {
+		private final ViewNegotiatorRegistry registry;
+		private final int version;
+		private final Cache<String, Decision> cache;
+
+		Decisions(ViewNegotiatorRegistry registry, int version, Cache<String, Decision> cache) {
+			this.registry = registry;
+			this.version = version;
+			this.cache = cache;
+		}
 	}
 }
@@ -41,6 +41,8 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import com.threewks.thundr.configuration.ConfigurationModule;
+import com.threewks.thundr.http.ContentType;
+import com.threewks.thundr.http.HeadHttpServletResponse;
 import com.threewks.thundr.http.RequestThreadLocal;
 import com.threewks.thundr.injection.InjectionContextImpl;
 import com.threewks.thundr.injection.Module;
@@ -48,6 +50,8 @@ import com.threewks.thundr.injection.UpdatableInjectionContext;
 import com.threewks.thundr.module.Modules;
 import com.threewks.thundr.module.ModulesModule;
 import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.route.MethodOverrideStrategy;
+import com.threewks.thundr.route.MethodOverrideStrategy.Source;
 import com.threewks.thundr.route.RouteResolverException;
 import com.threewks.thundr.route.Router;
 import com.threewks.thundr.route.RouterModule;
@@ -169,6 +173,7 @@ public class ThundrServletTest {
 	public void shouldApplyPutRouteWhenDoPostWithPutMethodParameter() throws ServletException, IOException {
 		MockHttpServletRequest req = new MockHttpServletRequest();
 		req.method("POST");
+		req.contentType(ContentType.ApplicationFormUrlEncoded);
 		req.parameter("_method", "pUT");
 		servlet = spy(servlet);
 		servlet.service(req, resp);
@@ -179,6 +184,7 @@ public class ThundrServletTest {
 	public void shouldApplyDeleteRouteWhenDoPostWithDeleteMethodParameterIgnoringCase() throws ServletException, IOException {
 		MockHttpServletRequest req = new MockHttpServletRequest();
 		req.method("POST");
+		req.contentType(ContentType.ApplicationFormUrlEncoded);
 		req.parameter("_MEthOD", "deleTE");
 		servlet = spy(servlet);
 		servlet.service(req, resp);
@@ -209,6 +215,7 @@ public class ThundrServletTest {
 	public void shouldApplyDeleteRouteWhenDoPostWithDeleteMethodParameter() throws ServletException, IOException {
 		MockHttpServletRequest req = new MockHttpServletRequest();
 		req.method("POST");
+		req.contentType(ContentType.ApplicationFormUrlEncoded);
 		req.parameter("_method", "dEleTE");
 		servlet = spy(servlet);
 		servlet.service(req, resp);
@@ -219,12 +226,48 @@ public class ThundrServletTest {
 	public void shouldApplyPatchRouteWhenDoPostWithPatchMethodParameter() throws ServletException, IOException {
 		MockHttpServletRequest req = new MockHttpServletRequest();
 		req.method("POST");
+		req.contentType(ContentType.ApplicationFormUrlEncoded);
 		req.parameter("_method", "pATCh");
 		servlet = spy(servlet);
 		servlet.service(req, resp);
 		verify(servlet).applyRoute(HttpMethod.PATCH, req, resp);
 	}
 
+	@Test
+	public void shouldApplyPutRouteWhenDoPostWithPutMethodInQueryString() throws ServletException, IOException {
+		MockHttpServletRequest req = new MockHttpServletRequest("/path?_method=PUT");
+		req.method("POST");
+		servlet = spy(servlet);
+		servlet.service(req, resp);
+		verify(servlet).applyRoute(HttpMethod.PUT, req, resp);
+	}
+
+	@Test
+	public void shouldNotParseJsonBodyWhenDeterminingMethod() throws ServletException, IOException {
+		HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getMethod()).thenReturn("POST");
+		when(req.getRequestURI()).thenReturn("/path");
+		when(req.getContentType()).thenReturn("application/json");
+		servlet = spy(servlet);
+		servlet.service(req, resp);
+		verify(servlet).applyRoute(HttpMethod.POST, req, resp);
+		verify(req, never()).getParameter(anyString());
+		verify(req, never()).getParameterNames();
+		verify(req, never()).getParameterMap();
+		verify(req, never()).getInputStream();
+		verify(req, never()).getReader();
+	}
+
+	@Test
+	public void shouldUseMethodOverrideStrategyFromInjectionContext() throws ServletException, IOException {
+		injectionContext.inject(new MethodOverrideStrategy(Source.Header)).as(MethodOverrideStrategy.class);
+		MockHttpServletRequest req = new MockHttpServletRequest("/path?_method=PUT");
+		req.method("POST");
+		servlet = spy(servlet);
+		servlet.service(req, resp);
+		verify(servlet).applyRoute(HttpMethod.POST, req, resp);
+	}
+
 	@Test
 	public void shouldApplyPutRouteWhenDoPut() throws ServletException, IOException {
 		MockHttpServletRequest req = new MockHttpServletRequest();
@@ -258,9 +301,30 @@ public class ThundrServletTest {
 		req.method("HEAD");
 		servlet = spy(servlet);
 		servlet.service(req, resp);
-		// we expect the response to be wrapped in the NoBodyResponse in the base HttpServlet class
-		verify(servlet).applyRoute(Mockito.eq(HttpMethod.GET), Mockito.eq(req), Mockito.any(HttpServletResponse.class));
-		verify(servlet).doGet(Mockito.eq(req), Mockito.any(HttpServletResponse.class));
+		// we expect the response to be wrapped so that the body is discarded
+		verify(servlet).applyRoute(Mockito.eq(HttpMethod.GET), Mockito.eq(req), Mockito.any(HeadHttpServletResponse.class));
+	}
+
+	@Test
+	public void shouldSetContentLengthAndDiscardBodyWhenHeadRequestMade() throws ServletException, IOException {
+		viewResolverRegistry.addResolver(String.class, new ViewResolver<String>() {
+			@Override
+			public void resolve(HttpServletRequest req, HttpServletResponse resp, String viewResult) {
+				try {
+					resp.setHeader("X-Custom", "value");
+					resp.getWriter().write("Some content");
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		MockHttpServletRequest req = new MockHttpServletRequest();
+		req.method("HEAD");
+		servlet.service(req, resp);
+
+		assertThat(resp.<String> header("X-Custom"), is("value"));
+		assertThat(resp.<String> header("Content-Length"), is("12"));
+		assertThat(resp.isCommitted(), is(false));
 	}
 
 	@Test
@@ -410,6 +474,18 @@ public class ThundrServletTest {
 		assertThat(RequestThreadLocal.getResponse(), is(nullValue()));
 	}
 
+	@Test
+	public void shouldActivateLazyModulesBeforeInvokingRoute() throws ServletException, IOException {
+		Modules modules = mock(Modules.class);
+		TestSupport.setField(servlet, "modules", modules);
+		MockHttpServletRequest req = new MockHttpServletRequest("/admin/reports");
+		req.method("GET");
+		servlet.service(req, resp);
+
+		verify(modules).activate("/admin/reports", injectionContext);
+		verify(router).invoke("/admin/reports", HttpMethod.GET, req, resp);
+	}
+
 	@Test
 	public void shouldStopModulesOnDestroy() {
 		Modules modules = mock(Modules.class);
@@ -38,4 +38,10 @@ public class BindExceptionTest {
 		assertThat(e.getCause(), is((Throwable) cause));
 		assertThat(e.getMessage(), is("Message: expected"));
 	}
+
+	@Test
+	public void shouldCaptureStackTraceOnlyWhenNoCauseIsWrapped() {
+		assertThat(new BindException("Message").getStackTrace().length, is(greaterThan(0)));
+		assertThat(new BindException(new RuntimeException(), "Message").getStackTrace().length, is(0));
+	}
 }
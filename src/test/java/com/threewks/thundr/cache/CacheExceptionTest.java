@@ -0,0 +1,41 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class CacheExceptionTest {
+	private Throwable cause = new RuntimeException("cause");
+
+	@Test
+	public void shouldRetainCauseAndFormattedMessage() {
+		CacheException e = new CacheException(cause, "Message: %s", "expected");
+		assertThat(e.getCause(), is(cause));
+		assertThat(e.getMessage(), is("Message: expected"));
+	}
+
+	@Test
+	public void shouldRetainFormattedMessage() {
+		CacheException e = new CacheException("Message: %s", "expected");
+		assertThat(e.getMessage(), is("Message: expected"));
+		assertThat(e.getCause(), is(nullValue()));
+	}
+}
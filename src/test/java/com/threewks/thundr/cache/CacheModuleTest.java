@@ -0,0 +1,99 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.threewks.thundr.injection.InjectionContextImpl;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+
+public class CacheModuleTest {
+	private UpdatableInjectionContext injectionContext = new InjectionContextImpl();
+	private CacheModule module = new CacheModule();
+
+	@Before
+	public void before() {
+		injectionContext.inject("users, templates").named(CacheModule.CachesProperty).as(String.class);
+		injectionContext.inject("100").named("cache.users.maximumSize").as(String.class);
+		injectionContext.inject("600").named("cache.users.expireAfterWrite").as(String.class);
+		injectionContext.inject("60").named("cache.users.refreshAfterWrite").as(String.class);
+	}
+
+	@Test
+	public void shouldProvideNamedCachesFromProperties() {
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+
+		Caches caches = injectionContext.get(Caches.class);
+		Cache<?, ?> users = injectionContext.get(Cache.class, "users");
+		Cache<?, ?> templates = injectionContext.get(Cache.class, "templates");
+		assertThat(users, is(sameInstance((Object) caches.get("users"))));
+		assertThat(templates, is(sameInstance((Object) caches.get("templates"))));
+		assertThat(users.isBounded(), is(true));
+		assertThat(templates.isBounded(), is(false));
+	}
+
+	@Test
+	public void shouldCreateSettingsFromProperties() {
+		CacheSettings settings = module.createSettings(injectionContext, "users");
+
+		assertThat(settings.getMaximum(), is(100L));
+		assertThat(settings.isWeighed(), is(false));
+		assertThat(settings.getExpireAfterWrite(), is(TimeUnit.SECONDS.toNanos(600)));
+		assertThat(settings.getRefreshAfterWrite(), is(TimeUnit.SECONDS.toNanos(60)));
+
+		CacheSettings defaults = module.createSettings(injectionContext, "templates");
+		assertThat(defaults.isBounded(), is(false));
+		assertThat(defaults.getExpireAfterWrite(), is(0L));
+		assertThat(defaults.getRefreshAfterWrite(), is(0L));
+	}
+
+	@Test
+	public void shouldCreateNoCachesWhenNoneAreConfigured() {
+		UpdatableInjectionContext injectionContext = new InjectionContextImpl();
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+
+		assertThat(injectionContext.get(Caches.class).getStats().isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldStartMaintenanceAndStopThreadsWithModule() {
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+		module.start(injectionContext);
+
+		Caches caches = injectionContext.get(Caches.class);
+		assertThat(caches.isMaintaining(), is(true));
+
+		module.stop(injectionContext);
+		assertThat(caches.isMaintaining(), is(false));
+		assertThat(caches.isStopped(), is(true));
+	}
+
+	@Test
+	public void shouldStopWhenNotInitialised() {
+		module.stop(new InjectionContextImpl());
+	}
+}
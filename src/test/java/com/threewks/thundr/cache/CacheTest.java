@@ -0,0 +1,441 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class CacheTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private long time = 1000;
+	private List<Runnable> refreshes = new ArrayList<Runnable>();
+	private Executor executor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			refreshes.add(command);
+		}
+	};
+	private AtomicInteger loads = new AtomicInteger();
+	private CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+		@Override
+		public String load(String key) throws Exception {
+			return key + "-" + loads.incrementAndGet();
+		}
+	};
+
+	@Test
+	public void shouldPutAndGetValues() {
+		Cache<String, String> cache = cache(new CacheSettings());
+		cache.put("key", "value");
+
+		assertThat(cache.getIfPresent("key"), is("value"));
+		assertThat(cache.getIfPresent("other"), is(nullValue()));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.weight(), is(1L));
+		assertThat(cache.getStats().getHitCount(), is(1L));
+		assertThat(cache.getStats().getMissCount(), is(1L));
+	}
+
+	@Test
+	public void shouldReplaceValues() {
+		Cache<String, String> cache = cache(new CacheSettings().maximumSize(10));
+		cache.put("key", "value");
+		cache.put("key", "replaced");
+
+		assertThat(cache.getIfPresent("key"), is("replaced"));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.weight(), is(1L));
+	}
+
+	@Test
+	public void shouldInvalidateValues() {
+		Cache<String, String> cache = cache(new CacheSettings().maximumSize(10));
+		cache.put("key", "value");
+		cache.put("other", "value");
+
+		cache.invalidate("key");
+		assertThat(cache.getIfPresent("key"), is(nullValue()));
+		assertThat(cache.getIfPresent("other"), is("value"));
+		assertThat(cache.weight(), is(1L));
+
+		cache.invalidateAll();
+		assertThat(cache.size(), is(0));
+		assertThat(cache.weight(), is(0L));
+	}
+
+	@Test
+	public void shouldInvalidateOnlyWhenValueIsCurrent() {
+		Cache<String, String> cache = cache(new CacheSettings().maximumSize(10));
+		cache.put("key", "value");
+
+		assertThat(cache.invalidate("key", "other"), is(false));
+		assertThat(cache.getIfPresent("key"), is("value"));
+		assertThat(cache.invalidate("key", "value"), is(true));
+		assertThat(cache.getIfPresent("key"), is(nullValue()));
+		assertThat(cache.weight(), is(0L));
+		assertThat(cache.invalidate("key", "value"), is(false));
+	}
+
+	@Test
+	public void shouldReturnKeys() {
+		Cache<String, String> cache = cache(new CacheSettings());
+		cache.put("key", "value");
+		cache.put("other", "value");
+
+		assertThat(cache.keySet(), hasItems("key", "other"));
+		assertThat(cache.keySet().size(), is(2));
+	}
+
+	@Test
+	public void shouldLoadMissingValuesOnce() {
+		Cache<String, String> cache = cache(new CacheSettings());
+
+		assertThat(cache.get("key", loader), is("key-1"));
+		assertThat(cache.get("key", loader), is("key-1"));
+		assertThat(loads.get(), is(1));
+
+		CacheStats stats = cache.getStats();
+		assertThat(stats.getHitCount(), is(1L));
+		assertThat(stats.getMissCount(), is(1L));
+		assertThat(stats.getLoadSuccessCount(), is(1L));
+		assertThat(stats.getHitRate(), is(0.5));
+	}
+
+	@Test
+	public void shouldNotCacheNullValuesFromLoader() {
+		Cache<String, String> cache = cache(new CacheSettings());
+		CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+			@Override
+			public String load(String key) throws Exception {
+				loads.incrementAndGet();
+				return null;
+			}
+		};
+
+		assertThat(cache.get("key", loader), is(nullValue()));
+		assertThat(cache.get("key", loader), is(nullValue()));
+		assertThat(loads.get(), is(2));
+		assertThat(cache.size(), is(0));
+		assertThat(cache.getStats().getLoadFailureCount(), is(2L));
+	}
+
+	@Test
+	public void shouldThrowCacheExceptionWhenLoaderFails() {
+		Cache<String, String> cache = cache(new CacheSettings());
+		final IllegalStateException cause = new IllegalStateException("unavailable");
+		try {
+			cache.get("key", new CacheLoader<String, String>() {
+				@Override
+				public String load(String key) throws Exception {
+					throw cause;
+				}
+			});
+			throw new AssertionError("Expected a CacheException");
+		} catch (CacheException e) {
+			assertThat(e.getMessage(), is("Failed to load 'key' into the cache test: unavailable"));
+			assertThat(e.getCause(), is(sameInstance((Throwable) cause)));
+		}
+		assertThat(cache.getStats().getLoadFailureCount(), is(1L));
+	}
+
+	@Test
+	public void shouldLoadOnceForConcurrentRequests() throws InterruptedException {
+		final Cache<String, String> cache = new Cache<String, String>("test", new CacheSettings(), executor);
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CacheLoader<String, String> slowLoader = new CacheLoader<String, String>() {
+			@Override
+			public String load(String key) throws Exception {
+				loads.incrementAndGet();
+				loading.countDown();
+				release.await();
+				return "value";
+			}
+		};
+		final List<String> results = new ArrayList<String>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					String value = cache.get("key", slowLoader);
+					synchronized (results) {
+						results.add(value);
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		loading.await(5, TimeUnit.SECONDS);
+		Thread.sleep(50);
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+
+		assertThat(loads.get(), is(1));
+		assertThat(results, contains("value", "value", "value", "value"));
+	}
+
+	@Test
+	public void shouldExpireValuesAfterWrite() {
+		Cache<String, String> cache = cache(new CacheSettings().maximumSize(10).expireAfterWrite(10, TimeUnit.NANOSECONDS));
+		cache.put("key", "value");
+		time += 5;
+		cache.put("other", "value");
+
+		time += 5;
+		assertThat(cache.getIfPresent("key"), is(nullValue()));
+		assertThat(cache.getIfPresent("other"), is("value"));
+
+		time += 5;
+		cache.cleanUp();
+		assertThat(cache.size(), is(0));
+		assertThat(cache.weight(), is(0L));
+		assertThat(cache.getStats().getEvictionCount(), is(2L));
+	}
+
+	@Test
+	public void shouldRestartExpiryWhenValuesAreReplaced() {
+		Cache<String, String> cache = cache(new CacheSettings().expireAfterWrite(10, TimeUnit.NANOSECONDS));
+		cache.put("key", "value");
+		time += 5;
+		cache.put("key", "replaced");
+		time += 5;
+
+		cache.cleanUp();
+		assertThat(cache.getIfPresent("key"), is("replaced"));
+	}
+
+	@Test
+	public void shouldRefreshLoadedValuesInTheBackgroundAfterWrite() throws Exception {
+		Cache<String, String> cache = cache(new CacheSettings().refreshAfterWrite(10, TimeUnit.NANOSECONDS));
+		assertThat(cache.get("key", loader), is("key-1"));
+
+		time += 10;
+		assertThat(cache.get("key", loader), is("key-1"));
+		assertThat(cache.get("key", loader), is("key-1"));
+		assertThat(refreshes.size(), is(1));
+
+		refreshes.get(0).run();
+		assertThat(cache.get("key", loader), is("key-2"));
+		assertThat(cache.getStats().getLoadSuccessCount(), is(2L));
+	}
+
+	@Test
+	public void shouldRetainValueWhenRefreshFails() {
+		Cache<String, String> cache = cache(new CacheSettings().refreshAfterWrite(10, TimeUnit.NANOSECONDS));
+		final AtomicInteger calls = new AtomicInteger();
+		CacheLoader<String, String> failingLoader = new CacheLoader<String, String>() {
+			@Override
+			public String load(String key) throws Exception {
+				if (calls.incrementAndGet() > 1) {
+					throw new IllegalStateException("unavailable");
+				}
+				return "value";
+			}
+		};
+		cache.get("key", failingLoader);
+
+		time += 10;
+		cache.get("key", failingLoader);
+		refreshes.get(0).run();
+		assertThat(cache.get("key", failingLoader), is("value"));
+		assertThat(cache.getStats().getLoadFailureCount(), is(1L));
+
+		// refreshes again on a later read
+		assertThat(refreshes.size(), is(2));
+	}
+
+	@Test
+	public void shouldNotRefreshValuesWhichWerePut() {
+		Cache<String, String> cache = cache(new CacheSettings().refreshAfterWrite(10, TimeUnit.NANOSECONDS));
+		cache.put("key", "value");
+
+		time += 10;
+		assertThat(cache.getIfPresent("key"), is("value"));
+		assertThat(refreshes.size(), is(0));
+	}
+
+	@Test
+	public void shouldNotOverwriteNewerValuesWithRefreshedValue() {
+		Cache<String, String> cache = cache(new CacheSettings().refreshAfterWrite(10, TimeUnit.NANOSECONDS));
+		cache.get("key", loader);
+		time += 10;
+		cache.get("key", loader);
+
+		cache.put("key", "newer");
+		refreshes.get(0).run();
+		assertThat(cache.getIfPresent("key"), is("newer"));
+	}
+
+	@Test
+	public void shouldBoundCacheBySize() {
+		Cache<Integer, String> cache = cache(new CacheSettings().maximumSize(100));
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, "value");
+		}
+		cache.cleanUp();
+
+		assertThat(cache.size(), is(100));
+		assertThat(cache.weight(), is(100L));
+		assertThat(cache.getStats().getEvictionCount(), is(900L));
+	}
+
+	@Test
+	public void shouldBoundCacheByWeight() {
+		Cache<Integer, String> cache = cache(new CacheSettings().maximumWeight(100, new Weigher<Integer, String>() {
+			@Override
+			public int weigh(Integer key, String value) {
+				return value.length();
+			}
+		}));
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "0123456789");
+		}
+		cache.cleanUp();
+
+		assertThat(cache.weight(), is(lessThanOrEqualTo(100L)));
+		assertThat(cache.size(), is(10));
+		assertThat(cache.getStats().getEvictionWeight(), is(900L));
+	}
+
+	@Test
+	public void shouldNotAdmitValuesHeavierThanTheCache() {
+		Cache<Integer, String> cache = cache(new CacheSettings().maximumWeight(100, new Weigher<Integer, String>() {
+			@Override
+			public int weigh(Integer key, String value) {
+				return value.length();
+			}
+		}));
+		cache.put(1, "small");
+		cache.put(2, new String(new char[101]));
+
+		assertThat(cache.getIfPresent(1), is("small"));
+		assertThat(cache.getIfPresent(2), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRejectNegativeWeights() {
+		Cache<Integer, String> cache = cache(new CacheSettings().maximumWeight(100, new Weigher<Integer, String>() {
+			@Override
+			public int weigh(Integer key, String value) {
+				return -1;
+			}
+		}));
+
+		thrown.expect(CacheException.class);
+		thrown.expectMessage("The weight of '1' in the cache test is negative: -1");
+
+		cache.put(1, "value");
+	}
+
+	@Test
+	public void shouldRetainFrequentlyReadValuesDuringScan() {
+		Cache<Integer, String> cache = cache(new CacheSettings().maximumSize(100));
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "hot");
+		}
+		for (int read = 0; read < 5; read++) {
+			for (int i = 0; i < 100; i++) {
+				cache.getIfPresent(i);
+			}
+		}
+		for (int i = 100; i < 10000; i++) {
+			cache.put(i, "cold");
+			cache.getIfPresent(i % 100);
+		}
+		cache.cleanUp();
+
+		int retained = 0;
+		for (int i = 0; i < 100; i++) {
+			retained += cache.getIfPresent(i) == null ? 0 : 1;
+		}
+		assertThat(retained, is(greaterThan(90)));
+		assertThat(cache.size(), is(100));
+	}
+
+	@Test
+	public void shouldRemainWithinBoundsUnderConcurrentAccess() throws InterruptedException {
+		final Cache<Integer, String> cache = new Cache<Integer, String>("test", new CacheSettings().maximumSize(50), executor);
+		final CacheLoader<Integer, String> loader = new CacheLoader<Integer, String>() {
+			@Override
+			public String load(Integer key) throws Exception {
+				return "value-" + key;
+			}
+		};
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			final Random random = new Random(t);
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 20000; i++) {
+						int key = random.nextInt(200);
+						switch (random.nextInt(4)) {
+						case 0:
+							cache.put(key, "value-" + key);
+							break;
+						case 1:
+							cache.invalidate(key);
+							break;
+						default:
+							String value = cache.get(key, loader);
+							if (!value.equals("value-" + key)) {
+								throw new IllegalStateException(value);
+							}
+						}
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join(30000);
+		}
+		cache.cleanUp();
+
+		assertThat(cache.size(), is(lessThanOrEqualTo(50)));
+		assertThat(cache.weight(), is((long) cache.size()));
+	}
+
+	private <K> Cache<K, String> cache(CacheSettings settings) {
+		return new Cache<K, String>("test", settings, executor) {
+			@Override
+			protected long now() {
+				return time;
+			}
+		};
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class CachesTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Caches caches = new Caches();
+
+	@After
+	public void after() {
+		caches.stop();
+	}
+
+	@Test
+	public void shouldCreateNamedCaches() {
+		Cache<String, String> users = caches.create("users", new CacheSettings().maximumSize(10));
+
+		assertThat(users.getName(), is("users"));
+		assertThat(caches.<String, String> get("users"), is(sameInstance(users)));
+		assertThat(caches.get("other"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldThrowWhenCacheAlreadyExists() {
+		caches.create("users", new CacheSettings());
+
+		thrown.expect(CacheException.class);
+		thrown.expectMessage("A cache named users already exists");
+
+		caches.create("users", new CacheSettings());
+	}
+
+	@Test
+	public void shouldReturnStatisticsByName() {
+		Cache<String, String> users = caches.create("users", new CacheSettings());
+		caches.create("accounts", new CacheSettings());
+		users.put("key", "value");
+		users.getIfPresent("key");
+
+		Map<String, CacheStats> stats = caches.getStats();
+		assertThat(stats.keySet(), contains("accounts", "users"));
+		assertThat(stats.get("users").getHitCount(), is(1L));
+		assertThat(stats.get("accounts").getRequestCount(), is(0L));
+	}
+
+	@Test
+	public void shouldRefreshValuesOnMaintenanceThreads() throws InterruptedException {
+		Cache<String, String> cache = caches.create("users", new CacheSettings().refreshAfterWrite(1, TimeUnit.MILLISECONDS));
+		CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+			@Override
+			public String load(String key) throws Exception {
+				return Thread.currentThread().getName();
+			}
+		};
+		cache.get("key", loader);
+		Thread.sleep(5);
+		cache.get("key", loader);
+
+		for (int i = 0; i < 100 && cache.getStats().getLoadSuccessCount() < 2; i++) {
+			Thread.sleep(10);
+		}
+		assertThat(cache.getIfPresent("key"), startsWith("cache-maintenance-"));
+	}
+
+	@Test
+	public void shouldStopMaintenanceAndRefresh() throws InterruptedException {
+		Cache<String, String> cache = caches.create("users", new CacheSettings().refreshAfterWrite(1, TimeUnit.MILLISECONDS));
+		caches.startMaintenance(10);
+		assertThat(caches.isMaintaining(), is(true));
+
+		caches.stop();
+		assertThat(caches.isMaintaining(), is(false));
+		assertThat(caches.isStopped(), is(true));
+
+		CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+			@Override
+			public String load(String key) throws Exception {
+				return "value";
+			}
+		};
+		cache.get("key", loader);
+		Thread.sleep(5);
+		assertThat(cache.get("key", loader), is("value"));
+		assertThat(cache.getStats().getLoadSuccessCount(), is(1L));
+
+		caches.startMaintenance(10);
+		assertThat(caches.isMaintaining(), is(false));
+	}
+
+	@Test
+	public void shouldCleanUpAllCaches() {
+		Cache<Integer, String> cache = caches.create("users", new CacheSettings().maximumSize(1));
+		cache.put(1, "value");
+		cache.put(2, "value");
+
+		caches.cleanUp();
+		assertThat(cache.size(), is(1));
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void shouldCountIncrements() {
+		FrequencySketch sketch = new FrequencySketch(1000);
+		for (int i = 0; i < 3; i++) {
+			sketch.increment("key");
+		}
+		sketch.increment("other");
+
+		assertThat(sketch.frequency("key"), is(3));
+		assertThat(sketch.frequency("other"), is(1));
+		assertThat(sketch.frequency("absent"), is(0));
+	}
+
+	@Test
+	public void shouldSaturateAtMaximumFrequency() {
+		FrequencySketch sketch = new FrequencySketch(1000);
+		for (int i = 0; i < 100; i++) {
+			sketch.increment("key");
+		}
+
+		assertThat(sketch.frequency("key"), is(FrequencySketch.MaximumFrequency));
+	}
+
+	@Test
+	public void shouldHalveFrequenciesOnceSampleSizeIsReached() {
+		FrequencySketch sketch = new FrequencySketch(256);
+		for (int i = 0; i < 8; i++) {
+			sketch.increment("key");
+		}
+		// frequencies only fall when counters are halved, which happens within ten increments per counter of capacity
+		int previous = sketch.frequency("key");
+		int i = 0;
+		while (sketch.frequency("key") >= previous && i < 2560) {
+			previous = sketch.frequency("key");
+			sketch.increment(i++);
+		}
+
+		assertThat(i, is(lessThan(2560)));
+		assertThat(sketch.frequency("key"), is(previous / 2));
+	}
+
+	@Test
+	public void shouldRoundCapacityUpToPowerOfTwo() {
+		assertThat(new FrequencySketch(0).capacity(), is(16));
+		assertThat(new FrequencySketch(100).capacity(), is(128));
+		assertThat(new FrequencySketch(128).capacity(), is(128));
+	}
+
+	@Test
+	public void shouldGrowButNotShrink() {
+		FrequencySketch sketch = new FrequencySketch(16);
+		sketch.ensureCapacity(1000);
+		assertThat(sketch.capacity(), is(1024));
+
+		sketch.increment("key");
+		sketch.ensureCapacity(16);
+		assertThat(sketch.capacity(), is(1024));
+		assertThat(sketch.frequency("key"), is(1));
+	}
+}
@@ -57,4 +57,58 @@ public class BaseExceptionTest {
 		Throwable cause = new Throwable();
 		assertThat(new BaseException(cause, "Message with % in it").getMessage(), is("Message with % in it"));
 	}
+
+	@Test
+	public void shouldCaptureStackTraceByDefault() {
+		assertThat(new BaseException("message").getStackTrace().length, is(greaterThan(0)));
+		assertThat(BaseException.isStackless(BaseException.class), is(false));
+	}
+
+	@Test
+	public void shouldNotCaptureStackTraceForStacklessTypes() {
+		assertThat(new StacklessException().getStackTrace().length, is(0));
+		assertThat(BaseException.isStackless(StacklessException.class), is(true));
+	}
+
+	@Test
+	public void shouldInheritStacklessFromSuperType() {
+		assertThat(new StacklessSubclassException().getStackTrace().length, is(0));
+		assertThat(BaseException.isStackless(StacklessSubclassException.class), is(true));
+	}
+
+	@Test
+	public void shouldAllowSubtypesToOptBackInToStackTraces() {
+		assertThat(new StackTraceSubclassException().getStackTrace().length, is(greaterThan(0)));
+		assertThat(BaseException.isStackless(StackTraceSubclassException.class), is(false));
+	}
+
+	@Test
+	public void shouldRetainStackTraceOfCauseForStacklessException() {
+		Throwable cause = new Throwable();
+		StacklessException exception = new StacklessException(cause);
+		assertThat(exception.getStackTrace().length, is(0));
+		assertThat(exception.getCause().getStackTrace().length, is(greaterThan(0)));
+	}
+
+	@Stackless
+	private static class StacklessException extends BaseException {
+		private static final long serialVersionUID = 1L;
+
+		public StacklessException() {
+			super("message");
+		}
+
+		public StacklessException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	private static class StacklessSubclassException extends StacklessException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	@Stackless(false)
+	private static class StackTraceSubclassException extends StacklessException {
+		private static final long serialVersionUID = 1L;
+	}
 }
@@ -0,0 +1,102 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+	@Test
+	public void shouldParseSingleRange() {
+		assertThat(ByteRange.parse("bytes=0-99", 1000), contains(new ByteRange(0, 99)));
+		assertThat(ByteRange.parse("bytes=500-", 1000), contains(new ByteRange(500, 999)));
+		assertThat(ByteRange.parse("bytes=-100", 1000), contains(new ByteRange(900, 999)));
+	}
+
+	@Test
+	public void shouldParseMultipleRanges() {
+		assertThat(ByteRange.parse("bytes=0-0, 10-19 ,-5", 100), contains(new ByteRange(0, 0), new ByteRange(10, 19), new ByteRange(95, 99)));
+	}
+
+	@Test
+	public void shouldLimitRangesToContentLength() {
+		assertThat(ByteRange.parse("bytes=990-2000", 1000), contains(new ByteRange(990, 999)));
+		assertThat(ByteRange.parse("bytes=-2000", 1000), contains(new ByteRange(0, 999)));
+		assertThat(ByteRange.parse("bytes=0-99999999999999999999999", 1000), contains(new ByteRange(0, 999)));
+	}
+
+	@Test
+	public void shouldReturnEmptyListWhenNoRangeIsSatisfiable() {
+		assertThat(ByteRange.parse("bytes=1000-", 1000).isEmpty(), is(true));
+		assertThat(ByteRange.parse("bytes=2000-3000,-0", 1000).isEmpty(), is(true));
+		assertThat(ByteRange.parse("bytes=-10", 0).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldOmitUnsatisfiableRangesWhenOthersAreSatisfiable() {
+		assertThat(ByteRange.parse("bytes=2000-3000,0-9", 1000), contains(new ByteRange(0, 9)));
+	}
+
+	@Test
+	public void shouldIgnoreAbsentOrInvalidRanges() {
+		assertThat(ByteRange.parse(null, 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=0-99", -1), is(nullValue()));
+		assertThat(ByteRange.parse("items=0-99", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("0-99", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=-", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=99-0", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=a-b", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=10", 1000), is(nullValue()));
+		assertThat(ByteRange.parse("bytes=0-1,x", 1000), is(nullValue()));
+	}
+
+	@Test
+	public void shouldIgnoreRequestsForTooManyRanges() {
+		StringBuilder range = new StringBuilder("bytes=0-0");
+		for (int i = 1; i < ByteRange.MaxRanges; i++) {
+			range.append(",").append(i).append("-").append(i);
+		}
+		List<ByteRange> ranges = ByteRange.parse(range.toString(), 1000);
+		assertThat(ranges.size(), is(ByteRange.MaxRanges));
+		assertThat(ByteRange.parse(range + ",100-200", 1000), is(nullValue()));
+	}
+
+	@Test
+	public void shouldAcceptUnitInAnyCase() {
+		assertThat(ByteRange.parse("Bytes=0-1", 10), contains(new ByteRange(0, 1)));
+	}
+
+	@Test
+	public void shouldDescribeRange() {
+		ByteRange range = new ByteRange(10, 19);
+		assertThat(range.getStart(), is(10L));
+		assertThat(range.getEnd(), is(19L));
+		assertThat(range.length(), is(10L));
+		assertThat(range.contentRange(100), is("bytes 10-19/100"));
+		assertThat(range.toString(), is("10-19"));
+		assertThat(range, is(new ByteRange(10, 19)));
+		assertThat(range.hashCode(), is(new ByteRange(10, 19).hashCode()));
+		assertThat(range, is(not(new ByteRange(10, 20))));
+	}
+}
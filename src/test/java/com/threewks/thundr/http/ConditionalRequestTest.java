@@ -0,0 +1,64 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+
+public class ConditionalRequestTest {
+	private MockHttpServletRequest req = new MockHttpServletRequest();
+
+	@Test
+	public void shouldMatchETagsUsingWeakComparison() {
+		assertThat(ConditionalRequest.matchesETag("\"abc\"", "\"abc\""), is(true));
+		assertThat(ConditionalRequest.matchesETag("W/\"abc\"", "\"abc\""), is(true));
+		assertThat(ConditionalRequest.matchesETag("\"abc\"", "W/\"abc\""), is(true));
+		assertThat(ConditionalRequest.matchesETag("W/\"def\", W/\"abc\"", "W/\"abc\""), is(true));
+		assertThat(ConditionalRequest.matchesETag("*", "W/\"abc\""), is(true));
+		assertThat(ConditionalRequest.matchesETag("\"abcd\"", "\"abc\""), is(false));
+	}
+
+	@Test
+	public void shouldBeNotModifiedWhenIfNoneMatchMatches() {
+		req.header(Header.IfNoneMatch, "W/\"abc\"");
+		assertThat(ConditionalRequest.isNotModified(req, "W/\"abc\"", -1), is(true));
+		assertThat(ConditionalRequest.isNotModified(req, "W/\"def\"", -1), is(false));
+		assertThat(ConditionalRequest.isNotModified(req, null, -1), is(false));
+	}
+
+	@Test
+	public void shouldBeNotModifiedWhenNotModifiedSince() {
+		req.header(Header.IfModifiedSince, "Sat, 01 Jan 2000 00:00:10 GMT");
+		long since = 946684810000L;
+		assertThat(ConditionalRequest.isNotModified(req, null, since), is(true));
+		assertThat(ConditionalRequest.isNotModified(req, null, since + 999), is(true));
+		assertThat(ConditionalRequest.isNotModified(req, null, since + 1000), is(false));
+		assertThat(ConditionalRequest.isNotModified(req, null, -1), is(false));
+	}
+
+	@Test
+	public void shouldIgnoreIfModifiedSinceWhenIfNoneMatchPresent() {
+		req.header(Header.IfModifiedSince, "Sat, 01 Jan 2000 00:00:10 GMT");
+		req.header(Header.IfNoneMatch, "\"def\"");
+		assertThat(ConditionalRequest.isNotModified(req, "\"abc\"", 946684810000L), is(false));
+	}
+}
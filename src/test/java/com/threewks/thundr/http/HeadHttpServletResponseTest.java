@@ -0,0 +1,119 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+
+import org.junit.Test;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class HeadHttpServletResponseTest {
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private HeadHttpServletResponse headResponse = new HeadHttpServletResponse(resp);
+
+	@Test
+	public void shouldCountBytesWrittenToOutputStream() throws IOException {
+		ServletOutputStream os = headResponse.getOutputStream();
+		os.write(1);
+		os.write(new byte[] { 1, 2, 3 });
+		os.write(new byte[] { 1, 2, 3, 4, 5 }, 1, 2);
+		assertThat(headResponse.getCount(), is(6L));
+	}
+
+	@Test
+	public void shouldCountBytesWrittenToWriterUsingCharacterEncoding() throws IOException {
+		resp.setCharacterEncoding("UTF-8");
+		PrintWriter writer = headResponse.getWriter();
+		writer.write("abc\u00e9");
+		assertThat(headResponse.getCount(), is(5L));
+		assertThat(headResponse.getWriter(), is(sameInstance(writer)));
+	}
+
+	@Test
+	public void shouldSetContentLengthFromCountOnFinish() throws IOException {
+		headResponse.getWriter().write("Some content");
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is("12"));
+		assertThat(resp.isCommitted(), is(false));
+	}
+
+	@Test
+	public void shouldNotOverwriteExplicitContentLengthOnFinish() throws IOException {
+		headResponse.setHeader(Header.ContentLength, "100");
+		headResponse.getWriter().write("Some content");
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is("100"));
+	}
+
+	@Test
+	public void shouldNotOverwriteContentLengthSetAsIntOnFinish() throws IOException {
+		headResponse.setIntHeader("content-length", 100);
+		headResponse.getOutputStream().write(new byte[] { 1, 2, 3 });
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+		assertThat(resp.<String> header("content-length"), is("100"));
+	}
+
+	@Test
+	public void shouldSetZeroContentLengthWhenNothingWritten() {
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is("0"));
+		assertThat(resp.isCommitted(), is(false));
+	}
+
+	@Test
+	public void shouldNotSetContentLengthForStatusWithoutBody() {
+		headResponse.setStatus(304);
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+
+		headResponse.setStatus(204);
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotSetContentLengthWhenResponseCommitted() throws IOException {
+		headResponse.getOutputStream().write(new byte[] { 1, 2, 3 });
+		resp.sendError(404);
+		headResponse.finish();
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotCommitResponseOnFlush() throws IOException {
+		headResponse.getOutputStream().write(new byte[] { 1, 2, 3 });
+		headResponse.flushBuffer();
+		assertThat(resp.isCommitted(), is(false));
+	}
+
+	@Test
+	public void shouldPassHeadersThroughToUnderlyingResponse() {
+		headResponse.setHeader("X-Header", "value");
+		headResponse.setContentType("text/plain");
+		assertThat(resp.<String> header("X-Header"), is("value"));
+		assertThat(resp.getContentType(), is("text/plain"));
+	}
+}
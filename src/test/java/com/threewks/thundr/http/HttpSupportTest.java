@@ -66,5 +66,14 @@ public class HttpSupportTest {
 		assertThat(HttpSupport.Methods.isDelete(""), is(false));
 		assertThat(HttpSupport.Methods.isDelete(" "), is(false));
 		assertThat(HttpSupport.Methods.isDelete(" delete "), is(false));
+
+		assertThat(HttpSupport.Methods.isHead("head"), is(true));
+		assertThat(HttpSupport.Methods.isHead("HeAd"), is(true));
+		assertThat(HttpSupport.Methods.isHead("HEAD"), is(true));
+		assertThat(HttpSupport.Methods.isHead(null), is(false));
+		assertThat(HttpSupport.Methods.isHead(""), is(false));
+		assertThat(HttpSupport.Methods.isHead(" "), is(false));
+		assertThat(HttpSupport.Methods.isHead(" head "), is(false));
+		assertThat(HttpSupport.Methods.isHead("GET"), is(false));
 	}
 }
@@ -0,0 +1,185 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class PartialContentTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private MockHttpServletRequest req = new MockHttpServletRequest();
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private byte[] data = "0123456789abcdefghij".getBytes();
+
+	@Test
+	public void shouldServeSingleRange() throws IOException {
+		req.header(Header.Range, "bytes=2-5");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(true));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_PARTIAL_CONTENT));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes 2-5/20"));
+		assertThat(resp.<String> header(Header.ContentLength), is("4"));
+		assertThat(resp.content(), is("2345"));
+	}
+
+	@Test
+	public void shouldServeMultipleRangesAsMultipart() throws IOException {
+		req.header(Header.Range, "bytes=0-1,-2");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(true));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_PARTIAL_CONTENT));
+		assertThat(resp.getContentType(), startsWith("multipart/byteranges; boundary="));
+		String boundary = resp.getContentType().substring("multipart/byteranges; boundary=".length());
+		String expected = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/20\r\n\r\n01" + "\r\n--" + boundary
+				+ "\r\nContent-Type: text/plain\r\nContent-Range: bytes 18-19/20\r\n\r\nij" + "\r\n--" + boundary + "--\r\n";
+		assertThat(resp.content(), is(expected));
+		assertThat(resp.<String> header(Header.ContentLength), is(Integer.toString(expected.length())));
+		assertThat(resp.<String> header(Header.ContentRange), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRespondRangeNotSatisfiable() throws IOException {
+		req.header(Header.Range, "bytes=20-");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(true));
+
+		assertThat(resp.status(), is(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes */20"));
+		assertThat(resp.<String> header(Header.ContentLength), is("0"));
+	}
+
+	@Test
+	public void shouldNotServeRangesWithoutValidRangeHeader() throws IOException {
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(false));
+		req.header(Header.Range, "bytes=5-1");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(false));
+		assertThat(resp.status(), is(-1));
+	}
+
+	@Test
+	public void shouldOnlyServeRangesForGetRequests() throws IOException {
+		req.method("HEAD").header(Header.Range, "bytes=0-1");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(false));
+		req.method("POST");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(data)), is(false));
+	}
+
+	@Test
+	public void shouldNotServeMultipleRangesFromStream() throws IOException {
+		req.header(Header.Range, "bytes=0-1,4-5");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(new ByteArrayInputStream(data))), is(false));
+	}
+
+	@Test
+	public void shouldServeSingleRangeFromStream() throws IOException {
+		req.header(Header.Range, "bytes=10-14");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", null, -1, PartialContent.source(new ByteArrayInputStream(data))), is(true));
+		assertThat(resp.content(), is("abcde"));
+	}
+
+	@Test
+	public void shouldServeMultipleRangesFromFile() throws IOException {
+		File file = temp.newFile("data.txt");
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(data);
+		fos.close();
+
+		req.header(Header.Range, "bytes=-3,1-2");
+		assertThat(PartialContent.serve(req, resp, data.length, null, null, -1, PartialContent.source(file)), is(true));
+		assertThat(resp.content(), containsString("Content-Range: bytes 17-19/20\r\n\r\nhij\r\n"));
+		assertThat(resp.content(), containsString("Content-Range: bytes 1-2/20\r\n\r\n12\r\n"));
+		assertThat(resp.content(), not(containsString("Content-Type")));
+	}
+
+	@Test
+	public void shouldServeMultipleRangesFromBuffer() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 2);
+		buffer.put(new byte[] { 'x', 'y' }).put(data).flip();
+		buffer.position(2);
+
+		req.header(Header.Range, "bytes=-3,1-2");
+		assertThat(PartialContent.serve(req, resp, data.length, null, null, -1, PartialContent.source(buffer.slice())), is(true));
+		assertThat(resp.content(), containsString("Content-Range: bytes 17-19/20\r\n\r\nhij\r\n"));
+		assertThat(resp.content(), containsString("Content-Range: bytes 1-2/20\r\n\r\n12\r\n"));
+	}
+
+	@Test
+	public void shouldServeRangesWhenIfRangeMatchesETag() throws IOException {
+		req.header(Header.Range, "bytes=0-1").header(Header.IfRange, "\"etag\"");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", "\"etag\"", -1, PartialContent.source(data)), is(true));
+		assertThat(resp.content(), is("01"));
+	}
+
+	@Test
+	public void shouldServeCompleteContentWhenIfRangeDoesNotMatch() throws IOException {
+		req.header(Header.Range, "bytes=0-1").header(Header.IfRange, "\"other\"");
+		assertThat(PartialContent.serve(req, resp, data.length, "text/plain", "\"etag\"", -1, PartialContent.source(data)), is(false));
+	}
+
+	@Test
+	public void shouldNotMatchIfRangeAgainstWeakETags() {
+		req.header(Header.IfRange, "W/\"etag\"");
+		assertThat(PartialContent.ifRangeMatches(req, "W/\"etag\"", -1), is(false));
+	}
+
+	@Test
+	public void shouldMatchIfRangeAgainstLastModified() {
+		req.header(Header.IfRange, "Sun, 06 Nov 1994 08:49:37 GMT");
+		assertThat(PartialContent.ifRangeMatches(req, "\"etag\"", 784111777000L), is(true));
+		assertThat(PartialContent.ifRangeMatches(req, "\"etag\"", 784111777999L), is(true));
+		assertThat(PartialContent.ifRangeMatches(req, "\"etag\"", 784111778000L), is(false));
+		assertThat(PartialContent.ifRangeMatches(req, "\"etag\"", -1), is(false));
+	}
+
+	@Test
+	public void shouldMatchAbsentIfRange() {
+		assertThat(PartialContent.ifRangeMatches(req, null, -1), is(true));
+	}
+
+	@Test
+	public void shouldFailToSeekBackwardsInStream() throws IOException {
+		thrown.expect(IOException.class);
+		thrown.expectMessage("Cannot seek backwards in a stream");
+
+		PartialContent.Source source = PartialContent.source(new ByteArrayInputStream(data));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		source.write(os, 5, 2);
+		assertThat(new String(os.toByteArray()), is("56"));
+		source.write(os, 0, 1);
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.util.Streams;
+
+public class ResponseCompressionTest {
+	private ResponseCompression compression = new ResponseCompression();
+	private MockHttpServletRequest req = new MockHttpServletRequest().url("/api/things").header(Header.AcceptEncoding, "gzip, deflate");
+	private BytesResponse resp = new BytesResponse();
+	private String json = "[" + StringUtils.repeat("{\"name\":\"value\"}", ",", 200) + "]";
+
+	@Test
+	public void shouldBeDisabledUntilRoutesAreAdded() {
+		assertThat(compression.isEnabled(), is(false));
+		assertThat(compression.wrap(req, resp), is(sameInstance((HttpServletResponse) resp)));
+
+		compression.compress("/api/*");
+		assertThat(compression.isEnabled(), is(true));
+		assertThat(compression.wrap(req, resp), is(instanceOf(CompressingHttpServletResponse.class)));
+
+		compression.clear();
+		assertThat(compression.isEnabled(), is(false));
+	}
+
+	@Test
+	public void shouldOnlyWrapResponsesForMatchingRoutes() {
+		compression.compress("/api/*", "application/json");
+		assertThat(compression.wrap(req.url("/other"), resp), is(sameInstance((HttpServletResponse) resp)));
+		assertThat(compression.wrap(req.url("/api/things/1"), resp), is(not(sameInstance((HttpServletResponse) resp))));
+	}
+
+	@Test
+	public void shouldCompressMatchingContentTypeAboveThreshold() throws IOException {
+		compression.compress("/api/*", "application/json");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentLength(json.length());
+		wrapped.setContentType("application/json; charset=UTF-8");
+		wrapped.getWriter().write(json);
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+		assertThat(gunzip(resp.bytes()), is(json));
+	}
+
+	@Test
+	public void shouldSendContentBelowThresholdUncompressedWithContentLength() throws IOException {
+		compression.compress("/api/*", "application/json");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentType("application/json");
+		wrapped.getOutputStream().write("{}".getBytes("UTF-8"));
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+		assertThat(resp.getContentLength(), is(2));
+		assertThat(new String(resp.bytes(), "UTF-8"), is("{}"));
+	}
+
+	@Test
+	public void shouldNotCompressWhenGzipNotAcceptedButShouldVary() throws IOException {
+		compression.compress("/api/*", "application/json");
+		req.header(Header.AcceptEncoding, "gzip;q=0, deflate");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentLength(json.length());
+		wrapped.setContentType("application/json");
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+		assertThat(resp.<String> header(Header.ContentLength), is(Integer.toString(json.length())));
+		assertThat(new String(resp.bytes(), "UTF-8"), is(json));
+	}
+
+	@Test
+	public void shouldNotCompressOrVaryOtherContentTypes() throws IOException {
+		compression.compress("/api/*", "application/json");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentType("image/png");
+		wrapped.setHeader(Header.ContentLength, "2000");
+		wrapped.getOutputStream().write(new byte[2000]);
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.Vary), is(nullValue()));
+		assertThat(resp.<String> header(Header.ContentLength), is("2000"));
+		assertThat(resp.bytes().length, is(2000));
+	}
+
+	@Test
+	public void shouldNotCompressContentWhichIsAlreadyEncoded() throws IOException {
+		compression.compress("/api/*", "application/json");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentType("application/json");
+		wrapped.setHeader(Header.ContentEncoding, "br");
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is("br"));
+		assertThat(new String(resp.bytes(), "UTF-8"), is(json));
+	}
+
+	@Test
+	public void shouldNotCompressPartialContent() throws IOException {
+		compression.compress("/api/*", "application/json");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		wrapped.setContentType("application/json");
+		wrapped.setContentLength(json.length());
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.ContentLength), is(Integer.toString(json.length())));
+		assertThat(new String(resp.bytes(), "UTF-8"), is(json));
+	}
+
+	@Test
+	public void shouldNotCompressContentWithContentRange() throws IOException {
+		compression.compress("/api/*", "application/json");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentType("application/json");
+		wrapped.setHeader(Header.ContentRange, "bytes 0-" + (json.length() - 1) + "/" + json.length());
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(new String(resp.bytes(), "UTF-8"), is(json));
+	}
+
+	@Test
+	public void shouldApplyHeldContentLengthWhenNoBodyIsWritten() {
+		compression.compress("/api/*");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentType("application/json");
+		wrapped.setContentLength(0);
+		compression.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ContentLength), is("0"));
+	}
+
+	@Test
+	public void shouldDiscardCompressedContentWhenNotCompleted() throws IOException {
+		compression.compress("/api/*");
+		HttpServletResponse wrapped = compression.wrap(req, resp);
+		wrapped.setContentType("application/json");
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		wrapped.flushBuffer();
+		compression.finish(wrapped, false);
+
+		assertThat(compression.getDeflaterPool().idle(), is(1));
+	}
+
+	@Test
+	public void shouldUseDefaultContentTypes() {
+		compression.compress("*");
+		assertThat(compression.contentTypes("/any"), is(ResponseCompression.DefaultContentTypes));
+		assertThat(compression.contentTypes(null).isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldDetermineWhetherGzipIsAccepted() {
+		assertThat(ResponseCompression.acceptsGzip("gzip"), is(true));
+		assertThat(ResponseCompression.acceptsGzip("deflate, GZIP;q=0.5"), is(true));
+		assertThat(ResponseCompression.acceptsGzip("x-gzip"), is(true));
+		assertThat(ResponseCompression.acceptsGzip("*"), is(true));
+		assertThat(ResponseCompression.acceptsGzip("gzip;q=0"), is(false));
+		assertThat(ResponseCompression.acceptsGzip("gzip; q=0.000"), is(false));
+		assertThat(ResponseCompression.acceptsGzip("deflate, br"), is(false));
+		assertThat(ResponseCompression.acceptsGzip("gzipped"), is(false));
+		assertThat(ResponseCompression.acceptsGzip(""), is(false));
+		assertThat(ResponseCompression.acceptsGzip(null), is(false));
+	}
+
+	@Test
+	public void shouldRetainThresholdAndDeflaterPool() {
+		compression.setThreshold(10);
+		assertThat(compression.getThreshold(), is(10));
+		assertThat(compression.getDeflaterPool(), is(notNullValue()));
+	}
+
+	private static String gunzip(byte[] data) throws IOException {
+		return Streams.readString(new GZIPInputStream(new ByteArrayInputStream(data)), "UTF-8");
+	}
+
+	private static class BytesResponse extends MockHttpServletResponse {
+		private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		private ServletOutputStream os = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				baos.write(b);
+			}
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			return os;
+		}
+
+		public byte[] bytes() {
+			return baos.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.util.Encoder;
+
+public class ResponseValidationTest {
+	private ResponseValidation validation = new ResponseValidation();
+	private MockHttpServletRequest req = new MockHttpServletRequest().url("/api/things");
+	private BytesResponse resp = new BytesResponse();
+	private String json = "[{\"name\":\"value\"}]";
+	private String etag = "W/\"" + new Encoder(json).crc32().hex().string() + "\"";
+
+	@Test
+	public void shouldBeDisabledUntilRoutesAreAdded() {
+		assertThat(validation.isEnabled(), is(false));
+		assertThat(validation.wrap(req, resp), is(sameInstance((HttpServletResponse) resp)));
+
+		validation.validate("/api/*");
+		assertThat(validation.isEnabled(), is(true));
+		assertThat(validation.wrap(req, resp), is(instanceOf(ValidatingHttpServletResponse.class)));
+
+		validation.clear();
+		assertThat(validation.isEnabled(), is(false));
+	}
+
+	@Test
+	public void shouldOnlyWrapGetAndHeadRequestsForMatchingRoutes() {
+		validation.validate("/api/*");
+		assertThat(validation.wrap(req.url("/other"), resp), is(sameInstance((HttpServletResponse) resp)));
+		assertThat(validation.wrap(req.url("/api/things/1"), resp), is(not(sameInstance((HttpServletResponse) resp))));
+		assertThat(validation.wrap(req.method("HEAD"), resp), is(not(sameInstance((HttpServletResponse) resp))));
+		assertThat(validation.wrap(req.method("POST"), resp), is(sameInstance((HttpServletResponse) resp)));
+	}
+
+	@Test
+	public void shouldSetETagFromChecksumOfContent() throws IOException {
+		validation.validate("/api/*");
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		wrapped.setContentType("application/json");
+		wrapped.getWriter().write(json);
+		validation.finish(wrapped, true);
+
+		assertThat(resp.status(), is(not(304)));
+		assertThat(resp.<String> header(Header.ETag), is(etag));
+		assertThat(resp.<String> header(Header.ContentLength), is(Integer.toString(json.length())));
+		assertThat(body(), is(json));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWithoutBodyWhenIfNoneMatchMatches() throws IOException {
+		validation.validate("/api/*");
+		req.header(Header.IfNoneMatch, etag);
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		wrapped.setContentLength(json.length());
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		wrapped.flushBuffer();
+		validation.finish(wrapped, true);
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.<String> header(Header.ETag), is(etag));
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+		assertThat(body(), is(""));
+	}
+
+	@Test
+	public void shouldValidateAgainstExplicitETag() throws IOException {
+		validation.validate("/api/*");
+		req.header(Header.IfNoneMatch, "\"v1\"");
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		wrapped.setHeader(Header.ETag, "\"v1\"");
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		validation.finish(wrapped, true);
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.<String> header(Header.ETag), is("\"v1\""));
+	}
+
+	@Test
+	public void shouldKeepETagSetBeforeResponseWasWrapped() throws IOException {
+		validation.validate("/api/*");
+		req.header(Header.IfNoneMatch, etag);
+		resp.setHeader(Header.ETag, "W/\"v1\"");
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		validation.finish(wrapped, true);
+
+		assertThat(resp.status(), is(not(304)));
+		assertThat(resp.<String> header(Header.ETag), is("W/\"v1\""));
+		assertThat(body(), is(json));
+	}
+
+	@Test
+	public void shouldNotValidateUnsuccessfulResponses() throws IOException {
+		validation.validate("/api/*");
+		req.header(Header.IfNoneMatch, etag);
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		wrapped.setStatus(400);
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		validation.finish(wrapped, true);
+
+		assertThat(resp.status(), is(400));
+		assertThat(resp.<String> header(Header.ETag), is(nullValue()));
+		assertThat(body(), is(json));
+	}
+
+	@Test
+	public void shouldPassThroughContentLargerThanMaxBytesUnvalidated() throws IOException {
+		validation.validate("/api/*");
+		validation.setMaxBytes(100);
+		String content = StringUtils.repeat("contents ", 50);
+		ValidatingHttpServletResponse wrapped = (ValidatingHttpServletResponse) validation.wrap(req, resp);
+		wrapped.getOutputStream().write(content.substring(0, 50).getBytes("UTF-8"));
+		assertThat(wrapped.isBuffering(), is(true));
+		wrapped.getOutputStream().write(content.substring(50).getBytes("UTF-8"));
+		assertThat(wrapped.isBuffering(), is(false));
+		validation.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ETag), is(nullValue()));
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+		assertThat(body(), is(content));
+	}
+
+	@Test
+	public void shouldNotSetETagForEmptyContent() throws IOException {
+		validation.validate("/api/*");
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		validation.finish(wrapped, true);
+
+		assertThat(resp.<String> header(Header.ETag), is(nullValue()));
+		assertThat(body(), is(""));
+	}
+
+	@Test
+	public void shouldDiscardContentWhenNotCompleted() throws IOException {
+		validation.validate("/api/*");
+		HttpServletResponse wrapped = validation.wrap(req, resp);
+		wrapped.getOutputStream().write(json.getBytes("UTF-8"));
+		validation.finish(wrapped, false);
+
+		assertThat(resp.<String> header(Header.ETag), is(nullValue()));
+		assertThat(body(), is(""));
+	}
+
+	@Test
+	public void shouldIgnoreResponsesItDidNotWrap() throws IOException {
+		validation.finish(resp, true);
+		assertThat(resp.<String> header(Header.ETag), is(nullValue()));
+	}
+
+	private String body() throws IOException {
+		return new String(resp.bytes(), "UTF-8");
+	}
+
+	private static class BytesResponse extends MockHttpServletResponse {
+		private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		private ServletOutputStream os = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				baos.write(b);
+			}
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			return os;
+		}
+
+		public byte[] bytes() {
+			return baos.toByteArray();
+		}
+	}
+}
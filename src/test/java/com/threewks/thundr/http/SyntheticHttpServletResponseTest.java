@@ -243,12 +243,25 @@ public class SyntheticHttpServletResponseTest {
 	}
 
 	@Test
-	public void shouldNoopOnSettingStatus() {
+	public void shouldRecordStatusWithoutWriting() {
+		assertThat(syntheticHttpServletResponse.getStatus(), is(200));
 		syntheticHttpServletResponse.setStatus(123);
+		assertThat(syntheticHttpServletResponse.getStatus(), is(123));
 		syntheticHttpServletResponse.setStatus(456, "message");
+		assertThat(syntheticHttpServletResponse.getStatus(), is(456));
 		assertThat(syntheticHttpServletResponse.getOutput(), is(""));
 	}
 
+	@Test
+	public void shouldReturnHeadersInOrder() {
+		syntheticHttpServletResponse.setHeader("b", "1");
+		syntheticHttpServletResponse.setHeader("a", "2");
+		syntheticHttpServletResponse.setHeader("b", "3");
+
+		assertThat(syntheticHttpServletResponse.getHeaders().keySet(), contains("b", "a"));
+		assertThat(syntheticHttpServletResponse.getHeaders().get("b"), is("3"));
+	}
+
 	@Test
 	public void shouldNoopOnAddCookie() {
 		syntheticHttpServletResponse.addCookie(Cookies.build("cookie").withValue("value").build());
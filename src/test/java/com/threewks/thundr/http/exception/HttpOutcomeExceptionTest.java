@@ -0,0 +1,93 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.http.exception;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class HttpOutcomeExceptionTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldFormatAndRetainReasonAndStatus() {
+		HttpOutcomeException exception = new HttpOutcomeException(HttpServletResponse.SC_UNAUTHORIZED, "String %s", "format");
+		assertThat(exception.getMessage(), is("String format"));
+		assertThat(exception.getCause(), is(nullValue()));
+		assertThat(exception.getStatus(), is(HttpServletResponse.SC_UNAUTHORIZED));
+	}
+
+	@Test
+	public void shouldFormatAndRetainCauseAndReasonAndStatus() {
+		Exception cause = new Exception("cause");
+		HttpOutcomeException exception = new HttpOutcomeException(cause, HttpServletResponse.SC_CONFLICT, "String %s", "format");
+		assertThat(exception.getMessage(), is("String format"));
+		assertThat(exception.getCause(), is((Throwable) cause));
+		assertThat(exception.getStatus(), is(HttpServletResponse.SC_CONFLICT));
+	}
+
+	@Test
+	public void shouldNotCaptureStackTrace() {
+		assertThat(new HttpOutcomeException(404, "message").getStackTrace().length, is(0));
+		assertThat(HttpOutcomeException.NotFound.getStackTrace().length, is(0));
+	}
+
+	@Test
+	public void shouldReturnSharedInstancesForCommonStatusCodes() {
+		assertThat(HttpOutcomeException.of(400), is(sameInstance(HttpOutcomeException.BadRequest)));
+		assertThat(HttpOutcomeException.of(401), is(sameInstance(HttpOutcomeException.Unauthorized)));
+		assertThat(HttpOutcomeException.of(403), is(sameInstance(HttpOutcomeException.Forbidden)));
+		assertThat(HttpOutcomeException.of(404), is(sameInstance(HttpOutcomeException.NotFound)));
+		assertThat(HttpOutcomeException.of(429), is(sameInstance(HttpOutcomeException.TooManyRequests)));
+		assertThat(HttpOutcomeException.of(503), is(sameInstance(HttpOutcomeException.ServiceUnavailable)));
+		assertThat(HttpOutcomeException.NotFound.getStatus(), is(404));
+		assertThat(HttpOutcomeException.NotFound.getMessage(), is("Not Found"));
+	}
+
+	@Test
+	public void shouldCreateNewInstanceForOtherStatusCodes() {
+		HttpOutcomeException exception = HttpOutcomeException.of(418);
+		assertThat(exception.getStatus(), is(418));
+		assertThat(exception.getMessage(), is("I'm a teapot"));
+		assertThat(HttpOutcomeException.of(418), is(not(sameInstance(exception))));
+		assertThat(HttpOutcomeException.of(299).getMessage(), is("299"));
+	}
+
+	@Test
+	public void shouldNotRetainSuppressedExceptionsOnSharedInstances() {
+		HttpOutcomeException.Forbidden.addSuppressed(new Exception());
+		assertThat(HttpOutcomeException.Forbidden.getSuppressed().length, is(0));
+	}
+
+	@Test
+	public void shouldNotAllowCauseToBeSetOnSharedInstances() {
+		thrown.expect(IllegalStateException.class);
+		HttpOutcomeException.Forbidden.initCause(new Exception());
+	}
+
+	@Test
+	public void shouldBeAnHttpStatusException() {
+		assertThat(HttpOutcomeException.Unauthorized instanceof HttpStatusException, is(true));
+	}
+}
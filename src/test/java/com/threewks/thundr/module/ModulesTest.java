@@ -19,8 +19,13 @@ package com.threewks.thundr.module;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -29,8 +34,10 @@ import org.junit.rules.ExpectedException;
 
 import com.threewks.thundr.injection.InjectionContext;
 import com.threewks.thundr.injection.InjectionContextImpl;
+import com.threewks.thundr.injection.LazyModule;
 import com.threewks.thundr.injection.Module;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.atomicleopard.expressive.Expressive;
 import com.threewks.thundr.module.test.TestModule;
 
 public class ModulesTest {
@@ -135,6 +142,160 @@ public class ModulesTest {
 		assertThat(injectionContext.get(String.class, "TestModule3"), is("Invoked"));
 	}
 
+	@Test
+	public void shouldNotStartLazyModuleOnStartup() {
+		modules.addModule(LazyTestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		LazyTestModule module = modules.getModule(LazyTestModule.class);
+		assertThat(module.required, is(true));
+		assertThat(module.initialised.get(), is(0));
+		assertThat(module.configured.get(), is(0));
+		assertThat(module.started.get(), is(0));
+	}
+
+	@Test
+	public void shouldStartLazyModuleOnFirstMatchingRequest() {
+		modules.addModule(LazyTestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		LazyTestModule module = modules.getModule(LazyTestModule.class);
+
+		assertThat(modules.activate("/other/path", injectionContext), is(false));
+		assertThat(module.started.get(), is(0));
+
+		assertThat(modules.activate("/admin/reports", injectionContext), is(true));
+		assertThat(module.initialised.get(), is(1));
+		assertThat(module.configured.get(), is(1));
+		assertThat(module.started.get(), is(1));
+		assertThat(injectionContext.get(String.class, "LazyTestModule"), is("Invoked"));
+
+		assertThat(modules.activate("/admin/reports", injectionContext), is(false));
+		assertThat(module.started.get(), is(1));
+	}
+
+	@Test
+	public void shouldStartDeferredDependenciesOfLazyModuleWhenActivated() {
+		modules.addModule(LazyTestModule2.class);
+		modules.runStartupLifecycle(injectionContext);
+		LazyTestModule dependency = modules.getModule(LazyTestModule.class);
+		assertThat(dependency.started.get(), is(0));
+		assertThat(injectionContext.get(String.class, "TestModule3"), is("Invoked"));
+
+		modules.activate("/export/all", injectionContext);
+		assertThat(dependency.started.get(), is(1));
+		assertThat(injectionContext.get(String.class, "LazyTestModule2"), is("Invoked"));
+	}
+
+	@Test
+	public void shouldStartLazyModuleOnStartupWhenRequiredByAnEagerModule() {
+		modules.addModule(LazyTestModule.class);
+		modules.addModule(TestModule7.class);
+		modules.runStartupLifecycle(injectionContext);
+		LazyTestModule module = modules.getModule(LazyTestModule.class);
+		assertThat(module.started.get(), is(1));
+		assertThat(modules.activate("/admin/reports", injectionContext), is(false));
+	}
+
+	@Test
+	public void shouldStartLazyModuleOnlyOnceForConcurrentRequests() throws InterruptedException {
+		modules.addModule(LazyTestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		final LazyTestModule module = modules.getModule(LazyTestModule.class);
+
+		final CountDownLatch ready = new CountDownLatch(1);
+		final AtomicInteger activations = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 10; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						ready.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					if (modules.activate("/admin/reports", injectionContext)) {
+						activations.incrementAndGet();
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		ready.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(activations.get(), is(1));
+		assertThat(module.initialised.get(), is(1));
+		assertThat(module.configured.get(), is(1));
+		assertThat(module.started.get(), is(1));
+	}
+
+	@Test
+	public void shouldNotHoldRequestsForOtherPathsWhileLazyModuleStarts() throws InterruptedException {
+		modules.addModule(LazyTestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		final LazyTestModule module = modules.getModule(LazyTestModule.class);
+		module.proceed = new CountDownLatch(1);
+
+		Thread activating = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				modules.activate("/admin/reports", injectionContext);
+			}
+		});
+		activating.start();
+		module.starting.await();
+
+		assertThat(modules.activate("/other/path", injectionContext), is(false));
+		assertThat(module.started.get(), is(0));
+
+		module.proceed.countDown();
+		activating.join();
+		assertThat(module.started.get(), is(1));
+	}
+
+	@Test
+	public void shouldDeferLazyModuleAgainWhenItFailsToStart() {
+		modules.addModule(LazyTestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		LazyTestModule module = modules.getModule(LazyTestModule.class);
+		module.failures.set(1);
+
+		try {
+			modules.activate("/admin/reports", injectionContext);
+			fail("Expected the module to fail to start");
+		} catch (RuntimeException e) {
+			assertThat(e.getMessage(), is("expected"));
+		}
+		assertThat(module.started.get(), is(0));
+
+		assertThat(modules.activate("/admin/reports", injectionContext), is(true));
+		assertThat(module.started.get(), is(1));
+		assertThat(modules.activate("/admin/reports", injectionContext), is(false));
+	}
+
+	@Test
+	public void shouldOnlyStopLazyModulesWhichHaveBeenStarted() {
+		modules.addModule(LazyTestModule.class);
+		modules.addModule(TestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		modules.runStopLifecycle(injectionContext);
+		assertThat(modules.getModule(LazyTestModule.class).stopped.get(), is(0));
+		assertThat(modules.getModule(TestModule.class).stopped, is(true));
+		assertThat(modules.activate("/admin/reports", injectionContext), is(false));
+	}
+
+	@Test
+	public void shouldStopLazyModulesWhichHaveBeenStarted() {
+		modules.addModule(LazyTestModule.class);
+		modules.runStartupLifecycle(injectionContext);
+		modules.activate("/admin", injectionContext);
+		modules.runStopLifecycle(injectionContext);
+		assertThat(modules.getModule(LazyTestModule.class).stopped.get(), is(1));
+	}
+
 	public static class TestModule1 implements Module {
 		@Override
 		public void requires(DependencyRegistry dependencyRegistry) {
@@ -281,4 +442,109 @@ public class ModulesTest {
 		public void stop(InjectionContext injectionContext) {
 		}
 	}
+
+	public static class LazyTestModule implements LazyModule {
+		public boolean required = false;
+		public AtomicInteger initialised = new AtomicInteger();
+		public AtomicInteger configured = new AtomicInteger();
+		public AtomicInteger started = new AtomicInteger();
+		public AtomicInteger stopped = new AtomicInteger();
+		public AtomicInteger failures = new AtomicInteger();
+		public CountDownLatch starting = new CountDownLatch(1);
+		public volatile CountDownLatch proceed = new CountDownLatch(0);
+
+		@Override
+		public Collection<String> getRoutePrefixes() {
+			return Expressive.list("/admin");
+		}
+
+		@Override
+		public void requires(DependencyRegistry dependencyRegistry) {
+			required = true;
+		}
+
+		@Override
+		public void initialise(UpdatableInjectionContext injectionContext) {
+			initialised.incrementAndGet();
+		}
+
+		@Override
+		public void configure(UpdatableInjectionContext injectionContext) {
+			configured.incrementAndGet();
+			injectionContext.inject("Invoked").named("LazyTestModule").as(String.class);
+		}
+
+		@Override
+		public void start(UpdatableInjectionContext injectionContext) {
+			starting.countDown();
+			try {
+				proceed.await();
+				// widen the window for concurrent activation
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+			}
+			if (failures.getAndDecrement() > 0) {
+				throw new RuntimeException("expected");
+			}
+			started.incrementAndGet();
+		}
+
+		@Override
+		public void stop(InjectionContext injectionContext) {
+			stopped.incrementAndGet();
+		}
+	}
+
+	public static class LazyTestModule2 implements LazyModule {
+		@Override
+		public Collection<String> getRoutePrefixes() {
+			return Expressive.list("/export/", "/reports/");
+		}
+
+		@Override
+		public void requires(DependencyRegistry dependencyRegistry) {
+			dependencyRegistry.addDependency(LazyTestModule.class);
+			dependencyRegistry.addDependency(TestModule3.class);
+		}
+
+		@Override
+		public void initialise(UpdatableInjectionContext injectionContext) {
+		}
+
+		@Override
+		public void configure(UpdatableInjectionContext injectionContext) {
+			injectionContext.inject("Invoked").named("LazyTestModule2").as(String.class);
+		}
+
+		@Override
+		public void start(UpdatableInjectionContext injectionContext) {
+		}
+
+		@Override
+		public void stop(InjectionContext injectionContext) {
+		}
+	}
+
+	public static class TestModule7 implements Module {
+		@Override
+		public void requires(DependencyRegistry dependencyRegistry) {
+			dependencyRegistry.addDependency(LazyTestModule.class);
+		}
+
+		@Override
+		public void initialise(UpdatableInjectionContext injectionContext) {
+		}
+
+		@Override
+		public void configure(UpdatableInjectionContext injectionContext) {
+		}
+
+		@Override
+		public void start(UpdatableInjectionContext injectionContext) {
+		}
+
+		@Override
+		public void stop(InjectionContext injectionContext) {
+		}
+	}
 }
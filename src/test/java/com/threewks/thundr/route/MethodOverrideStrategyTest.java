@@ -0,0 +1,184 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import com.threewks.thundr.http.ContentType;
+import com.threewks.thundr.route.MethodOverrideStrategy.Source;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+
+public class MethodOverrideStrategyTest {
+	private MethodOverrideStrategy strategy = new MethodOverrideStrategy();
+
+	@Test
+	public void shouldReturnRequestMethodWhenNoOverride() {
+		assertThat(strategy.determineMethod(new MockHttpServletRequest().method("GET")), is("GET"));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest().method("POST")), is("POST"));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest().method("post")), is("post"));
+	}
+
+	@Test
+	public void shouldOnlyOverridePostRequests() {
+		MockHttpServletRequest req = new MockHttpServletRequest("/path?_method=PUT").method("GET");
+		req.header("X-HTTP-Method-Override", "DELETE");
+		assertThat(strategy.determineMethod(req), is("GET"));
+	}
+
+	@Test
+	public void shouldOverrideFromHeaderIgnoringCase() {
+		MockHttpServletRequest req = new MockHttpServletRequest().method("POST");
+		req.header("x-http-method-override", "PUT");
+		assertThat(strategy.determineMethod(req), is("PUT"));
+	}
+
+	@Test
+	public void shouldOverrideFromQueryStringIgnoringCase() {
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/path?_method=PUT").method("POST")), is("PUT"));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/path?a=1&_MeThOd=delete&b=2").method("POST")), is("delete"));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/path?my_method=PUT").method("POST")), is("POST"));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/path?_method=").method("POST")), is("POST"));
+	}
+
+	@Test
+	public void shouldOverrideFromFormUrlEncodedBodyIgnoringCase() {
+		MockHttpServletRequest req = new MockHttpServletRequest().method("POST").contentType(ContentType.ApplicationFormUrlEncoded);
+		req.parameter("_method", "PUT");
+		assertThat(strategy.determineMethod(req), is("PUT"));
+
+		req = new MockHttpServletRequest().method("POST").contentType(ContentType.ApplicationFormUrlEncoded);
+		req.parameter("_METHOD", "PATCH");
+		assertThat(strategy.determineMethod(req), is("PATCH"));
+	}
+
+	@Test
+	public void shouldPreferHeaderOverParameters() {
+		MockHttpServletRequest req = new MockHttpServletRequest("/path?_method=DELETE").method("POST").contentType(ContentType.ApplicationFormUrlEncoded);
+		req.header("X-HTTP-Method-Override", "PUT");
+		req.parameter("_method", "PATCH");
+		assertThat(strategy.determineMethod(req), is("PUT"));
+	}
+
+	@Test
+	public void shouldPreferQueryStringOverForm() {
+		MockHttpServletRequest req = new MockHttpServletRequest("/path?_method=DELETE").method("POST").contentType(ContentType.ApplicationFormUrlEncoded);
+		req.parameter("_method", "PATCH");
+		assertThat(strategy.determineMethod(req), is("DELETE"));
+	}
+
+	@Test
+	public void shouldNotParseJsonBody() throws IOException {
+		HttpServletRequest req = mockPost("/path", "application/json; charset=utf-8");
+		assertThat(strategy.determineMethod(req), is("POST"));
+		verifyBodyNotRead(req);
+	}
+
+	@Test
+	public void shouldNotParseMultipartBody() throws IOException {
+		HttpServletRequest req = mockPost("/path", "multipart/form-data; boundary=----abc");
+		assertThat(strategy.determineMethod(req), is("POST"));
+		verifyBodyNotRead(req);
+	}
+
+	@Test
+	public void shouldNotParseBodyWhenOverriddenByHeader() throws IOException {
+		HttpServletRequest req = mockPost("/path", ContentType.ApplicationFormUrlEncoded.value());
+		when(req.getHeader("X-HTTP-Method-Override")).thenReturn("PUT");
+		assertThat(strategy.determineMethod(req), is("PUT"));
+		verifyBodyNotRead(req);
+	}
+
+	@Test
+	public void shouldReadMethodFromQueryStringOfJsonRequestWithoutParsingBody() throws IOException {
+		HttpServletRequest req = mockPost("/path", ContentType.ApplicationJson.value());
+		when(req.getQueryString()).thenReturn("_method=PUT");
+		assertThat(strategy.determineMethod(req), is("PUT"));
+		verifyBodyNotRead(req);
+	}
+
+	@Test
+	public void shouldRestrictSourcesBeneathRoutePrefix() {
+		strategy.sources("/api", Source.Header);
+		strategy.sources("/api/forms", Source.Form);
+		strategy.sources("/none");
+
+		assertThat(strategy.sourcesFor("/other"), is(hasItems(Source.Header, Source.QueryString, Source.Form)));
+		assertThat(strategy.sourcesFor("/api/thing"), contains(Source.Header));
+		assertThat(strategy.sourcesFor("/api/forms/thing"), contains(Source.Form));
+		assertThat(strategy.sourcesFor("/none/thing").isEmpty(), is(true));
+
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/api/thing?_method=PUT").method("POST")), is("POST"));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/other?_method=PUT").method("POST")), is("PUT"));
+
+		MockHttpServletRequest req = new MockHttpServletRequest("/none/thing").method("POST");
+		req.header("X-HTTP-Method-Override", "PUT");
+		assertThat(strategy.determineMethod(req), is("POST"));
+	}
+
+	@Test
+	public void shouldReplaceSourcesForExistingRoutePrefix() {
+		strategy.sources("/api", Source.Header);
+		strategy.sources("/api", Source.QueryString);
+		assertThat(strategy.sourcesFor("/api/thing"), contains(Source.QueryString));
+	}
+
+	@Test
+	public void shouldAllowDefaultSourcesToBeRestricted() {
+		strategy = new MethodOverrideStrategy(Source.Header);
+		assertThat(strategy.sourcesFor("/any"), contains(Source.Header));
+		assertThat(strategy.determineMethod(new MockHttpServletRequest("/any?_method=PUT").method("POST")), is("POST"));
+	}
+
+	private HttpServletRequest mockPost(String path, String contentType) {
+		HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getMethod()).thenReturn("POST");
+		when(req.getRequestURI()).thenReturn(path);
+		when(req.getContentType()).thenReturn(contentType);
+		return req;
+	}
+
+	private void verifyBodyNotRead(HttpServletRequest req) throws IOException {
+		verify(req, never()).getParameter(anyString());
+		verify(req, never()).getParameterNames();
+		verify(req, never()).getParameterMap();
+		verify(req, never()).getParameterValues(anyString());
+		verify(req, never()).getInputStream();
+		verify(req, never()).getReader();
+	}
+
+	@Test
+	public void shouldFindParametersAndHeadersIgnoringCase() {
+		MockHttpServletRequest req = new MockHttpServletRequest().method("POST");
+		req.parameter("Name", "value");
+		req.header("X-Custom", "header");
+		assertThat(MethodOverrideStrategy.getParameterCaseInsensitive(req, "name"), is("value"));
+		assertThat(MethodOverrideStrategy.getParameterCaseInsensitive(req, "NAME"), is("value"));
+		assertThat(MethodOverrideStrategy.getParameterCaseInsensitive(req, "other"), is(nullValue()));
+		assertThat(MethodOverrideStrategy.getHeaderCaseInsensitive(req, "x-custom"), is("header"));
+		assertThat(MethodOverrideStrategy.getHeaderCaseInsensitive(req, "x-other"), is(nullValue()));
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class RouteMissCacheTest {
+	private RouteMissCache cache = new RouteMissCache(16, 10);
+
+	@Test
+	public void shouldRoundSizeUpToPowerOfTwo() {
+		assertThat(new RouteMissCache(1, 10).size(), is(2));
+		assertThat(new RouteMissCache(16, 10).size(), is(16));
+		assertThat(new RouteMissCache(17, 10).size(), is(32));
+	}
+
+	@Test
+	public void shouldContainAddedMiss() {
+		assertThat(cache.contains(HttpMethod.GET, "/path"), is(false));
+		cache.add(HttpMethod.GET, "/path");
+		assertThat(cache.contains(HttpMethod.GET, "/path"), is(true));
+		assertThat(cache.contains(HttpMethod.POST, "/path"), is(false));
+		assertThat(cache.contains(HttpMethod.GET, "/path2"), is(false));
+	}
+
+	@Test
+	public void shouldNotCachePathsLongerThanMaximum() {
+		cache.add(HttpMethod.GET, "/a/very/long/path");
+		assertThat(cache.contains(HttpMethod.GET, "/a/very/long/path"), is(false));
+	}
+
+	@Test
+	public void shouldRemainBoundedWhenManyPathsAreMissed() {
+		for (int i = 0; i < 1000; i++) {
+			cache.add(HttpMethod.GET, "/" + i);
+		}
+		int cached = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (cache.contains(HttpMethod.GET, "/" + i)) {
+				cached++;
+			}
+		}
+		assertThat(cached, is(lessThanOrEqualTo(16)));
+		assertThat(cache.contains(HttpMethod.GET, "/999"), is(true));
+	}
+}
@@ -41,4 +41,26 @@ public class RouteNotFoundExceptionTest {
 		assertThat(routeNotFoundException.getCause(), is((Throwable) exception));
 		assertThat(routeNotFoundException.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
 	}
+
+	@Test
+	public void shouldNotCaptureStackTrace() {
+		RouteNotFoundException routeNotFoundException = new RouteNotFoundException("String %s", "format");
+		assertThat(routeNotFoundException.getStackTrace().length, is(0));
+	}
+
+	@Test
+	public void shouldRenderDetailOnlyWhenMessageIsRequested() {
+		final StringBuilder rendered = new StringBuilder();
+		Object detail = new Object() {
+			@Override
+			public String toString() {
+				rendered.append("rendered");
+				return "detail";
+			}
+		};
+		RouteNotFoundException routeNotFoundException = new RouteNotFoundException(HttpMethod.GET, "/path", detail);
+		assertThat(rendered.length(), is(0));
+		assertThat(routeNotFoundException.getMessage(), is("No route matching the request GET /path\ndetail"));
+		assertThat(rendered.toString(), is("rendered"));
+	}
 }
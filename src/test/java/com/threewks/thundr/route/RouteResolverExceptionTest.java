@@ -48,4 +48,10 @@ public class RouteResolverExceptionTest {
 		assertThat(e.getCause(), is(nullValue()));
 	}
 
+	@Test
+	public void shouldCaptureStackTraceOnlyWhenNoCauseIsWrapped() {
+		assertThat(new RouteResolverException("Message").getStackTrace().length, is(greaterThan(0)));
+		assertThat(new RouteResolverException((Throwable) null, "Message").getStackTrace().length, is(greaterThan(0)));
+		assertThat(new RouteResolverException(new Exception(), "Message").getStackTrace().length, is(0));
+	}
 }
@@ -20,13 +20,37 @@ package com.threewks.thundr.route;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletContext;
+
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import com.threewks.thundr.injection.InjectionContextImpl;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
 import com.threewks.thundr.module.DependencyRegistry;
+import com.threewks.thundr.route.cache.Cached;
+import com.threewks.thundr.route.cache.CachedResponse;
+import com.threewks.thundr.route.cache.CachedResponseViewResolver;
+import com.threewks.thundr.route.cache.ResponseCache;
+import com.threewks.thundr.route.cache.ResponseCacheBackend;
+import com.threewks.thundr.route.cache.ResponseCacheInterceptor;
+import com.threewks.thundr.route.cache.SingleFlight;
+import com.threewks.thundr.route.cache.SingleFlightInterceptor;
+import com.threewks.thundr.route.cache.TieredResponseCache;
+import com.threewks.thundr.route.cache.disk.DiskResponseCache;
+import com.threewks.thundr.route.cache.disk.SegmentStore;
+import com.threewks.thundr.route.cache.memcached.MemcachedClient;
+import com.threewks.thundr.route.cache.memcached.MemcachedResponseCache;
+import com.threewks.thundr.route.conditional.Conditional;
+import com.threewks.thundr.route.conditional.ConditionalInterceptor;
 import com.threewks.thundr.route.controller.Controller;
 import com.threewks.thundr.route.controller.ControllerRouteResolver;
 import com.threewks.thundr.route.controller.InterceptorRegistry;
@@ -34,17 +58,32 @@ import com.threewks.thundr.route.redirect.Redirect;
 import com.threewks.thundr.route.redirect.RedirectRouteResolver;
 import com.threewks.thundr.route.rewrite.Rewrite;
 import com.threewks.thundr.route.rewrite.RewriteRouteResolver;
+import com.threewks.thundr.route.staticResource.DirectoryServletContext;
+import com.threewks.thundr.route.staticResource.GzipResponseStream;
+import com.threewks.thundr.route.staticResource.ResourceFingerprints;
 import com.threewks.thundr.route.staticResource.StaticResource;
+import com.threewks.thundr.route.staticResource.StaticResourceCache;
 import com.threewks.thundr.route.staticResource.StaticResourceRouteResolver;
+import com.threewks.thundr.view.GlobalModel;
 import com.threewks.thundr.view.ViewModule;
+import com.threewks.thundr.view.ViewResolverRegistry;
 
 public class RouterModuleTest {
 
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private RouterModule routeModule = new RouterModule();
 	private UpdatableInjectionContext injectionContext = new InjectionContextImpl();
 
+	@Before
+	public void before() {
+		injectionContext.inject(new GlobalModel()).as(GlobalModel.class);
+		injectionContext.inject(new ViewResolverRegistry()).as(ViewResolverRegistry.class);
+	}
+
 	@Test
 	public void shouldDependOnViewResolverAndActionInjection() {
 		DependencyRegistry dependencyRegistry = new DependencyRegistry();
@@ -56,6 +95,7 @@ public class RouterModuleTest {
 	public void shouldAddRoutesWhenInitialised() {
 		routeModule.initialise(injectionContext);
 		assertThat(injectionContext.contains(Router.class), is(true));
+		assertThat(injectionContext.contains(MethodOverrideStrategy.class), is(true));
 	}
 
 	@Test
@@ -66,6 +106,102 @@ public class RouterModuleTest {
 		assertThat(injectionContext.get(InterceptorRegistry.class), is(notNullValue()));
 	}
 
+	@Test
+	public void shouldRegisterConditionalInterceptor() {
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+		ControllerRouteResolver controllerRouteResolver = injectionContext.get(ControllerRouteResolver.class);
+		assertThat((Object) controllerRouteResolver.interceptor(Conditional.class), is(instanceOf(ConditionalInterceptor.class)));
+	}
+
+	@Test
+	public void shouldRegisterSingleFlightInterceptor() {
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+		ControllerRouteResolver controllerRouteResolver = injectionContext.get(ControllerRouteResolver.class);
+		assertThat((Object) controllerRouteResolver.interceptor(SingleFlight.class), is(instanceOf(SingleFlightInterceptor.class)));
+	}
+
+	@Test
+	public void shouldRegisterResponseCacheInterceptor() {
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+		ControllerRouteResolver controllerRouteResolver = injectionContext.get(ControllerRouteResolver.class);
+		ResponseCacheInterceptor interceptor = (ResponseCacheInterceptor) (Object) controllerRouteResolver.interceptor(Cached.class);
+		assertThat(interceptor, is(notNullValue()));
+		ResponseCache cache = injectionContext.get(ResponseCache.class);
+		assertThat(interceptor.getCache(), is(sameInstance((ResponseCacheBackend) cache)));
+		assertThat(injectionContext.get(ResponseCacheBackend.class), is(sameInstance((ResponseCacheBackend) cache)));
+		assertThat(cache.getMaxBytes(), is(ResponseCache.DefaultMaxBytes));
+		assertThat(cache.getMaxEntryBytes(), is(ResponseCache.DefaultMaxEntryBytes));
+		assertThat(injectionContext.contains(MemcachedClient.class), is(false));
+
+		ViewResolverRegistry viewResolverRegistry = injectionContext.get(ViewResolverRegistry.class);
+		assertThat((Object) viewResolverRegistry.findViewResolver(new CachedResponse(200, null, null, new HashMap<String, String>(), new byte[0], 0)), is(instanceOf(CachedResponseViewResolver.class)));
+	}
+
+	@Test
+	public void shouldConfigureResponseCacheFromProperties() {
+		injectionContext.inject("4096").named(RouterModule.ResponseCacheBytesProperty).as(String.class);
+		injectionContext.inject("1024").named(RouterModule.ResponseCacheMaxEntryBytesProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		ResponseCache cache = injectionContext.get(ResponseCache.class);
+		assertThat(cache.getMaxBytes(), is(4096L));
+		assertThat(cache.getMaxEntryBytes(), is(1024L));
+	}
+
+	@Test
+	public void shouldShareResponseCacheThroughMemcachedWhenServersAreConfigured() {
+		injectionContext.inject("localhost:11311, localhost:11312").named(RouterModule.ResponseCacheMemcachedServersProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		TieredResponseCache backend = (TieredResponseCache) injectionContext.get(ResponseCacheBackend.class);
+		assertThat(backend.getLocal(), is(sameInstance((ResponseCacheBackend) injectionContext.get(ResponseCache.class))));
+		assertThat(backend.getShared(), is(instanceOf(MemcachedResponseCache.class)));
+		MemcachedClient client = injectionContext.get(MemcachedClient.class);
+		assertThat(((MemcachedResponseCache) backend.getShared()).getClient(), is(sameInstance(client)));
+
+		routeModule.stop(injectionContext);
+		assertThat(client.isStopped(), is(true));
+	}
+
+	@Test
+	public void shouldHoldResponsesOnDiskWhenDirectoryIsConfigured() throws IOException {
+		File directory = folder.newFolder("responses");
+		injectionContext.inject(directory.getPath()).named(RouterModule.ResponseCacheDirectoryProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		TieredResponseCache backend = (TieredResponseCache) injectionContext.get(ResponseCacheBackend.class);
+		DiskResponseCache disk = injectionContext.get(DiskResponseCache.class);
+		assertThat(backend.getShared(), is(sameInstance((ResponseCacheBackend) disk)));
+		assertThat(disk.getStore().getDirectory(), is(directory));
+		assertThat(disk.getStore().getMaxBytes(), is(SegmentStore.DefaultMaxBytes));
+		assertThat(disk.getStore().isCompacting(), is(true));
+
+		routeModule.stop(injectionContext);
+		assertThat(disk.getStore().isCompacting(), is(false));
+	}
+
+	@Test
+	public void shouldHoldStaticResourcesOnDiskWhenDirectoryIsConfigured() throws IOException {
+		File directory = folder.newFolder("static");
+		injectionContext.inject(directory.getPath()).named(RouterModule.StaticResourceCacheDirectoryProperty).as(String.class);
+		injectionContext.inject("1048576").named(RouterModule.StaticResourceCacheDiskBytesProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		SegmentStore store = injectionContext.get(StaticResourceCache.class).getDiskStore();
+		assertThat(store.getDirectory(), is(directory));
+		assertThat(store.getMaxBytes(), is(1048576L));
+
+		routeModule.stop(injectionContext);
+		assertThat(store.isCompacting(), is(false));
+	}
+
 	@Test
 	public void shouldRegisterStandardRouteResolvers() {
 		routeModule.initialise(injectionContext);
@@ -79,4 +215,108 @@ public class RouterModuleTest {
 		assertThat(router.getResolver(Rewrite.class) instanceof RewriteRouteResolver, is(true));
 
 	}
+
+	@Test
+	public void shouldCacheStaticResourcesByDefault() {
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = (StaticResourceRouteResolver) injectionContext.get(Router.class).getResolver(StaticResource.class);
+		StaticResourceCache cache = injectionContext.get(StaticResourceCache.class);
+		assertThat(cache, is(notNullValue()));
+		assertThat(resolver.getCache(), is(sameInstance(cache)));
+		assertThat(cache.getMaxBytes(), is(StaticResourceCache.DefaultMaxBytes));
+		assertThat(cache.getMaxEntryBytes(), is(StaticResourceCache.DefaultMaxEntryBytes));
+		assertThat(cache.isWatching(), is(false));
+	}
+
+	@Test
+	public void shouldConfigureStaticResourceCacheFromProperties() {
+		injectionContext.inject("2048").named(RouterModule.StaticResourceCacheBytesProperty).as(String.class);
+		injectionContext.inject("512").named(RouterModule.StaticResourceCacheMaxEntryBytesProperty).as(String.class);
+		injectionContext.inject("true").named(RouterModule.StaticResourceCacheWatchProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceCache cache = injectionContext.get(StaticResourceCache.class);
+		assertThat(cache.getMaxBytes(), is(2048L));
+		assertThat(cache.getMaxEntryBytes(), is(512L));
+		assertThat(cache.isWatching(), is(true));
+
+		routeModule.stop(injectionContext);
+		assertThat(cache.isWatching(), is(false));
+	}
+
+	@Test
+	public void shouldDisableStaticResourceCacheWhenSizeIsZero() {
+		injectionContext.inject("0").named(RouterModule.StaticResourceCacheBytesProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = (StaticResourceRouteResolver) injectionContext.get(Router.class).getResolver(StaticResource.class);
+		assertThat(resolver.getCache(), is(nullValue()));
+		assertThat(injectionContext.contains(StaticResourceCache.class), is(false));
+	}
+
+	@Test
+	public void shouldGeneratePrecompressedResourcesOnStartWhenDirectoryConfigured() throws IOException {
+		File war = folder.newFolder("war");
+		File directory = folder.newFolder("precompressed");
+		DirectoryServletContext servletContext = new DirectoryServletContext(war);
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		injectionContext.inject(servletContext).as(ServletContext.class);
+		injectionContext.inject(directory.getPath()).named(RouterModule.StaticResourcePrecompressedDirectoryProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = injectionContext.get(StaticResourceRouteResolver.class);
+		assertThat(resolver.getPrecompressedDirectory(), is(directory));
+
+		routeModule.start(injectionContext);
+		assertThat(new File(directory, "static/app.css.gz").isFile(), is(true));
+	}
+
+	@Test
+	public void shouldConfigureStaticResourceCompressionFromProperties() {
+		injectionContext.inject("9").named(RouterModule.StaticResourceCompressionLevelProperty).as(String.class);
+		injectionContext.inject("256").named(RouterModule.StaticResourceCompressionThresholdProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = injectionContext.get(StaticResourceRouteResolver.class);
+		assertThat(resolver.getDeflaterPool().getLevel(), is(9));
+		assertThat(resolver.getCompressionThreshold(), is(256));
+	}
+
+	@Test
+	public void shouldUseDefaultStaticResourceCompression() {
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = injectionContext.get(StaticResourceRouteResolver.class);
+		assertThat(resolver.getDeflaterPool().getLevel(), is(Deflater.DEFAULT_COMPRESSION));
+		assertThat(resolver.getCompressionThreshold(), is(GzipResponseStream.DefaultCompressionThreshold));
+	}
+
+	@Test
+	public void shouldFingerprintStaticResourcesByDefault() {
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = injectionContext.get(StaticResourceRouteResolver.class);
+		ResourceFingerprints fingerprints = injectionContext.get(ResourceFingerprints.class);
+		assertThat(resolver.getFingerprints(), is(sameInstance(fingerprints)));
+		assertThat(injectionContext.get(GlobalModel.class).get(ResourceFingerprints.ModelAttribute), is((Object) fingerprints));
+	}
+
+	@Test
+	public void shouldNotFingerprintStaticResourcesWhenDisabled() {
+		injectionContext.inject("false").named(RouterModule.StaticResourceFingerprintsProperty).as(String.class);
+		routeModule.initialise(injectionContext);
+		routeModule.configure(injectionContext);
+
+		StaticResourceRouteResolver resolver = injectionContext.get(StaticResourceRouteResolver.class);
+		assertThat(resolver.getFingerprints(), is(nullValue()));
+		assertThat(injectionContext.get(GlobalModel.class).containsKey(ResourceFingerprints.ModelAttribute), is(false));
+	}
 }
@@ -19,8 +19,13 @@ package com.threewks.thundr.route;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -277,6 +282,93 @@ public class RouterTest {
 		}
 	}
 
+	@Test
+	public void shouldMatchPreviouslyMissedPathOnceRouteIsAdded() {
+		assertThat(router.findMatchingRoute("/missing", HttpMethod.GET), is(nullValue()));
+		assertThat(router.findMatchingRoute("/missing", HttpMethod.GET), is(nullValue()));
+
+		router.add(HttpMethod.GET, "/missing", new TestResolve("action"), null);
+		assertThat(router.findMatchingRoute("/missing", HttpMethod.GET), is(notNullValue()));
+
+		router.remove(HttpMethod.GET, "/missing");
+		assertThat(router.findMatchingRoute("/missing", HttpMethod.GET), is(nullValue()));
+	}
+
+	@Test
+	public void shouldOnlyCacheMissesForTheRequestedMethod() {
+		router.add(HttpMethod.POST, "/path", new TestResolve("action"), null);
+		assertThat(router.findMatchingRoute("/path", HttpMethod.GET), is(nullValue()));
+		assertThat(router.findMatchingRoute("/path", HttpMethod.POST), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldCacheRouteListingUntilRoutesChange() {
+		router.add(HttpMethod.GET, "/first", new TestResolve("first"), null);
+		String listing = router.listRoutes();
+		assertThat(router.listRoutes(), is(sameInstance(listing)));
+
+		router.add(HttpMethod.GET, "/second", new TestResolve("second"), null);
+		String updated = router.listRoutes();
+		assertThat(updated, is(not(sameInstance(listing))));
+		assertThat(updated, containsString("/second"));
+	}
+
+	@Test
+	public void shouldIncludeRouteListingInRouteNotFoundExceptionMessage() {
+		router.add(HttpMethod.GET, "/first", new TestResolve("first"), null);
+		try {
+			router.invoke("/missing", HttpMethod.GET, req, resp);
+			fail("Expected RouteNotFoundException");
+		} catch (RouteNotFoundException e) {
+			assertThat(e.getMessage(), is("No route matching the request GET /missing\n" + router.listRoutes()));
+			assertThat(e.getStackTrace().length, is(0));
+		}
+	}
+
+	@Test
+	public void shouldInvokeRoutesWhileRoutesAreAddedAndRemovedConcurrently() throws InterruptedException {
+		final TestResolve stable = new TestResolve("stable");
+		router.add(HttpMethod.GET, "/stable/{id}", stable, null);
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger invocations = new AtomicInteger();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (running.get()) {
+						try {
+							if (router.invoke("/stable/1", HttpMethod.GET, req, resp) != stable) {
+								failures.incrementAndGet();
+							}
+							invocations.incrementAndGet();
+						} catch (RuntimeException e) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+
+		for (int i = 0; i < 500; i++) {
+			router.add(HttpMethod.GET, "/toggle/" + i, new TestResolve("toggle"), "toggle" + i);
+			router.remove("toggle" + i);
+		}
+		running.set(false);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		assertThat(failures.get(), is(0));
+		assertThat(invocations.get(), is(greaterThan(0)));
+		assertThat(router.has(HttpMethod.GET, "/toggle/1"), is(false));
+		assertThat(router.has(HttpMethod.GET, "/stable/{id}"), is(true));
+	}
+
 	private static class TestResolve implements RouteResult {
 
 		private String actionName;
@@ -0,0 +1,96 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.threewks.thundr.exception.BaseException;
+
+public class CachedResponseCodecTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldEncodeAndDecodeResponse() {
+		Map<String, String> headers = new LinkedHashMap<String, String>();
+		headers.put("B", "1");
+		headers.put("A", null);
+		CachedResponse response = new CachedResponse(201, "application/json", "UTF-8", headers, "{}".getBytes(), 12345L);
+
+		CachedResponse decoded = CachedResponseCodec.decode(CachedResponseCodec.encode(response));
+
+		assertThat(decoded.getStatus(), is(201));
+		assertThat(decoded.getContentType(), is("application/json"));
+		assertThat(decoded.getCharacterEncoding(), is("UTF-8"));
+		assertThat(decoded.getHeaders().keySet(), contains("B", "A"));
+		assertThat(decoded.getHeaders().get("A"), is(nullValue()));
+		assertThat(decoded.getBody(), is("{}".getBytes()));
+		assertThat(decoded.getExpires(), is(12345L));
+	}
+
+	@Test
+	public void shouldEncodeAndDecodeResponseWithoutContentType() {
+		CachedResponse response = new CachedResponse(200, null, null, new LinkedHashMap<String, String>(), new byte[0], 0L);
+
+		CachedResponse decoded = CachedResponseCodec.decode(CachedResponseCodec.encode(response));
+
+		assertThat(decoded.getContentType(), is(nullValue()));
+		assertThat(decoded.getCharacterEncoding(), is(nullValue()));
+		assertThat(decoded.getBody().length, is(0));
+	}
+
+	@Test
+	public void shouldFailToDecodeUnknownVersion() {
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("unsupported version 42");
+
+		CachedResponseCodec.decode(new byte[] { 42 });
+	}
+
+	@Test
+	public void shouldFailToDecodeTruncatedData() {
+		byte[] encoded = CachedResponseCodec.encode(new CachedResponse(200, "text/plain", null, new LinkedHashMap<String, String>(), "content".getBytes(), 0L));
+		byte[] truncated = new byte[encoded.length - 2];
+		System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+		thrown.expect(BaseException.class);
+
+		CachedResponseCodec.decode(truncated);
+	}
+
+	@Test
+	public void shouldDecodeBodyAsSliceOfBuffer() {
+		byte[] encoded = CachedResponseCodec.encode(new CachedResponse(200, "text/plain", null, new LinkedHashMap<String, String>(), "content".getBytes(), 0L));
+		ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+		buffer.put(encoded).flip();
+
+		CachedResponse decoded = CachedResponseCodec.decode(buffer);
+
+		assertThat(decoded.getBodyBuffer().isDirect(), is(true));
+		assertThat(new String(decoded.getBody()), is("content"));
+		assertThat(buffer.position(), is(0));
+	}
+}
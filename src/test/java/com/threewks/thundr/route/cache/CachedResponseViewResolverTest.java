@@ -0,0 +1,54 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class CachedResponseViewResolverTest {
+	private CachedResponseViewResolver resolver = new CachedResponseViewResolver();
+	private MockHttpServletRequest req = new MockHttpServletRequest();
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+
+	@Test
+	public void shouldWriteCachedResponse() {
+		Map<String, String> headers = new LinkedHashMap<String, String>();
+		headers.put("X-Custom", "value");
+		resolver.resolve(req, resp, new CachedResponse(201, "application/json", "UTF-8", headers, "{}".getBytes(), Long.MAX_VALUE));
+
+		assertThat(resp.status(), is(201));
+		assertThat(resp.getContentType(), is("application/json"));
+		assertThat(resp.getCharacterEncoding(), is("UTF-8"));
+		assertThat(resp.<String> header("X-Custom"), is("value"));
+		assertThat(resp.getContentLength(), is(2));
+		assertThat(resp.content(), is("{}"));
+	}
+
+	@Test
+	public void shouldReturnSimpleToString() {
+		assertThat(resolver.toString(), is("CachedResponseViewResolver"));
+	}
+}
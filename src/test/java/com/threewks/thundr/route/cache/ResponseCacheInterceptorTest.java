@@ -0,0 +1,239 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.RequestThreadLocal;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.view.ViewResolverRegistry;
+import com.threewks.thundr.view.json.JsonNegotiator;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistryImpl;
+import com.threewks.thundr.view.string.StringView;
+import com.threewks.thundr.view.string.StringViewResolver;
+
+public class ResponseCacheInterceptorTest {
+	private ResponseCache cache = new ResponseCache();
+	private ViewResolverRegistry viewResolverRegistry = new ViewResolverRegistry();
+	private ViewNegotiatorRegistry viewNegotiatorRegistry = new ViewNegotiatorRegistryImpl();
+	private ResponseCacheInterceptor interceptor = new ResponseCacheInterceptor(cache, viewResolverRegistry, viewNegotiatorRegistry);
+	private MockHttpServletRequest req = new MockHttpServletRequest().url("/things");
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private Cached cached;
+
+	@Before
+	public void before() throws NoSuchMethodException {
+		cached = ResponseCacheInterceptorTest.class.getDeclaredMethod("cachedMethod").getAnnotation(Cached.class);
+		viewResolverRegistry.addResolver(StringView.class, new StringViewResolver());
+		viewNegotiatorRegistry.addNegotiator("application/json", new JsonNegotiator());
+		RequestThreadLocal.set(req, resp);
+	}
+
+	@After
+	public void after() {
+		RequestThreadLocal.clear();
+	}
+
+	@Test
+	public void shouldRenderAndCacheResponseOnMiss() {
+		assertThat(interceptor.before(cached, req, resp), is(nullValue()));
+
+		CachedResponse response = interceptor.after(cached, new StringView("content").withContentType("text/plain").withHeader("X-Custom", "value"), req, resp);
+
+		assertThat(response, is(notNullValue()));
+		assertThat(response.getStatus(), is(200));
+		assertThat(response.getContentType(), is("text/plain"));
+		assertThat(response.getHeaders().get("X-Custom"), is("value"));
+		assertThat(new String(response.getBody()), is("content"));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.misses(), is(1L));
+	}
+
+	@Test
+	public void shouldReturnCachedResponseOnHit() {
+		interceptor.before(cached, req, resp);
+		CachedResponse rendered = interceptor.after(cached, new StringView("content"), req, resp);
+
+		CachedResponse result = interceptor.before(cached, req, resp);
+
+		assertThat(result, is(sameInstance(rendered)));
+		assertThat(interceptor.after(cached, result, req, resp), is(nullValue()));
+		assertThat(cache.hits(), is(1L));
+	}
+
+	@Test
+	public void shouldNotCacheNonGetRequests() {
+		req.method("POST");
+
+		assertThat(interceptor.before(cached, req, resp), is(nullValue()));
+		assertThat(interceptor.after(cached, new StringView("content"), req, resp), is(nullValue()));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldNotCacheUnsuccessfulResponses() {
+		interceptor.before(cached, req, resp);
+		CachedResponse response = interceptor.after(cached, new StringView("missing").withStatusCode(404), req, resp);
+
+		assertThat(response.getStatus(), is(404));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldNotCacheResponsesSettingCookies() {
+		interceptor.before(cached, req, resp);
+		Object response = interceptor.after(cached, new StringView("content").withCookie("name", "value"), req, resp);
+
+		assertThat(response, is(nullValue()));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldNotCacheViewsWhichCannotBeRendered() {
+		interceptor.before(cached, req, resp);
+		Object response = interceptor.after(cached, new Object(), req, resp);
+
+		assertThat(response, is(nullValue()));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldKeyOnMethodPathVariedParametersAndNegotiatedContentType() {
+		req.parameter("page", "2").parameter("ignored", "x").header(Header.Accept, "Application/JSON, text/html");
+
+		assertThat(interceptor.key(cached, req), is("3:GET7:/things4:page1:216:application/json"));
+	}
+
+	@Test
+	public void shouldKeyOnAllVariedParametersInOrder() {
+		req.parameter("size", "10").parameter("page", "1", "2");
+
+		assertThat(interceptor.key(cached, req), is("3:GET7:/things4:page1:14:page1:24:size2:100:"));
+	}
+
+	@Test
+	public void shouldNotConfuseParameterValuesWithOtherParameters() {
+		req.parameter("page", "1&size=2");
+		MockHttpServletRequest other = new MockHttpServletRequest().url("/things").parameter("page", "1").parameter("size", "2");
+
+		assertThat(interceptor.key(cached, req), is(not(interceptor.key(cached, other))));
+	}
+
+	@Test
+	public void shouldShareResponseAcrossAcceptHeadersNegotiatingTheSameContentType() {
+		req.header(Header.Accept, "application/json");
+		MockHttpServletRequest other = new MockHttpServletRequest().url("/things").header(Header.Accept, "image/png;q=0.9, application/json");
+
+		assertThat(interceptor.key(cached, req), is(interceptor.key(cached, other)));
+	}
+
+	@Test
+	public void shouldKeyOnAcceptHeaderWithoutNegotiatorRegistry() {
+		interceptor = new ResponseCacheInterceptor(cache, viewResolverRegistry);
+		req.header(Header.Accept, "Application/JSON, text/html");
+
+		assertThat(interceptor.key(cached, req), is("3:GET7:/things26:application/json,text/html"));
+	}
+
+	@Test
+	public void shouldNotCacheAcrossDifferentAcceptHeaders() {
+		interceptor.before(cached, req, resp);
+		interceptor.after(cached, new StringView("content"), req, resp);
+
+		MockHttpServletRequest jsonReq = new MockHttpServletRequest().url("/things").header(Header.Accept, "application/json");
+		assertThat(interceptor.before(cached, jsonReq, resp), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReleaseConcurrentRequestsWhenControllerFails() {
+		interceptor.before(cached, req, resp);
+		assertThat(interceptor.exception(cached, new RuntimeException("expected"), req, resp), is(nullValue()));
+
+		// a later request becomes responsible for rendering the response
+		MockHttpServletRequest next = new MockHttpServletRequest().url("/things");
+		assertThat(interceptor.before(cached, next, resp), is(nullValue()));
+		assertThat(interceptor.after(cached, new StringView("content"), next, resp), is(notNullValue()));
+		assertThat(cache.size(), is(1));
+	}
+
+	@Test
+	public void shouldReleaseConcurrentRequestsWhenAnotherInterceptorEndsTheRequest() {
+		interceptor.setWaitTimeout(10);
+		interceptor.before(cached, req, resp);
+		interceptor.complete(cached, req, resp);
+
+		// a later request is not left waiting on the abandoned render, and becomes responsible for rendering the response
+		MockHttpServletRequest next = new MockHttpServletRequest().url("/things");
+		assertThat(interceptor.before(cached, next, resp), is(nullValue()));
+		assertThat(interceptor.after(cached, new StringView("content"), next, resp), is(notNullValue()));
+		assertThat(cache.size(), is(1));
+	}
+
+	@Test
+	public void shouldWaitForConcurrentRenderOfSameResponse() throws Exception {
+		assertThat(interceptor.before(cached, req, resp), is(nullValue()));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Object> follower = executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return interceptor.before(cached, new MockHttpServletRequest().url("/things"), new MockHttpServletResponse());
+				}
+			});
+			Thread.sleep(50);
+			assertThat(follower.isDone(), is(false));
+
+			CachedResponse rendered = interceptor.after(cached, new StringView("content"), req, resp);
+			assertThat(follower.get(5, TimeUnit.SECONDS), is((Object) rendered));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shouldRenderIndependentlyWhenWaitTimesOut() {
+		interceptor.setWaitTimeout(10);
+		interceptor.before(cached, req, resp);
+
+		MockHttpServletRequest next = new MockHttpServletRequest().url("/things");
+		assertThat(interceptor.before(cached, next, resp), is(nullValue()));
+		assertThat(interceptor.after(cached, new StringView("content"), next, resp), is(nullValue()));
+
+		// the abandoned render can still complete
+		assertThat(interceptor.after(cached, new StringView("content"), req, resp), is(notNullValue()));
+	}
+
+	@Cached(ttl = 60, varyBy = { "size", "page" })
+	public void cachedMethod() {
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ResponseCacheTest {
+	private ResponseCache cache = new ResponseCache(100, 60);
+
+	@Test
+	public void shouldReturnCachedResponseAndCountHitsAndMisses() {
+		CachedResponse response = response(10);
+		assertThat(cache.get("key"), is(nullValue()));
+
+		assertThat(cache.put("key", response), is(true));
+		assertThat(cache.get("key"), is(sameInstance(response)));
+		assertThat(cache.get("other"), is(nullValue()));
+
+		assertThat(cache.hits(), is(1L));
+		assertThat(cache.misses(), is(2L));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.weight(), is(10L));
+	}
+
+	@Test
+	public void shouldNotReturnExpiredResponse() {
+		cache.put("key", new CachedResponse(200, "text/plain", "UTF-8", Collections.<String, String> emptyMap(), new byte[10], System.currentTimeMillis() - 1));
+
+		assertThat(cache.get("key"), is(nullValue()));
+		assertThat(cache.size(), is(0));
+		assertThat(cache.weight(), is(0L));
+		assertThat(cache.misses(), is(1L));
+	}
+
+	@Test
+	public void shouldNotStoreResponsesLargerThanMaxEntrySize() {
+		assertThat(cache.put("key", response(61)), is(false));
+		assertThat(cache.size(), is(0));
+		assertThat(cache.weight(), is(0L));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedResponsesByWeight() {
+		cache.put("a", response(40));
+		cache.put("b", response(40));
+		cache.get("a");
+		cache.put("c", response(40));
+
+		assertThat(cache.get("a"), is(notNullValue()));
+		assertThat(cache.get("b"), is(nullValue()));
+		assertThat(cache.get("c"), is(notNullValue()));
+		assertThat(cache.weight(), is(80L));
+		assertThat(cache.evictions(), is(1L));
+	}
+
+	@Test
+	public void shouldReplaceExistingResponse() {
+		cache.put("key", response(40));
+		CachedResponse replacement = response(20);
+		cache.put("key", replacement);
+
+		assertThat(cache.get("key"), is(sameInstance(replacement)));
+		assertThat(cache.weight(), is(20L));
+		assertThat(cache.evictions(), is(0L));
+	}
+
+	@Test
+	public void shouldIncludeHeadersInWeight() {
+		Map<String, String> headers = Collections.singletonMap("Name", "value");
+		cache.put("key", new CachedResponse(200, "text/plain", "UTF-8", headers, new byte[10], Long.MAX_VALUE));
+
+		assertThat(cache.weight(), is(19L));
+	}
+
+	@Test
+	public void shouldInvalidateAndClear() {
+		cache.put("a", response(10));
+		cache.put("b", response(10));
+
+		cache.invalidate("a");
+		assertThat(cache.get("a"), is(nullValue()));
+		assertThat(cache.weight(), is(10L));
+
+		cache.clear();
+		assertThat(cache.size(), is(0));
+		assertThat(cache.weight(), is(0L));
+	}
+
+	@Test
+	public void shouldLimitMaxEntrySizeToMaxSize() {
+		cache = new ResponseCache(100, 200);
+		assertThat(cache.getMaxBytes(), is(100L));
+		assertThat(cache.getMaxEntryBytes(), is(100L));
+	}
+
+	private CachedResponse response(int length) {
+		return new CachedResponse(200, "text/plain", "UTF-8", Collections.<String, String> emptyMap(), new byte[length], Long.MAX_VALUE);
+	}
+}
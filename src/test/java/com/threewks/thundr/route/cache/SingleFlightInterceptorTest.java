@@ -0,0 +1,250 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.threewks.thundr.bind.BinderRegistry;
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.http.RequestThreadLocal;
+import com.threewks.thundr.injection.InjectionContextImpl;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.route.controller.Controller;
+import com.threewks.thundr.route.controller.ControllerRouteResolver;
+import com.threewks.thundr.route.controller.FilterRegistry;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.view.ViewResolverRegistry;
+import com.threewks.thundr.view.json.JsonNegotiator;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistry;
+import com.threewks.thundr.view.negotiating.ViewNegotiatorRegistryImpl;
+import com.threewks.thundr.view.string.StringView;
+import com.threewks.thundr.view.string.StringViewResolver;
+
+public class SingleFlightInterceptorTest {
+	private ViewResolverRegistry viewResolverRegistry = new ViewResolverRegistry();
+	private ViewNegotiatorRegistry viewNegotiatorRegistry = new ViewNegotiatorRegistryImpl();
+	private SingleFlightInterceptor interceptor = new SingleFlightInterceptor(viewResolverRegistry, viewNegotiatorRegistry);
+	private MockHttpServletRequest req = new MockHttpServletRequest().url("/things");
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private ExecutorService executor = Executors.newCachedThreadPool();
+	private SingleFlight singleFlight;
+	private SingleFlight shortTimeout;
+
+	@Before
+	public void before() throws NoSuchMethodException {
+		singleFlight = SingleFlightInterceptorTest.class.getDeclaredMethod("singleFlightMethod").getAnnotation(SingleFlight.class);
+		shortTimeout = SingleFlightInterceptorTest.class.getDeclaredMethod("shortTimeoutMethod").getAnnotation(SingleFlight.class);
+		viewResolverRegistry.addResolver(StringView.class, new StringViewResolver());
+		viewNegotiatorRegistry.addNegotiator("application/json", new JsonNegotiator());
+		RequestThreadLocal.set(req, resp);
+	}
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+		RequestThreadLocal.clear();
+	}
+
+	@Test
+	public void shouldRenderResponseOfLeadingRequest() {
+		assertThat(interceptor.before(singleFlight, req, resp), is(nullValue()));
+		assertThat(interceptor.inFlight(), is(1));
+
+		CachedResponse response = interceptor.after(singleFlight, new StringView("content").withContentType("text/plain").withHeader("X-Custom", "value"), req, resp);
+
+		assertThat(response.getStatus(), is(200));
+		assertThat(response.getContentType(), is("text/plain"));
+		assertThat(response.getHeaders().get("X-Custom"), is("value"));
+		assertThat(new String(response.getBody()), is("content"));
+		assertThat(interceptor.inFlight(), is(0));
+	}
+
+	@Test
+	public void shouldNotRetainResponseOnceLeadingRequestFinishes() {
+		interceptor.before(singleFlight, req, resp);
+		interceptor.after(singleFlight, new StringView("content"), req, resp);
+
+		MockHttpServletRequest next = new MockHttpServletRequest().url("/things");
+		assertThat(interceptor.before(singleFlight, next, resp), is(nullValue()));
+		assertThat(interceptor.after(singleFlight, new StringView("changed"), next, resp), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldShareRenderedResponseWithConcurrentRequests() throws Exception {
+		assertThat(interceptor.before(singleFlight, req, resp), is(nullValue()));
+
+		List<Future<Object>> followers = new ArrayList<Future<Object>>();
+		for (int i = 0; i < 3; i++) {
+			followers.add(follow(singleFlight, new MockHttpServletRequest().url("/things")));
+		}
+		Thread.sleep(50);
+		for (Future<Object> follower : followers) {
+			assertThat(follower.isDone(), is(false));
+		}
+
+		CachedResponse rendered = interceptor.after(singleFlight, new StringView("content"), req, resp);
+		for (Future<Object> follower : followers) {
+			assertThat(follower.get(5, TimeUnit.SECONDS), is((Object) rendered));
+		}
+	}
+
+	@Test
+	public void shouldShareClientErrorResponses() throws Exception {
+		interceptor.before(singleFlight, req, resp);
+		Future<Object> follower = follow(singleFlight, new MockHttpServletRequest().url("/things"));
+		Thread.sleep(50);
+
+		CachedResponse rendered = interceptor.after(singleFlight, new StringView("missing").withStatusCode(404), req, resp);
+		assertThat(follower.get(5, TimeUnit.SECONDS), is((Object) rendered));
+	}
+
+	@Test
+	public void shouldReleaseConcurrentRequestsToRunIndependentlyWhenLeaderFails() throws Exception {
+		interceptor.before(singleFlight, req, resp);
+		Future<Object> follower = follow(singleFlight, new MockHttpServletRequest().url("/things"));
+		Thread.sleep(50);
+
+		assertThat(interceptor.exception(singleFlight, new RuntimeException("expected"), req, resp), is(nullValue()));
+		assertThat(follower.get(5, TimeUnit.SECONDS), is(nullValue()));
+		assertThat(interceptor.inFlight(), is(0));
+	}
+
+	@Test
+	public void shouldReleaseConcurrentRequestsToRunIndependentlyWhenLeaderRendersServerError() throws Exception {
+		interceptor.before(singleFlight, req, resp);
+		Future<Object> follower = follow(singleFlight, new MockHttpServletRequest().url("/things"));
+		Thread.sleep(50);
+
+		CachedResponse rendered = interceptor.after(singleFlight, new StringView("error").withStatusCode(503), req, resp);
+		assertThat(rendered.getStatus(), is(503));
+		assertThat(follower.get(5, TimeUnit.SECONDS), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotShareResponsesSettingCookies() throws Exception {
+		interceptor.before(singleFlight, req, resp);
+		Future<Object> follower = follow(singleFlight, new MockHttpServletRequest().url("/things"));
+		Thread.sleep(50);
+
+		assertThat(interceptor.after(singleFlight, new StringView("content").withCookie("session", "value"), req, resp), is(nullValue()));
+		assertThat(follower.get(5, TimeUnit.SECONDS), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRunIndependentlyWhenWaitTimesOut() {
+		interceptor.before(shortTimeout, req, resp);
+
+		MockHttpServletRequest next = new MockHttpServletRequest().url("/things");
+		assertThat(interceptor.before(shortTimeout, next, resp), is(nullValue()));
+		assertThat(interceptor.after(shortTimeout, new StringView("content"), next, resp), is(nullValue()));
+		assertThat(interceptor.inFlight(), is(0));
+
+		// the abandoned leader can still complete
+		assertThat(interceptor.after(shortTimeout, new StringView("content"), req, resp), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldNotCoalesceDifferentRequests() {
+		interceptor.before(singleFlight, req, resp);
+
+		assertThat(interceptor.before(singleFlight, new MockHttpServletRequest().url("/things").parameter("page", "2"), resp), is(nullValue()));
+		assertThat(interceptor.before(singleFlight, new MockHttpServletRequest().url("/things").header(Header.Accept, "application/json"), resp), is(nullValue()));
+		assertThat(interceptor.before(singleFlight, new MockHttpServletRequest().url("/things").method("HEAD"), resp), is(nullValue()));
+		assertThat(interceptor.inFlight(), is(4));
+	}
+
+	@Test
+	public void shouldNotCoalesceNonGetRequests() {
+		req.method("POST");
+
+		assertThat(interceptor.before(singleFlight, req, resp), is(nullValue()));
+		assertThat(interceptor.inFlight(), is(0));
+		assertThat(interceptor.after(singleFlight, new StringView("content"), req, resp), is(nullValue()));
+	}
+
+	@Test
+	public void shouldKeyOnMethodPathVariedParametersAndNegotiatedContentType() {
+		req.parameter("page", "2").parameter("ignored", "x").header(Header.Accept, "Application/JSON, text/html");
+
+		assertThat(interceptor.key(singleFlight, req), is("3:GET7:/things4:page1:216:application/json"));
+	}
+
+	@Test
+	public void shouldLandFlightWhenCombinedWithCached() throws Exception {
+		UpdatableInjectionContext injectionContext = new InjectionContextImpl();
+		injectionContext.inject(this).as(SingleFlightInterceptorTest.class);
+		final ControllerRouteResolver resolver = new ControllerRouteResolver(injectionContext, new FilterRegistry(), new BinderRegistry());
+		resolver.registerInterceptor(Cached.class, new ResponseCacheInterceptor(new ResponseCache(), viewResolverRegistry));
+		resolver.registerInterceptor(SingleFlight.class, interceptor);
+		final Controller action = new Controller(SingleFlightInterceptorTest.class, "cachedSingleFlightMethod");
+
+		Object result = resolver.resolve(action, HttpMethod.GET, req, resp, new HashMap<String, String>());
+
+		assertThat(result, is(instanceOf(CachedResponse.class)));
+		assertThat(interceptor.inFlight(), is(0));
+
+		// a later request for the same response is not left waiting on either interceptor
+		Future<Object> next = executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return resolver.resolve(action, HttpMethod.GET, new MockHttpServletRequest().url("/things"), new MockHttpServletResponse(), new HashMap<String, String>());
+			}
+		});
+		assertThat(next.get(1, TimeUnit.SECONDS), is(instanceOf(CachedResponse.class)));
+		assertThat(interceptor.inFlight(), is(0));
+	}
+
+	private Future<Object> follow(final SingleFlight annotation, final MockHttpServletRequest followerReq) {
+		return executor.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				return interceptor.before(annotation, followerReq, new MockHttpServletResponse());
+			}
+		});
+	}
+
+	@SingleFlight(varyBy = "page")
+	public void singleFlightMethod() {
+	}
+
+	@SingleFlight(timeout = 10)
+	public void shortTimeoutMethod() {
+	}
+
+	@Cached(ttl = 60)
+	@SingleFlight
+	public StringView cachedSingleFlightMethod() {
+		return new StringView("content");
+	}
+}
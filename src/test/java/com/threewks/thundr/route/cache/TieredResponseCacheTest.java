@@ -0,0 +1,82 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TieredResponseCacheTest {
+	private ResponseCache local = new ResponseCache();
+	private ResponseCache shared = new ResponseCache();
+	private TieredResponseCache cache = new TieredResponseCache(local, shared);
+
+	@Test
+	public void shouldStoreInBothTiers() {
+		CachedResponse response = response(Long.MAX_VALUE);
+
+		assertThat(cache.put("key", response), is(true));
+
+		assertThat(local.get("key"), is(sameInstance(response)));
+		assertThat(shared.get("key"), is(sameInstance(response)));
+	}
+
+	@Test
+	public void shouldPreferLocalTier() {
+		CachedResponse response = response(Long.MAX_VALUE);
+		local.put("key", response);
+
+		assertThat(cache.get("key"), is(sameInstance(response)));
+		assertThat(shared.misses(), is(0L));
+		assertThat(shared.hits(), is(0L));
+	}
+
+	@Test
+	public void shouldReadFromSharedTierAndCopyToLocal() {
+		CachedResponse response = response(Long.MAX_VALUE);
+		shared.put("key", response);
+
+		assertThat(cache.get("key"), is(sameInstance(response)));
+		assertThat(local.get("key"), is(sameInstance(response)));
+		assertThat(cache.sharedHits(), is(1L));
+		assertThat(cache.sharedMisses(), is(0L));
+	}
+
+	@Test
+	public void shouldMissWhenNeitherTierHasResponse() {
+		assertThat(cache.get("key"), is(nullValue()));
+		assertThat(cache.sharedMisses(), is(1L));
+	}
+
+	@Test
+	public void shouldInvalidateBothTiers() {
+		cache.put("key", response(Long.MAX_VALUE));
+
+		cache.invalidate("key");
+
+		assertThat(local.get("key"), is(nullValue()));
+		assertThat(shared.get("key"), is(nullValue()));
+	}
+
+	private CachedResponse response(long expires) {
+		return new CachedResponse(200, "text/plain", "UTF-8", Collections.<String, String> emptyMap(), "content".getBytes(), expires);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.disk;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.threewks.thundr.route.cache.CachedResponse;
+import com.threewks.thundr.route.cache.CachedResponseCodec;
+
+public class DiskResponseCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+	private DiskResponseCache cache;
+
+	@Before
+	public void before() throws IOException {
+		directory = folder.newFolder("responses");
+		cache = new DiskResponseCache(new SegmentStore(directory));
+	}
+
+	@After
+	public void after() {
+		cache.getStore().stop();
+	}
+
+	@Test
+	public void shouldStoreAndReadResponseAcrossRestart() {
+		assertThat(cache.put("GET /things", response(System.currentTimeMillis() + 60000)), is(true));
+		cache.getStore().stop();
+
+		cache = new DiskResponseCache(new SegmentStore(directory));
+
+		CachedResponse response = cache.get("GET /things");
+		assertThat(response.getStatus(), is(200));
+		assertThat(response.getHeaders().get("X-Custom"), is("value"));
+		assertThat(new String(response.getBody()), is("content"));
+	}
+
+	@Test
+	public void shouldNotStoreExpiredResponse() {
+		assertThat(cache.put("GET /things", response(System.currentTimeMillis() - 1)), is(false));
+		assertThat(cache.get("GET /things"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldInvalidateResponse() {
+		cache.put("GET /things", response(System.currentTimeMillis() + 60000));
+
+		cache.invalidate("GET /things");
+
+		assertThat(cache.get("GET /things"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldTreatUnreadableValueAsMiss() {
+		cache.getStore().put("GET /things", new byte[] { 42 }, 0);
+
+		assertThat(cache.get("GET /things"), is(nullValue()));
+		assertThat(cache.getStore().size(), is(0));
+	}
+
+	private CachedResponse response(long expires) {
+		return new CachedResponse(200, "text/html", "UTF-8", Collections.singletonMap("X-Custom", "value"), "content".getBytes(), expires);
+	}
+
+	@Test
+	public void shouldServeBodyFromMappedSegment() {
+		cache.put("GET /things", response(System.currentTimeMillis() + 60000));
+
+		CachedResponse response = cache.get("GET /things");
+
+		assertThat(response.getBodyBuffer().isDirect(), is(true));
+		assertThat(response.getBodyLength(), is(7));
+	}
+
+	@Test
+	public void shouldTreatTruncatedValueAsMiss() {
+		byte[] encoded = CachedResponseCodec.encode(response(System.currentTimeMillis() + 60000));
+		cache.getStore().put("GET /things", Arrays.copyOf(encoded, encoded.length - 2), 0);
+
+		assertThat(cache.get("GET /things"), is(nullValue()));
+		assertThat(cache.getStore().size(), is(0));
+	}
+}
@@ -0,0 +1,341 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.disk;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+	private SegmentStore store;
+
+	@Before
+	public void before() throws IOException {
+		directory = folder.newFolder("segments");
+		store = new SegmentStore(directory, 4096, 1024);
+	}
+
+	@After
+	public void after() {
+		store.stop();
+	}
+
+	@Test
+	public void shouldStoreAndReadValues() {
+		assertThat(store.get("key"), is(nullValue()));
+
+		assertThat(store.put("key", bytes("value"), 0), is(true));
+
+		assertThat(string(store.get("key")), is("value"));
+		assertThat(store.size(), is(1));
+	}
+
+	@Test
+	public void shouldReturnReadOnlyValues() {
+		store.put("key", bytes("value"), 0);
+
+		assertThat(store.get("key").isReadOnly(), is(true));
+	}
+
+	@Test
+	public void shouldReplaceValues() {
+		store.put("key", bytes("value1"), 0);
+		store.put("key", bytes("value2"), 0);
+
+		assertThat(string(store.get("key")), is("value2"));
+		assertThat(store.size(), is(1));
+	}
+
+	@Test
+	public void shouldRemoveValues() {
+		store.put("key", bytes("value"), 0);
+
+		store.remove("key");
+
+		assertThat(store.get("key"), is(nullValue()));
+		assertThat(store.size(), is(0));
+	}
+
+	@Test
+	public void shouldNotReturnExpiredValues() {
+		store.put("expired", bytes("value"), System.currentTimeMillis() - 1);
+		store.put("current", bytes("value"), System.currentTimeMillis() + 60000);
+
+		assertThat(store.get("expired"), is(nullValue()));
+		assertThat(string(store.get("current")), is("value"));
+		assertThat(store.size(), is(1));
+	}
+
+	@Test
+	public void shouldNotStoreValuesLargerThanASegment() {
+		assertThat(store.put("key", new byte[1024], 0), is(false));
+		assertThat(store.size(), is(0));
+	}
+
+	@Test
+	public void shouldLimitSegmentSizeToHalfOfMaximum() {
+		assertThat(new SegmentStore(folder.getRoot(), 1000, 1000).getSegmentBytes(), is(500L));
+	}
+
+	@Test
+	public void shouldStartNewSegmentsWhenFull() {
+		for (int i = 0; i < 5; i++) {
+			store.put("key" + i, new byte[400], 0);
+		}
+
+		assertThat(store.segments(), is(3));
+		assertThat(store.size(), is(5));
+	}
+
+	@Test
+	public void shouldReloadValuesAfterRestart() {
+		store.put("key1", bytes("value1"), 0);
+		store.put("key2", bytes("value2"), 0);
+		store.put("key1", bytes("value3"), 0);
+		store.put("removed", bytes("value"), 0);
+		store.remove("removed");
+		store.put("expiring", bytes("value"), System.currentTimeMillis() + 50);
+		store.stop();
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(string(store.get("key1")), is("value3"));
+		assertThat(string(store.get("key2")), is("value2"));
+		assertThat(store.get("removed"), is(nullValue()));
+		assertThat(store.put("key3", bytes("value4"), 0), is(true));
+		assertThat(string(store.get("key3")), is("value4"));
+	}
+
+	@Test
+	public void shouldNotReloadExpiredValues() throws InterruptedException {
+		store.put("expiring", bytes("value"), System.currentTimeMillis() + 20);
+		store.stop();
+		Thread.sleep(40);
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(store.get("expiring"), is(nullValue()));
+		assertThat(store.size(), is(0));
+	}
+
+	@Test
+	public void shouldReloadValuesAcrossSegments() {
+		for (int i = 0; i < 5; i++) {
+			store.put("key" + i, bytes("value" + i), 0);
+			store.put("padding" + i, new byte[300], 0);
+		}
+		store.remove("key2");
+		store.stop();
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(string(store.get("key0")), is("value0"));
+		assertThat(string(store.get("key4")), is("value4"));
+		assertThat(store.get("key2"), is(nullValue()));
+		assertThat(store.size(), is(9));
+	}
+
+	@Test
+	public void shouldRecoverFromTruncatedSegment() throws IOException {
+		store.put("key1", bytes("value1"), 0);
+		store.put("key2", bytes("value2"), 0);
+		store.stop();
+		File segment = directory.listFiles()[0];
+		long length = segment.length();
+		truncate(segment, length - 3);
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(segment.length(), is(length - SegmentStore.HeaderLength - 10));
+		assertThat(string(store.get("key1")), is("value1"));
+		assertThat(store.get("key2"), is(nullValue()));
+		store.put("key3", bytes("value3"), 0);
+		assertThat(string(store.get("key3")), is("value3"));
+	}
+
+	@Test
+	public void shouldRecoverFromTruncatedHeader() throws IOException {
+		store.put("key1", bytes("value1"), 0);
+		store.stop();
+		File segment = directory.listFiles()[0];
+		truncate(segment, 10);
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(store.size(), is(0));
+		assertThat(segment.length(), is(0L));
+	}
+
+	@Test
+	public void shouldRecoverFromCorruptRecord() throws IOException {
+		store.put("key1", bytes("value1"), 0);
+		store.put("key2", bytes("value2"), 0);
+		store.stop();
+		File segment = directory.listFiles()[0];
+		RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			file.seek(file.length() - 1);
+			file.write('X');
+		} finally {
+			file.close();
+		}
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(string(store.get("key1")), is("value1"));
+		assertThat(store.get("key2"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldDiscardOldestSegmentsToStayWithinMaximumSize() {
+		for (int i = 0; i < 20; i++) {
+			store.put("key" + i, new byte[300], 0);
+		}
+
+		assertThat(store.diskBytes(), is(lessThanOrEqualTo(4096L)));
+		assertThat(store.get("key0"), is(nullValue()));
+		assertThat(store.get("key19"), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldCompactSegmentsWithLittleContentInUse() {
+		for (int i = 0; i < 3; i++) {
+			store.put("key" + i, new byte[300], 0);
+		}
+		store.put("other", bytes("value"), 0);
+		for (int i = 0; i < 3; i++) {
+			store.put("key" + i, new byte[300], 0);
+		}
+		long before = store.diskBytes();
+
+		store.compact();
+
+		assertThat(store.diskBytes(), is(lessThan(before)));
+		assertThat(string(store.get("other")), is("value"));
+		for (int i = 0; i < 3; i++) {
+			assertThat(store.get("key" + i).remaining(), is(300));
+		}
+	}
+
+	@Test
+	public void shouldKeepValuesAndRemovalsAcrossCompactionAndRestart() {
+		store.put("removed", bytes("old"), 0);
+		store.put("kept", new byte[950], 0);
+		// the removal is written to the second segment, which is compacted while the first still holds the removed value
+		store.remove("removed");
+		store.put("padding", new byte[900], 0);
+		store.put("padding", new byte[900], 0);
+		assertThat(store.segments(), is(3));
+
+		store.compact();
+		assertThat(store.segments(), is(2));
+		store.stop();
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(store.get("removed"), is(nullValue()));
+		assertThat(store.get("kept").remaining(), is(950));
+		assertThat(store.get("padding").remaining(), is(900));
+	}
+
+	@Test
+	public void shouldClear() {
+		store.put("key", bytes("value"), 0);
+
+		store.clear();
+
+		assertThat(store.get("key"), is(nullValue()));
+		assertThat(store.size(), is(0));
+		assertThat(store.segments(), is(1));
+		assertThat(store.put("key", bytes("value"), 0), is(true));
+	}
+
+	@Test
+	public void shouldCompactInBackgroundUntilStopped() {
+		store.startCompacting(60000);
+		assertThat(store.isCompacting(), is(true));
+
+		store.stop();
+
+		assertThat(store.isCompacting(), is(false));
+		assertThat(store.put("key", bytes("value"), 0), is(false));
+	}
+
+	@Test
+	public void shouldMapSegmentsOnceAtTheirFullSize() {
+		store.put("key1", bytes("value1"), 0);
+		ByteBuffer value1 = store.get("key1");
+		File segment = directory.listFiles()[0];
+
+		assertThat(value1.isDirect(), is(true));
+		assertThat(segment.length(), is(1024L));
+
+		store.put("key2", bytes("value2"), 0);
+		assertThat(string(store.get("key2")), is("value2"));
+		assertThat(string(value1), is("value1"));
+		assertThat(store.diskBytes(), is(2L * (SegmentStore.HeaderLength + 10)));
+	}
+
+	@Test
+	public void shouldDiscardUnusedSpaceOfMappedSegmentsAfterRestart() {
+		store.put("key1", bytes("value1"), 0);
+		store.get("key1");
+		store.stop();
+		File segment = directory.listFiles()[0];
+
+		store = new SegmentStore(directory, 4096, 1024);
+
+		assertThat(segment.length(), is((long) SegmentStore.HeaderLength + 10));
+		assertThat(string(store.get("key1")), is("value1"));
+		store.put("key2", bytes("value2"), 0);
+		assertThat(string(store.get("key2")), is("value2"));
+	}
+
+	private static void truncate(File file, long length) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(length);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
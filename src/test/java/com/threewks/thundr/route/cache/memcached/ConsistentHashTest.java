@@ -0,0 +1,87 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ConsistentHashTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldMapKeysConsistently() {
+		ConsistentHash<String> hash = new ConsistentHash<String>(Arrays.asList("a", "b", "c"));
+		ConsistentHash<String> other = new ConsistentHash<String>(Arrays.asList("c", "b", "a"));
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(hash.get("key" + i), is(other.get("key" + i)));
+		}
+	}
+
+	@Test
+	public void shouldDistributeKeysAcrossNodes() {
+		ConsistentHash<String> hash = new ConsistentHash<String>(Arrays.asList("a", "b", "c"));
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (int i = 0; i < 3000; i++) {
+			String node = hash.get("key" + i);
+			counts.put(node, counts.containsKey(node) ? counts.get(node) + 1 : 1);
+		}
+
+		for (String node : Arrays.asList("a", "b", "c")) {
+			assertThat(counts.get(node), is(allOf(greaterThan(700), lessThan(1300))));
+		}
+	}
+
+	@Test
+	public void shouldOnlyMoveKeysOfRemovedNode() {
+		ConsistentHash<String> before = new ConsistentHash<String>(Arrays.asList("a", "b", "c"));
+		ConsistentHash<String> after = new ConsistentHash<String>(Arrays.asList("a", "b"));
+
+		for (int i = 0; i < 1000; i++) {
+			String node = before.get("key" + i);
+			if (!"c".equals(node)) {
+				assertThat(after.get("key" + i), is(node));
+			}
+		}
+	}
+
+	@Test
+	public void shouldMapAllKeysToSingleNode() {
+		ConsistentHash<String> hash = new ConsistentHash<String>(Collections.singletonList("a"), 1);
+
+		assertThat(hash.get("key1"), is("a"));
+		assertThat(hash.get("key2"), is("a"));
+	}
+
+	@Test
+	public void shouldRequireNodes() {
+		thrown.expect(IllegalArgumentException.class);
+
+		new ConsistentHash<String>(Collections.<String> emptyList());
+	}
+}
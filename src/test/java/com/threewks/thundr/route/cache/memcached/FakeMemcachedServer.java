@@ -0,0 +1,176 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process server answering the get, set and delete commands of the memcached text protocol, for testing.
+ */
+public class FakeMemcachedServer {
+	private final ServerSocket serverSocket;
+	private final Map<String, byte[]> values = new ConcurrentHashMap<String, byte[]>();
+	private final List<Socket> sockets = new CopyOnWriteArrayList<Socket>();
+	private final List<String> commands = new CopyOnWriteArrayList<String>();
+	private final AtomicInteger connections = new AtomicInteger();
+	private volatile boolean unresponsive = false;
+	private volatile boolean stopped = false;
+
+	public FakeMemcachedServer() throws IOException {
+		serverSocket = new ServerSocket(0);
+		Thread thread = new Thread("fake-memcached") {
+			@Override
+			public void run() {
+				accept();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public InetSocketAddress address() {
+		return new InetSocketAddress("localhost", serverSocket.getLocalPort());
+	}
+
+	public Map<String, byte[]> values() {
+		return values;
+	}
+
+	/**
+	 * @return the command lines received, without any data blocks
+	 */
+	public List<String> commands() {
+		return commands;
+	}
+
+	public int connections() {
+		return connections.get();
+	}
+
+	/**
+	 * Stops answering commands, without closing connections
+	 */
+	public void unresponsive() {
+		unresponsive = true;
+	}
+
+	public void stop() throws IOException {
+		stopped = true;
+		serverSocket.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+	}
+
+	private void accept() {
+		try {
+			while (true) {
+				final Socket socket = serverSocket.accept();
+				if (stopped) {
+					// a connection accepted while closing
+					socket.close();
+					continue;
+				}
+				connections.incrementAndGet();
+				sockets.add(socket);
+				Thread thread = new Thread("fake-memcached-connection") {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				};
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} catch (IOException e) {
+			// stopped
+		}
+	}
+
+	private void serve(Socket socket) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			OutputStream out = socket.getOutputStream();
+			String line;
+			while ((line = readLine(in)) != null) {
+				commands.add(line);
+				String[] parts = line.split(" ");
+				byte[] data = null;
+				if ("set".equals(parts[0])) {
+					data = new byte[Integer.parseInt(parts[4])];
+					in.readFully(data);
+					readLine(in);
+				}
+				if (unresponsive) {
+					continue;
+				}
+				if ("get".equals(parts[0])) {
+					ByteArrayOutputStream response = new ByteArrayOutputStream();
+					for (int i = 1; i < parts.length; i++) {
+						byte[] value = values.get(parts[i]);
+						if (value != null) {
+							response.write(("VALUE " + parts[i] + " 0 " + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+							response.write(value);
+							response.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+						}
+					}
+					response.write("END\r\n".getBytes(StandardCharsets.US_ASCII));
+					out.write(response.toByteArray());
+				} else if ("set".equals(parts[0])) {
+					values.put(parts[1], data);
+					out.write("STORED\r\n".getBytes(StandardCharsets.US_ASCII));
+				} else if ("delete".equals(parts[0])) {
+					out.write((values.remove(parts[1]) == null ? "NOT_FOUND\r\n" : "DELETED\r\n").getBytes(StandardCharsets.US_ASCII));
+				} else {
+					out.write("ERROR\r\n".getBytes(StandardCharsets.US_ASCII));
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			// connection closed
+		}
+	}
+
+	private String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				return null;
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+	}
+}
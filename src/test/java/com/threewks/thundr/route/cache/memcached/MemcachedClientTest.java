@@ -0,0 +1,242 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class MemcachedClientTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private FakeMemcachedServer server1;
+	private FakeMemcachedServer server2;
+	private MemcachedClient client;
+
+	@Before
+	public void before() throws IOException {
+		server1 = new FakeMemcachedServer();
+		server2 = new FakeMemcachedServer();
+		client = new MemcachedClient(Arrays.asList(server1.address(), server2.address()), 500, 2);
+	}
+
+	@After
+	public void after() throws IOException {
+		client.stop();
+		server1.stop();
+		server2.stop();
+	}
+
+	@Test
+	public void shouldSetAndGetValue() {
+		assertThat(client.get("key"), is(nullValue()));
+
+		assertThat(client.set("key", "value".getBytes(), 60), is(true));
+
+		assertThat(new String(client.get("key")), is("value"));
+	}
+
+	@Test
+	public void shouldSetAndGetBinaryValuesContainingLineTerminators() {
+		byte[] value = new byte[] { '\r', '\n', 0, (byte) 255, 'E', 'N', 'D', '\r', '\n' };
+		client.set("binary", value, 0);
+
+		assertThat(client.get("binary"), is(value));
+	}
+
+	@Test
+	public void shouldSetAndGetValuesLargerThanReadBuffer() {
+		byte[] value = new byte[100 * 1024];
+		Arrays.fill(value, (byte) 'x');
+		client.set("large", value, 0);
+
+		assertThat(client.get("large"), is(value));
+	}
+
+	@Test
+	public void shouldDeleteValue() {
+		client.set("key", "value".getBytes(), 60);
+
+		assertThat(client.delete("key"), is(true));
+		assertThat(client.delete("key"), is(false));
+		assertThat(client.get("key"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldDistributeKeysAcrossServers() {
+		Map<String, byte[]> values = values(50);
+		assertThat(client.set(values, 60), is(50));
+
+		assertThat(server1.values().size(), is(greaterThan(0)));
+		assertThat(server2.values().size(), is(greaterThan(0)));
+		assertThat(server1.values().size() + server2.values().size(), is(50));
+	}
+
+	@Test
+	public void shouldPipelineSetsAndGetMultipleKeysWithOneCommandPerServer() {
+		Map<String, byte[]> values = values(20);
+		client.set(values, 60);
+
+		Map<String, byte[]> results = client.get(values.keySet());
+
+		assertThat(results.size(), is(20));
+		assertThat(new String(results.get("key7")), is("value7"));
+		assertThat(server1.commands().get(server1.commands().size() - 1), startsWith("get "));
+		assertThat(server2.commands().get(server2.commands().size() - 1), startsWith("get "));
+		assertThat(server1.connections() + server2.connections(), is(2));
+	}
+
+	@Test
+	public void shouldOmitMissingKeysFromMultipleGet() {
+		client.set("present", "value".getBytes(), 60);
+
+		Map<String, byte[]> results = client.get(Arrays.asList("present", "missing"));
+
+		assertThat(results.keySet(), contains("present"));
+	}
+
+	@Test
+	public void shouldReuseIdleConnections() {
+		for (int i = 0; i < 10; i++) {
+			client.set("key", "value".getBytes(), 60);
+			client.get("key");
+		}
+
+		assertThat(server1.connections() + server2.connections(), is(1));
+		assertThat(client.idle(server1.address()) + client.idle(server2.address()), is(1));
+	}
+
+	@Test
+	public void shouldMapKeysToTheSameServerConsistently() {
+		MemcachedClient other = new MemcachedClient(Arrays.asList(server1.address(), server2.address()));
+		try {
+			client.set(values(20), 60);
+			assertThat(other.get(values(20).keySet()).size(), is(20));
+		} finally {
+			other.stop();
+		}
+	}
+
+	@Test
+	public void shouldFailWhenServerDoesNotRespondInTime() {
+		server1.unresponsive();
+		server2.unresponsive();
+		thrown.expect(MemcachedException.class);
+		thrown.expectMessage("Timed out after 500ms");
+
+		client.get("key");
+	}
+
+	@Test
+	public void shouldDiscardConnectionsWhichFailed() {
+		server1.unresponsive();
+		server2.unresponsive();
+		try {
+			client.get("key");
+		} catch (MemcachedException e) {
+			// expected
+		}
+
+		assertThat(client.idle(server1.address()) + client.idle(server2.address()), is(0));
+	}
+
+	@Test
+	public void shouldFailWhenServerCannotBeReached() throws IOException {
+		server1.stop();
+		server2.stop();
+		thrown.expect(MemcachedException.class);
+		thrown.expectMessage("Failed to communicate with memcached");
+
+		client.get("key");
+	}
+
+	@Test
+	public void shouldTreatServerAsMissWhileDownAfterFailure() throws IOException, InterruptedException {
+		server1.stop();
+		server2.stop();
+		client.stop();
+		client = new MemcachedClient(Arrays.asList(server1.address(), server2.address()), 500, 2, 200);
+		try {
+			client.get("key");
+		} catch (MemcachedException e) {
+			// expected
+		}
+
+		assertThat(client.isDown(server1.address()) || client.isDown(server2.address()), is(true));
+		assertThat(client.get("key"), is(nullValue()));
+		assertThat(client.set("key", new byte[] { 1 }, 0), is(false));
+		assertThat(client.delete("key"), is(false));
+
+		Thread.sleep(250);
+		thrown.expect(MemcachedException.class);
+		thrown.expectMessage("Failed to communicate with memcached");
+		client.get("key");
+	}
+
+	@Test
+	public void shouldRejectInvalidKeys() {
+		thrown.expect(IllegalArgumentException.class);
+
+		client.get("has space");
+	}
+
+	@Test
+	public void shouldRejectKeysWhichAreTooLong() {
+		thrown.expect(IllegalArgumentException.class);
+
+		client.get(new String(new char[251]).replace('\0', 'a'));
+	}
+
+	@Test
+	public void shouldFailOnceStopped() {
+		client.stop();
+		thrown.expect(MemcachedException.class);
+		thrown.expectMessage("has been stopped");
+
+		client.get("key");
+	}
+
+	@Test
+	public void shouldParseServers() {
+		List<InetSocketAddress> servers = MemcachedClient.parseServers("localhost:11311, localhost");
+
+		assertThat(servers, contains(new InetSocketAddress("localhost", 11311), new InetSocketAddress("localhost", MemcachedClient.DefaultPort)));
+		assertThat(MemcachedClient.parseServers(" ").isEmpty(), is(true));
+	}
+
+	private Map<String, byte[]> values(int count) {
+		Map<String, byte[]> values = new LinkedHashMap<String, byte[]>();
+		for (int i = 0; i < count; i++) {
+			values.put("key" + i, ("value" + i).getBytes());
+		}
+		return values;
+	}
+}
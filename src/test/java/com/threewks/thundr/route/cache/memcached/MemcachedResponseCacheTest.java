@@ -0,0 +1,107 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.cache.memcached;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.threewks.thundr.route.cache.CachedResponse;
+
+public class MemcachedResponseCacheTest {
+	private FakeMemcachedServer server;
+	private MemcachedClient client;
+	private MemcachedResponseCache cache;
+
+	@Before
+	public void before() throws IOException {
+		server = new FakeMemcachedServer();
+		client = new MemcachedClient(Collections.singletonList(server.address()), 500, 2);
+		cache = new MemcachedResponseCache(client);
+	}
+
+	@After
+	public void after() throws IOException {
+		client.stop();
+		server.stop();
+	}
+
+	@Test
+	public void shouldStoreAndReadResponse() {
+		assertThat(cache.put("GET /things text/html", response(System.currentTimeMillis() + 60000)), is(true));
+
+		CachedResponse response = cache.get("GET /things text/html");
+		assertThat(response.getStatus(), is(200));
+		assertThat(response.getHeaders().get("X-Custom"), is("value"));
+		assertThat(new String(response.getBody()), is("content"));
+	}
+
+	@Test
+	public void shouldHashKeysAndExpireWithResponse() {
+		cache.put("GET /things text/html", response(System.currentTimeMillis() + 60000));
+
+		String command = server.commands().get(0);
+		assertThat(command, startsWith("set thundr:response:"));
+		assertThat(command.split(" ")[1].length(), is(MemcachedResponseCache.DefaultPrefix.length() + 40));
+		assertThat(Integer.parseInt(command.split(" ")[3]), is(allOf(greaterThan(58), lessThan(61))));
+	}
+
+	@Test
+	public void shouldNotStoreExpiredResponse() {
+		assertThat(cache.put("key", response(System.currentTimeMillis() - 1)), is(false));
+		assertThat(server.values().isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldInvalidateResponse() {
+		cache.put("key", response(System.currentTimeMillis() + 60000));
+
+		cache.invalidate("key");
+
+		assertThat(cache.get("key"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldTreatUnreadableValuesAsMisses() {
+		cache.put("key", response(System.currentTimeMillis() + 60000));
+		for (String key : server.values().keySet()) {
+			server.values().put(key, new byte[] { 42 });
+		}
+
+		assertThat(cache.get("key"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldTreatUnreachableServerAsMiss() throws IOException {
+		server.stop();
+
+		assertThat(cache.put("key", response(System.currentTimeMillis() + 60000)), is(false));
+		assertThat(cache.get("key"), is(nullValue()));
+		cache.invalidate("key");
+	}
+
+	private CachedResponse response(long expires) {
+		return new CachedResponse(200, "text/html", "UTF-8", Collections.singletonMap("X-Custom", "value"), "content".getBytes(), expires);
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.conditional;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Method;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.injection.InjectionContextImpl;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.view.conditional.NotModifiedView;
+
+public class ConditionalInterceptorTest {
+	private static final long LastModified = 946684810000L;
+
+	private UpdatableInjectionContext injectionContext = new InjectionContextImpl();
+	private ConditionalInterceptor interceptor = new ConditionalInterceptor(injectionContext);
+	private MockHttpServletRequest req = new MockHttpServletRequest().url("/things/1");
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+	private Conditional conditional;
+
+	@Before
+	public void before() throws NoSuchMethodException {
+		conditional = ConditionalInterceptorTest.class.getDeclaredMethod("conditionalMethod").getAnnotation(Conditional.class);
+	}
+
+	@Test
+	public void shouldSetValidatorHeadersAndContinueWhenRequestIsNotConditional() {
+		Object result = interceptor.before(conditional, req, resp);
+
+		assertThat(result, is(nullValue()));
+		assertThat(resp.<String> header(Header.ETag), is("W/\"v1\""));
+		assertThat(resp.header(Header.LastModified), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldReturnNotModifiedViewWhenIfNoneMatchMatches() {
+		req.header(Header.IfNoneMatch, "W/\"v1\"");
+
+		NotModifiedView result = interceptor.before(conditional, req, resp);
+
+		assertThat(result, is(notNullValue()));
+		assertThat(result.getETag(), is("W/\"v1\""));
+		assertThat(result.getLastModified(), is(LastModified));
+	}
+
+	@Test
+	public void shouldContinueWhenIfNoneMatchDoesNotMatch() {
+		req.header(Header.IfNoneMatch, "W/\"v0\"");
+
+		Object result = interceptor.before(conditional, req, resp);
+
+		assertThat(result, is(nullValue()));
+	}
+
+	@Test
+	public void shouldReturnNotModifiedViewWhenNotModifiedSince() {
+		req.header(Header.IfModifiedSince, "Sat, 01 Jan 2000 00:00:10 GMT");
+
+		Object result = interceptor.before(conditional, req, resp);
+
+		assertThat(result, is(instanceOf(NotModifiedView.class)));
+	}
+
+	@Test
+	public void shouldIgnoreRequestsOtherThanGetAndHead() {
+		req.method("POST").header(Header.IfNoneMatch, "W/\"v1\"");
+
+		Object result = interceptor.before(conditional, req, resp);
+
+		assertThat(result, is(nullValue()));
+		assertThat(resp.header(Header.ETag), is(nullValue()));
+	}
+
+	@Test
+	public void shouldCreateValidatorOnceUsingInjectionContext() {
+		ResponseValidator validator = interceptor.validator(VersionValidator.class);
+
+		assertThat(validator, is(instanceOf(VersionValidator.class)));
+		assertThat(interceptor.validator(VersionValidator.class), is(sameInstance(validator)));
+		assertThat(injectionContext.contains(VersionValidator.class), is(false));
+	}
+
+	@Test
+	public void shouldSatisfyValidatorDependenciesFromInjectionContext() {
+		injectionContext.inject("v2").named("version").as(String.class);
+
+		ResponseValidator validator = interceptor.validator(ConfiguredValidator.class);
+
+		assertThat(validator.version(req), is("v2"));
+		assertThat(injectionContext.contains(ConfiguredValidator.class), is(false));
+	}
+
+	@Test
+	public void shouldUseValidatorRegisteredWithInjectionContext() {
+		VersionValidator registered = new VersionValidator();
+		injectionContext.inject(registered).as(VersionValidator.class);
+
+		assertThat(interceptor.validator(VersionValidator.class), is(sameInstance((ResponseValidator) registered)));
+	}
+
+	@Test
+	public void shouldNotAlterResultAfterOrOnException() {
+		assertThat(interceptor.after(conditional, "view", req, resp), is(nullValue()));
+		assertThat(interceptor.exception(conditional, new RuntimeException(), req, resp), is(nullValue()));
+	}
+
+	@Conditional(VersionValidator.class)
+	public void conditionalMethod() {
+	}
+
+	public static class VersionValidator implements ResponseValidator {
+		@Override
+		public String version(HttpServletRequest req) {
+			return "v1";
+		}
+
+		@Override
+		public long lastModified(HttpServletRequest req) {
+			return LastModified;
+		}
+	}
+
+	public static class ConfiguredValidator implements ResponseValidator {
+		private String version;
+
+		public ConfiguredValidator(String version) {
+			this.version = version;
+		}
+
+		@Override
+		public String version(HttpServletRequest req) {
+			return version;
+		}
+
+		@Override
+		public long lastModified(HttpServletRequest req) {
+			return 0;
+		}
+	}
+}
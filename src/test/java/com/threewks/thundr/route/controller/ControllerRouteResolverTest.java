@@ -336,6 +336,31 @@ public class ControllerRouteResolverTest {
 		assertThat(registeredInterceptor.exceptionInvoked, is(true));
 	}
 
+	@Test
+	public void shouldCompleteInterceptorAfterActionMethod() {
+		TestCompletingInterceptor registeredInterceptor = new TestCompletingInterceptor(null, "Expected After", null);
+		Controller action = prepareActionMethod("intercept", registeredInterceptor);
+
+		assertThat((String) resolver.resolve(action, HttpMethod.GET, req, resp, pathVars), is("Expected After"));
+		assertThat(registeredInterceptor.afterInvoked, is(true));
+		assertThat(registeredInterceptor.completeInvoked, is(true));
+	}
+
+	@Test
+	public void shouldCompleteInterceptorWhenExceptionInActionMethodIsThrown() {
+		TestCompletingInterceptor registeredInterceptor = new TestCompletingInterceptor(null, null, null);
+		Controller action = prepareActionMethod("interceptException", registeredInterceptor);
+
+		try {
+			resolver.resolve(action, HttpMethod.GET, req, resp, pathVars);
+			fail("Expected an exception");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		assertThat(registeredInterceptor.exceptionInvoked, is(true));
+		assertThat(registeredInterceptor.completeInvoked, is(true));
+	}
+
 	private Controller prepareActionMethod(String method, Interceptor<TestAnnotation> registeredInterceptor) {
 		when(injectionContext.get(ControllerRouteResolverTest.class)).thenReturn(this);
 		resolver.registerInterceptor(TestAnnotation.class, registeredInterceptor);
@@ -393,4 +418,17 @@ public class ControllerRouteResolverTest {
 			return onException;
 		}
 	}
+
+	private class TestCompletingInterceptor extends TestActionInterceptor implements CompletingInterceptor<TestAnnotation> {
+		public boolean completeInvoked;
+
+		public TestCompletingInterceptor(String onBefore, String onAfter, String onException) {
+			super(onBefore, onAfter, onException);
+		}
+
+		@Override
+		public void complete(TestAnnotation annotation, HttpServletRequest req, HttpServletResponse resp) {
+			completeInvoked = true;
+		}
+	}
 }
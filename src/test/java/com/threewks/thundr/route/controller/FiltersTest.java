@@ -21,6 +21,14 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.junit.Test;
 import org.mockito.InOrder;
 
@@ -213,4 +221,63 @@ public class FiltersTest {
 		inOrder.verify(filter2).exception(HttpMethod.GET, e, req, resp);
 		inOrder.verify(filter1).exception(HttpMethod.GET, e, req, resp);
 	}
+
+	@Test
+	public void shouldApplyFiltersWhileFiltersAreAddedAndRemovedConcurrently() throws InterruptedException {
+		final AtomicInteger invocations = new AtomicInteger();
+		Filter counting = new Filter() {
+			@Override
+			public <T> T before(HttpMethod method, HttpServletRequest req, HttpServletResponse resp) {
+				invocations.incrementAndGet();
+				return null;
+			}
+
+			@Override
+			public <T> T after(HttpMethod method, Object view, HttpServletRequest req, HttpServletResponse resp) {
+				return null;
+			}
+
+			@Override
+			public <T> T exception(HttpMethod method, Exception e, HttpServletRequest req, HttpServletResponse resp) {
+				return null;
+			}
+		};
+		filters.add("/**", counting);
+		req.url("/path/to/something");
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger requests = new AtomicInteger();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (running.get()) {
+						try {
+							filters.before(HttpMethod.GET, req, resp);
+							requests.incrementAndGet();
+						} catch (RuntimeException e) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+
+		for (int i = 0; i < 500; i++) {
+			filters.add("/path/" + i + "/**", filter1);
+			filters.remove(filter1);
+		}
+		running.set(false);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		assertThat(failures.get(), is(0));
+		assertThat(invocations.get(), is(requests.get()));
+		assertThat(filters.has("/path/1/**", filter1), is(false));
+	}
 }
@@ -0,0 +1,104 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.servlet.ServletContext;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.threewks.thundr.injection.InjectionContextImpl;
+import com.threewks.thundr.injection.UpdatableInjectionContext;
+import com.threewks.thundr.module.DependencyRegistry;
+import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.route.Router;
+import com.threewks.thundr.route.RouterModule;
+import com.threewks.thundr.view.GlobalModel;
+import com.threewks.thundr.view.ViewResolverRegistry;
+
+public class AssetBundleModuleTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private AssetBundleModule module = new AssetBundleModule();
+	private UpdatableInjectionContext injectionContext = new InjectionContextImpl();
+
+	@Before
+	public void before() throws IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/js/a.js", "var a = 1;".getBytes("UTF-8"));
+		injectionContext.inject(servletContext).as(ServletContext.class);
+		injectionContext.inject(new GlobalModel()).as(GlobalModel.class);
+		injectionContext.inject(new ViewResolverRegistry()).as(ViewResolverRegistry.class);
+		RouterModule routerModule = new RouterModule();
+		routerModule.initialise(injectionContext);
+		routerModule.configure(injectionContext);
+	}
+
+	@Test
+	public void shouldDependOnRouterModule() {
+		DependencyRegistry dependencyRegistry = new DependencyRegistry();
+		module.requires(dependencyRegistry);
+		assertThat(dependencyRegistry.hasDependency(RouterModule.class), is(true));
+	}
+
+	@Test
+	public void shouldProvideBundlesAndRegisterRoute() {
+		module.configure(injectionContext);
+
+		AssetBundles bundles = injectionContext.get(AssetBundles.class);
+		Router router = injectionContext.get(Router.class);
+		assertThat(bundles, is(notNullValue()));
+		assertThat(bundles.getPath(), is(AssetBundles.DefaultPath));
+		assertThat(bundles.getFingerprints(), is(sameInstance(injectionContext.get(StaticResourceRouteResolver.class).getFingerprints())));
+		assertThat(injectionContext.get(GlobalModel.class).get(AssetBundles.ModelAttribute), is((Object) bundles));
+		assertThat(router.getResolver(AssetBundleResource.class) instanceof AssetBundleRouteResolver, is(true));
+		assertThat(router.findMatchingRoute("/bundles/app.0123456789.js", HttpMethod.GET), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldConfigureBundlesFromProperties() {
+		injectionContext.inject("/assets").named(AssetBundleModule.AssetBundlePathProperty).as(String.class);
+		injectionContext.inject("true").named(AssetBundleModule.AssetBundleDevelopmentProperty).as(String.class);
+		module.configure(injectionContext);
+
+		AssetBundles bundles = injectionContext.get(AssetBundles.class);
+		assertThat(bundles.getPath(), is("/assets"));
+		assertThat(bundles.isDevelopment(), is(true));
+		assertThat(injectionContext.get(Router.class).findMatchingRoute("/assets/app.js", HttpMethod.GET), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldBuildBundlesOnStart() {
+		module.configure(injectionContext);
+		AssetBundles bundles = injectionContext.get(AssetBundles.class);
+		bundles.add("app.js", "/js/a.js");
+
+		module.start(injectionContext);
+
+		assertThat(bundles.urls("app.js"), is(Collections.singletonList(bundles.get("app.js").getUrl())));
+	}
+}
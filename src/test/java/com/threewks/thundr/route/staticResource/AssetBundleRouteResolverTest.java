@@ -0,0 +1,105 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.atomicleopard.expressive.Expressive;
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class AssetBundleRouteResolverTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StaticResourceRouteResolver staticResourceRouteResolver;
+	private AssetBundles bundles;
+	private AssetBundleRouteResolver resolver;
+	private AssetBundleResource action = new AssetBundleResource();
+	private MockHttpServletRequest req = new MockHttpServletRequest();
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+
+	@Before
+	public void before() throws IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/js/a.js", "var a = 1;".getBytes("UTF-8"));
+		staticResourceRouteResolver = new StaticResourceRouteResolver(servletContext);
+		bundles = new AssetBundles(servletContext, staticResourceRouteResolver);
+		bundles.add("app.js", "/js/a.js");
+		resolver = new AssetBundleRouteResolver(bundles, staticResourceRouteResolver);
+	}
+
+	@Test
+	public void shouldServeBundleAtFingerprintedUrlAsImmutable() {
+		String url = bundles.get("app.js").getUrl();
+		req.url(url);
+
+		resolver.resolve(action, HttpMethod.GET, req, resp, pathVars(url.substring(url.lastIndexOf('/') + 1)));
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("var a=1;\n"));
+		assertThat(resp.getContentType(), is(staticResourceRouteResolver.deriveMimeType("app.js")));
+		assertThat(resp.<String> header(Header.ETag), is(bundles.get("app.js").getContent().getETag(false)));
+		assertThat(resp.<String> header(Header.CacheControl), is("public, max-age=31536000, immutable"));
+	}
+
+	@Test
+	public void shouldServeBundleAtOtherUrlsWithNormalCaching() {
+		req.url("/bundles/app.js");
+
+		resolver.resolve(action, HttpMethod.GET, req, resp, pathVars("app.js"));
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("var a=1;\n"));
+		assertThat(resp.<String> header(Header.CacheControl), is(not(containsString("immutable"))));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWhenIfNoneMatchMatches() {
+		req.url("/bundles/app.js");
+		req.header(Header.IfNoneMatch, bundles.get("app.js").getContent().getETag(false));
+
+		resolver.resolve(action, HttpMethod.GET, req, resp, pathVars("app.js"));
+
+		assertThat(resp.status(), is(304));
+	}
+
+	@Test
+	public void shouldRespondNotFoundForUnknownBundle() {
+		req.url("/bundles/other.js");
+
+		resolver.resolve(action, HttpMethod.GET, req, resp, pathVars("other.js"));
+
+		assertThat(resp.status(), is(404));
+	}
+
+	private Map<String, String> pathVars(String bundle) {
+		return Expressive.map(AssetBundleRouteResolver.PathVariable, bundle);
+	}
+}
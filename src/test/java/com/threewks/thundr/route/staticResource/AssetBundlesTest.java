@@ -0,0 +1,193 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.threewks.thundr.exception.BaseException;
+
+public class AssetBundlesTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private DirectoryServletContext servletContext;
+	private StaticResourceRouteResolver staticResourceRouteResolver;
+	private AssetBundles bundles;
+
+	@Before
+	public void before() throws IOException {
+		servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/js/a.js", "var a = 1 // first\n".getBytes("UTF-8"));
+		servletContext.write("/js/b.js", "var b = 2".getBytes("UTF-8"));
+		servletContext.write("/css/a.css", "body {\n  color: red;\n}\n".getBytes("UTF-8"));
+		servletContext.write("/txt/a.txt", "some  text".getBytes("UTF-8"));
+		staticResourceRouteResolver = new StaticResourceRouteResolver(servletContext);
+		bundles = new AssetBundles(servletContext, staticResourceRouteResolver);
+	}
+
+	@Test
+	public void shouldConcatenateAndMinifyJsBundleInOrder() throws IOException {
+		bundles.add("app.js", "/js/b.js", "/js/a.js");
+
+		AssetBundle bundle = bundles.get("app.js");
+
+		assertThat(bundle.getName(), is("app.js"));
+		assertThat(bundle.getPaths(), is(Arrays.asList("/js/b.js", "/js/a.js")));
+		assertThat(new String(bundle.getContent().getData(), "UTF-8"), is("var b=2;\nvar a=1;\n"));
+		assertThat(bundle.getContent().getMimeType(), is(staticResourceRouteResolver.deriveMimeType("app.js")));
+	}
+
+	@Test
+	public void shouldMinifyCssBundle() throws IOException {
+		bundles.add("app.css", "/css/a.css");
+
+		assertThat(new String(bundles.get("app.css").getContent().getData(), "UTF-8"), is("body{color:red}\n"));
+		assertThat(bundles.get("app.css").getContent().getMimeType(), is("text/css"));
+	}
+
+	@Test
+	public void shouldOnlyConcatenateBundlesOfOtherTypesOrWhenMinificationDisabled() throws IOException {
+		bundles.add("app.txt", "/txt/a.txt");
+		bundles.add("raw.js", "/js/b.js");
+		bundles.setMinify(false);
+
+		assertThat(new String(bundles.get("app.txt").getContent().getData(), "UTF-8"), is("some  text\n"));
+		assertThat(new String(bundles.get("raw.js").getContent().getData(), "UTF-8"), is("var b = 2\n"));
+	}
+
+	@Test
+	public void shouldFingerprintBundleUrl() {
+		bundles.add("app.js", "/js/a.js");
+		AssetBundle bundle = bundles.get("app.js");
+
+		String hash = ResourceFingerprints.hash(bundle.getContent().getData());
+		assertThat(bundle.getUrl(), is("/bundles/app." + hash + ".js"));
+
+		bundles.setPath("/assets");
+		bundles.clear();
+		assertThat(bundles.get("app.js").getUrl(), is("/assets/app." + hash + ".js"));
+	}
+
+	@Test
+	public void shouldPrecompressBundles() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("var a").append(i).append(" = ").append(i).append(";\n");
+		}
+		servletContext.write("/js/large.js", sb.toString().getBytes("UTF-8"));
+		bundles.add("app.js", "/js/large.js");
+
+		CachedResource content = bundles.get("app.js").getContent();
+		assertThat(content.hasGzipData(), is(true));
+		assertThat(content.getGzipData().length, is(lessThan(content.getData().length)));
+		assertThat(GzipResponseStreamTest.gunzip(content.getGzipData()), is(new String(content.getData(), "UTF-8")));
+	}
+
+	@Test
+	public void shouldBuildAllBundlesOnce() {
+		bundles.add("app.js", "/js/a.js").add("app.css", "/css/a.css");
+		bundles.build();
+
+		AssetBundle bundle = bundles.get("app.js");
+		assertThat(bundles.names(), is(Arrays.asList("app.js", "app.css")));
+		assertThat(bundles.has("app.css"), is(true));
+		assertThat(bundles.get("app.js"), is(sameInstance(bundle)));
+		assertThat(bundles.get("missing.js"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldFindBundleByFingerprintedOrPlainName() {
+		bundles.add("app.js", "/js/a.js");
+		AssetBundle bundle = bundles.get("app.js");
+		String requested = bundle.getUrl().substring("/bundles/".length());
+
+		assertThat(bundles.find(requested), is(sameInstance(bundle)));
+		assertThat(bundles.find("app.js"), is(sameInstance(bundle)));
+		assertThat(bundles.find("app.0123456789.js"), is(sameInstance(bundle)));
+		assertThat(bundles.find("other.0123456789.js"), is(nullValue()));
+		assertThat(bundles.find(null), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReturnBundleUrl() {
+		bundles.add("app.js", "/js/a.js", "/js/b.js");
+
+		assertThat(bundles.urls("app.js"), is(Collections.singletonList(bundles.get("app.js").getUrl())));
+	}
+
+	@Test
+	public void shouldReturnIndividualUrlsInDevelopment() {
+		bundles.add("app.js", "/js/a.js", "/js/b.js");
+		bundles.setDevelopment(true);
+
+		assertThat(bundles.urls("app.js"), is(Arrays.asList("/js/a.js", "/js/b.js")));
+
+		ResourceFingerprints fingerprints = new ResourceFingerprints(servletContext);
+		bundles.setFingerprints(fingerprints);
+		assertThat(bundles.urls("app.js"), is(Arrays.asList(fingerprints.url("/js/a.js"), fingerprints.url("/js/b.js"))));
+	}
+
+	@Test
+	public void shouldThrowWhenUrlsRequestedForUnknownBundle() {
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("No asset bundle named 'app.js' has been added");
+
+		bundles.urls("app.js");
+	}
+
+	@Test
+	public void shouldThrowWhenBundleNameHasNoExtension() {
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("Cannot add the asset bundle 'app' - bundle names must include an extension, i.e. 'app.js'");
+
+		bundles.add("app", "/js/a.js");
+	}
+
+	@Test
+	public void shouldThrowWhenBundleAddedTwice() {
+		bundles.add("app.js", "/js/a.js");
+
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("Cannot add the asset bundle 'app.js' - a bundle with this name has already been added");
+
+		bundles.add("app.js", "/js/b.js");
+	}
+
+	@Test
+	public void shouldThrowWhenBundleResourceDoesNotExist() {
+		bundles.add("app.js", "/js/a.js", "/js/missing.js");
+
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("Failed to build the asset bundle 'app.js' - the resource /js/missing.js does not exist");
+
+		bundles.build();
+	}
+}
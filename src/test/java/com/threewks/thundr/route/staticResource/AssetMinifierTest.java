@@ -0,0 +1,79 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class AssetMinifierTest {
+	@Test
+	public void shouldRemoveCssCommentsAndWhitespace() {
+		String css = "/* header */\nbody , p {\n\tcolor : red;\n\tmargin: 0 auto;\n}\n\na > b { font-family: \"Times  New  Roman\"; }\n";
+		assertThat(AssetMinifier.css(css), is("body,p{color :red;margin:0 auto}a>b{font-family:\"Times  New  Roman\"}"));
+	}
+
+	@Test
+	public void shouldRetainSignificantCssWhitespace() {
+		assertThat(AssetMinifier.css("div :first-child { width: calc(100% - 10px); }"), is("div :first-child{width:calc(100% - 10px)}"));
+		assertThat(AssetMinifier.css("ul  li a"), is("ul li a"));
+	}
+
+	@Test
+	public void shouldRetainPreservedComments() {
+		assertThat(AssetMinifier.css("/*! license */\na { b: c; }"), is("/*! license */ a{b:c}"));
+		assertThat(AssetMinifier.js("/*! license */\nvar a = 1;"), is("/*! license */\nvar a=1;"));
+	}
+
+	@Test
+	public void shouldRemoveJsCommentsAndWhitespace() {
+		String js = "// leading comment\nfunction add( a, b ) {\n    /* sum */\n    return a + b; // trailing\n}\n\n\nvar x = add( 1, 2 );\n";
+		assertThat(AssetMinifier.js(js), is("function add(a,b){\nreturn a+b;\n}\nvar x=add(1,2);"));
+	}
+
+	@Test
+	public void shouldRetainLineBreaksForSemicolonInsertion() {
+		assertThat(AssetMinifier.js("var a = 1\nvar b = 2"), is("var a=1\nvar b=2"));
+	}
+
+	@Test
+	public void shouldRetainJsStringLiterals() {
+		assertThat(AssetMinifier.js("var s = 'a // b /* c */ d';"), is("var s='a // b /* c */ d';"));
+		assertThat(AssetMinifier.js("var s = \"say \\\"hi  there\\\"\";"), is("var s=\"say \\\"hi  there\\\"\";"));
+		assertThat(AssetMinifier.js("var s = `a  ${b}  c`;"), is("var s=`a  ${b}  c`;"));
+	}
+
+	@Test
+	public void shouldRetainJsRegexLiterals() {
+		assertThat(AssetMinifier.js("var r = /a\\/\\/b  [/]*/g;"), is("var r=/a\\/\\/b  [/]*/g;"));
+		assertThat(AssetMinifier.js("return /x  y/.test(s);"), is("return/x  y/.test(s);"));
+		assertThat(AssetMinifier.js("var d = a / b / c;"), is("var d=a/b/c;"));
+	}
+
+	@Test
+	public void shouldRetainWhitespaceBetweenRepeatedOperators() {
+		assertThat(AssetMinifier.js("a = b - -c + +d;"), is("a=b- -c+ +d;"));
+		assertThat(AssetMinifier.js("a = b - c;"), is("a=b-c;"));
+	}
+
+	@Test
+	public void shouldSeparateTokensWhereCommentsAreRemoved() {
+		assertThat(AssetMinifier.js("var/**/a = 1;"), is("var a=1;"));
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.threewks.thundr.logger.Logger;
+import com.threewks.thundr.route.staticResource.GzipResponseStreamTest.BytesResponse;
+
+public class DeflaterPoolTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void shouldReuseReleasedDeflaters() {
+		DeflaterPool pool = new DeflaterPool();
+		Deflater deflater = pool.borrow();
+		pool.release(deflater);
+
+		assertThat(pool.idle(), is(1));
+		assertThat(pool.borrow(), is(sameInstance(deflater)));
+		assertThat(pool.idle(), is(0));
+		assertThat(pool.created(), is(1L));
+	}
+
+	@Test
+	public void shouldEndDeflatersBeyondMaxIdle() {
+		DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, 1);
+		Deflater first = pool.borrow();
+		Deflater second = pool.borrow();
+		pool.release(first);
+		pool.release(second);
+
+		assertThat(pool.idle(), is(1));
+		assertThat(pool.created(), is(2L));
+		thrown.expect(NullPointerException.class);
+		second.deflate(new byte[10]);
+	}
+
+	@Test
+	public void shouldEndIdleDeflatersWhenCleared() {
+		DeflaterPool pool = new DeflaterPool();
+		pool.release(pool.borrow());
+		pool.clear();
+		assertThat(pool.idle(), is(0));
+	}
+
+	@Test
+	public void shouldRejectInvalidCompressionLevel() {
+		thrown.expect(IllegalArgumentException.class);
+		thrown.expectMessage("Invalid compression level 10");
+		new DeflaterPool(10, 1);
+	}
+
+	@Test
+	public void shouldRetainLevelAndMaxIdle() {
+		DeflaterPool pool = new DeflaterPool(Deflater.BEST_COMPRESSION, 3);
+		assertThat(pool.getLevel(), is(Deflater.BEST_COMPRESSION));
+		assertThat(pool.getMaxIdle(), is(3));
+		assertThat(new DeflaterPool().getLevel(), is(Deflater.DEFAULT_COMPRESSION));
+	}
+
+	/**
+	 * Compresses many responses concurrently, reporting throughput. The number of deflaters created, and so the native memory
+	 * held, is bounded by the concurrency rather than the number of responses.
+	 */
+	@Test
+	public void shouldBoundDeflatersCreatedUnderConcurrency() throws Exception {
+		final int threads = 8;
+		final int responses = 200;
+		final byte[] content = RandomStringUtils.randomAlphanumeric(32 * 1024).getBytes("UTF-8");
+		final DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Long>> results = new ArrayList<Future<Long>>();
+			long start = System.nanoTime();
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws IOException {
+						long bytes = 0;
+						for (int i = 0; i < responses; i++) {
+							BytesResponse resp = new BytesResponse();
+							GzipResponseStream stream = new GzipResponseStream(resp, pool);
+							stream.write(content);
+							stream.close();
+							bytes += resp.bytes().length;
+						}
+						return bytes;
+					}
+				}));
+			}
+			long compressed = 0;
+			for (Future<Long> result : results) {
+				compressed += result.get();
+			}
+			long elapsed = System.nanoTime() - start;
+			Logger.info("Compressed %d responses (%d bytes to %d bytes) in %dms using %d deflaters", threads * responses, (long) threads * responses * content.length, compressed,
+					elapsed / 1000000, pool.created());
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(pool.created(), is(lessThanOrEqualTo((long) threads)));
+		assertThat(pool.idle(), is(lessThanOrEqualTo(threads)));
+	}
+}
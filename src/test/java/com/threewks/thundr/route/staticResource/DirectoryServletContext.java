@@ -0,0 +1,71 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.threewks.thundr.test.mock.servlet.MockServletContext;
+
+/**
+ * A {@link MockServletContext} whose resources are the files beneath a directory, as for an exploded war.
+ */
+public class DirectoryServletContext extends MockServletContext {
+	private File root;
+
+	public DirectoryServletContext(File root) {
+		this.root = root;
+	}
+
+	public File write(String resource, byte[] content) throws IOException {
+		File file = new File(root, resource);
+		file.getParentFile().mkdirs();
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(content);
+		} finally {
+			fos.close();
+		}
+		return file;
+	}
+
+	@Override
+	public URL getResource(String path) throws MalformedURLException {
+		File file = new File(root, path);
+		return file.isFile() ? file.toURI().toURL() : null;
+	}
+
+	@Override
+	public Set<String> getResourcePaths(String path) {
+		File[] files = new File(root, path).listFiles();
+		if (files == null) {
+			return null;
+		}
+		Set<String> paths = new LinkedHashSet<String>();
+		String prefix = path.endsWith("/") ? path : path + "/";
+		for (File file : files) {
+			paths.add(prefix + file.getName() + (file.isDirectory() ? "/" : ""));
+		}
+		return paths;
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.util.Streams;
+
+public class GzipResponseStreamTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private BytesResponse resp = new BytesResponse();
+	private DeflaterPool pool = new DeflaterPool();
+
+	@Test
+	public void shouldCompressContentAtLeastAsLargeAsThreshold() throws IOException {
+		String content = RandomStringUtils.randomAlphabetic(2000);
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		stream.write(content.getBytes("UTF-8"));
+		stream.close();
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(gunzip(resp.bytes()), is(content));
+		assertThat(resp.getContentLength(), is(0));
+	}
+
+	@Test
+	public void shouldSendContentSmallerThanThresholdUncompressedWithContentLength() throws IOException {
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		stream.write("small".getBytes("UTF-8"));
+		stream.close();
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(new String(resp.bytes(), "UTF-8"), is("small"));
+		assertThat(resp.getContentLength(), is(5));
+		assertThat(pool.created(), is(0L));
+	}
+
+	@Test
+	public void shouldRespectConfiguredThreshold() throws IOException {
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		stream.setBuffer(0);
+		stream.write("small".getBytes("UTF-8"));
+		stream.close();
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(gunzip(resp.bytes()), is("small"));
+	}
+
+	@Test
+	public void shouldSendEmptyContentUncompressed() throws IOException {
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		stream.setBuffer(0);
+		stream.close();
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.bytes().length, is(0));
+	}
+
+	@Test
+	public void shouldCompressMixOfSingleByteSmallAndBulkWrites() throws IOException {
+		StringBuilder expected = new StringBuilder();
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		for (int i = 0; i < 100; i++) {
+			String small = RandomStringUtils.randomAlphanumeric(i * 10);
+			String large = RandomStringUtils.randomAlphanumeric(20000);
+			stream.write('a');
+			stream.write(small.getBytes("UTF-8"));
+			stream.write(large.getBytes("UTF-8"));
+			expected.append('a').append(small).append(large);
+		}
+		stream.close();
+
+		assertThat(gunzip(resp.bytes()), is(expected.toString()));
+	}
+
+	@Test
+	public void shouldFlushCompressedContentWrittenSoFar() throws IOException {
+		String content = RandomStringUtils.randomAlphabetic(2000);
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		stream.write(content.getBytes("UTF-8"));
+		stream.flush();
+		int flushed = resp.bytes().length;
+		assertThat(flushed, is(greaterThan(10)));
+
+		stream.write(content.getBytes("UTF-8"));
+		stream.close();
+		assertThat(gunzip(resp.bytes()), is(content + content));
+	}
+
+	@Test
+	public void shouldReturnDeflaterToPoolWhenClosed() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			resp = new BytesResponse();
+			GzipResponseStream stream = new GzipResponseStream(resp, pool);
+			stream.write(RandomStringUtils.randomAlphabetic(2000).getBytes("UTF-8"));
+			stream.close();
+			assertThat(stream.closed(), is(true));
+		}
+		assertThat(pool.created(), is(1L));
+		assertThat(pool.idle(), is(1));
+	}
+
+	@Test
+	public void shouldCompressUsingPoolCompressionLevel() throws IOException {
+		String content = RandomStringUtils.randomAlphabetic(20000);
+		GzipResponseStream stream = new GzipResponseStream(resp, new DeflaterPool(0, 1));
+		stream.write(content.getBytes("UTF-8"));
+		stream.close();
+
+		assertThat(resp.bytes().length, is(greaterThan(20000)));
+		assertThat(gunzip(resp.bytes()), is(content));
+	}
+
+	@Test
+	public void shouldThrowIOExceptionWhenWritingToClosedStream() throws IOException {
+		thrown.expect(IOException.class);
+		thrown.expectMessage("Cannot write to a closed output stream");
+
+		GzipResponseStream stream = new GzipResponseStream(resp, pool);
+		stream.close();
+		stream.write(1);
+	}
+
+	static String gunzip(byte[] data) throws IOException {
+		return Streams.readString(new GZIPInputStream(new ByteArrayInputStream(data)), "UTF-8");
+	}
+
+	static class BytesResponse extends MockHttpServletResponse {
+		private ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		private ServletOutputStream os = new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				baos.write(b);
+			}
+		};
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			return os;
+		}
+
+		public byte[] bytes() {
+			return baos.toByteArray();
+		}
+	}
+}
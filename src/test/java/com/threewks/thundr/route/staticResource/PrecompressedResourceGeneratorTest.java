@@ -0,0 +1,115 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.threewks.thundr.util.Streams;
+
+public class PrecompressedResourceGeneratorTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DirectoryServletContext servletContext;
+	private StaticResourceRouteResolver resolver;
+	private File directory;
+	private PrecompressedResourceGenerator generator;
+	private String css = StringUtils.repeat("body { color: red; }\n", 50);
+
+	@Before
+	public void before() throws IOException {
+		servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		resolver = new StaticResourceRouteResolver(servletContext);
+		directory = folder.newFolder("precompressed");
+		resolver.setPrecompressedDirectory(directory);
+		generator = new PrecompressedResourceGenerator(servletContext, resolver, directory);
+	}
+
+	@Test
+	public void shouldGenerateCompressedCopiesOfCompressibleResources() throws IOException {
+		servletContext.write("/static/app.css", css.getBytes("UTF-8"));
+		servletContext.write("/static/js/app.js", "var a = 1;".getBytes("UTF-8"));
+		servletContext.write("/static/image.png", new byte[] { 1, 2, 3 });
+		servletContext.write("/static/README", new byte[] { 1, 2, 3 });
+		servletContext.write("/WEB-INF/web.html", new byte[] { 1, 2, 3 });
+
+		assertThat(generator.generate(), is(2));
+
+		assertThat(decompress(new File(directory, "static/app.css.gz")), is(css));
+		assertThat(decompress(new File(directory, "static/js/app.js.gz")), is("var a = 1;"));
+		assertThat(new File(directory, "static/image.png.gz").exists(), is(false));
+		assertThat(new File(directory, "static/README.gz").exists(), is(false));
+		assertThat(new File(directory, "WEB-INF").exists(), is(false));
+		assertThat(new File(directory, "static/app.css.gz.tmp").exists(), is(false));
+	}
+
+	@Test
+	public void shouldNotRegenerateUpToDateCompressedCopies() throws IOException {
+		servletContext.write("/static/app.css", css.getBytes("UTF-8"));
+		assertThat(generator.generate(), is(1));
+		assertThat(generator.generate(), is(0));
+	}
+
+	@Test
+	public void shouldNotGenerateCopiesForResourcesWithCompressedCopiesAlongside() throws IOException {
+		servletContext.write("/static/app.css", css.getBytes("UTF-8"));
+		servletContext.write("/static/app.css.gz", StaticResourceRouteResolver.gzip(css.getBytes("UTF-8")));
+		assertThat(generator.generate(), is(0));
+	}
+
+	@Test
+	public void shouldRegenerateStaleCompressedCopies() throws IOException {
+		File source = servletContext.write("/static/app.css", css.getBytes("UTF-8"));
+		assertThat(generator.generate(), is(1));
+		File compressed = new File(directory, "static/app.css.gz");
+		compressed.setLastModified(source.lastModified() - 10000);
+
+		servletContext.write("/static/app.css", "p { }".getBytes("UTF-8"));
+		source.setLastModified(compressed.lastModified() + 10000);
+		assertThat(generator.generate(), is(1));
+		assertThat(decompress(compressed), is("p { }"));
+	}
+
+	@Test
+	public void shouldCompressAtMaximumLevel() throws IOException {
+		servletContext.write("/static/app.css", css.getBytes("UTF-8"));
+		generator.generate();
+		assertThat(new File(directory, "static/app.css.gz").length(), is(lessThanOrEqualTo((long) StaticResourceRouteResolver.gzip(css.getBytes("UTF-8")).length)));
+	}
+
+	private String decompress(File file) throws IOException {
+		GZIPInputStream is = new GZIPInputStream(new FileInputStream(file));
+		try {
+			return Streams.readString(is, "UTF-8");
+		} finally {
+			is.close();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceFingerprintsTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DirectoryServletContext servletContext;
+	private ResourceFingerprints fingerprints;
+	private String hash;
+
+	@Before
+	public void before() throws IOException {
+		servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/js/app.js", "alert('hi');".getBytes("UTF-8"));
+		fingerprints = new ResourceFingerprints(servletContext);
+		hash = ResourceFingerprints.hash("alert('hi');".getBytes("UTF-8"));
+	}
+
+	@Test
+	public void shouldHashContentToFixedLengthHex() throws IOException {
+		assertThat(hash.length(), is(ResourceFingerprints.Length));
+		assertThat(hash.matches("[0-9a-f]+"), is(true));
+		assertThat(ResourceFingerprints.hash("alert('bye');".getBytes("UTF-8")), is(not(hash)));
+	}
+
+	@Test
+	public void shouldReturnFingerprintedUrl() {
+		assertThat(fingerprints.url("/js/app.js"), is("/js/app." + hash + ".js"));
+		assertThat(fingerprints.url("/js/app.js"), is("/js/app." + hash + ".js"));
+	}
+
+	@Test
+	public void shouldReturnPathUnchangedWhenResourceCannotBeFingerprinted() throws IOException {
+		servletContext.write("/js/noextension", new byte[] { 1 });
+		servletContext.write("/js/.hidden", new byte[] { 1 });
+		servletContext.write("/WEB-INF/web.xml", new byte[] { 1 });
+
+		assertThat(fingerprints.url("/js/missing.js"), is("/js/missing.js"));
+		assertThat(fingerprints.url("/js/noextension"), is("/js/noextension"));
+		assertThat(fingerprints.url("/js/.hidden"), is("/js/.hidden"));
+		assertThat(fingerprints.url("/WEB-INF/web.xml"), is("/WEB-INF/web.xml"));
+		assertThat(fingerprints.url(null), is(nullValue()));
+	}
+
+	@Test
+	public void shouldResolveOriginalPathOfFingerprintedUrl() {
+		assertThat(fingerprints.original("/js/app." + hash + ".js"), is("/js/app.js"));
+		assertThat(fingerprints.original("/js/app.0123456789.js"), is("/js/app.js"));
+		assertThat(fingerprints.original("/js/missing.0123456789.js"), is(nullValue()));
+		assertThat(fingerprints.original("/js/app.js"), is(nullValue()));
+		assertThat(fingerprints.original("/js/app.012345.js"), is(nullValue()));
+		assertThat(fingerprints.original(null), is(nullValue()));
+	}
+
+	@Test
+	public void shouldKnowWhetherFingerprintedUrlIsCurrent() {
+		assertThat(fingerprints.isCurrent("/js/app." + hash + ".js"), is(true));
+		assertThat(fingerprints.isCurrent("/js/app.0123456789.js"), is(false));
+		assertThat(fingerprints.isCurrent("/js/app.js"), is(false));
+	}
+
+	@Test
+	public void shouldNotRecomputeFingerprintsUnlessVerifyingModifications() throws IOException {
+		fingerprints.url("/js/app.js");
+		modify("/js/app.js", "alert('bye');");
+
+		assertThat(fingerprints.url("/js/app.js"), is("/js/app." + hash + ".js"));
+
+		fingerprints.invalidate("/js/app.js");
+		assertThat(fingerprints.url("/js/app.js"), is("/js/app." + ResourceFingerprints.hash("alert('bye');".getBytes("UTF-8")) + ".js"));
+	}
+
+	@Test
+	public void shouldRecomputeModifiedFingerprintsWhenVerifyingModifications() throws IOException {
+		fingerprints.setVerifyModified(true);
+		assertThat(fingerprints.isVerifyModified(), is(true));
+		fingerprints.url("/js/app.js");
+		modify("/js/app.js", "alert('bye');");
+
+		assertThat(fingerprints.url("/js/app.js"), is("/js/app." + ResourceFingerprints.hash("alert('bye');".getBytes("UTF-8")) + ".js"));
+	}
+
+	@Test
+	public void shouldForgetFingerprintsWhenCleared() throws IOException {
+		fingerprints.url("/js/app.js");
+		modify("/js/app.js", "alert('bye');");
+		fingerprints.clear();
+
+		assertThat(fingerprints.url("/js/app.js"), is(not("/js/app." + hash + ".js")));
+	}
+
+	private void modify(String resource, String content) throws IOException {
+		File file = servletContext.write(resource, content.getBytes("UTF-8"));
+		file.setLastModified(file.lastModified() + 2000);
+	}
+}
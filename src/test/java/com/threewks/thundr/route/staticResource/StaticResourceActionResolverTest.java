@@ -22,17 +22,25 @@ import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.atomicleopard.expressive.Expressive;
 import com.threewks.thundr.exception.BaseException;
+import com.threewks.thundr.http.Header;
 import com.threewks.thundr.route.HttpMethod;
+import com.threewks.thundr.route.cache.disk.SegmentStore;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
 import com.threewks.thundr.test.mock.servlet.MockServletContext;
@@ -47,6 +55,31 @@ public class StaticResourceActionResolverTest {
 	private MockHttpServletResponse resp = new MockHttpServletResponse();
 	private Map<String, String> pathVars = Expressive.<String, String> map();
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldSetContentLengthAndNotWriteBodyForHeadRequest() throws ServletException, IOException {
+		File file = folder.newFile("resource.png");
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(new byte[] { 1, 2, 3, 4, 5 });
+		fos.close();
+
+		ServletContext mockServletContext = mock(ServletContext.class);
+		when(mockServletContext.getResource("/static/resource.png")).thenReturn(file.toURI().toURL());
+		resolver = new StaticResourceRouteResolver(mockServletContext);
+		req.method("HEAD");
+		req.url("/static/resource.png");
+		MockHttpServletResponse resp = spy(this.resp);
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.<String> header(Header.ContentLength), is("5"));
+		assertThat(resp.getContentType(), is("image/png"));
+		assertThat(resp.status(), is(200));
+		verify(resp, never()).getOutputStream();
+	}
+
 	@Test
 	public void shouldResolveByInvokingServeAndReturningNull() throws ServletException, IOException {
 		resolver = spy(resolver);
@@ -163,4 +196,457 @@ public class StaticResourceActionResolverTest {
 		assertThat(resp.isCommitted(), is(true));
 		assertThat(resp.status(), is(404));
 	}
+
+	@Test
+	public void shouldServeAndCacheResourceWithETagAndVary() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/app.css");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+		assertThat(resp.<String> header(Header.ContentLength), is("20"));
+		assertThat(resp.<String> header(Header.ETag), is(cache.get("/static/app.css").getETag(false)));
+		assertThat(resp.<String> header(Header.ETag), Matchers.startsWith("\""));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+		assertThat(resp.<String> header(Header.LastModified), is(notNullValue()));
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+
+		MockHttpServletResponse resp2 = new MockHttpServletResponse();
+		resolver.serve(action, req, resp2);
+		assertThat(resp2.content(), is("body { color: red; }"));
+		verify(servletContext, times(1)).getResource("/static/app.css");
+	}
+
+	@Test
+	public void shouldServeCachedGzipDataWhenAccepted() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", StringUtils.repeat("body { color: red; }", 100));
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip, deflate");
+
+		resolver.serve(action, req, resp);
+
+		CachedResource cached = cache.get("/static/app.css");
+		assertThat(cached.hasGzipData(), is(true));
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.ContentLength), is(Integer.toString(cached.getGzipData().length)));
+		assertThat(resp.<String> header(Header.ETag), is(cached.getETag(true)));
+		assertThat(cached.getETag(true), is(not(cached.getETag(false))));
+	}
+
+	@Test
+	public void shouldNotCompressCachedResourcesWhichAreNotCompressible() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/image.png", "not really a png");
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/image.png");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(cache.get("/static/image.png").hasGzipData(), is(false));
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.Vary), is(nullValue()));
+		assertThat(resp.content(), is("not really a png"));
+	}
+
+	@Test
+	public void shouldNotServeGzipDataLargerThanTheRawData() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(cache.get("/static/app.css").hasGzipData(), is(false));
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+	}
+
+	@Test
+	public void shouldNotCompressCachedResourcesSmallerThanCompressionThreshold() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", StringUtils.repeat("body { color: red; }", 20));
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		resolver.setCompressionThreshold(500);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(cache.get("/static/app.css").hasGzipData(), is(false));
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.ContentLength), is("400"));
+	}
+
+	@Test
+	public void shouldCompressStreamedResourcesAtLeastAsLargeAsCompressionThreshold() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", StringUtils.repeat("body { color: red; }", 20));
+		resolver = new StaticResourceRouteResolver(servletContext);
+		resolver.setCompressionThreshold(400);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+		assertThat(resolver.getDeflaterPool().idle(), is(1));
+	}
+
+	@Test
+	public void shouldNotCompressStreamedResourcesSmallerThanCompressionThreshold() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", StringUtils.repeat("body { color: red; }", 20));
+		resolver = new StaticResourceRouteResolver(servletContext);
+		resolver.setCompressionThreshold(401);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.ContentLength), is("400"));
+		assertThat(resolver.getDeflaterPool().created(), is(0L));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWhenIfNoneMatchMatches() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/app.css");
+		resolver.serve(action, req, new MockHttpServletResponse());
+		String etag = cache.get("/static/app.css").getETag(false);
+
+		req.header(Header.IfNoneMatch, "\"other\", W/" + etag);
+		MockHttpServletResponse resp = spy(this.resp);
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.<String> header(Header.ETag), is(etag));
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+		verify(resp, never()).getOutputStream();
+	}
+
+	@Test
+	public void shouldServeContentWhenIfNoneMatchDoesNotMatchEvenIfNotModifiedSince() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		req.url("/static/app.css");
+		req.header(Header.IfNoneMatch, "\"other\"");
+		req.header(Header.IfModifiedSince, "Fri, 01 Jan 2100 00:00:00 GMT");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWhenNotModifiedSince() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		req.url("/static/app.css");
+		req.header(Header.IfModifiedSince, "Fri, 01 Jan 2100 00:00:00 GMT");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(304));
+	}
+
+	@Test
+	public void shouldServeContentWhenModifiedSince() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		req.url("/static/app.css");
+		req.header(Header.IfModifiedSince, "Thu, 01 Jan 2015 00:00:00 GMT");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedForUncachedResourcesWhenNotModifiedSince() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/app.css");
+		req.header(Header.IfModifiedSince, "Fri, 01 Jan 2100 00:00:00 GMT");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+	}
+
+	@Test
+	public void shouldStreamResourcesTooLargeToCache() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		StaticResourceCache cache = new StaticResourceCache(100, 10);
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/app.css");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+		assertThat(cache.size(), is(0));
+	}
+
+	@Test
+	public void shouldMatchETagsUsingWeakComparison() {
+		assertThat(StaticResourceRouteResolver.matchesETag("\"abc\"", "\"abc\""), is(true));
+		assertThat(StaticResourceRouteResolver.matchesETag("W/\"abc\"", "\"abc\""), is(true));
+		assertThat(StaticResourceRouteResolver.matchesETag("\"def\", \"abc\"", "\"abc\""), is(true));
+		assertThat(StaticResourceRouteResolver.matchesETag("*", "\"abc\""), is(true));
+		assertThat(StaticResourceRouteResolver.matchesETag("\"abcd\"", "\"abc\""), is(false));
+		assertThat(StaticResourceRouteResolver.matchesETag("abc", "\"abc\""), is(false));
+	}
+
+	@Test
+	public void shouldServePrecompressedCopyAlongsideUncachedResource() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		servletContext.write("/static/app.css.gz", new byte[] { 1, 2, 3 });
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.getContentType(), is("text/css"));
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.ContentLength), is("3"));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+	}
+
+	@Test
+	public void shouldServePrecompressedCopyOfNonCompressibleTypeWithVary() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/image.png", new byte[] { 1, 2, 3, 4, 5 });
+		servletContext.write("/static/image.png.gz", new byte[] { 1, 2, 3 });
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/image.png");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.ContentLength), is("3"));
+		assertThat(resp.<String> header(Header.Vary), is(Header.AcceptEncoding));
+	}
+
+	@Test
+	public void shouldNotServePrecompressedCopyWhenGzipNotAccepted() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		servletContext.write("/static/app.css.gz", new byte[] { 1, 2, 3 });
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/app.css");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.content(), is("body { color: red; }"));
+	}
+
+	@Test
+	public void shouldIgnorePrecompressedCopyOlderThanResource() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		File resource = servletContext.write("/static/image.png", new byte[] { 1, 2, 3, 4, 5 });
+		File compressed = servletContext.write("/static/image.png.gz", new byte[] { 1, 2, 3 });
+		compressed.setLastModified(resource.lastModified() - 10000);
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/image.png");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.<String> header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.<String> header(Header.ContentLength), is("5"));
+	}
+
+	@Test
+	public void shouldCachePrecompressedCopyFromPrecompressedDirectory() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		File directory = folder.newFolder("precompressed");
+		new DirectoryServletContext(directory).write("/static/app.css.gz", new byte[] { 1, 2, 3 });
+		StaticResourceCache cache = new StaticResourceCache();
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		resolver.setPrecompressedDirectory(directory);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(cache.get("/static/app.css").getGzipData(), is(new byte[] { 1, 2, 3 }));
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.ContentLength), is("3"));
+	}
+
+	@Test
+	public void shouldRestoreResourceWrittenToDiskByPreviousCache() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		File resource = servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		File directory = folder.newFolder("cache");
+		StaticResourceCache previous = new StaticResourceCache();
+		previous.setDiskStore(new SegmentStore(directory));
+		previous.put("/static/app.css", new CachedResource("restored".getBytes("UTF-8"), null, "text/css", resource.lastModified(), null));
+		previous.stop();
+		StaticResourceCache cache = new StaticResourceCache();
+		cache.setDiskStore(new SegmentStore(directory));
+		resolver = new StaticResourceRouteResolver(servletContext, cache);
+		req.url("/static/app.css");
+
+		try {
+			resolver.serve(action, req, resp);
+		} finally {
+			cache.stop();
+		}
+
+		assertThat(resp.content(), is("restored"));
+		assertThat(cache.get("/static/app.css"), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldServeRangeOfCachedResource() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		req.url("/static/app.css");
+		req.header(Header.Range, "bytes=7-11");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(206));
+		assertThat(resp.content(), is("color"));
+		assertThat(resp.<String> header(Header.AcceptRanges), is("bytes"));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes 7-11/20"));
+		assertThat(resp.<String> header(Header.ContentLength), is("5"));
+		assertThat(resp.<String> header(Header.ETag), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldServeRangeOfUncachedResource() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache(100, 10));
+		req.url("/static/app.css");
+		req.header(Header.Range, "bytes=-4");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(206));
+		assertThat(resp.content(), is("d; }"));
+		assertThat(resp.<String> header(Header.AcceptRanges), is("bytes"));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes 16-19/20"));
+	}
+
+	@Test
+	public void shouldRespondRangeNotSatisfiableForResource() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		req.url("/static/app.css");
+		req.header(Header.Range, "bytes=100-");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(416));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes */20"));
+	}
+
+	@Test
+	public void shouldServeCompleteResourceWhenIfRangeDoesNotMatch() throws ServletException, IOException {
+		ServletContext servletContext = servletContextWith("/static/app.css", "body { color: red; }");
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		req.url("/static/app.css");
+		req.header(Header.Range, "bytes=0-3");
+		req.header(Header.IfRange, "\"stale\"");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+	}
+
+	@Test
+	public void shouldServeRangeOfPrecompressedCopy() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		servletContext.write("/static/app.css.gz", new byte[] { 'a', 'b', 'c', 'd' });
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/app.css");
+		req.header(Header.AcceptEncoding, "gzip");
+		req.header(Header.Range, "bytes=1-2");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(206));
+		assertThat(resp.content(), is("bc"));
+		assertThat(resp.<String> header(Header.ContentEncoding), is("gzip"));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes 1-2/4"));
+	}
+
+	@Test
+	public void shouldServeCurrentFingerprintedUrlAsImmutable() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		resolver = new StaticResourceRouteResolver(servletContext, new StaticResourceCache());
+		ResourceFingerprints fingerprints = new ResourceFingerprints(servletContext);
+		resolver.setFingerprints(fingerprints);
+		req.url(fingerprints.url("/static/app.css"));
+
+		resolver.serve(action, req, resp);
+
+		assertThat(fingerprints.url("/static/app.css"), is(not("/static/app.css")));
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+		assertThat(resp.getContentType(), is("text/css"));
+		assertThat(resp.<String> header(Header.CacheControl), is("public, max-age=31536000, immutable"));
+	}
+
+	@Test
+	public void shouldServeOutdatedFingerprintedUrlWithNormalCaching() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		resolver = new StaticResourceRouteResolver(servletContext);
+		resolver.setFingerprints(new ResourceFingerprints(servletContext));
+		req.url("/static/app.0123456789.css");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(200));
+		assertThat(resp.content(), is("body { color: red; }"));
+		assertThat(resp.<String> header(Header.CacheControl), is(not(containsString("immutable"))));
+	}
+
+	@Test
+	public void shouldNotRecogniseFingerprintedUrlsWithoutFingerprints() throws ServletException, IOException {
+		DirectoryServletContext servletContext = new DirectoryServletContext(folder.newFolder("war"));
+		servletContext.write("/static/app.css", "body { color: red; }".getBytes("UTF-8"));
+		resolver = new StaticResourceRouteResolver(servletContext);
+		req.url("/static/app.0123456789.css");
+
+		resolver.serve(action, req, resp);
+
+		assertThat(resp.status(), is(404));
+	}
+
+	private ServletContext servletContextWith(String resource, String content) throws IOException {
+		File file = folder.newFile(resource.substring(resource.lastIndexOf('/') + 1));
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(content.getBytes("UTF-8"));
+		fos.close();
+		ServletContext servletContext = mock(ServletContext.class);
+		when(servletContext.getResource(resource)).thenReturn(file.toURI().toURL());
+		return servletContext;
+	}
 }
@@ -0,0 +1,216 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.route.staticResource;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.threewks.thundr.route.cache.disk.SegmentStore;
+
+public class StaticResourceCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StaticResourceCache cache = new StaticResourceCache(100, 40);
+
+	@After
+	public void after() {
+		cache.stop();
+	}
+
+	@Test
+	public void shouldOnlyAcceptResourcesOfKnownLengthWithinTheEntryLimit() {
+		assertThat(cache.accepts(-1), is(false));
+		assertThat(cache.accepts(0), is(true));
+		assertThat(cache.accepts(40), is(true));
+		assertThat(cache.accepts(41), is(false));
+		assertThat(new StaticResourceCache(10, 40).accepts(11), is(false));
+	}
+
+	@Test
+	public void shouldReturnCachedResourcesAndCountHitsAndMisses() {
+		CachedResource resource = resource(10);
+		assertThat(cache.get("/a.js"), is(nullValue()));
+		cache.put("/a.js", resource);
+		assertThat(cache.get("/a.js"), is(sameInstance(resource)));
+		assertThat(cache.hits(), is(1L));
+		assertThat(cache.misses(), is(1L));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.weight(), is(10L));
+	}
+
+	@Test
+	public void shouldWeighRawAndGzipData() {
+		cache.put("/a.js", new CachedResource(new byte[30], new byte[5], "text/javascript", 0, null));
+		assertThat(cache.weight(), is(35L));
+	}
+
+	@Test
+	public void shouldReplaceExistingResource() {
+		cache.put("/a.js", resource(10));
+		CachedResource replacement = resource(20);
+		cache.put("/a.js", replacement);
+		assertThat(cache.get("/a.js"), is(sameInstance(replacement)));
+		assertThat(cache.weight(), is(20L));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedResourcesWhenOverWeight() {
+		cache.put("/a.js", resource(40));
+		cache.put("/b.js", resource(40));
+		cache.get("/a.js");
+		cache.put("/c.js", resource(40));
+
+		assertThat(cache.get("/a.js"), is(notNullValue()));
+		assertThat(cache.get("/b.js"), is(nullValue()));
+		assertThat(cache.get("/c.js"), is(notNullValue()));
+		assertThat(cache.weight(), is(80L));
+	}
+
+	@Test
+	public void shouldInvalidateAndClear() {
+		cache.put("/a.js", resource(10));
+		cache.put("/b.js", resource(10));
+		cache.invalidate("/a.js");
+		assertThat(cache.get("/a.js"), is(nullValue()));
+		assertThat(cache.weight(), is(10L));
+
+		cache.clear();
+		assertThat(cache.size(), is(0));
+		assertThat(cache.weight(), is(0L));
+	}
+
+	@Test
+	public void shouldInvalidateResourcesWhenTheirFileChanges() throws IOException, InterruptedException {
+		File file = folder.newFile("a.js");
+		File other = folder.newFile("b.js");
+		cache.startWatching();
+		assertThat(cache.isWatching(), is(true));
+		cache.put("/a.js", new CachedResource(new byte[10], null, "text/javascript", file.lastModified(), file));
+		cache.put("/b.js", new CachedResource(new byte[10], null, "text/javascript", other.lastModified(), other));
+
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(new byte[] { 1, 2, 3 });
+		fos.close();
+
+		long until = System.currentTimeMillis() + 30000;
+		while (cache.size() > 1 && System.currentTimeMillis() < until) {
+			Thread.sleep(10);
+		}
+		assertThat(cache.get("/a.js"), is(nullValue()));
+		assertThat(cache.get("/b.js"), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldStopWatching() {
+		cache.startWatching();
+		cache.stop();
+		assertThat(cache.isWatching(), is(false));
+	}
+
+	@Test
+	public void shouldRestoreResourcesFromDiskWhenNotModified() throws IOException {
+		File directory = folder.newFolder("cache");
+		File file = folder.newFile("a.js");
+		cache.setDiskStore(new SegmentStore(directory));
+		cache.put("/a.js", new CachedResource("data".getBytes(), "gzip".getBytes(), "text/javascript", 1000L, file));
+		cache.stop();
+
+		cache = new StaticResourceCache(100, 40);
+		cache.setDiskStore(new SegmentStore(directory));
+		assertThat(cache.get("/a.js"), is(nullValue()));
+		assertThat(cache.restore("/a.js", 2000L), is(nullValue()));
+		CachedResource restored = cache.restore("/a.js", 1000L);
+
+		assertThat(restored.getData(), is("data".getBytes()));
+		assertThat(restored.getGzipData(), is("gzip".getBytes()));
+		assertThat(restored.getMimeType(), is("text/javascript"));
+		assertThat(restored.getFile(), is(file));
+		assertThat(restored.getETag(false), is(new CachedResource("data".getBytes(), null, null, 0, null).getETag(false)));
+		assertThat(cache.get("/a.js"), is(sameInstance(restored)));
+	}
+
+	@Test
+	public void shouldNotRestoreResourcesWithUnknownModificationTime() throws IOException {
+		cache.setDiskStore(new SegmentStore(folder.newFolder("cache")));
+		cache.put("/a.js", resource(10));
+
+		assertThat(cache.restore("/a.js", 0), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRemoveInvalidatedResourcesFromDisk() throws IOException {
+		SegmentStore store = new SegmentStore(folder.newFolder("cache"));
+		cache.setDiskStore(store);
+		cache.put("/a.js", new CachedResource(new byte[10], null, "text/javascript", 1000L, null));
+		cache.put("/b.js", new CachedResource(new byte[10], null, "text/javascript", 1000L, null));
+
+		cache.invalidate("/a.js");
+		assertThat(store.get("/a.js"), is(nullValue()));
+		assertThat(store.get("/b.js"), is(notNullValue()));
+
+		cache.clear();
+		assertThat(store.size(), is(0));
+	}
+
+	@Test
+	public void shouldNotRestoreWithoutDiskStore() {
+		cache.put("/a.js", resource(10));
+
+		assertThat(cache.restore("/b.js", 1000L), is(nullValue()));
+	}
+
+	private CachedResource resource(int length) {
+		return new CachedResource(new byte[length], null, "text/javascript", 0, null);
+	}
+
+	@Test
+	public void shouldServeRestoredResourcesFromMappedSegment() throws IOException {
+		File directory = folder.newFolder("cache");
+		cache.setDiskStore(new SegmentStore(directory));
+		cache.put("/a.js", new CachedResource("data".getBytes(), null, "text/javascript", 1000L, null));
+		cache.stop();
+
+		cache = new StaticResourceCache(100, 40);
+		cache.setDiskStore(new SegmentStore(directory));
+		CachedResource restored = cache.restore("/a.js", 1000L);
+
+		assertThat(restored.getDataBuffer().isDirect(), is(true));
+		assertThat(restored.hasGzipData(), is(false));
+		assertThat(restored.getWeight(), is(4L));
+	}
+
+	@Test
+	public void shouldDropUnreadableResourcesFromDisk() throws IOException {
+		SegmentStore store = new SegmentStore(folder.newFolder("cache"));
+		cache.setDiskStore(store);
+		store.put("/a.js", new byte[] { 1, 0 }, 0);
+
+		assertThat(cache.restore("/a.js", 1000L), is(nullValue()));
+		assertThat(store.size(), is(0));
+	}
+}
@@ -73,6 +73,11 @@ public class EncoderTest {
 		assertThat(new Encoder("0").crc32().hex().string(), is("f4dbdf21"));
 	}
 
+	@Test
+	public void shouldCrc32WithLeadingZeros() {
+		assertThat(new Encoder("33").crc32().hex().string(), is("0a6216d9"));
+	}
+
 	@Test
 	public void shouldRespectDifferentEncodings() {
 		assertThat(new Encoder("0", "UTF-16BE").hex().string("UTF-16BE"), is(not("30")));
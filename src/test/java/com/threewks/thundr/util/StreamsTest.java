@@ -23,14 +23,22 @@ import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import com.threewks.thundr.exception.BaseException;
@@ -38,6 +46,8 @@ import com.threewks.thundr.exception.BaseException;
 public class StreamsTest {
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
 
 	@Test
 	public void shouldReadStringFromBytes() {
@@ -172,4 +182,121 @@ public class StreamsTest {
 		
 		Streams.getResourceAsStream("streams-dont-exist.txt");
 	}
+
+	@Test
+	public void shouldCopyRegionOfFileToOutputStream() throws IOException {
+		File file = fileContaining("random.txt", RandomStringUtils.randomAlphanumeric(200000));
+		byte[] expected = Streams.readBytes(new FileInputStream(file));
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertThat(Streams.copy(file, 0, file.length(), os), is(200000L));
+		assertThat(os.toByteArray(), is(expected));
+
+		os = new ByteArrayOutputStream();
+		assertThat(Streams.copy(file, 100000, 70000, os), is(70000L));
+		assertThat(os.toByteArray(), is(Arrays.copyOfRange(expected, 100000, 170000)));
+	}
+
+	@Test
+	public void shouldTransferFileDirectlyToOutputStreamWhichIsAChannel() throws IOException {
+		File file = fileContaining("transfer.txt", "Test data for transfer");
+		ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+		ChannelOutputStream os = new ChannelOutputStream(delegate);
+
+		assertThat(Streams.copy(file, 5, 4, os), is(4L));
+		assertThat(new String(delegate.toByteArray(), "UTF-8"), is("data"));
+		assertThat(os.channelWrites > 0, is(true));
+		assertThat(os.streamWrites, is(0));
+	}
+
+	@Test
+	public void shouldThrowBaseExceptionWhenCopyingBeyondEndOfFile() throws IOException {
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("Unexpected end of file");
+
+		File file = fileContaining("short.txt", "short");
+		Streams.copy(file, 2, 10, new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void shouldThrowBaseExceptionWhenCopyingMissingFile() {
+		thrown.expect(BaseException.class);
+		thrown.expectMessage("Could not copy");
+
+		Streams.copy(new File(temp.getRoot(), "missing.txt"), 0, 10, new ByteArrayOutputStream());
+	}
+
+	private File fileContaining(String name, String content) throws IOException {
+		File file = temp.newFile(name);
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(content.getBytes("UTF-8"));
+		fos.close();
+		return file;
+	}
+
+	@Test
+	public void shouldCopyBufferWithoutChangingItsPosition() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(100000);
+		byte[] data = RandomStringUtils.randomAlphanumeric(100000).getBytes();
+		buffer.put(data).flip();
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+		assertThat(Streams.copy(buffer, os), is(100000L));
+		assertThat(Arrays.equals(os.toByteArray(), data), is(true));
+		assertThat(buffer.position(), is(0));
+	}
+
+	@Test
+	public void shouldWriteBufferDirectlyToChannelOutputStream() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(5);
+		buffer.put("12345".getBytes()).flip();
+		ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+		ChannelOutputStream os = new ChannelOutputStream(delegate);
+
+		Streams.copy(buffer, os);
+
+		assertThat(new String(delegate.toByteArray()), is("12345"));
+		assertThat(os.channelWrites, is(1));
+		assertThat(os.streamWrites, is(0));
+	}
+
+	@Test
+	public void shouldReadBufferAsInputStream() throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap("content".getBytes());
+
+		assertThat(Streams.readString(Streams.asInputStream(buffer)), is("content"));
+		assertThat(buffer.hasRemaining(), is(false));
+		assertThat(Streams.asInputStream(buffer).read(), is(-1));
+	}
+
+	private static class ChannelOutputStream extends OutputStream implements WritableByteChannel {
+		private ByteArrayOutputStream delegate;
+		private int channelWrites = 0;
+		private int streamWrites = 0;
+
+		public ChannelOutputStream(ByteArrayOutputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			streamWrites++;
+			delegate.write(b);
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			channelWrites++;
+			int remaining = src.remaining();
+			byte[] bytes = new byte[remaining];
+			src.get(bytes);
+			delegate.write(bytes);
+			return remaining;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+	}
 }
@@ -20,6 +20,9 @@ package com.threewks.thundr.view;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.util.Iterator;
+import java.util.Map;
+
 import org.junit.Test;
 
 public class GlobalModelTest {
@@ -76,4 +79,31 @@ public class GlobalModelTest {
 		assertThat(globalModel1.isEmpty(), is(true));
 
 	}
+
+	@Test
+	public void shouldWriteChangesMadeThroughCollectionViewsToTheModel() {
+		GlobalModel globalModel = new GlobalModel();
+		globalModel.put("a", 1);
+		globalModel.put("b", 2);
+		globalModel.put("c", 3);
+		Map<String, Object> snapshot = globalModel.snapshot();
+
+		assertThat(globalModel.keySet().remove("a"), is(true));
+		for (Iterator<Object> values = globalModel.values().iterator(); values.hasNext();) {
+			if (values.next().equals(2)) {
+				values.remove();
+			}
+		}
+		for (Map.Entry<String, Object> entry : globalModel.entrySet()) {
+			entry.setValue(4);
+		}
+
+		assertThat(globalModel.size(), is(1));
+		assertThat(globalModel.get("c"), is((Object) 4));
+		assertThat(snapshot.size(), is(3));
+		assertThat(snapshot.get("c"), is((Object) 3));
+
+		globalModel.entrySet().clear();
+		assertThat(globalModel.isEmpty(), is(true));
+	}
 }
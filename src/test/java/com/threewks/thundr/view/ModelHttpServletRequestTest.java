@@ -0,0 +1,104 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.atomicleopard.expressive.Expressive;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+
+public class ModelHttpServletRequestTest {
+	private MockHttpServletRequest req = new MockHttpServletRequest();
+	private Map<String, Object> model = Expressive.<String, Object> map("model", "model value", "shared", "from model");
+	private Map<String, Object> globalModel = Expressive.<String, Object> map("global", "global value", "shared", "from global", "existing", "from global");
+
+	@Test
+	public void shouldReadAttributesFromModelsInOrderThenRequest() {
+		req.setAttribute("existing", "request value");
+		req.setAttribute("request", "request value");
+		ModelHttpServletRequest modelReq = new ModelHttpServletRequest(req, Arrays.<Map<String, ?>> asList(model, globalModel));
+
+		assertThat(modelReq.getAttribute("model"), is((Object) "model value"));
+		assertThat(modelReq.getAttribute("global"), is((Object) "global value"));
+		assertThat(modelReq.getAttribute("shared"), is((Object) "from model"));
+		assertThat(modelReq.getAttribute("existing"), is((Object) "from global"));
+		assertThat(modelReq.getAttribute("request"), is((Object) "request value"));
+		assertThat(modelReq.getAttribute("missing"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldTreatNullModelValuesAsPresent() {
+		req.setAttribute("key", "request value");
+		ModelHttpServletRequest modelReq = new ModelHttpServletRequest(req, Collections.<Map<String, ?>> singletonList(Collections.<String, Object> singletonMap("key", null)));
+
+		assertThat(modelReq.getAttribute("key"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldHoldSetAttributesWithoutChangingRequest() {
+		req.setAttribute("request", "request value");
+		ModelHttpServletRequest modelReq = new ModelHttpServletRequest(req, Collections.<Map<String, ?>> singletonList(model));
+
+		modelReq.setAttribute("model", "overwritten");
+		modelReq.setAttribute("request", "overwritten");
+		modelReq.setAttribute("new", "value");
+
+		assertThat(modelReq.getAttribute("model"), is((Object) "overwritten"));
+		assertThat(modelReq.getAttribute("request"), is((Object) "overwritten"));
+		assertThat(modelReq.getAttribute("new"), is((Object) "value"));
+		assertThat(req.getAttribute("request"), is((Object) "request value"));
+		assertThat(req.getAttribute("new"), is(nullValue()));
+		assertThat(model.get("model"), is((Object) "model value"));
+	}
+
+	@Test
+	public void shouldHoldRemovedAttributesWithoutChangingRequest() {
+		req.setAttribute("request", "request value");
+		ModelHttpServletRequest modelReq = new ModelHttpServletRequest(req, Collections.<Map<String, ?>> singletonList(model));
+
+		modelReq.removeAttribute("request");
+		modelReq.setAttribute("model", null);
+
+		assertThat(modelReq.getAttribute("request"), is(nullValue()));
+		assertThat(modelReq.getAttribute("model"), is(nullValue()));
+		assertThat(req.getAttribute("request"), is((Object) "request value"));
+
+		modelReq.setAttribute("request", "restored");
+		assertThat(modelReq.getAttribute("request"), is((Object) "restored"));
+	}
+
+	@Test
+	public void shouldListAttributeNamesFromAllLayers() {
+		req.setAttribute("request", "request value");
+		ModelHttpServletRequest modelReq = new ModelHttpServletRequest(req, Arrays.<Map<String, ?>> asList(model, globalModel));
+		modelReq.setAttribute("new", "value");
+		modelReq.removeAttribute("global");
+
+		List<String> names = Collections.list(modelReq.getAttributeNames());
+		assertThat(names, hasItems("request", "model", "shared", "existing", "new"));
+		assertThat(names.size(), is(5));
+	}
+}
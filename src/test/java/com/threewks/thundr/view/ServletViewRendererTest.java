@@ -17,12 +17,16 @@
  */
 package com.threewks.thundr.view;
 
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
 
 import org.junit.After;
 import org.junit.Before;
@@ -30,9 +34,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.threewks.thundr.http.Header;
 import com.threewks.thundr.http.RequestThreadLocal;
+import com.threewks.thundr.http.ResponseCompression;
+import com.threewks.thundr.http.ResponseValidation;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+import com.threewks.thundr.util.Encoder;
 import com.threewks.thundr.view.string.StringView;
 import com.threewks.thundr.view.string.StringViewResolver;
 
@@ -91,4 +99,60 @@ public class ServletViewRendererTest {
 		renderer.render(new StringView("contents"));
 	}
 
+	@Test
+	public void shouldCompressResponseWhenResponseCompressionEnabled() throws IOException {
+		String content = StringUtils.repeat("contents ", 500);
+		ResponseCompression compression = new ResponseCompression().compress("*", "text/plain");
+		RequestThreadLocal.set(new MockHttpServletRequest().url("/path").header(Header.AcceptEncoding, "gzip"), resp);
+		renderer = new ServletViewRenderer(viewResolverRegistry, compression, true);
+
+		renderer.render(new StringView(content));
+
+		assertThat(resp.header(Header.ContentEncoding), is((Object) "gzip"));
+		assertThat(resp.header(Header.Vary), is((Object) Header.AcceptEncoding));
+		assertThat(RequestThreadLocal.getResponse(), is((HttpServletResponse) resp));
+		assertThat(compression.getDeflaterPool().idle(), is(1));
+	}
+
+	@Test
+	public void shouldNotCompressResponseWhenResponseCompressionDisabled() throws IOException {
+		ResponseCompression compression = new ResponseCompression();
+		RequestThreadLocal.set(new MockHttpServletRequest().url("/path").header(Header.AcceptEncoding, "gzip"), resp);
+		renderer = new ServletViewRenderer(viewResolverRegistry, compression, true);
+
+		renderer.render(new StringView(StringUtils.repeat("contents ", 500)));
+
+		assertThat(resp.header(Header.ContentEncoding), is(nullValue()));
+		assertThat(resp.content(), is(StringUtils.repeat("contents ", 500)));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWhenResponseValidationEnabledAndETagMatches() throws IOException {
+		String content = StringUtils.repeat("contents ", 500);
+		ResponseValidation validation = new ResponseValidation().validate("*");
+		String etag = "W/\"" + new Encoder(content).crc32().hex().string() + "\"";
+		RequestThreadLocal.set(new MockHttpServletRequest().url("/path").header(Header.IfNoneMatch, etag), resp);
+		renderer = new ServletViewRenderer(viewResolverRegistry, null, validation, true);
+
+		renderer.render(new StringView(content));
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.header(Header.ETag), is((Object) etag));
+		assertThat(RequestThreadLocal.getResponse(), is((HttpServletResponse) resp));
+	}
+
+	@Test
+	public void shouldDeriveETagFromUncompressedContentWhenCompressingAndValidating() throws IOException {
+		String content = StringUtils.repeat("contents ", 500);
+		ResponseCompression compression = new ResponseCompression().compress("*", "text/plain");
+		ResponseValidation validation = new ResponseValidation().validate("*");
+		RequestThreadLocal.set(new MockHttpServletRequest().url("/path").header(Header.AcceptEncoding, "gzip"), resp);
+		renderer = new ServletViewRenderer(viewResolverRegistry, compression, validation, true);
+
+		renderer.render(new StringView(content));
+
+		assertThat(resp.header(Header.ContentEncoding), is((Object) "gzip"));
+		assertThat(resp.header(Header.ETag), is((Object) ("W/\"" + new Encoder(content).crc32().hex().string() + "\"")));
+		assertThat(compression.getDeflaterPool().idle(), is(1));
+	}
 }
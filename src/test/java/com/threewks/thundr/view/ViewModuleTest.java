@@ -20,13 +20,20 @@ package com.threewks.thundr.view;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import org.junit.After;
 import org.junit.Test;
 
+import com.threewks.thundr.configuration.Environment;
+import com.threewks.thundr.http.ResponseCompression;
+import com.threewks.thundr.http.ResponseValidation;
 import com.threewks.thundr.http.exception.HttpStatusException;
 import com.threewks.thundr.injection.InjectionContextImpl;
 import com.threewks.thundr.injection.UpdatableInjectionContext;
 import com.threewks.thundr.route.RouteNotFoundException;
 import com.threewks.thundr.route.Router;
+import com.threewks.thundr.view.conditional.NotModifiedView;
+import com.threewks.thundr.view.conditional.NotModifiedViewResolver;
+import com.threewks.thundr.view.exception.ErrorFingerprints;
 import com.threewks.thundr.view.exception.ExceptionViewResolver;
 import com.threewks.thundr.view.exception.HttpStatusExceptionViewResolver;
 import com.threewks.thundr.view.exception.RouteNotFoundViewResolver;
@@ -38,6 +45,7 @@ import com.threewks.thundr.view.json.JsonViewResolver;
 import com.threewks.thundr.view.jsonp.JsonpNegotiator;
 import com.threewks.thundr.view.jsonp.JsonpView;
 import com.threewks.thundr.view.jsonp.JsonpViewResolver;
+import com.threewks.thundr.view.jsp.FragmentCache;
 import com.threewks.thundr.view.jsp.JspView;
 import com.threewks.thundr.view.jsp.JspViewResolver;
 import com.threewks.thundr.view.negotiating.NegotiatingView;
@@ -55,6 +63,11 @@ public class ViewModuleTest {
 	private ViewModule module = new ViewModule();
 	private UpdatableInjectionContext injectionContext = new InjectionContextImpl();
 
+	@After
+	public void after() {
+		Environment.set(null);
+	}
+
 	@Test
 	public void shouldInjectViewDependenciesOnInitialise() {
 		module.initialise(injectionContext);
@@ -62,6 +75,10 @@ public class ViewModuleTest {
 		assertThat(injectionContext.contains(ViewResolverRegistry.class), is(true));
 		assertThat(injectionContext.contains(ViewNegotiatorRegistry.class), is(true));
 		assertThat(injectionContext.contains(GlobalModel.class), is(true));
+		assertThat(injectionContext.contains(ResponseCompression.class), is(true));
+		assertThat(injectionContext.get(ResponseCompression.class).isEnabled(), is(false));
+		assertThat(injectionContext.contains(ResponseValidation.class), is(true));
+		assertThat(injectionContext.get(ResponseValidation.class).isEnabled(), is(false));
 	}
 
 	@Test
@@ -82,6 +99,7 @@ public class ViewModuleTest {
 		assertThat(registry.findViewResolver(new JspView("")) instanceof JspViewResolver, is(true));
 		assertThat(registry.findViewResolver(new StringView("")) instanceof StringViewResolver, is(true));
 		assertThat(registry.findViewResolver(new NegotiatingView("")) instanceof NegotiatingViewResolver, is(true));
+		assertThat(registry.findViewResolver(new NotModifiedView(null, -1)) instanceof NotModifiedViewResolver, is(true));
 
 		assertThat(injectionContext.contains(HttpStatusExceptionViewResolver.class), is(true));
 		assertThat(injectionContext.contains(ExceptionViewResolver.class), is(true));
@@ -103,6 +121,20 @@ public class ViewModuleTest {
 		assertThat(globalModel.get("router"), is((Object) router));
 	}
 
+	@Test
+	public void shouldAddFragmentCacheToGlobalModelOnConfigure() {
+		GlobalModel globalModel = new GlobalModel();
+		injectionContext.inject(globalModel).as(GlobalModel.class);
+		injectionContext.inject("1024").named(ViewModule.FragmentCacheBytesProperty).as(String.class);
+		module.initialise(injectionContext);
+
+		module.configure(injectionContext);
+
+		FragmentCache fragmentCache = injectionContext.get(FragmentCache.class);
+		assertThat(fragmentCache, is(notNullValue()));
+		assertThat(globalModel.get(FragmentCache.ModelAttribute), is((Object) fragmentCache));
+	}
+
 	@Test
 	public void shouldAddDefaultNegotiatorsOnConfigure() {
 		ViewNegotiatorRegistry registry = new ViewNegotiatorRegistryImpl();
@@ -115,4 +147,43 @@ public class ViewModuleTest {
 		assertThat(registry.getNegotiator("application/json"), instanceOf(JsonNegotiator.class));
 		assertThat(registry.getNegotiator("application/javascript"), instanceOf(JsonpNegotiator.class));
 	}
+
+	@Test
+	public void shouldRenderErrorStackTracesInDevEnvironmentOnlyByDefault() {
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+		assertThat(injectionContext.get(ExceptionViewResolver.class).isIncludeStackTrace(), is(false));
+		assertThat(injectionContext.get(ErrorFingerprints.class), is(sameInstance(injectionContext.get(ExceptionViewResolver.class).getErrorFingerprints())));
+
+		Environment.set(Environment.DEV);
+		injectionContext = new InjectionContextImpl();
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+		assertThat(injectionContext.get(ExceptionViewResolver.class).isIncludeStackTrace(), is(true));
+	}
+
+	@Test
+	public void shouldRenderErrorStackTracesWhenConfigured() {
+		injectionContext.inject("true").named(ViewModule.ErrorStackTracesProperty).as(String.class);
+		injectionContext.inject("0").named(ViewModule.ErrorLogIntervalProperty).as(String.class);
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+
+		assertThat(injectionContext.get(ExceptionViewResolver.class).isIncludeStackTrace(), is(true));
+	}
+
+	@Test
+	public void shouldOverlayJspModelsOnlyWhenConfigured() {
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+		JspViewResolver resolver = (JspViewResolver) injectionContext.get(ViewResolverRegistry.class).findViewResolver(new JspView(""));
+		assertThat(resolver.isOverlayModel(), is(false));
+
+		injectionContext = new InjectionContextImpl();
+		injectionContext.inject("true").named(ViewModule.JspModelOverlayProperty).as(String.class);
+		module.initialise(injectionContext);
+		module.configure(injectionContext);
+		resolver = (JspViewResolver) injectionContext.get(ViewResolverRegistry.class).findViewResolver(new JspView(""));
+		assertThat(resolver.isOverlayModel(), is(true));
+	}
 }
@@ -21,6 +21,12 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 public class ViewResolverRegistryTest {
@@ -81,6 +87,22 @@ public class ViewResolverRegistryTest {
 		assertThat(registry.findViewResolverInCache(new RuntimeException()), is(resolver));
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void shouldResolveRegisteredTypesFromCacheWithoutSearchingTypeHierarchy() {
+		ViewResolver resolverA = mock(ViewResolver.class);
+		ViewResolver resolverB = mock(ViewResolver.class);
+		registry = spy(registry);
+		registry.addResolver(Throwable.class, resolverA);
+		registry.addResolver(RuntimeException.class, resolverB);
+
+		RuntimeException viewResult = new RuntimeException();
+		assertThat(registry.findViewResolverInCache(viewResult), is(resolverB));
+		assertThat(registry.findViewResolver(viewResult), is(resolverB));
+		assertThat(registry.findViewResolver(new Throwable()), is(resolverA));
+		verify(registry, times(0)).createAndCacheResolver(any());
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Test
 	public void shouldReturnNullIfUnableToResolveView() {
@@ -107,4 +129,93 @@ public class ViewResolverRegistryTest {
 		assertThat(registry.findViewResolver(viewResult), is(nullValue()));
 		assertThat(registry.findViewResolverInCache(viewResult), is(nullValue()));
 	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void shouldFindViewResolversWhileResolversAreAddedAndRemovedConcurrently() throws InterruptedException {
+		final ViewResolver resolver = mock(ViewResolver.class);
+		ViewResolver other = mock(ViewResolver.class);
+		registry.addResolver(Throwable.class, resolver);
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger failures = new AtomicInteger();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (running.get()) {
+						try {
+							if (registry.findViewResolver(new IllegalArgumentException()) != resolver) {
+								failures.incrementAndGet();
+							}
+						} catch (RuntimeException e) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+
+		for (int i = 0; i < 500; i++) {
+			registry.addResolver(String.class, other);
+			registry.removeResolver(String.class);
+		}
+		running.set(false);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		assertThat(failures.get(), is(0));
+		assertThat(registry.findViewResolver("string"), is(nullValue()));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void shouldResolveUncachedTypesConsistentlyUnderContention() throws InterruptedException {
+		final ViewResolver throwableResolver = mock(ViewResolver.class);
+		final ViewResolver runtimeResolver = mock(ViewResolver.class);
+		registry.addResolver(Throwable.class, throwableResolver);
+		registry.addResolver(RuntimeException.class, runtimeResolver);
+		final Object[] viewResults = { new Exception(), new InterruptedException(), new IllegalArgumentException(), new IllegalStateException(), new NullPointerException(),
+				new UnsupportedOperationException(), new ArithmeticException(), new Error() };
+		final ViewResolver[] expected = { throwableResolver, throwableResolver, runtimeResolver, runtimeResolver, runtimeResolver, runtimeResolver, runtimeResolver,
+				throwableResolver };
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger failures = new AtomicInteger();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int i = 0; i < 16; i++) {
+			final int offset = i;
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < 20000; j++) {
+							int index = (offset + j) % viewResults.length;
+							if (registry.findViewResolver(viewResults[index]) != expected[index]) {
+								failures.incrementAndGet();
+							}
+						}
+					} catch (InterruptedException e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+		start.countDown();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		assertThat(failures.get(), is(0));
+		for (int i = 0; i < viewResults.length; i++) {
+			assertThat(registry.findViewResolverInCache(viewResults[i]), is(expected[i]));
+		}
+	}
 }
@@ -0,0 +1,51 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view.conditional;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.threewks.thundr.http.Header;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
+public class NotModifiedViewResolverTest {
+	private NotModifiedViewResolver resolver = new NotModifiedViewResolver();
+	private MockHttpServletRequest req = new MockHttpServletRequest();
+	private MockHttpServletResponse resp = new MockHttpServletResponse();
+
+	@Test
+	public void shouldRespondNotModifiedWithValidators() {
+		resolver.resolve(req, resp, new NotModifiedView("W/\"v1\"", 946684810000L));
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.<String> header(Header.ETag), is("W/\"v1\""));
+		assertThat(resp.header(Header.LastModified), is(notNullValue()));
+	}
+
+	@Test
+	public void shouldRespondNotModifiedWithoutValidators() {
+		resolver.resolve(req, resp, new NotModifiedView(null, -1));
+
+		assertThat(resp.status(), is(304));
+		assertThat(resp.header(Header.ETag), is(nullValue()));
+		assertThat(resp.header(Header.LastModified), is(nullValue()));
+	}
+}
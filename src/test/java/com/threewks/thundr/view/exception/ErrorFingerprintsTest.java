@@ -0,0 +1,132 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view.exception;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.threewks.thundr.view.exception.ErrorFingerprints.Occurrence;
+
+public class ErrorFingerprintsTest {
+	private long now = 100000;
+	private ErrorFingerprints fingerprints = new ErrorFingerprints(60, TimeUnit.SECONDS, 10) {
+		@Override
+		protected long now() {
+			return now;
+		}
+	};
+
+	@Test
+	public void shouldGroupExceptionsThrownFromTheSamePlace() {
+		Occurrence[] occurrences = record(2);
+
+		assertThat(occurrences[1].getFingerprint(), is(sameInstance(occurrences[0].getFingerprint())));
+		assertThat(occurrences[0].getFingerprint().getType(), is(IllegalStateException.class.getName()));
+		assertThat(occurrences[0].getFingerprint().getCount(), is(2L));
+		assertThat(fingerprints.size(), is(1));
+	}
+
+	@Test
+	public void shouldSeparateExceptionsOfDifferentTypesOrCauses() {
+		Occurrence first = fingerprints.record(new IllegalStateException("message"));
+		Occurrence second = fingerprints.record(new IllegalArgumentException("message"));
+		Occurrence third = fingerprints.record(new IllegalStateException("message", new RuntimeException()));
+
+		assertThat(second.getFingerprint(), is(not(sameInstance(first.getFingerprint()))));
+		assertThat(third.getFingerprint(), is(not(sameInstance(first.getFingerprint()))));
+		assertThat(fingerprints.size(), is(3));
+	}
+
+	@Test
+	public void shouldReportEachFingerprintOncePerIntervalCountingSuppressedOccurrences() {
+		IllegalStateException failure = new IllegalStateException();
+		Occurrence first = fingerprints.record(failure);
+		assertThat(first.isReported(), is(true));
+		assertThat(first.getSuppressed(), is(0L));
+		assertThat(first.getLastReported(), is(0L));
+
+		now += 1000;
+		assertThat(fingerprints.record(failure).isReported(), is(false));
+		assertThat(fingerprints.record(failure).isReported(), is(false));
+		assertThat(first.getFingerprint().getSuppressed(), is(2L));
+
+		now += 59000;
+		Occurrence fourth = fingerprints.record(failure);
+		assertThat(fourth.isReported(), is(true));
+		assertThat(fourth.getSuppressed(), is(2L));
+		assertThat(fourth.getLastReported(), is(100000L));
+		assertThat(first.getFingerprint().getSuppressed(), is(0L));
+		assertThat(first.getFingerprint().getCount(), is(4L));
+	}
+
+	@Test
+	public void shouldReportEveryOccurrenceWhenIntervalIsZero() {
+		fingerprints = new ErrorFingerprints(0, TimeUnit.SECONDS, 10);
+		Occurrence[] occurrences = record(2);
+		assertThat(occurrences[0].isReported(), is(true));
+		assertThat(occurrences[1].isReported(), is(true));
+	}
+
+	@Test
+	public void shouldCountNewFingerprintsAsOverflowOnceMaximumIsTracked() {
+		fingerprints = new ErrorFingerprints(60, TimeUnit.SECONDS, 2);
+		fingerprints.record(new IllegalStateException());
+		fingerprints.record(new IllegalArgumentException());
+		Occurrence overflow = fingerprints.record(new UnsupportedOperationException());
+		fingerprints.record(new ArithmeticException());
+
+		assertThat(overflow.getFingerprint().getId(), is(ErrorFingerprints.Overflow));
+		assertThat(fingerprints.size(), is(2));
+		assertThat(fingerprints.list().size(), is(3));
+		assertThat(fingerprints.getCounts().get(ErrorFingerprints.Overflow), is(2L));
+	}
+
+	@Test
+	public void shouldListCountsByFingerprintId() {
+		Occurrence first = record(2)[0];
+		Occurrence other = fingerprints.record(new IllegalArgumentException());
+
+		assertThat(fingerprints.getCounts().size(), is(2));
+		assertThat(fingerprints.getCounts().get(first.getFingerprint().getId()), is(2L));
+		assertThat(fingerprints.getCounts().get(other.getFingerprint().getId()), is(1L));
+
+		fingerprints.clear();
+		assertThat(fingerprints.getCounts().size(), is(0));
+	}
+
+	@Test
+	public void shouldIdentifyFingerprintsByTruncatedDigest() {
+		Occurrence occurrence = fingerprints.record(new IllegalStateException());
+
+		assertThat(occurrence.getFingerprint().getId().matches("[0-9a-f]{16}"), is(true));
+		// these have the same String hash code
+		assertThat(ErrorFingerprints.id("Aa"), is(not(ErrorFingerprints.id("BB"))));
+	}
+
+	private Occurrence[] record(int count) {
+		Occurrence[] occurrences = new Occurrence[count];
+		for (int i = 0; i < count; i++) {
+			occurrences[i] = fingerprints.record(new IllegalStateException("failure " + i));
+		}
+		return occurrences;
+	}
+}
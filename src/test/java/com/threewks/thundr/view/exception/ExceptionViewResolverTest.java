@@ -17,6 +17,8 @@
  */
 package com.threewks.thundr.view.exception;
 
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
@@ -67,4 +69,26 @@ public class ExceptionViewResolverTest {
 		doThrow(new IOException("intentional")).when(resp).sendError(anyInt(), anyString());
 		resolver.resolve(req, resp, viewResult);
 	}
+
+	@Test
+	public void shouldReturnStatus500WithFingerprintInsteadOfStackTraceWhenStackTracesAreExcluded() throws IOException {
+		ErrorFingerprints errorFingerprints = new ErrorFingerprints();
+		resolver = new ExceptionViewResolver(errorFingerprints, false);
+		resolver.resolve(req, resp, new Exception("message"));
+
+		String id = errorFingerprints.list().get(0).getId();
+		verify(resp).sendError(500, "Internal server error " + id);
+	}
+
+	@Test
+	public void shouldCountExceptionsByFingerprint() throws IOException {
+		Exception viewResult = new Exception("message");
+		resolver.resolve(req, resp, viewResult);
+		resolver.resolve(req, resp, viewResult);
+		resolver.resolve(req, resp, new ViewResolutionException(viewResult, "ViewResolutionMessage"));
+
+		ErrorFingerprints errorFingerprints = resolver.getErrorFingerprints();
+		assertThat(errorFingerprints.size(), is(1));
+		assertThat(errorFingerprints.list().get(0).getCount(), is(3L));
+	}
 }
@@ -28,6 +28,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.threewks.thundr.http.exception.HttpOutcomeException;
 import com.threewks.thundr.http.exception.HttpStatusException;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
@@ -48,6 +49,12 @@ public class HttpStatusExceptionViewResolverTest {
 		assertThat(resp.status(), is(101));
 	}
 
+	@Test
+	public void shouldSendErrorForSharedHttpOutcomeException() {
+		resolver.resolve(req, resp, HttpOutcomeException.Unauthorized);
+		assertThat(resp.status(), is(401));
+	}
+
 	@Test
 	public void shouldThrowViewResolutionExceptionIfSendingErrorFails() {
 		thrown.expect(ViewResolutionException.class);
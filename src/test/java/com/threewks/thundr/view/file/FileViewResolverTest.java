@@ -22,14 +22,19 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import javax.servlet.http.Cookie;
 
+import org.hamcrest.Matchers;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import com.threewks.thundr.http.Cookies;
@@ -41,6 +46,8 @@ import com.threewks.thundr.view.ViewResolutionException;
 public class FileViewResolverTest {
 	@Rule
 	public ExpectedException thrown = ExpectedException.none();
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
 
 	private MockHttpServletRequest req = new MockHttpServletRequest();
 	private MockHttpServletResponse resp = new MockHttpServletResponse();
@@ -101,6 +108,34 @@ public class FileViewResolverTest {
 		assertThat(resp.getCookies(), hasItem(cookie));
 	}
 
+	@Test
+	public void shouldSetContentLengthWhenKnown() {
+		fileViewResolver.resolve(req, resp, fileView);
+		assertThat(resp.<String> header(Header.ContentLength), is("3"));
+	}
+
+	@Test
+	public void shouldNotSetContentLengthWhenUnknown() throws IOException {
+		fileView = new FileView("filename.ext", mockInputStream(), "content/type");
+		fileViewResolver.resolve(req, resp, fileView);
+		assertThat(resp.<String> header(Header.ContentLength), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotReadDataForHeadRequestWhenContentLengthIsKnown() throws IOException {
+		InputStream is = mockInputStream();
+		fileView = new FileView("filename.ext", is, "content/type").withContentLength(100);
+		req.method("HEAD");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.<String> header(Header.ContentLength), is("100"));
+		assertThat((String) resp.header(Header.ContentDisposition), is("attachment; filename=filename.ext"));
+		verify(is, never()).read();
+		verify(is, never()).read(Mockito.any(byte[].class));
+		verify(is, never()).read(Mockito.any(byte[].class), anyInt(), anyInt());
+		verify(is).close();
+	}
+
 	@Test
 	public void shouldReturnClassNameForToString() {
 		assertThat(new FileViewResolver().toString(), is("FileViewResolver"));
@@ -128,6 +163,78 @@ public class FileViewResolverTest {
 		verify(is).close();
 	}
 
+	@Test
+	public void shouldServeRangeOfByteArray() {
+		fileView = new FileView("filename.ext", "0123456789".getBytes(), "content/type");
+		req.header(Header.Range, "bytes=2-4");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.status(), is(206));
+		assertThat(resp.content(), is("234"));
+		assertThat(resp.<String> header(Header.AcceptRanges), is("bytes"));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes 2-4/10"));
+		assertThat(resp.<String> header(Header.ContentLength), is("3"));
+		assertThat((String) resp.header(Header.ContentDisposition), is("attachment; filename=filename.ext"));
+	}
+
+	@Test
+	public void shouldServeMultipleRangesOfFile() throws IOException {
+		File file = temp.newFile("file.txt");
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write("0123456789".getBytes());
+		fos.close();
+		fileView = new FileView("filename.ext", file, "content/type");
+		req.header(Header.Range, "bytes=0-1,8-");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.status(), is(206));
+		assertThat(resp.getContentType(), Matchers.startsWith("multipart/byteranges"));
+		assertThat(resp.content(), containsString("Content-Type: content/type\r\nContent-Range: bytes 0-1/10\r\n\r\n01\r\n"));
+		assertThat(resp.content(), containsString("Content-Type: content/type\r\nContent-Range: bytes 8-9/10\r\n\r\n89\r\n"));
+	}
+
+	@Test
+	public void shouldServeSingleRangeOfStreamWithKnownLength() throws IOException {
+		InputStream is = new ByteArrayInputStream("0123456789".getBytes());
+		fileView = new FileView("filename.ext", is, "content/type").withContentLength(10);
+		req.header(Header.Range, "bytes=5-");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.status(), is(206));
+		assertThat(resp.content(), is("56789"));
+	}
+
+	@Test
+	public void shouldServeCompleteStreamWhenLengthIsUnknown() throws IOException {
+		InputStream is = new ByteArrayInputStream("0123456789".getBytes());
+		fileView = new FileView("filename.ext", is, "content/type");
+		req.header(Header.Range, "bytes=5-");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.content(), is("0123456789"));
+		assertThat(resp.<String> header(Header.AcceptRanges), is(nullValue()));
+	}
+
+	@Test
+	public void shouldRespondRangeNotSatisfiable() {
+		req.header(Header.Range, "bytes=3-");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.status(), is(416));
+		assertThat(resp.<String> header(Header.ContentRange), is("bytes */3"));
+	}
+
+	@Test
+	public void shouldServeCompleteContentWhenIfRangeDoesNotMatchETag() {
+		fileView = new FileView("filename.ext", "0123456789".getBytes(), "content/type").withHeader(Header.ETag, "\"v2\"");
+		req.header(Header.Range, "bytes=2-4");
+		req.header(Header.IfRange, "\"v1\"");
+		fileViewResolver.resolve(req, resp, fileView);
+
+		assertThat(resp.content(), is("0123456789"));
+		assertThat(resp.<String> header(Header.ContentLength), is("10"));
+	}
+
 	public InputStream mockInputStream() throws IOException {
 		InputStream is = mock(InputStream.class);
 		when(is.read()).thenReturn(-1);
@@ -28,11 +28,15 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import com.threewks.thundr.util.Streams;
 
 public class FileViewTest {
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
 
 	@Test
 	public void shouldRetainGivenInputStreamContentTypeAndFilename() {
@@ -91,4 +95,28 @@ public class FileViewTest {
 		FileView fileView = new FileView("filename.ext", data, "content/type");
 		assertThat(fileView.toString(), is("filename.ext (content/type)"));
 	}
+
+	@Test
+	public void shouldRetainFileAndLengthWithoutOpeningIt() throws FileNotFoundException, URISyntaxException {
+		File file = new File(this.getClass().getClassLoader().getResource("streams.txt").toURI());
+
+		FileView fileView = new FileView("filename.ext", file, "contentType");
+		assertThat(fileView.getFile(), is(file));
+		assertThat(fileView.getBytes(), is(nullValue()));
+		assertThat(fileView.getContentLength(), is(file.length()));
+	}
+
+	@Test
+	public void shouldRetainByteArray() throws UnsupportedEncodingException {
+		byte[] data = "Test data".getBytes("UTF-8");
+		FileView fileView = new FileView("filename.ext", data, "contentType");
+		assertThat(fileView.getBytes(), is(sameInstance(data)));
+		assertThat(fileView.getFile(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldThrowFileNotFoundExceptionForMissingFile() throws FileNotFoundException {
+		thrown.expect(FileNotFoundException.class);
+		new FileView("filename.ext", new File("does-not-exist.txt"), "contentType");
+	}
 }
@@ -0,0 +1,162 @@
+/*
+ * This file is a component of thundr, a software library from 3wks.
+ * Read more: http://3wks.github.io/thundr/
+ * Copyright (C) 2014 3wks, <thundr@3wks.com.au>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.threewks.thundr.view.jsp;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.threewks.thundr.cache.CacheException;
+import com.threewks.thundr.view.jsp.FragmentCache.Renderer;
+
+public class FragmentCacheTest {
+	private FragmentCache fragmentCache = new FragmentCache();
+	private AtomicInteger renders = new AtomicInteger();
+
+	@Test
+	public void shouldRenderFragmentOnceAndReplayIt() {
+		assertThat(fragmentCache.get("footer", 60, renderer("footer")), is("footer-1"));
+		assertThat(fragmentCache.get("footer", 60, renderer("footer")), is("footer-1"));
+		assertThat(fragmentCache.get("header", 60, renderer("header")), is("header-2"));
+
+		assertThat(fragmentCache.size(), is(2));
+		assertThat(fragmentCache.hits(), is(1L));
+		assertThat(fragmentCache.misses(), is(2L));
+		assertThat(fragmentCache.hitRate(), is(1.0 / 3));
+	}
+
+	@Test
+	public void shouldRenderAgainOnceExpired() {
+		assertThat(fragmentCache.get("footer", 0, renderer("footer")), is("footer-1"));
+		assertThat(fragmentCache.get("footer", 0, renderer("footer")), is("footer-2"));
+		assertThat(fragmentCache.misses(), is(2L));
+	}
+
+	@Test
+	public void shouldInvalidateByKey() {
+		fragmentCache.get("footer", 60, renderer("footer"));
+		fragmentCache.invalidate("footer");
+
+		assertThat(fragmentCache.get("footer", 60, renderer("footer")), is("footer-2"));
+	}
+
+	@Test
+	public void shouldInvalidateByKeyPrefix() {
+		fragmentCache.get("product:1:tile", 60, renderer("a"));
+		fragmentCache.get("product:1:detail", 60, renderer("b"));
+		fragmentCache.get("product:2:tile", 60, renderer("c"));
+
+		assertThat(fragmentCache.invalidatePrefix("product:1:"), is(2));
+		assertThat(fragmentCache.size(), is(1));
+		assertThat(fragmentCache.get("product:2:tile", 60, renderer("c")), is("c-3"));
+		assertThat(fragmentCache.get("product:1:tile", 60, renderer("a")), is("a-4"));
+	}
+
+	@Test
+	public void shouldClear() {
+		fragmentCache.get("footer", 60, renderer("footer"));
+		fragmentCache.clear();
+
+		assertThat(fragmentCache.size(), is(0));
+		assertThat(fragmentCache.weight(), is(0L));
+	}
+
+	@Test
+	public void shouldBoundBytesHeld() {
+		FragmentCache fragmentCache = new FragmentCache(1000);
+		for (int i = 0; i < 100; i++) {
+			fragmentCache.get("fragment" + i, 60, renderer("0123456789"));
+		}
+
+		assertThat(fragmentCache.weight(), is(lessThanOrEqualTo(1000L)));
+		assertThat(fragmentCache.size(), is(lessThan(100)));
+	}
+
+	@Test
+	public void shouldPropagateRenderFailures() {
+		try {
+			fragmentCache.get("footer", 60, new Renderer() {
+				@Override
+				public String render() throws Exception {
+					throw new IllegalStateException("expected");
+				}
+			});
+			throw new AssertionError("Expected a CacheException");
+		} catch (CacheException e) {
+			assertThat(e.getCause().getMessage(), is("expected"));
+		}
+		assertThat(fragmentCache.size(), is(0));
+	}
+
+	@Test
+	public void shouldRenderOnceForConcurrentRequests() throws Exception {
+		final CountDownLatch rendering = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Renderer slowRenderer = new Renderer() {
+			@Override
+			public String render() throws Exception {
+				renders.incrementAndGet();
+				rendering.countDown();
+				release.await();
+				return "footer";
+			}
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return fragmentCache.get("footer", 60, slowRenderer);
+					}
+				}));
+			}
+			rendering.await(5, TimeUnit.SECONDS);
+			Thread.sleep(50);
+			release.countDown();
+			for (Future<String> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS), is("footer"));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(renders.get(), is(1));
+		assertThat(fragmentCache.hits(), is(3L));
+	}
+
+	private Renderer renderer(final String content) {
+		return new Renderer() {
+			@Override
+			public String render() throws Exception {
+				return content + "-" + renders.incrementAndGet();
+			}
+		};
+	}
+}
@@ -20,18 +20,25 @@ package com.threewks.thundr.view.jsp;
 import static com.atomicleopard.expressive.Expressive.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -40,9 +47,11 @@ import org.junit.rules.ExpectedException;
 
 import com.atomicleopard.expressive.Expressive;
 import com.threewks.thundr.http.Cookies;
+import com.threewks.thundr.http.RequestThreadLocal;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
 import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
 import com.threewks.thundr.test.mock.servlet.MockHttpSession;
+import com.threewks.thundr.test.mock.servlet.MockRequestDispatcher;
 import com.threewks.thundr.view.GlobalModel;
 import com.threewks.thundr.view.ViewResolutionException;
 
@@ -88,8 +97,9 @@ public class JspViewResolverTest {
 	public void shouldAddAllModelAttributesAsRequestAttributes() {
 		Map<String, Object> model = mapKeys("attribute1", "attribute2").to("String val", list("Other", "Stuff"));
 		resolver.resolve(req, resp, new JspView("view.jsp", model));
-		assertThat(req.getAttribute("attribute1"), is((Object) "String val"));
-		assertThat(req.getAttribute("attribute2"), is((Object) list("Other", "Stuff")));
+		ServletRequest included = req.requestDispatcher().request();
+		assertThat(included.getAttribute("attribute1"), is((Object) "String val"));
+		assertThat(included.getAttribute("attribute2"), is((Object) list("Other", "Stuff")));
 	}
 
 	@Test
@@ -97,16 +107,17 @@ public class JspViewResolverTest {
 		globalModel.put("key 1", "value 1");
 		globalModel.putAll(Expressive.<String, Object> map("key 2", "value 2", "key 3", "value 3"));
 		resolver.resolve(req, resp, new JspView("view.jsp", Expressive.<String, Object> map()));
-		assertThat(req.getAttribute("key 1"), is((Object) "value 1"));
-		assertThat(req.getAttribute("key 2"), is((Object) "value 2"));
-		assertThat(req.getAttribute("key 3"), is((Object) "value 3"));
+		ServletRequest included = req.requestDispatcher().request();
+		assertThat(included.getAttribute("key 1"), is((Object) "value 1"));
+		assertThat(included.getAttribute("key 2"), is((Object) "value 2"));
+		assertThat(included.getAttribute("key 3"), is((Object) "value 3"));
 	}
 
 	@Test
 	public void shouldAllowModelAttributesToOverrideGlobalModelAttributes() {
 		globalModel.put("key 1", "value 1");
 		resolver.resolve(req, resp, new JspView("view.jsp", Expressive.<String, Object> map("key 1", "some other value")));
-		assertThat(req.getAttribute("key 1"), is((Object) "some other value"));
+		assertThat(req.requestDispatcher().request().getAttribute("key 1"), is((Object) "some other value"));
 	}
 
 	@Test
@@ -114,7 +125,51 @@ public class JspViewResolverTest {
 		globalModel.put("key 1", "value 1");
 		globalModel.remove("key 1");
 		resolver.resolve(req, resp, new JspView("view.jsp", Expressive.<String, Object> map()));
-		assertThat(req.getAttribute("key 1"), is(nullValue()));
+		assertThat(req.requestDispatcher().request().getAttribute("key 1"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldCopyModelsIntoRequestByDefault() {
+		globalModel.put("global", "value");
+		resolver.resolve(req, resp, new JspView("view.jsp", Expressive.<String, Object> map("model", "value")));
+
+		assertThat(req.requestDispatcher().request(), is((ServletRequest) req));
+		assertThat(req.getAttribute("global"), is((Object) "value"));
+		assertThat(req.getAttribute("model"), is((Object) "value"));
+	}
+
+	@Test
+	public void shouldOverlayModelsWithoutCopyingThemIntoRequest() {
+		resolver.setOverlayModel(true);
+		globalModel.put("global", "value");
+		req.setAttribute("existing", "value");
+		resolver.resolve(req, resp, new JspView("view.jsp", Expressive.<String, Object> map("model", "value")));
+
+		ServletRequest included = req.requestDispatcher().request();
+		assertThat(included.getAttribute("existing"), is((Object) "value"));
+		assertThat(req.getAttribute("global"), is(nullValue()));
+		assertThat(req.getAttribute("model"), is(nullValue()));
+	}
+
+	@Test
+	public void shouldMakeModelRequestAvailableFromThreadLocalDuringInclude() {
+		final List<HttpServletRequest> requests = new ArrayList<HttpServletRequest>();
+		req.requestDispatcher(new MockRequestDispatcher() {
+			@Override
+			public void include(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+				requests.add(RequestThreadLocal.getRequest());
+			}
+		});
+		resolver.setOverlayModel(true);
+		RequestThreadLocal.set(req, resp);
+		try {
+			resolver.resolve(req, resp, new JspView("view.jsp", Expressive.<String, Object> map("model", "value")));
+
+			assertThat(requests.get(0).getAttribute("model"), is((Object) "value"));
+			assertThat(RequestThreadLocal.getRequest(), is((HttpServletRequest) req));
+		} finally {
+			RequestThreadLocal.clear();
+		}
 	}
 
 	@Test
@@ -128,7 +183,7 @@ public class JspViewResolverTest {
 	@Test
 	public void shouldThrowViewResolutionExceptionWhenDispatcherIncludeThrowsServletException() throws ServletException, IOException {
 		RequestDispatcher requestDispatcher = mock(RequestDispatcher.class);
-		doThrow(new ServletException("Internal server error")).when(requestDispatcher).include(req, resp);
+		doThrow(new ServletException("Internal server error")).when(requestDispatcher).include(any(ServletRequest.class), eq(resp));
 		req.requestDispatcher(requestDispatcher);
 
 		thrown.expect(ViewResolutionException.class);
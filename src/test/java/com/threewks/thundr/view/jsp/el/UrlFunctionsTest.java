@@ -19,10 +19,25 @@ package com.threewks.thundr.view.jsp.el;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
+
+import org.junit.After;
 import org.junit.Test;
 
+import com.threewks.thundr.http.RequestThreadLocal;
+import com.threewks.thundr.route.staticResource.AssetBundles;
+import com.threewks.thundr.route.staticResource.ResourceFingerprints;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletRequest;
+import com.threewks.thundr.test.mock.servlet.MockHttpServletResponse;
+
 public class UrlFunctionsTest {
+	@After
+	public void after() {
+		RequestThreadLocal.clear();
+	}
+
 	@Test
 	public void shouldEncodeRequestParameter() {
 		assertThat(UrlFunctions.param("cats & dogs"), is("cats%20%26%20dogs"));
@@ -43,4 +58,42 @@ public class UrlFunctionsTest {
 		assertThat(UrlFunctions.pathSlug(" cats "), is("-cats-"));
 		assertThat(UrlFunctions.pathSlug(null), is(nullValue()));
 	}
+
+	@Test
+	public void shouldReturnAssetPathUnchangedWithoutFingerprints() {
+		assertThat(UrlFunctions.asset("/js/app.js"), is("/js/app.js"));
+
+		RequestThreadLocal.set(new MockHttpServletRequest(), new MockHttpServletResponse());
+		assertThat(UrlFunctions.asset("/js/app.js"), is("/js/app.js"));
+	}
+
+	@Test
+	public void shouldReturnFingerprintedAssetUrl() {
+		ResourceFingerprints fingerprints = mock(ResourceFingerprints.class);
+		when(fingerprints.url("/js/app.js")).thenReturn("/js/app.0123456789.js");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute(ResourceFingerprints.ModelAttribute, fingerprints);
+		RequestThreadLocal.set(request, new MockHttpServletResponse());
+
+		assertThat(UrlFunctions.asset("/js/app.js"), is("/js/app.0123456789.js"));
+	}
+
+	@Test
+	public void shouldReturnNoBundleUrlsWithoutAssetBundles() {
+		assertThat(UrlFunctions.bundle("app.js").isEmpty(), is(true));
+
+		RequestThreadLocal.set(new MockHttpServletRequest(), new MockHttpServletResponse());
+		assertThat(UrlFunctions.bundle("app.js").isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldReturnBundleUrls() {
+		AssetBundles bundles = mock(AssetBundles.class);
+		when(bundles.urls("app.js")).thenReturn(Arrays.asList("/js/a.js", "/js/b.js"));
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setAttribute(AssetBundles.ModelAttribute, bundles);
+		RequestThreadLocal.set(request, new MockHttpServletResponse());
+
+		assertThat(UrlFunctions.bundle("app.js"), is(Arrays.asList("/js/a.js", "/js/b.js")));
+	}
 }
@@ -73,4 +73,17 @@ public class ViewNegotiatorRegistryImplTest {
 		assertThat(registry.listNegotiatedContentTypes(), hasItems("application/javascript", "text/javascript", "text/script"));
 	}
 
+	@Test
+	public void shouldChangeVersionOnlyWhenNegotiatorsChange() {
+		int version = registry.getVersion();
+		registry.setDefaultNegotiator(new JsonNegotiator());
+		assertThat(registry.getVersion(), is(version));
+
+		registry.addNegotiator("application/json", new JsonNegotiator());
+		assertThat(registry.getVersion(), is(not(version)));
+
+		version = registry.getVersion();
+		registry.removeNegotiator("application/json");
+		assertThat(registry.getVersion(), is(not(version)));
+	}
 }
@@ -20,6 +20,11 @@ package com.threewks.thundr.view.negotiating.strategy;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -63,6 +68,18 @@ public class AcceptsHeaderNegotiationStrategyTest {
 		assertThat(result, is(jsonNegotiator));
 	}
 
+	@Test
+	public void shouldReturnContentTypeNegotiatedFromAcceptHeader() {
+		viewNegotiatorRegistry.addNegotiator("application/json", jsonNegotiator);
+		viewNegotiatorRegistry.addNegotiator("application/javascript", jsonpNegotiator);
+
+		req.header(Header.Accept, "image/png, Application/JSON;q=0.7, application/javascript;q=0.8");
+		assertThat(strategy.findContentType(req, viewNegotiatorRegistry), is("application/javascript"));
+
+		assertThat(strategy.findContentType(new MockHttpServletRequest().header(Header.Accept, "image/png"), viewNegotiatorRegistry), is(nullValue()));
+		assertThat(strategy.findContentType(new MockHttpServletRequest(), viewNegotiatorRegistry), is(nullValue()));
+	}
+
 	@Test
 	public void shouldReturnNegotiatedViewRespectingQualityParameters() {
 		viewNegotiatorRegistry.addNegotiator("application/json", jsonNegotiator);
@@ -104,4 +121,98 @@ public class AcceptsHeaderNegotiationStrategyTest {
 		Negotiator<?> result = strategy.findNegotiator(req, view, viewNegotiatorRegistry);
 		assertThat(result, is(nullValue()));
 	}
+
+	@Test
+	public void shouldCacheNegotiatorChosenForAcceptHeader() {
+		viewNegotiatorRegistry.addNegotiator("application/json", jsonNegotiator);
+		req.header(Header.Accept, "text/html,application/json;q=0.9");
+
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is((Object) jsonNegotiator));
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is((Object) jsonNegotiator));
+		assertThat(strategy.cachedAcceptHeaders(), is(1));
+	}
+
+	@Test
+	public void shouldCacheWhenNoNegotiatorMatchesAcceptHeader() {
+		viewNegotiatorRegistry.addNegotiator("application/json", jsonNegotiator);
+		req.header(Header.Accept, "text/html");
+
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is(nullValue()));
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is(nullValue()));
+		assertThat(strategy.cachedAcceptHeaders(), is(1));
+	}
+
+	@Test
+	public void shouldRenegotiateWhenNegotiatorsChange() {
+		viewNegotiatorRegistry.addNegotiator("application/json", jsonNegotiator);
+		req.header(Header.Accept, "application/javascript,application/json;q=0.9");
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is((Object) jsonNegotiator));
+
+		viewNegotiatorRegistry.addNegotiator("application/javascript", jsonpNegotiator);
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is((Object) jsonpNegotiator));
+
+		viewNegotiatorRegistry.removeNegotiator("application/javascript");
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is((Object) jsonNegotiator));
+
+		viewNegotiatorRegistry.removeNegotiator("application/json");
+		assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is(nullValue()));
+	}
+
+	@Test
+	public void shouldNotCacheForOtherRegistries() {
+		MapViewNegotiatorRegistry registry = new MapViewNegotiatorRegistry();
+		req.header(Header.Accept, "application/json");
+
+		assertThat(strategy.findNegotiator(req, view, registry), is(nullValue()));
+		registry.addNegotiator("application/json", jsonNegotiator);
+		assertThat(strategy.findNegotiator(req, view, registry), is((Object) jsonNegotiator));
+		assertThat(strategy.cachedAcceptHeaders(), is(0));
+	}
+
+	@Test
+	public void shouldBoundNumberOfCachedAcceptHeaders() {
+		strategy = new AcceptsHeaderNegotiationStrategy(10);
+		viewNegotiatorRegistry.addNegotiator("application/json", jsonNegotiator);
+		for (int i = 0; i < 100; i++) {
+			req.header(Header.Accept, "application/vnd.thundr-" + i + ",application/json;q=0.5");
+			assertThat(strategy.findNegotiator(req, view, viewNegotiatorRegistry), is((Object) jsonNegotiator));
+		}
+		assertThat(strategy.cachedAcceptHeaders(), is(lessThanOrEqualTo(10)));
+	}
+
+	private static class MapViewNegotiatorRegistry implements ViewNegotiatorRegistry {
+		private Map<String, Negotiator<?>> negotiators = new HashMap<String, Negotiator<?>>();
+		private Negotiator<?> defaultNegotiator;
+
+		@Override
+		public Negotiator<?> getDefaultNegotiator() {
+			return defaultNegotiator;
+		}
+
+		@Override
+		public void setDefaultNegotiator(Negotiator<?> negotiator) {
+			this.defaultNegotiator = negotiator;
+		}
+
+		@Override
+		public void addNegotiator(String contentType, Negotiator<?> negotiator) {
+			negotiators.put(contentType, negotiator);
+		}
+
+		@Override
+		public void removeNegotiator(String contentType) {
+			negotiators.remove(contentType);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <V> Negotiator<V> getNegotiator(String contentType) {
+			return (Negotiator<V>) negotiators.get(contentType);
+		}
+
+		@Override
+		public List<String> listNegotiatedContentTypes() {
+			return new ArrayList<String>(negotiators.keySet());
+		}
+	}
 }